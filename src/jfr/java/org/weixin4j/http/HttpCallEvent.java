@@ -0,0 +1,99 @@
+package org.weixin4j.http;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 请求微信平台的JFR事件
+ *
+ * <p>
+ * 开启飞行记录（如-XX:StartFlightRecording）后记录每次请求，耗时为发送请求到响应读取完毕或关闭；<br/>
+ * 未记录时不产生开销。只在weixin4j.http.jfr=true且JDK支持JFR时使用。</p>
+ *
+ * <p>
+ * 位于可选的src/jfr/java，由jfr profile编译（JDK 11及以上自动启用，8u262及以上使用-Pjfr），<br/>
+ * 在不支持JFR的JDK上构建时不包含本类，<tt>HttpCallRecorder</tt>通过反射加载，找不到时不提交事件。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Name("org.weixin4j.HttpCall")
+@Label("Weixin API Call")
+@Category({"Weixin4j", "HTTP"})
+@Description("请求微信平台")
+class HttpCallEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+    @Label("Method")
+    String method;
+    @Label("Path")
+    String path;
+    @Label("Status")
+    int status;
+    @Label("Errcode")
+    int errcode;
+    @Label("Bytes Sent")
+    @DataAmount
+    long bytesSent;
+    @Label("Bytes Received")
+    @DataAmount
+    long bytesReceived;
+    @Label("Connection")
+    @Description("reused、new，传输层无法判断时为unknown")
+    String connection;
+    @Label("Error")
+    String error;
+
+    /**
+     * 由HttpCallRecorder反射创建
+     */
+    static class Support implements HttpCallRecorder.EventSupport {
+
+        @Override
+        public Object start() {
+            return HttpCallEvent.start();
+        }
+
+        @Override
+        public void commit(Object started, HttpCall call) {
+            HttpCallEvent.commit(started, call);
+        }
+    }
+
+    /**
+     * 开始记录，未开启飞行记录时返回null
+     */
+    static Object start() {
+        HttpCallEvent event = new HttpCallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束记录
+     */
+    static void commit(Object started, HttpCall call) {
+        HttpCallEvent event = (HttpCallEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = call.getEndpoint();
+            event.method = call.getMethod();
+            event.path = call.getPath();
+            event.status = call.getStatus();
+            event.errcode = call.getErrcode();
+            event.bytesSent = call.getBytesSent();
+            event.bytesReceived = call.getBytesReceived();
+            event.connection = call.getConnectionReused() == null ? "unknown" : call.getConnectionReused() ? "reused" : "new";
+            event.error = call.getError();
+            event.commit();
+        }
+    }
+}
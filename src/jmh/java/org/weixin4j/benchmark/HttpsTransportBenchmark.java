@@ -0,0 +1,93 @@
+package org.weixin4j.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weixin4j.WeixinException;
+import org.weixin4j.http.DefaultHttpTransport;
+import org.weixin4j.http.HttpsClient;
+import org.weixin4j.http.MyX509TrustManager;
+
+/**
+ * 每秒请求数：每次请求新建SSLContext并断开连接，与共享SSLSocketFactory复用keep-alive连接
+ *
+ * <p>
+ * 请求本地的https模拟服务，只比较握手与建立连接的代价。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HttpsTransportBenchmark {
+
+    private TlsStandInServer server;
+    private String url;
+    private HttpsClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new TlsStandInServer();
+        url = server.url("/cgi-bin/token");
+        client = new HttpsClient(new DefaultHttpTransport(server.clientSocketFactory(), 20, 10000, 10000));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    /**
+     * 优化前：每次请求新建SSLContext，读取后断开连接，每次完整握手
+     */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public int newContextPerCall() throws IOException, GeneralSecurityException {
+        HttpsURLConnection https = (HttpsURLConnection) new URL(url).openConnection();
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{new MyX509TrustManager()}, new SecureRandom());
+        https.setSSLSocketFactory(sslContext.getSocketFactory());
+        https.setRequestMethod("GET");
+        int n = 0;
+        try (InputStream in = https.getInputStream()) {
+            byte[] buf = new byte[256];
+            int read;
+            while ((read = in.read(buf)) != -1) {
+                n += read;
+            }
+        } finally {
+            https.disconnect();
+        }
+        return n;
+    }
+
+    /**
+     * 优化后：共享SSLSocketFactory，连接读取完毕后归还复用
+     */
+    @Benchmark
+    public String sharedTransport() throws WeixinException {
+        return client.get(url).asString();
+    }
+}
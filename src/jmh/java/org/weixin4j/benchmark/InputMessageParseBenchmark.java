@@ -0,0 +1,84 @@
+package org.weixin4j.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.LazyInputMessage;
+import org.weixin4j.util.InputMessageParser;
+import org.weixin4j.util.JAXBFactory;
+
+/**
+ * 回调消息解析后只读取分发用的字段：JAXB、StAX与按需解码
+ *
+ * <p>
+ * 每次解析后读取MsgType、Event、FromUserName与Content，<br/>
+ * 配合-prof gc比较gc.alloc.rate.norm（每次操作分配的字节数）。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputMessageParseBenchmark {
+
+    @Param({"text", "image", "location", "event_subscribe", "event_click", "event_location", "event_scancode_push"})
+    public String message;
+
+    private String xml;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        xml = MessageFixtures.input(message);
+        bytes = xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void touch(InputMessage inputMsg, Blackhole bh) {
+        bh.consume(inputMsg.getMsgType());
+        bh.consume(inputMsg.getEvent());
+        bh.consume(inputMsg.getFromUserName());
+        bh.consume(inputMsg.getContent());
+    }
+
+    /**
+     * JAXB解析全部字段
+     */
+    @Benchmark
+    public void jaxb(Blackhole bh) throws JAXBException {
+        touch(JAXBFactory.unmarshal(InputMessage.class, xml), bh);
+    }
+
+    /**
+     * StAX解析全部字段
+     */
+    @Benchmark
+    public void stax(Blackhole bh) throws XMLStreamException {
+        touch(InputMessageParser.parse(new ByteArrayInputStream(bytes)), bh);
+    }
+
+    /**
+     * 只建立索引，读取的字段才解码
+     */
+    @Benchmark
+    public void lazy(Blackhole bh) throws XMLStreamException {
+        touch(LazyInputMessage.parse(bytes), bh);
+    }
+}
@@ -0,0 +1,72 @@
+package org.weixin4j.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.util.InputMessageParser;
+import org.weixin4j.util.JAXBFactory;
+
+/**
+ * 回调消息解析代价：每次创建JAXBContext、JAXBFactory复用与StAX直接解析
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputMessageUnmarshalBenchmark {
+
+    private final String xml = "<xml>"
+            + "<ToUserName><![CDATA[toUser]]></ToUserName>"
+            + "<FromUserName><![CDATA[fromUser]]></FromUserName>"
+            + "<CreateTime>1348831860</CreateTime>"
+            + "<MsgType><![CDATA[text]]></MsgType>"
+            + "<Content><![CDATA[this is a test]]></Content>"
+            + "<MsgId>1234567890123456</MsgId>"
+            + "</xml>";
+    private final byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 优化前：每条消息创建一次JAXBContext
+     */
+    @Benchmark
+    public InputMessage newContextPerMessage() throws JAXBException {
+        JAXBContext context = JAXBContext.newInstance(InputMessage.class);
+        Unmarshaller unmarshaller = context.createUnmarshaller();
+        return (InputMessage) unmarshaller.unmarshal(new StringReader(xml));
+    }
+
+    /**
+     * 优化后：共享JAXBContext，线程内复用Unmarshaller
+     */
+    @Benchmark
+    public InputMessage sharedFactory() throws JAXBException {
+        return JAXBFactory.unmarshal(InputMessage.class, xml);
+    }
+
+    /**
+     * StAX直接从字节流解析，不经过中间字符串
+     */
+    @Benchmark
+    public InputMessage staxParser() throws XMLStreamException {
+        return InputMessageParser.parse(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,111 @@
+package org.weixin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weixin4j.message.EventType;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.MsgType;
+import org.weixin4j.spi.MessageDispatcher;
+import org.weixin4j.spi.MessageRoute;
+
+/**
+ * 各消息类型的分发代价：原if/else字符串比较链 与 MessageDispatcher路由表
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageDispatchBenchmark {
+
+    /**
+     * 消息类型，事件消息格式为 event:事件类型
+     */
+    @Param({"text", "link", "event:subscribe", "event:CLICK", "event:LOCATION", "event:location_select"})
+    public String type;
+
+    private InputMessage inputMsg;
+
+    @Setup
+    public void setup() {
+        inputMsg = new InputMessage();
+        if (type.startsWith("event:")) {
+            inputMsg.setMsgType("event");
+            inputMsg.setEvent(type.substring(6));
+        } else {
+            inputMsg.setMsgType(type);
+        }
+    }
+
+    /**
+     * 优化前：逐个比较MsgType与EventType，并且每次都转换Event为小写
+     */
+    @Benchmark
+    public int ifElseChain() {
+        String msgType = inputMsg.getMsgType();
+        if (msgType.equals(MsgType.Text.toString())) {
+            return 1;
+        } else if (msgType.equals(MsgType.Image.toString())) {
+            return 2;
+        } else if (msgType.equals(MsgType.Voice.toString())) {
+            return 3;
+        } else if (msgType.equals(MsgType.Video.toString())) {
+            return 4;
+        } else if (msgType.equals(MsgType.ShortVideo.toString())) {
+            return 5;
+        } else if (msgType.equals(MsgType.Location.toString())) {
+            return 6;
+        } else if (msgType.equals(MsgType.Link.toString())) {
+            return 7;
+        } else if (msgType.equals(MsgType.Event.toString())) {
+            String event = inputMsg.getEvent().toLowerCase();
+            if (event.equals(EventType.Click.toString())) {
+                return 8;
+            } else if (event.equals(EventType.View.toString())) {
+                return 9;
+            } else if (event.equals(EventType.Subscribe.toString())) {
+                return 10;
+            } else if (event.equals(EventType.Unsubscribe.toString())) {
+                return 11;
+            } else if (event.equals(EventType.Scan.toString())) {
+                return 12;
+            } else if (event.equals(EventType.Location.toString())) {
+                return 13;
+            } else if (event.equals(EventType.Scancode_Push.toString())) {
+                return 14;
+            } else if (event.equals(EventType.Scancode_Waitmsg.toString())) {
+                return 15;
+            } else if (event.equals(EventType.Pic_Sysphoto.toString())) {
+                return 16;
+            } else if (event.equals(EventType.Pic_Photo_OR_Album.toString())) {
+                return 17;
+            } else if (event.equals(EventType.Pic_Weixin.toString())) {
+                return 18;
+            } else if (event.equals(EventType.Location_Select.toString())) {
+                return 19;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 优化后：一次哈希查找定位路由
+     */
+    @Benchmark
+    public MessageRoute dispatchTable() {
+        return MessageDispatcher.getRoute(inputMsg);
+    }
+}
@@ -0,0 +1,218 @@
+package org.weixin4j.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基准测试使用的回调消息，与InputMessageJUnitTest中的消息一致
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+final class MessageFixtures {
+
+    private static final Map<String, String> INPUTS = new LinkedHashMap<String, String>();
+
+    static {
+        INPUTS.put("text", "<xml>"
+                + " <ToUserName><![CDATA[toUser]]></ToUserName>"
+                + " <FromUserName><![CDATA[fromUser]]></FromUserName>"
+                + " <CreateTime>1348831860</CreateTime>"
+                + " <MsgType><![CDATA[text]]></MsgType>"
+                + " <Content><![CDATA[this is a test]]></Content>"
+                + " <MsgId>1234567890123456</MsgId>"
+                + " </xml>");
+        INPUTS.put("image", "<xml>\n"
+                + " <ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + " <FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + " <CreateTime>1348831860</CreateTime>\n"
+                + " <MsgType><![CDATA[image]]></MsgType>\n"
+                + " <PicUrl><![CDATA[this is a url]]></PicUrl>\n"
+                + " <MediaId><![CDATA[media_id]]></MediaId>\n"
+                + " <MsgId>1234567890123456</MsgId>\n"
+                + " </xml>");
+        INPUTS.put("voice", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1357290913</CreateTime>\n"
+                + "<MsgType><![CDATA[voice]]></MsgType>\n"
+                + "<MediaId><![CDATA[media_id]]></MediaId>\n"
+                + "<Format><![CDATA[Format]]></Format>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml>");
+        INPUTS.put("video", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1357290913</CreateTime>\n"
+                + "<MsgType><![CDATA[video]]></MsgType>\n"
+                + "<MediaId><![CDATA[media_id]]></MediaId>\n"
+                + "<ThumbMediaId><![CDATA[thumb_media_id]]></ThumbMediaId>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml>");
+        INPUTS.put("shortvideo", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1357290913</CreateTime>\n"
+                + "<MsgType><![CDATA[shortvideo]]></MsgType>\n"
+                + "<MediaId><![CDATA[media_id]]></MediaId>\n"
+                + "<ThumbMediaId><![CDATA[thumb_media_id]]></ThumbMediaId>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml>");
+        INPUTS.put("location", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1351776360</CreateTime>\n"
+                + "<MsgType><![CDATA[location]]></MsgType>\n"
+                + "<Location_X>23.134521</Location_X>\n"
+                + "<Location_Y>113.358803</Location_Y>\n"
+                + "<Scale>20</Scale>\n"
+                + "<Label><![CDATA[位置信息]]></Label>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml> ");
+        INPUTS.put("link", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1351776360</CreateTime>\n"
+                + "<MsgType><![CDATA[link]]></MsgType>\n"
+                + "<Title><![CDATA[公众平台官网链接]]></Title>\n"
+                + "<Description><![CDATA[公众平台官网链接]]></Description>\n"
+                + "<Url><![CDATA[url]]></Url>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml> ");
+        INPUTS.put("event_subscribe", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[subscribe]]></Event>\n"
+                + "</xml>");
+        INPUTS.put("event_qrscene_subscribe", "<xml><ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[subscribe]]></Event>\n"
+                + "<EventKey><![CDATA[qrscene_123123]]></EventKey>\n"
+                + "<Ticket><![CDATA[TICKET]]></Ticket>\n"
+                + "</xml>");
+        INPUTS.put("event_scan_subscribe", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[SCAN]]></Event>\n"
+                + "<EventKey><![CDATA[SCENE_VALUE]]></EventKey>\n"
+                + "<Ticket><![CDATA[TICKET]]></Ticket>\n"
+                + "</xml>");
+        INPUTS.put("event_location", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[LOCATION]]></Event>\n"
+                + "<Latitude>23.137466</Latitude>\n"
+                + "<Longitude>113.352425</Longitude>\n"
+                + "<Precision>119.385040</Precision>\n"
+                + "</xml>");
+        INPUTS.put("event_click", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[CLICK]]></Event>\n"
+                + "<EventKey><![CDATA[EVENTKEY]]></EventKey>\n"
+                + "</xml>");
+        INPUTS.put("event_view", "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[VIEW]]></Event>\n"
+                + "<EventKey><![CDATA[www.qq.com]]></EventKey>\n"
+                + "</xml>");
+        INPUTS.put("event_scancode_push", "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090502</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[scancode_push]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<ScanCodeInfo><ScanType><![CDATA[qrcode]]></ScanType>\n"
+                + "<ScanResult><![CDATA[1]]></ScanResult>\n"
+                + "</ScanCodeInfo>\n"
+                + "</xml>");
+        INPUTS.put("event_scancode_waitmsg", "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090606</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[scancode_waitmsg]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<ScanCodeInfo><ScanType><![CDATA[qrcode]]></ScanType>\n"
+                + "<ScanResult><![CDATA[2]]></ScanResult>\n"
+                + "</ScanCodeInfo>\n"
+                + "</xml>");
+        INPUTS.put("event_pic_sysphoto", "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090651</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[pic_sysphoto]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendPicsInfo><Count>1</Count>\n"
+                + "<PicList><item><PicMd5Sum><![CDATA[1b5f7c23b5bf75682a53e7b6d163e185]]></PicMd5Sum>\n"
+                + "</item>\n"
+                + "</PicList>\n"
+                + "</SendPicsInfo>\n"
+                + "</xml>");
+        INPUTS.put("event_pic_photo_or_album", "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090816</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[pic_photo_or_album]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendPicsInfo><Count>1</Count>\n"
+                + "<PicList><item><PicMd5Sum><![CDATA[5a75aaca956d97be686719218f275c6b]]></PicMd5Sum>\n"
+                + "</item>\n"
+                + "</PicList>\n"
+                + "</SendPicsInfo>\n"
+                + "</xml>");
+        INPUTS.put("event_pic_weixin", "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090816</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[pic_weixin]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendPicsInfo><Count>1</Count>\n"
+                + "<PicList><item><PicMd5Sum><![CDATA[5a75aaca956d97be686719218f275c6b]]></PicMd5Sum>\n"
+                + "</item>\n"
+                + "</PicList>\n"
+                + "</SendPicsInfo>\n"
+                + "</xml>");
+        INPUTS.put("event_location_select", "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408091189</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[location_select]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendLocationInfo><Location_X><![CDATA[23]]></Location_X>\n"
+                + "<Location_Y><![CDATA[113]]></Location_Y>\n"
+                + "<Scale><![CDATA[15]]></Scale>\n"
+                + "<Label><![CDATA[ 广州市海珠区客村艺苑路 106号]]></Label>\n"
+                + "<Poiname><![CDATA[]]></Poiname>\n"
+                + "</SendLocationInfo>\n"
+                + "</xml>");
+    }
+
+    private MessageFixtures() {
+    }
+
+    /**
+     * 获取回调消息
+     *
+     * @param name 消息名称
+     * @return 输入xml
+     */
+    static String input(String name) {
+        String xml = INPUTS.get(name);
+        if (xml == null) {
+            throw new IllegalArgumentException("未知消息:" + name);
+        }
+        return xml;
+    }
+}
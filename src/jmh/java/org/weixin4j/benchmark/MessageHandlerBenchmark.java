@@ -0,0 +1,55 @@
+package org.weixin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weixin4j.Configuration;
+import org.weixin4j.WeixinException;
+import org.weixin4j.spi.DefaultMessageHandler;
+
+/**
+ * 回调消息处理全流程：解析、分发、默认处理器处理与生成回复xml
+ *
+ * <p>
+ * 覆盖InputMessageJUnitTest中的每种消息与事件，关闭重复消息过滤，保证每次调用都完整处理。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageHandlerBenchmark {
+
+    @Param({"text", "image", "voice", "video", "shortvideo", "location", "link",
+        "event_subscribe", "event_qrscene_subscribe", "event_scan_subscribe", "event_location",
+        "event_click", "event_view", "event_scancode_push", "event_scancode_waitmsg",
+        "event_pic_sysphoto", "event_pic_photo_or_album", "event_pic_weixin", "event_location_select"})
+    public String message;
+
+    private DefaultMessageHandler handler;
+    private String xml;
+
+    @Setup
+    public void setup() {
+        Configuration.setProperty("weixin4j.dedup.enabled", "false");
+        handler = new DefaultMessageHandler();
+        xml = MessageFixtures.input(message);
+    }
+
+    @Benchmark
+    public String invoke() throws WeixinException {
+        return handler.invoke(xml);
+    }
+}
@@ -0,0 +1,160 @@
+package org.weixin4j.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weixin4j.message.Articles;
+import org.weixin4j.message.Image;
+import org.weixin4j.message.Music;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.Video;
+import org.weixin4j.message.Voice;
+import org.weixin4j.message.output.CachedOutputMessage;
+import org.weixin4j.message.output.ImageOutputMessage;
+import org.weixin4j.message.output.MusicOutputMessage;
+import org.weixin4j.message.output.NewsOutputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.weixin4j.message.output.TransferCustomerServiceOutputMessage;
+import org.weixin4j.message.output.VideoOutputMessage;
+import org.weixin4j.message.output.VoiceOutputMessage;
+
+/**
+ * 被动回复消息生成xml，覆盖每种OutputMessage
+ *
+ * <p>
+ * news10与cachedNews10对比10条图文的回复直接生成与使用预先生成的xml写入输出流。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputMessageBenchmark {
+
+    private TextOutputMessage text;
+    private ImageOutputMessage image;
+    private VoiceOutputMessage voice;
+    private VideoOutputMessage video;
+    private MusicOutputMessage music;
+    private NewsOutputMessage news;
+    private TransferCustomerServiceOutputMessage transferCustomerService;
+    private NewsOutputMessage news10;
+    private CachedOutputMessage cachedNews10;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+
+    @Setup
+    public void setup() {
+        text = init(new TextOutputMessage("你好，this is a test"));
+        Image img = new Image();
+        img.setMediaId("media_id");
+        image = init(new ImageOutputMessage(img));
+        Voice vo = new Voice();
+        vo.setMediaId("media_id");
+        voice = init(new VoiceOutputMessage(vo));
+        Video vi = new Video();
+        vi.setMediaId("media_id");
+        vi.setTitle("title");
+        vi.setDescription("description");
+        video = init(new VideoOutputMessage(vi));
+        Music mu = new Music();
+        mu.setTitle("title");
+        mu.setDescription("description");
+        mu.setMusicUrl("http://www.weixin4j.org/music.mp3");
+        mu.setHQMusicUrl("http://www.weixin4j.org/music_hq.mp3");
+        mu.setThumbMediaId("thumb_media_id");
+        music = init(new MusicOutputMessage(mu));
+        news = new NewsOutputMessage();
+        news.setArticles(articles(3));
+        init(news);
+        transferCustomerService = init(new TransferCustomerServiceOutputMessage());
+        news10 = new NewsOutputMessage();
+        news10.setArticles(articles(10));
+        init(news10);
+        cachedNews10 = CachedOutputMessage.render(news10);
+    }
+
+    private static List<Articles> articles(int count) {
+        List<Articles> articles = new ArrayList<Articles>();
+        for (int i = 0; i < count; i++) {
+            Articles article = new Articles();
+            article.setTitle("标题" + i);
+            article.setDescription("描述" + i);
+            article.setPicUrl("http://www.weixin4j.org/" + i + ".png");
+            article.setUrl("http://www.weixin4j.org/" + i);
+            articles.add(article);
+        }
+        return articles;
+    }
+
+    private static <T extends OutputMessage> T init(T outputMsg) {
+        outputMsg.setToUserName("toUser");
+        outputMsg.setFromUserName("fromUser");
+        outputMsg.setCreateTime(1348831860L);
+        return outputMsg;
+    }
+
+    @Benchmark
+    public String text() {
+        return text.toXML();
+    }
+
+    @Benchmark
+    public String image() {
+        return image.toXML();
+    }
+
+    @Benchmark
+    public String voice() {
+        return voice.toXML();
+    }
+
+    @Benchmark
+    public String video() {
+        return video.toXML();
+    }
+
+    @Benchmark
+    public String music() {
+        return music.toXML();
+    }
+
+    @Benchmark
+    public String news() {
+        return news.toXML();
+    }
+
+    @Benchmark
+    public String transferCustomerService() {
+        return transferCustomerService.toXML();
+    }
+
+    @Benchmark
+    public int news10() throws IOException {
+        out.reset();
+        news10.writeTo(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int cachedNews10() throws IOException {
+        out.reset();
+        OutputMessage reply = init(cachedNews10.copy());
+        reply.writeTo(out);
+        return out.size();
+    }
+}
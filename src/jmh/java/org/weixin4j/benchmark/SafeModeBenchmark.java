@@ -0,0 +1,106 @@
+package org.weixin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.weixin4j.util.JAXBFactory;
+import org.weixin4j.util.MessageCrypt;
+
+/**
+ * 安全模式每条消息的额外代价：明文、加密（Cipher线程内复用）与每次创建Cipher
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SafeModeBenchmark {
+
+    private static final String TOKEN = "weixin4j";
+    private static final String AES_KEY = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFG";
+    private static final String APP_ID = "wxb11529c136998cb6";
+    private static final String TIMESTAMP = "1409304348";
+    private static final String NONCE = "1320562132";
+
+    private final String xml = "<xml>"
+            + "<ToUserName><![CDATA[toUser]]></ToUserName>"
+            + "<FromUserName><![CDATA[fromUser]]></FromUserName>"
+            + "<CreateTime>1348831860</CreateTime>"
+            + "<MsgType><![CDATA[text]]></MsgType>"
+            + "<Content><![CDATA[this is a test]]></Content>"
+            + "<MsgId>1234567890123456</MsgId>"
+            + "</xml>";
+
+    private MessageCrypt crypt;
+    private String postXml;
+    private String msgSignature;
+
+    @Setup
+    public void setup() throws Exception {
+        crypt = MessageCrypt.getInstance(TOKEN, AES_KEY, APP_ID);
+        String encrypt = crypt.encrypt(xml);
+        msgSignature = MessageCrypt.signature(TOKEN, TIMESTAMP, NONCE, encrypt);
+        postXml = "<xml><ToUserName><![CDATA[toUser]]></ToUserName><Encrypt><![CDATA[" + encrypt + "]]></Encrypt></xml>";
+    }
+
+    /**
+     * 明文模式：解析消息并生成回复
+     */
+    @Benchmark
+    public String plaintext() throws Exception {
+        return reply(JAXBFactory.unmarshal(InputMessage.class, xml));
+    }
+
+    /**
+     * 安全模式：验证签名、解密、解析、生成回复并加密
+     */
+    @Benchmark
+    public String encrypted() throws Exception {
+        String plain = crypt.decryptMessage(postXml, msgSignature, TIMESTAMP, NONCE);
+        return crypt.encryptMessage(reply(JAXBFactory.unmarshal(InputMessage.class, plain)), TIMESTAMP, NONCE);
+    }
+
+    /**
+     * 优化前：每条消息重新解析密钥并创建Cipher
+     */
+    @Benchmark
+    public byte[] newCipherPerMessage() throws Exception {
+        byte[] aesKey = Base64.decodeBase64(AES_KEY + "=");
+        Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(aesKey, "AES"), new IvParameterSpec(aesKey, 0, 16));
+        return cipher.doFinal(Base64.decodeBase64(MessageCrypt.getEncrypt(postXml)));
+    }
+
+    /**
+     * 优化后：共享密钥，线程内复用Cipher
+     */
+    @Benchmark
+    public String cachedCipher() throws Exception {
+        return crypt.decrypt(MessageCrypt.getEncrypt(postXml));
+    }
+
+    private static String reply(InputMessage inputMsg) {
+        TextOutputMessage outputMsg = new TextOutputMessage(inputMsg.getContent());
+        outputMsg.setToUserName(inputMsg.getFromUserName());
+        outputMsg.setFromUserName(inputMsg.getToUserName());
+        outputMsg.setCreateTime(inputMsg.getCreateTime());
+        return outputMsg.toXML();
+    }
+}
@@ -0,0 +1,59 @@
+package org.weixin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weixin4j.util.SHA1;
+import org.weixin4j.util.TokenUtil;
+
+/**
+ * 回调请求签名验证
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+
+    private static final String TOKEN = "weixin4j";
+    private static final String TIMESTAMP = "1409304348";
+    private static final String NONCE = "1320562132";
+
+    private String signature;
+    private String wrongSignature;
+
+    @Setup
+    public void setup() {
+        //按字典序拼接：1320562132 < 1409304348 < weixin4j
+        signature = SHA1.encode(NONCE + TIMESTAMP + TOKEN);
+        wrongSignature = SHA1.encode(TOKEN);
+    }
+
+    /**
+     * 签名正确
+     */
+    @Benchmark
+    public boolean checkSignature() {
+        return TokenUtil.checkSignature(TOKEN, signature, TIMESTAMP, NONCE);
+    }
+
+    /**
+     * 签名错误
+     */
+    @Benchmark
+    public boolean checkWrongSignature() {
+        return TokenUtil.checkSignature(TOKEN, wrongSignature, TIMESTAMP, NONCE);
+    }
+}
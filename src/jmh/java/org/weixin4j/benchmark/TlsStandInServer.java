@@ -0,0 +1,102 @@
+package org.weixin4j.benchmark;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * 本地模拟微信平台的https服务，证书由keytool临时生成
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+class TlsStandInServer {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+    private static final byte[] OK = "{\"errcode\":0,\"errmsg\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final File keyStoreFile;
+    private final KeyStore keyStore;
+    private final HttpsServer server;
+    private final ExecutorService executor;
+
+    TlsStandInServer() throws IOException, GeneralSecurityException, InterruptedException {
+        //关闭Nagle算法，避免响应头与响应体分开发送时等待延迟确认
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        keyStoreFile = File.createTempFile("weixin4j-bench", ".p12");
+        keyStoreFile.delete();
+        keyStoreFile.deleteOnExit();
+        Process keytool = new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool",
+                "-genkeypair", "-alias", "localhost", "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "1",
+                "-storetype", "PKCS12", "-keystore", keyStoreFile.getPath(),
+                "-storepass", "changeit", "-keypass", "changeit")
+                .redirectErrorStream(true).start();
+        if (keytool.waitFor() != 0) {
+            throw new IOException("keytool生成证书失败");
+        }
+        keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = new FileInputStream(keyStoreFile)) {
+            keyStore.load(in, PASSWORD);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), null, null);
+        server = HttpsServer.create(new InetSocketAddress("localhost", 0), 128);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] buf = new byte[1024];
+                while (in.read(buf) != -1) {
+                    //读取全部请求数据
+                }
+            }
+            exchange.sendResponseHeaders(200, OK.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(OK);
+            }
+        });
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * 信任本服务证书的SSLContext
+     */
+    SSLContext clientContext() throws GeneralSecurityException {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, tmf.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    SSLSocketFactory clientSocketFactory() throws GeneralSecurityException {
+        return clientContext().getSocketFactory();
+    }
+
+    String url(String path) {
+        return "https://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        keyStoreFile.delete();
+    }
+}
@@ -0,0 +1,468 @@
+package org.weixin4j;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.http.Attachment;
+import org.weixin4j.http.OAuthToken;
+import org.weixin4j.message.Article;
+import org.weixin4j.message.Articles;
+import org.weixin4j.message.MediaType;
+import org.weixin4j.pay.JsApiTicket;
+import org.weixin4j.pay.UnifiedOrder;
+import org.weixin4j.pay.UnifiedOrderResult;
+import org.weixin4j.pay.redpack.SendRedPack;
+import org.weixin4j.pay.redpack.SendRedPackResult;
+import org.weixin4j.ticket.TicketType;
+
+/**
+ * 微信平台基础支持对象的异步调用
+ *
+ * <p>
+ * 每个方法都委托给同一个<tt>Weixin</tt>对象，access_token过期自动登录与错误码转换与同步调用完全一致，<br/>
+ * 失败时返回的CompletableFuture以原来的WeixinException异常结束。</p>
+ *
+ * <p>
+ * 请求在固定线程数、有界队列的线程池中执行，连接由共享的传输层复用；<br/>
+ * 队列已满时不阻塞调用线程，直接返回以WeixinException结束的CompletableFuture。<br/>
+ * 默认线程池由weixin4j.async.api.threads与weixin4j.async.api.queueSize配置，所有AsyncWeixin共用。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class AsyncWeixin {
+
+    private final Weixin weixin;
+    private final Executor executor;
+
+    /**
+     * 使用默认线程池的异步调用
+     *
+     * @param weixin 已登录或已初始化的微信平台基础支持对象
+     */
+    public AsyncWeixin(Weixin weixin) {
+        this(weixin, DefaultExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * 使用指定线程池的异步调用
+     *
+     * <p>
+     * 建议使用有界队列的线程池，队列满时抛出RejectedExecutionException。</p>
+     *
+     * @param weixin 已登录或已初始化的微信平台基础支持对象
+     * @param executor 执行请求的线程池
+     */
+    public AsyncWeixin(Weixin weixin, Executor executor) {
+        if (weixin == null || executor == null) {
+            throw new IllegalArgumentException("weixin and executor can not be null");
+        }
+        this.weixin = weixin;
+        this.executor = executor;
+    }
+
+    /**
+     * 获取 同步调用的微信平台基础支持对象
+     *
+     * @return 微信平台基础支持对象
+     */
+    public Weixin getWeixin() {
+        return weixin;
+    }
+
+    /**
+     * 获取 默认线程池，可用于查看队列深度等运行指标
+     *
+     * @return 默认线程池
+     */
+    public static ThreadPoolExecutor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * 在线程池中执行同步调用
+     *
+     * @param <T> 返回值类型
+     * @param call 同步调用
+     * @return 调用结果
+     */
+    public <T> CompletableFuture<T> submit(final Call<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.warn("[Weixin4j]异步调用线程池已满，拒绝请求");
+            future.completeExceptionally(new WeixinException("async executor is full, request rejected", ex));
+        }
+        return future;
+    }
+
+    private CompletableFuture<Void> run(final VoidCall call) {
+        return submit(() -> {
+            call.call();
+            return null;
+        });
+    }
+
+    /**
+     * 获取access_token
+     *
+     * @param appId 第三方用户唯一凭证
+     * @param secret 第三方用户唯一凭证密钥，既appsecret
+     * @return 用户凭证
+     * @see Weixin#login(java.lang.String, java.lang.String)
+     */
+    public CompletableFuture<OAuthToken> login(String appId, String secret) {
+        return submit(() -> weixin.login(appId, secret));
+    }
+
+    /**
+     * 根据OpenId获取用户对象
+     *
+     * @param openId 普通用户的标识，对当前公众号唯一
+     * @return 用户对象
+     * @see Weixin#getUserInfo(java.lang.String)
+     */
+    public CompletableFuture<User> getUserInfo(String openId) {
+        return submit(() -> weixin.getUserInfo(openId));
+    }
+
+    /**
+     * 根据OpenId获取用户对象
+     *
+     * @param openId 普通用户的标识，对当前公众号唯一
+     * @param lang 国家地区语言版本
+     * @return 用户对象
+     * @see Weixin#getUserInfo(java.lang.String, java.lang.String)
+     */
+    public CompletableFuture<User> getUserInfo(String openId, String lang) {
+        return submit(() -> weixin.getUserInfo(openId, lang));
+    }
+
+    /**
+     * 获取帐号的全部关注者列表
+     *
+     * @return 关注者列表对象
+     * @see Weixin#getAllUserList()
+     */
+    public CompletableFuture<Followers> getAllUserList() {
+        return submit(() -> weixin.getAllUserList());
+    }
+
+    /**
+     * 获取帐号的关注者列表
+     *
+     * @param next_openid 第一个拉取的OPENID，不填默认从头开始拉取
+     * @return 关注者列表对象
+     * @see Weixin#getUserList(java.lang.String)
+     */
+    public CompletableFuture<Followers> getUserList(String next_openid) {
+        return submit(() -> weixin.getUserList(next_openid));
+    }
+
+    /**
+     * 创建分组
+     *
+     * @param name 分组名字（30个字符以内）
+     * @return 分组对象
+     * @see Weixin#createGroup(java.lang.String)
+     */
+    public CompletableFuture<Group> createGroup(String name) {
+        return submit(() -> weixin.createGroup(name));
+    }
+
+    /**
+     * 查询所有分组
+     *
+     * @return 分组集合
+     * @see Weixin#getGroups()
+     */
+    public CompletableFuture<List<Group>> getGroups() {
+        return submit(() -> weixin.getGroups());
+    }
+
+    /**
+     * 查询用户所在分组
+     *
+     * @param openid 用户的OpenID
+     * @return 用户所属的groupid
+     * @see Weixin#getGroupId(java.lang.String)
+     */
+    public CompletableFuture<Integer> getGroupId(String openid) {
+        return submit(() -> weixin.getGroupId(openid));
+    }
+
+    /**
+     * 修改分组名
+     *
+     * @param id 分组id，由微信分配
+     * @param name 分组名字（30个字符以内）
+     * @return 执行结果
+     * @see Weixin#updateGroup(int, java.lang.String)
+     */
+    public CompletableFuture<Void> updateGroup(int id, String name) {
+        return run(() -> weixin.updateGroup(id, name));
+    }
+
+    /**
+     * 删除分组
+     *
+     * @param groupId 分组id
+     * @return 执行结果
+     * @see Weixin#deleteGroup(int)
+     */
+    public CompletableFuture<Void> deleteGroup(int groupId) {
+        return run(() -> weixin.deleteGroup(groupId));
+    }
+
+    /**
+     * 移动用户分组
+     *
+     * @param openid 用户唯一标识符
+     * @param to_groupid 分组id
+     * @return 执行结果
+     * @see Weixin#updateMemberGroup(java.lang.String, int)
+     */
+    public CompletableFuture<Void> updateMemberGroup(String openid, int to_groupid) {
+        return run(() -> weixin.updateMemberGroup(openid, to_groupid));
+    }
+
+    /**
+     * 创建自定义菜单
+     *
+     * @param menu 菜单对象
+     * @return 执行结果
+     * @see Weixin#createMenu(org.weixin4j.Menu)
+     */
+    public CompletableFuture<Void> createMenu(Menu menu) {
+        return run(() -> weixin.createMenu(menu));
+    }
+
+    /**
+     * 查询自定义菜单
+     *
+     * @return 菜单对象
+     * @see Weixin#getMenu()
+     */
+    public CompletableFuture<Menu> getMenu() {
+        return submit(() -> weixin.getMenu());
+    }
+
+    /**
+     * 删除自定义菜单
+     *
+     * @return 执行结果
+     * @see Weixin#deleteMenu()
+     */
+    public CompletableFuture<Void> deleteMenu() {
+        return run(() -> weixin.deleteMenu());
+    }
+
+    /**
+     * 创建二维码并保存到文件
+     *
+     * @param ticketType 二维码类型
+     * @param fileName 保存的文件名
+     * @param scene_id 场景值ID
+     * @param expire_seconds 二维码有效时间，单位：秒
+     * @return 执行结果
+     * @see Weixin#createQrcode(org.weixin4j.ticket.TicketType, java.lang.String, int, int)
+     */
+    public CompletableFuture<Void> createQrcode(TicketType ticketType, String fileName, int scene_id, int expire_seconds) {
+        return run(() -> weixin.createQrcode(ticketType, fileName, scene_id, expire_seconds));
+    }
+
+    /**
+     * 群发文本消息
+     *
+     * @param openIds 用户OpenID列表
+     * @param txtContent 文本消息内容
+     * @return 消息ID
+     * @see Weixin#massSendContent(java.lang.String[], java.lang.String)
+     */
+    public CompletableFuture<String> massSendContent(String[] openIds, String txtContent) {
+        return submit(() -> weixin.massSendContent(openIds, txtContent));
+    }
+
+    /**
+     * 群发图文消息
+     *
+     * @param openIds 用户OpenID列表
+     * @param mediaId 图文消息的media_id
+     * @return 消息ID
+     * @see Weixin#massSendNews(java.lang.String[], java.lang.String)
+     */
+    public CompletableFuture<String> massSendNews(String[] openIds, String mediaId) {
+        return submit(() -> weixin.massSendNews(openIds, mediaId));
+    }
+
+    /**
+     * 上传图文消息素材
+     *
+     * @param articles 图文消息
+     * @return 媒体文件ID
+     * @see Weixin#uploadnews(java.util.List)
+     */
+    public CompletableFuture<String> uploadnews(List<Article> articles) {
+        return submit(() -> weixin.uploadnews(articles));
+    }
+
+    /**
+     * 发送客服文本消息
+     *
+     * @param openId 用户OpenID
+     * @param txtContent 文本消息内容
+     * @return 执行结果
+     * @see Weixin#customSendContent(java.lang.String, java.lang.String)
+     */
+    public CompletableFuture<Void> customSendContent(String openId, String txtContent) {
+        return run(() -> weixin.customSendContent(openId, txtContent));
+    }
+
+    /**
+     * 发送客服图文消息
+     *
+     * @param openId 用户OpenID
+     * @param articles 图文消息
+     * @return 执行结果
+     * @see Weixin#customSendNews(java.lang.String, java.util.List)
+     */
+    public CompletableFuture<Void> customSendNews(String openId, List<Articles> articles) {
+        return run(() -> weixin.customSendNews(openId, articles));
+    }
+
+    /**
+     * 上传多媒体文件
+     *
+     * @param mediaType 媒体文件类型
+     * @param file 媒体文件
+     * @return 媒体文件ID
+     * @see Weixin#uploadMedia(org.weixin4j.message.MediaType, java.io.File)
+     */
+    public CompletableFuture<String> uploadMedia(MediaType mediaType, File file) {
+        return submit(() -> weixin.uploadMedia(mediaType, file));
+    }
+
+    /**
+     * 下载多媒体文件
+     *
+     * @param mediaId 媒体文件ID
+     * @return 媒体文件附件对象
+     * @see Weixin#downloadMedia(java.lang.String)
+     */
+    public CompletableFuture<Attachment> downloadMedia(String mediaId) {
+        return submit(() -> weixin.downloadMedia(mediaId));
+    }
+
+    /**
+     * 获取jsapi_ticket对象
+     *
+     * @return jsapi_ticket对象
+     * @see Weixin#getJsApi_Ticket()
+     */
+    public CompletableFuture<JsApiTicket> getJsApi_Ticket() {
+        return submit(() -> weixin.getJsApi_Ticket());
+    }
+
+    /**
+     * 统一下单
+     *
+     * @param unifiedorder 统一下单对象
+     * @return 下单返回结果对象
+     * @see Weixin#payUnifiedOrder(org.weixin4j.pay.UnifiedOrder)
+     */
+    public CompletableFuture<UnifiedOrderResult> payUnifiedOrder(UnifiedOrder unifiedorder) {
+        return submit(() -> weixin.payUnifiedOrder(unifiedorder));
+    }
+
+    /**
+     * 发送现金红包，使用配置的商户证书
+     *
+     * @param sendRedPack 现金红包对象
+     * @return 发送现金红包返回结果对象
+     * @see Weixin#sendRedPack(org.weixin4j.pay.redpack.SendRedPack)
+     */
+    public CompletableFuture<SendRedPackResult> sendRedPack(SendRedPack sendRedPack) {
+        return submit(() -> weixin.sendRedPack(sendRedPack));
+    }
+
+    /**
+     * 发送现金红包
+     *
+     * @param sendRedPack 现金红包对象
+     * @param partnerId 商户ID
+     * @param certPath 证书路径
+     * @param certSecret 证书密钥
+     * @return 发送现金红包返回结果对象
+     * @see Weixin#sendRedPack(org.weixin4j.pay.redpack.SendRedPack, java.lang.String, java.lang.String, java.lang.String)
+     */
+    public CompletableFuture<SendRedPackResult> sendRedPack(SendRedPack sendRedPack, String partnerId, String certPath, String certSecret) {
+        return submit(() -> weixin.sendRedPack(sendRedPack, partnerId, certPath, certSecret));
+    }
+
+    /**
+     * 获取微信服务器IP地址
+     *
+     * @return 微信服务器IP地址列表
+     * @see Weixin#getCallbackIp()
+     */
+    public CompletableFuture<List<Object>> getCallbackIp() {
+        return submit(() -> weixin.getCallbackIp());
+    }
+
+    /**
+     * 在线程池中执行的同步调用
+     *
+     * @param <T> 返回值类型
+     */
+    public interface Call<T> {
+
+        /**
+         * 执行同步调用
+         *
+         * @return 调用结果
+         * @throws WeixinException
+         */
+        T call() throws WeixinException;
+    }
+
+    private interface VoidCall {
+
+        void call() throws WeixinException;
+    }
+
+    //第一次使用默认线程池时才创建
+    private static class DefaultExecutorHolder {
+
+        private static final ThreadPoolExecutor EXECUTOR = create(
+                Configuration.getIntProperty("weixin4j.async.api.threads", 32),
+                Configuration.getIntProperty("weixin4j.async.api.queueSize", 10000));
+
+        private static ThreadPoolExecutor create(int threads, int queueSize) {
+            final AtomicInteger seq = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread t = new Thread(r, "weixin4j-api-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            log.debug("异步调用线程池启动，线程数:{}，队列长度:{}", threads, queueSize);
+            return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueSize), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+}
@@ -19,7 +19,6 @@
  */
 package org.weixin4j;
 
-import com.alibaba.fastjson.JSONObject;
 import lombok.extern.slf4j.Slf4j;
 import org.weixin4j.http.HttpsClient;
 import org.weixin4j.http.OAuth;
@@ -187,24 +186,14 @@ public class OAuth2 extends WeixinSupport implements java.io.Serializable {
         HttpsClient http = new HttpsClient();
         //调用获取access_token接口
         Response res = http.get("https://api.weixin.qq.com/sns/oauth2/access_token" + param);
-        //根据请求结果判定，是否验证成功
-        JSONObject jsonObj = res.asJSONObject();
-        if (jsonObj != null) {
-            log.debug("login返回json:{}", jsonObj);
-            Object errcode = jsonObj.get("errcode");
-            if (errcode != null) {
-                //返回异常信息
-                throw new WeixinException(getCause(Integer.parseInt(errcode.toString())));
-            }
-            //判断是否登录成功，并判断过期时间
-            Object obj = jsonObj.get("access_token");
-            //登录成功，设置accessToken和过期时间
-            if (obj != null) {
-                //设置公众号信息
-                oauth = new OAuth(appId, secret);
-                //设置凭证
-                this.oauth2Token = JSONObject.toJavaObject(jsonObj, OAuth2Token.class);
-            }
+        //从响应流直接解析凭证，返回错误码时抛出异常
+        OAuth2Token token = as(res, OAuth2Token.class);
+        //登录成功，设置accessToken和过期时间
+        if (token != null && token.getAccess_token() != null) {
+            //设置公众号信息
+            oauth = new OAuth(appId, secret);
+            //设置凭证
+            this.oauth2Token = token;
         }
         return oauth2Token;
     }
@@ -225,22 +214,12 @@ public class OAuth2 extends WeixinSupport implements java.io.Serializable {
         HttpsClient http = new HttpsClient();
         //调用获取access_token接口
         Response res = http.get("https://api.weixin.qq.com/sns/oauth2/refresh_token" + param);
-        //根据请求结果判定，是否验证成功
-        JSONObject jsonObj = res.asJSONObject();
-        if (jsonObj != null) {
-            log.debug("login返回json:", jsonObj);
-            Object errcode = jsonObj.get("errcode");
-            if (errcode != null) {
-                //返回异常信息
-                throw new WeixinException(getCause(Integer.parseInt(errcode.toString())));
-            }
-            //判断是否登录成功，并判断过期时间
-            Object obj = jsonObj.get("access_token");
-            //登录成功，设置accessToken和过期时间
-            if (obj != null) {
-                //设置凭证
-                this.oauth2Token = JSONObject.toJavaObject(jsonObj, OAuth2Token.class);
-            }
+        //从响应流直接解析凭证，返回错误码时抛出异常
+        OAuth2Token token = as(res, OAuth2Token.class);
+        //登录成功，设置accessToken和过期时间
+        if (token != null && token.getAccess_token() != null) {
+            //设置凭证
+            this.oauth2Token = token;
         }
         return oauth2Token;
     }
@@ -274,25 +253,13 @@ public class OAuth2 extends WeixinSupport implements java.io.Serializable {
     public OAuth2User getUserInfo(String lang) throws WeixinException {
         //必须先调用检查登录方法
         checkToken();
-        OAuth2User user = null;
         //拼接参数
         String param = "?access_token=" + this.oauth2Token.getAccess_token() + "&openid=" + this.oauth2Token.getOpenid() + "&lang=" + lang;
         //创建请求对象
         HttpsClient http = new HttpsClient();
         //调用获取access_token接口
         Response res = http.get("https://api.weixin.qq.com/sns/userinfo" + param);
-        //根据请求结果判定，是否验证成功
-        JSONObject jsonObj = res.asJSONObject();
-        if (jsonObj != null) {
-            log.debug("getUserInfo返回json:", jsonObj);
-            Object errcode = jsonObj.get("errcode");
-            if (errcode != null) {
-                //返回异常信息
-                throw new WeixinException(getCause(Integer.parseInt(errcode.toString())));
-            }
-            //设置公众号信息
-            user = JSONObject.toJavaObject(jsonObj, OAuth2User.class);
-        }
-        return user;
+        //从响应流直接解析为用户对象，返回错误码时抛出异常
+        return as(res, OAuth2User.class);
     }
 }
@@ -34,7 +34,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
@@ -43,9 +42,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.util.ArrayList;
 import java.util.List;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
 import org.apache.commons.lang.StringUtils;
 import org.weixin4j.http.Attachment;
@@ -57,6 +54,7 @@ import org.weixin4j.pay.UnifiedOrder;
 import org.weixin4j.pay.UnifiedOrderResult;
 import org.weixin4j.pay.redpack.SendRedPack;
 import org.weixin4j.pay.redpack.SendRedPackResult;
+import org.weixin4j.util.JAXBFactory;
 
 /**
  * 微信平台基础支持对象
@@ -73,11 +71,11 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
     /**
      * 公众号对象
      */
-    private OAuth oauth = null;
+    private volatile OAuth oauth = null;
     /**
      * 公众号Token对象
      */
-    private OAuthToken oauthToken = null;
+    private volatile OAuthToken oauthToken = null;
 
     /**
      * 微信基础支持
@@ -238,12 +236,17 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
                 throw new WeixinException("oauthToken is null,you must call login or init first!");
             } else //已过期
                 if (oauthToken.isExprexpired()) {
-                    //如果用户名和密码正确，则自动登录，否则返回异常
-                    if (oauth != null) {
-                        //自动重新发送登录请求
-                        login(oauth.getAppId(), oauth.getSecret());
-                    } else {
-                        throw new WeixinException("oauth is null and oauthToken is exprexpired, please log in again!");
+                    //并发调用时只由一个线程重新登录，其他线程等待后使用新的凭证
+                    synchronized (this) {
+                        if (oauthToken.isExprexpired()) {
+                            //如果用户名和密码正确，则自动登录，否则返回异常
+                            if (oauth != null) {
+                                //自动重新发送登录请求
+                                login(oauth.getAppId(), oauth.getSecret());
+                            } else {
+                                throw new WeixinException("oauth is null and oauthToken is exprexpired, please log in again!");
+                            }
+                        }
                     }
                 }
         }
@@ -284,19 +287,8 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         HttpsClient http = new HttpsClient();
         //调用获取access_token接口
         Response res = http.get("https://api.weixin.qq.com/cgi-bin/user/info" + param);
-        //根据请求结果判定，是否验证成功
-        JSONObject jsonObj = res.asJSONObject();
-        if (jsonObj != null) {
-            log.debug("getUserInfo返回json:{}", jsonObj);
-            Object errcode = jsonObj.get("errcode");
-            if (errcode != null) {
-                //返回异常信息
-                throw new WeixinException(getCause(Integer.parseInt(errcode.toString())));
-            }
-            //设置公众号信息
-            return JSONObject.toJavaObject(jsonObj, User.class);
-        }
-        return null;
+        //从响应流直接解析为用户对象，返回错误码时抛出异常
+        return as(res, User.class);
     }
 
     /**
@@ -315,18 +307,15 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         allFollower.setData(data);
         String next_openid = "";
         do {
-            Followers f = getUserList(next_openid);
+            //每页的OPENID直接加入总列表，不再逐页复制
+            Followers f = getUserList(next_openid, data.getOpenid());
             if (f == null) {
                 break;
             }
-            if (f.getCount() > 0) {
-                List<String> openids = f.getData().getOpenid();
-                for (String openid : openids) {
-                    allFollower.getData().getOpenid().add(openid);
-                }
-            }
+            allFollower.setTotal(f.getTotal());
+            allFollower.setCount(allFollower.getCount() + f.getCount());
             next_openid = f.getNext_openid();
-        } while (!next_openid.equals(""));
+        } while (next_openid != null && !next_openid.equals(""));
         return allFollower;
     }
 
@@ -342,6 +331,11 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
      *                         the user has not authorized
      */
     public Followers getUserList(String next_openid) throws WeixinException {
+        return getUserList(next_openid, new ArrayList<String>());
+    }
+
+    //逐个解析OPENID加入openids，一页最多10000个，不生成整页的String与JSONObject
+    private Followers getUserList(String next_openid, List<String> openids) throws WeixinException {
         //拼接参数
         String param = "?access_token=" + this.oauthToken.getAccess_token() + "&next_openid=";
         //第一次获取不添加参数
@@ -353,17 +347,18 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         //调用获取access_token接口
         Response res = http.get("https://api.weixin.qq.com/cgi-bin/user/get" + param);
         //根据请求结果判定，是否验证成功
-        JSONObject jsonObj = res.asJSONObject();
+        JSONObject jsonObj = res.forEachArrayElement("data.openid", String.class, openids::add);
         Followers follower = null;
         if (jsonObj != null) {
             log.debug("getUserList返回json:{}", jsonObj);
-            Object errcode = jsonObj.get("errcode");
-            if (errcode != null) {
-                //返回异常信息
-                throw new WeixinException(getCause(Integer.parseInt(errcode.toString())));
-            }
-            follower = JSONObject.toJavaObject(jsonObj, Followers.class);
-            follower.setData(new Data());
+            checkErrcode(res);
+            follower = new Followers();
+            follower.setTotal(jsonObj.getIntValue("total"));
+            follower.setCount(jsonObj.getIntValue("count"));
+            follower.setNext_openid(jsonObj.getString("next_openid"));
+            Data data = new Data();
+            data.setOpenid(openids);
+            follower.setData(data);
         }
         return follower;
     }
@@ -424,24 +419,9 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         HttpsClient http = new HttpsClient();
         //调用获取access_token接口
         Response res = http.post("https://api.weixin.qq.com/cgi-bin/groups/get?access_token=" + this.oauthToken.getAccess_token(), null);
-        //根据请求结果判定，是否验证成功
-        JSONObject jsonObj = res.asJSONObject();
-        if (jsonObj != null) {
-            log.debug("getGroups返回json:{}", jsonObj);
-
-            Object errcode = jsonObj.get("errcode");
-            if (errcode != null) {
-                //返回异常信息
-                throw new WeixinException(getCause(Integer.parseInt(errcode.toString())));
-            }
-            //获取分组列表
-            JSONArray groups = jsonObj.getJSONArray("groups");
-            for (int i = 0; i < groups.size(); i++) {
-                JSONObject jsonGroup = groups.getJSONObject(i);
-                Group group = JSONObject.toJavaObject(jsonGroup, Group.class);
-                groupList.add(group);
-            }
-        }
+        //逐个解析分组
+        res.forEachArrayElement("groups", Group.class, groupList::add);
+        checkErrcode(res);
         return groupList;
     }
 
@@ -875,7 +855,8 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         json.put("msgtype", "text");
         //创建请求对象
         HttpsClient http = new HttpsClient();
-        http.post("https://api.weixin.qq.com/cgi-bin/message/custom/send?access_token=" + this.oauthToken.getAccess_token(), json);
+        //读取响应，归还连接
+        http.post("https://api.weixin.qq.com/cgi-bin/message/custom/send?access_token=" + this.oauthToken.getAccess_token(), json).asString();
     }
 
     /**
@@ -894,7 +875,8 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         json.put("news", news);
         //创建请求对象
         HttpsClient http = new HttpsClient();
-        http.post("https://api.weixin.qq.com/cgi-bin/message/custom/send?access_token=" + this.oauthToken.getAccess_token(), json);
+        //读取响应，归还连接
+        http.post("https://api.weixin.qq.com/cgi-bin/message/custom/send?access_token=" + this.oauthToken.getAccess_token(), json).asString();
     }
 
     /**
@@ -1085,10 +1067,7 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         //获取微信平台下单接口返回数据
         String xmlResult = res.asString();
         try {
-            JAXBContext context = JAXBContext.newInstance(UnifiedOrderResult.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            UnifiedOrderResult result = (UnifiedOrderResult) unmarshaller.unmarshal(new StringReader(xmlResult));
-            return result;
+            return JAXBFactory.unmarshal(UnifiedOrderResult.class, xmlResult);
         } catch (JAXBException ex) {
             return null;
         }
@@ -1134,10 +1113,7 @@ public class Weixin extends WeixinSupport implements java.io.Serializable {
         //获取微信平台下单接口返回数据
         String xmlResult = res.asString();
         try {
-            JAXBContext context = JAXBContext.newInstance(SendRedPackResult.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            SendRedPackResult result = (SendRedPackResult) unmarshaller.unmarshal(new StringReader(xmlResult));
-            return result;
+            return JAXBFactory.unmarshal(SendRedPackResult.class, xmlResult);
         } catch (JAXBException ex) {
             return null;
         }
@@ -5,6 +5,7 @@ import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.GenericApplicationListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.ResolvableType;
@@ -17,7 +18,7 @@ import java.util.Map;
  */
 public class WeixinApplicationListener implements GenericApplicationListener {
     private static Class<?>[] EVENT_TYPES = {
-            ApplicationEnvironmentPreparedEvent.class};
+            ApplicationEnvironmentPreparedEvent.class, ContextRefreshedEvent.class};
 
     private static Class<?>[] SOURCE_TYPES = {SpringApplication.class,
             ApplicationContext.class};
@@ -52,6 +53,9 @@ public class WeixinApplicationListener implements GenericApplicationListener {
         if (event instanceof ApplicationEnvironmentPreparedEvent) {
             onApplicationEnvironmentPreparedEvent(
                     (ApplicationEnvironmentPreparedEvent) event);
+        } else if (event instanceof ContextRefreshedEvent) {
+            //容器刷新完成、内嵌容器开始接收请求前预热
+            WeixinWarmUp.run();
         }
     }
 
@@ -0,0 +1,21 @@
+package org.weixin4j;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 存在spring-boot-actuator时注册消息处理统计监控端点
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@org.springframework.context.annotation.Configuration
+@ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.AbstractEndpoint")
+public class WeixinMetricsAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public WeixinMetricsEndpoint weixinMetricsEndpoint() {
+        return new WeixinMetricsEndpoint();
+    }
+}
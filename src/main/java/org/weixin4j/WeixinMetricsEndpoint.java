@@ -0,0 +1,59 @@
+package org.weixin4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.weixin4j.http.RetryPolicy;
+import org.weixin4j.spi.AdmissionController;
+import org.weixin4j.spi.CachingEventMessageHandler;
+import org.weixin4j.spi.EventSink;
+import org.weixin4j.spi.HandlerFactory;
+import org.weixin4j.spi.HttpMetrics;
+import org.weixin4j.spi.IEventMessageHandler;
+import org.weixin4j.spi.MessageMetrics;
+import org.weixin4j.spi.SinkEventMessageHandler;
+
+/**
+ * 消息处理统计监控端点
+ *
+ * <p>
+ * 引入spring-boot-actuator后自动注册，访问路径为/weixin4j，<br/>
+ * 输出各(MsgType, Event)每个处理阶段的次数、失败次数与耗时分布，以及事件写出队列、回复缓存、准入控制、请求微信平台各接口的耗时与重试的统计。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class WeixinMetricsEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    public WeixinMetricsEndpoint() {
+        super("weixin4j");
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        MessageMetrics metrics = HandlerFactory.getMessageMetrics();
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("enabled", metrics != null);
+        if (metrics != null) {
+            result.put("messages", metrics.snapshot());
+        }
+        IEventMessageHandler eventHandler = HandlerFactory.getEventMessageHandler();
+        if (eventHandler instanceof SinkEventMessageHandler) {
+            EventSink sink = ((SinkEventMessageHandler) eventHandler).getSink();
+            if (sink != null) {
+                result.put("eventSink", sink.snapshot());
+            }
+        } else if (eventHandler instanceof CachingEventMessageHandler) {
+            result.put("replyCache", ((CachingEventMessageHandler) eventHandler).getCache().snapshot());
+        }
+        AdmissionController admission = HandlerFactory.getAdmissionController();
+        if (admission != null) {
+            result.put("admission", admission.snapshot());
+        }
+        HttpMetrics httpMetrics = HandlerFactory.getHttpMetrics();
+        if (httpMetrics != null) {
+            result.put("http", httpMetrics.snapshot());
+        }
+        result.put("httpRetry", RetryPolicy.getDefault().snapshot());
+        return result;
+    }
+}
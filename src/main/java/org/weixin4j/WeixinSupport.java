@@ -21,6 +21,7 @@ package org.weixin4j;
 
 import java.util.HashMap;
 import java.util.Map;
+import org.weixin4j.http.Response;
 
 /**
  * 微信平台支持
@@ -147,4 +148,32 @@ public class WeixinSupport {
         }
         return statusCode + ":操作异常";
     }
+
+    /**
+     * 从输出流直接解析为对象，返回错误信息时抛出异常
+     *
+     * @param <T> 对象类型
+     * @param res 响应
+     * @param type 对象类型
+     * @return 解析后的对象，没有内容时为null
+     * @throws WeixinException 返回错误信息或解析错误
+     */
+    protected <T> T as(Response res, Class<T> type) throws WeixinException {
+        T result = res.as(type);
+        checkErrcode(res);
+        return result;
+    }
+
+    /**
+     * 检查as或forEachArrayElement解析到的错误码
+     *
+     * @param res 响应
+     * @throws WeixinException 错误码不为0
+     */
+    protected void checkErrcode(Response res) throws WeixinException {
+        if (res.getErrcode() != 0) {
+            //返回异常信息
+            throw new WeixinException(getCause(res.getErrcode()));
+        }
+    }
 }
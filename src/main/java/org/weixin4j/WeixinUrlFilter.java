@@ -22,6 +22,16 @@ package org.weixin4j;
 import lombok.extern.slf4j.Slf4j;
 import org.weixin4j.util.TokenUtil;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -31,21 +41,89 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.weixin4j.http.OAuthToken;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.output.CachedOutputMessage;
+import org.weixin4j.message.output.NewsOutputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.weixin4j.spi.AccountRegistry;
+import org.weixin4j.spi.AdmissionController;
+import org.weixin4j.spi.DefaultMessageHandler;
+import org.weixin4j.spi.EventSink;
+import org.weixin4j.spi.IEventMessageHandler;
 import org.weixin4j.spi.IMessageHandler;
 import org.weixin4j.spi.HandlerFactory;
+import org.weixin4j.spi.MessageExecutor;
+import org.weixin4j.spi.MessageStage;
+import org.weixin4j.spi.MessageTrace;
+import org.weixin4j.spi.SinkEventMessageHandler;
+import org.weixin4j.spi.WeixinAccount;
+import org.weixin4j.util.MessageCrypt;
+import org.weixin4j.util.XStreamFactory;
 
 /**
  * Title: 微信公众平台接受消息默认拦截器
  *
  * Description: 拦截Url http://www.weixin4j.org/api/vzhanqun
  *
+ * <p>
+ * 配置weixin4j.async.enabled=true并在容器中开启asyncSupported后，
+ * 消息在独立的有界线程池中处理，不再占用容器线程。<br/>
+ * 超过weixin4j.async.timeout（毫秒，默认4500）仍未处理完成时先回复空串，避免微信重试，<br/>
+ * 开启weixin4j.async.lateReply后，处理结果（文本、图文）将通过客服接口补发。</p>
+ *
+ * <p>
+ * 配置weixin4j.encodingAESKey后支持安全模式，encrypt_type=aes的推送将验证msg_signature、
+ * 解密后处理，并加密回复。</p>
+ *
+ * <p>
+ * 通过AccountRegistry注册多个公众号后，按URL最后一段（公众号标识）或消息的ToUserName（原始ID）确定公众号，
+ * 使用该公众号的Token、EncodingAESKey与消息处理器，未找到时使用全局配置。</p>
+ *
+ * <p>
+ * 配置weixin4j.metrics后按(MsgType, Event)统计读取、验签、解析、分发、处理与回复各阶段的耗时。</p>
+ *
+ * <p>
+ * 配置weixin4j.admission.enabled=true后限制同时处理的消息数，超过限制时直接回复空串，
+ * 关注、支付等事件优先于上报地理位置事件准入，见AdmissionController。</p>
+ *
  * @author weixin4j<weixin4j@ansitech.com>
  */
 @Slf4j
 public class WeixinUrlFilter implements Filter {
 
+    //是否启用异步处理
+    private boolean async;
+    //回复期限，单位：毫秒
+    private long replyTimeout;
+    //超过回复期限后是否通过客服接口补发
+    private boolean lateReply;
+    //异步消息处理线程池
+    private MessageExecutor executor;
+    //客服接口调用对象
+    private volatile Weixin weixin;
+    //多公众号接入时各公众号的客服接口调用对象，公众号被替换或移除后随之回收
+    private final Map<WeixinAccount, Weixin> accountWeixins = Collections.synchronizedMap(new WeakHashMap<WeixinAccount, Weixin>());
+    //安全模式消息加解密，未配置EncodingAESKey时为null
+    private MessageCrypt crypt;
+
     @Override
     public void init(FilterConfig config) throws ServletException {
+        async = Configuration.getBoolean("weixin4j.async.enabled");
+        if (async) {
+            replyTimeout = Configuration.getIntProperty("weixin4j.async.timeout", 4500);
+            lateReply = Configuration.getBoolean("weixin4j.async.lateReply");
+            executor = new MessageExecutor(Configuration.getIntProperty("weixin4j.async.threads", 20),
+                    Configuration.getIntProperty("weixin4j.async.queueSize", 500));
+        }
+        String encodingAESKey = Configuration.getProperty("weixin4j.encodingAESKey");
+        if (encodingAESKey != null && !encodingAESKey.isEmpty()) {
+            crypt = MessageCrypt.getInstance(TokenUtil.get(), encodingAESKey, Configuration.getOAuthAppId());
+        }
+        //加载配置中声明的公众号
+        AccountRegistry.load();
+        //非Spring Boot环境下在此预热，已预热过则跳过
+        WeixinWarmUp.run();
         log.debug("WeixinUrlFilter启动成功!");
     }
 
@@ -60,8 +138,10 @@ public class WeixinUrlFilter implements Filter {
         String signature = request.getParameter("signature");// 微信加密签名
         String timestamp = request.getParameter("timestamp");// 时间戳
         String nonce = request.getParameter("nonce");       // 随机数
-        //Token为weixin4j.properties中配置的Token
-        String token = TokenUtil.get();
+        //多公众号接入时按请求路径确定公众号，未注册公众号时为null
+        WeixinAccount account = AccountRegistry.resolvePath(request.getRequestURI());
+        //Token为公众号的Token，单公众号接入时为weixin4j.properties中配置的Token
+        String token = account == null ? TokenUtil.get() : account.getToken();
         if (isGet) {
             //1.验证消息真实性
             //http://mp.weixin.qq.com/wiki/index.php?title=验证消息真实性
@@ -73,21 +153,116 @@ public class WeixinUrlFilter implements Filter {
                 response.getWriter().write(echostr);
             }
         } else {
+            //消息处理统计，未启用时为null
+            MessageTrace trace = MessageTrace.begin();
+            //消息准入控制，未启用时为null
+            AdmissionController admission = HandlerFactory.getAdmissionController();
+            //按请求路径未找到公众号时，先读取POST流按ToUserName查找，准入控制也需先读取以确定优先级
+            String postXml = null;
+            if ((account == null && AccountRegistry.hasOriginalIds()) || admission != null) {
+                MessageStage stage = start(trace, MessageStage.READ);
+                try {
+                    postXml = XStreamFactory.inputStream2String(request.getInputStream(), request.getContentLength());
+                    stop(trace, stage, null);
+                } catch (IOException ex) {
+                    if (trace != null) {
+                        trace.fail(stage);
+                        trace.finish();
+                    }
+                    log.error("读取微信输入流错误", ex);
+                    response.getWriter().write("");
+                    return;
+                }
+                if (account == null) {
+                    account = AccountRegistry.resolveToUserName(postXml);
+                    if (account != null) {
+                        token = account.getToken();
+                    }
+                }
+            }
+            if (trace != null) {
+                trace.start();
+            }
+            String accountId = account == null ? null : account.getId();
+            //准入控制时先只验证签名与时间戳，准入后再记录随机数，避免被拒绝后重试的消息被当作重放
+            boolean verified = admission == null
+                    ? TokenUtil.verify(accountId, token, signature, timestamp, nonce)
+                    : TokenUtil.checkSignature(token, signature, timestamp, nonce) && TokenUtil.checkTimestamp(timestamp);
             //确认此次GET请求来自微信服务器，原样返回echostr参数内容，则接入生效，成为开发者成功，否则接入失败
-            if (!TokenUtil.checkSignature(token, signature, timestamp, nonce)) {
+            if (!verified) {
+                if (trace != null) {
+                    trace.fail(MessageStage.SIGNATURE);
+                    trace.finish();
+                }
                 //消息不可靠，直接返回
                 response.getWriter().write("");
                 return;
             }
+            if (trace != null) {
+                trace.stop(MessageStage.SIGNATURE);
+            }
+            //安全模式下的加密消息
+            MessageCrypt msgCrypt = null;
+            if ("aes".equals(request.getParameter("encrypt_type"))) {
+                msgCrypt = account == null ? crypt : account.getMessageCrypt();
+                if (msgCrypt == null) {
+                    log.warn("收到加密消息，但未配置EncodingAESKey");
+                    if (trace != null) {
+                        trace.finish();
+                    }
+                    response.getWriter().write("");
+                    return;
+                }
+            }
+            //超过并发限制时直接回复空串
+            if (admission != null && !admission.tryAcquire(admission.classify(postXml))) {
+                if (trace != null) {
+                    trace.finish();
+                }
+                response.getWriter().write("");
+                return;
+            }
+            if (admission != null && !TokenUtil.checkNonce(accountId, nonce)) {
+                admission.cancel();
+                if (trace != null) {
+                    trace.finish();
+                }
+                //重复的随机数，消息不可靠
+                response.getWriter().write("");
+                return;
+            }
             //用户每次向公众号发送消息、或者产生自定义菜单点击事件时，响应URL将得到推送
-            doPost(request, response);
+            if (async && request.isAsyncSupported()) {
+                doPostAsync(request, response, account, postXml, msgCrypt, trace, admission);
+            } else {
+                long admitted = System.nanoTime();
+                boolean failed = true;
+                try {
+                    failed = doPost(request, response, account, postXml, msgCrypt, trace);
+                } finally {
+                    if (admission != null) {
+                        admission.release(System.nanoTime() - admitted, failed);
+                    }
+                }
+            }
         }
     }
 
     //当普通微信用户向公众账号发消息时，微信服务器将POST消息的XML数据包到开发者填写的URL上
     //用户在关注与取消关注公众号时，微信会把这个事件推送到开发者填写的URL
     //用户每次发送语音给公众号时，微信会在推送的语音消息XML数据包中，增加一个Recongnition字段
-    private void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    //postXml为已读取的POST内容，未读取时为null，处理出错时返回true
+    private boolean doPost(HttpServletRequest request, HttpServletResponse response, WeixinAccount account, String postXml,
+            MessageCrypt msgCrypt, MessageTrace trace) throws IOException {
+        //消息处理器在当前线程获取所属公众号，并记录解析、分发与处理阶段
+        if (account != null) {
+            account.attach();
+        }
+        if (trace != null) {
+            trace.attach();
+        }
+        //正在执行的本方法内阶段，出错时记为失败
+        MessageStage stage = null;
         try {
             response.setCharacterEncoding("UTF-8");
             response.setContentType("text/xml");
@@ -95,17 +270,334 @@ public class WeixinUrlFilter implements Filter {
             ServletInputStream in = request.getInputStream();
             log.debug("接收到微信输入流,准备处理...");
             IMessageHandler messageHandler = HandlerFactory.getMessageHandler();
-            //处理输入消息，返回结果
-            String xml = messageHandler.invoke(in);
+            OutputMessage outputMsg = null;
+            String xml = "";
+            String inputXml = postXml;
+            if (msgCrypt != null) {
+                if (inputXml == null) {
+                    stage = start(trace, MessageStage.READ);
+                    inputXml = XStreamFactory.inputStream2String(in, request.getContentLength());
+                    stage = stop(trace, stage, MessageStage.SIGNATURE);
+                } else {
+                    stage = start(trace, MessageStage.SIGNATURE);
+                }
+                //验证msg_signature并解密
+                inputXml = msgCrypt.decryptMessage(inputXml,
+                        request.getParameter("msg_signature"), request.getParameter("timestamp"), request.getParameter("nonce"));
+                stage = stop(trace, stage, null);
+            }
+            if (inputXml != null) {
+                if (messageHandler instanceof DefaultMessageHandler) {
+                    outputMsg = ((DefaultMessageHandler) messageHandler).handle(inputXml);
+                } else {
+                    xml = messageHandler.invoke(inputXml);
+                }
+            } else if (messageHandler instanceof DefaultMessageHandler) {
+                //处理输入消息，直接将回复消息写入输出流
+                outputMsg = ((DefaultMessageHandler) messageHandler).handle(in);
+            } else {
+                //处理输入消息，返回结果
+                xml = messageHandler.invoke(in);
+            }
             //返回结果
-            response.getWriter().write(xml);
+            stage = start(trace, MessageStage.SERIALIZE);
+            writeReply(response, outputMsg, xml, msgCrypt, request.getParameter("timestamp"), request.getParameter("nonce"));
+            stage = stop(trace, stage, null);
+            return false;
         } catch (Exception ex) {
-            ex.printStackTrace();
+            if (trace != null && stage != null) {
+                trace.fail(stage);
+            }
+            //出错时回复空串
+            log.error("处理微信消息错误", ex);
+            return true;
+        } finally {
+            if (account != null) {
+                account.detach();
+            }
+            if (trace != null) {
+                trace.detach();
+                trace.finish();
+            }
+        }
+    }
+
+    //开始记录阶段，返回正在执行的阶段
+    private static MessageStage start(MessageTrace trace, MessageStage stage) {
+        if (trace == null) {
+            return null;
+        }
+        trace.start();
+        return stage;
+    }
+
+    //结束当前阶段并开始下一阶段，返回正在执行的阶段
+    private static MessageStage stop(MessageTrace trace, MessageStage stage, MessageStage next) {
+        if (trace == null) {
+            return null;
+        }
+        trace.stop(stage);
+        return next;
+    }
+
+    //在容器线程读取POST流，消息处理交给异步线程池，超过回复期限先回复空串
+    //admission不为null时已准入，处理结束或被线程池拒绝时释放
+    private void doPostAsync(HttpServletRequest request, HttpServletResponse response, final WeixinAccount account, String postXml,
+            final MessageCrypt msgCrypt, final MessageTrace trace, final AdmissionController admission) throws IOException {
+        final long admitted = System.nanoTime();
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("text/xml");
+        final String inputXml;
+        MessageStage stage = postXml != null ? null : start(trace, MessageStage.READ);
+        try {
+            inputXml = postXml != null ? postXml : XStreamFactory.inputStream2String(request.getInputStream(), request.getContentLength());
+            if (stage != null) {
+                trace.stop(stage);
+            }
+        } catch (IOException ex) {
+            if (trace != null) {
+                trace.fail(stage);
+                trace.finish();
+            }
+            if (admission != null) {
+                admission.release(System.nanoTime() - admitted, true);
+            }
+            log.error("读取微信输入流错误", ex);
             response.getWriter().write("");
+            return;
+        }
+        final String msgSignature = request.getParameter("msg_signature");
+        final String timestamp = request.getParameter("timestamp");
+        final String nonce = request.getParameter("nonce");
+        final AsyncContext asyncContext = request.startAsync();
+        //回复只能发生一次：处理完成、超时或被拒绝
+        final AtomicBoolean replied = new AtomicBoolean();
+        asyncContext.setTimeout(replyTimeout);
+        asyncContext.addListener(new AsyncListener() {
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (replied.compareAndSet(false, true)) {
+                    executor.recordTimeout();
+                    log.warn("消息处理超过{}毫秒，先回复空串", replyTimeout);
+                    reply(asyncContext, null, "", null, null, null);
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                if (replied.compareAndSet(false, true)) {
+                    log.error("异步回复错误", event.getThrowable());
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) throws IOException {
+            }
+        });
+        boolean accepted = executor.submit(() -> {
+            OutputMessage outputMsg = null;
+            String xml = "";
+            boolean failed = false;
+            if (account != null) {
+                account.attach();
+            }
+            if (trace != null) {
+                trace.attach();
+            }
+            try {
+                //安全模式下验证msg_signature并解密
+                String plainXml = inputXml;
+                if (msgCrypt != null) {
+                    MessageStage cryptStage = start(trace, MessageStage.SIGNATURE);
+                    try {
+                        plainXml = msgCrypt.decryptMessage(inputXml, msgSignature, timestamp, nonce);
+                    } catch (WeixinException ex) {
+                        if (trace != null) {
+                            trace.fail(cryptStage);
+                        }
+                        throw ex;
+                    }
+                    stop(trace, cryptStage, null);
+                }
+                IMessageHandler messageHandler = HandlerFactory.getMessageHandler();
+                if (messageHandler instanceof DefaultMessageHandler) {
+                    //保留输出消息对象，直接写入输出流，超时后用于客服接口补发
+                    outputMsg = ((DefaultMessageHandler) messageHandler).handle(plainXml);
+                } else {
+                    xml = messageHandler.invoke(plainXml);
+                }
+            } catch (Exception ex) {
+                failed = true;
+                log.error("处理微信输入消息错误", ex);
+            }
+            try {
+                if (replied.compareAndSet(false, true)) {
+                    MessageStage replyStage = start(trace, MessageStage.SERIALIZE);
+                    reply(asyncContext, outputMsg, xml, msgCrypt, timestamp, nonce);
+                    stop(trace, replyStage, null);
+                } else if (lateReply && outputMsg != null) {
+                    sendLateReply(outputMsg, account);
+                }
+            } finally {
+                if (account != null) {
+                    account.detach();
+                }
+                if (trace != null) {
+                    trace.detach();
+                    trace.finish();
+                }
+                if (admission != null) {
+                    admission.release(System.nanoTime() - admitted, failed);
+                }
+            }
+        });
+        if (!accepted) {
+            if (trace != null) {
+                trace.finish();
+            }
+            if (admission != null) {
+                admission.release(System.nanoTime() - admitted, true);
+            }
+            if (replied.compareAndSet(false, true)) {
+                log.warn("异步消息处理队列已满，直接回复空串");
+                reply(asyncContext, null, "", null, null, null);
+            }
+        }
+    }
+
+    //写入回复并结束异步请求
+    private void reply(AsyncContext asyncContext, OutputMessage outputMsg, String xml, MessageCrypt msgCrypt, String timestamp, String nonce) {
+        try {
+            writeReply(asyncContext.getResponse(), outputMsg, xml, msgCrypt, timestamp, nonce);
+        } catch (IOException | WeixinException | IllegalStateException ex) {
+            log.warn("写入回复消息错误", ex);
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    //写入回复，安全模式下加密后写入，否则有输出消息对象时直接写入输出流
+    private static void writeReply(ServletResponse response, OutputMessage outputMsg, String xml,
+            MessageCrypt msgCrypt, String timestamp, String nonce) throws IOException, WeixinException {
+        //需要加密或输出日志时只序列化一次
+        String replyXml = null;
+        if (outputMsg != null && (msgCrypt != null || log.isDebugEnabled())) {
+            replyXml = outputMsg.toXML();
+            log.debug("POST输出消息:\n{}\n------------------------", replyXml);
+        }
+        if (msgCrypt != null) {
+            if (replyXml == null) {
+                replyXml = xml;
+            }
+            if (replyXml != null && !replyXml.isEmpty()) {
+                response.getWriter().write(msgCrypt.encryptMessage(replyXml, timestamp, nonce));
+            }
+        } else if (replyXml != null) {
+            response.getOutputStream().write(replyXml.getBytes(StandardCharsets.UTF_8));
+        } else if (outputMsg != null) {
+            outputMsg.writeTo(response.getOutputStream());
+        } else if (xml != null) {
+            response.getWriter().write(xml);
+        }
+    }
+
+    //通过客服接口补发超时的回复，仅支持文本和图文消息
+    private void sendLateReply(OutputMessage outputMsg, WeixinAccount account) {
+        String openId = outputMsg.getToUserName();
+        if (outputMsg instanceof CachedOutputMessage) {
+            outputMsg = ((CachedOutputMessage) outputMsg).getTemplate();
+        }
+        try {
+            if (outputMsg instanceof TextOutputMessage) {
+                getWeixin(account).customSendContent(openId, ((TextOutputMessage) outputMsg).getContent());
+            } else if (outputMsg instanceof NewsOutputMessage) {
+                getWeixin(account).customSendNews(openId, ((NewsOutputMessage) outputMsg).getArticles());
+            } else {
+                log.warn("客服接口不支持补发[{}]消息", outputMsg.getMsgType());
+                return;
+            }
+            executor.recordLateReply();
+        } catch (WeixinException ex) {
+            log.error("客服接口补发回复错误", ex);
+        }
+    }
+
+    //公众号登录后的客服接口调用对象，未配置AppId时使用全局配置
+    private Weixin getWeixin(WeixinAccount account) throws WeixinException {
+        if (account == null || account.getAppId() == null) {
+            return getWeixin();
+        }
+        return login(accountWeixins.computeIfAbsent(account, k -> new Weixin()), account.getAppId(), account.getAppSecret());
+    }
+
+    //登录后的客服接口调用对象
+    private Weixin getWeixin() throws WeixinException {
+        Weixin w = weixin;
+        if (w == null) {
+            synchronized (this) {
+                w = weixin;
+                if (w == null) {
+                    w = weixin = new Weixin();
+                }
+            }
+        }
+        return login(w, Configuration.getOAuthAppId(), Configuration.getOAuthSecret());
+    }
+
+    //复用未过期的access_token，过期时只由一个线程重新登录
+    private static Weixin login(Weixin weixin, String appId, String secret) throws WeixinException {
+        if (!isValid(weixin.getOAuthToken())) {
+            synchronized (weixin) {
+                if (!isValid(weixin.getOAuthToken())) {
+                    weixin.login(appId, secret);
+                }
+            }
         }
+        return weixin;
+    }
+
+    private static boolean isValid(OAuthToken oauthToken) {
+        return oauthToken != null && !oauthToken.isExprexpired();
+    }
+
+    /**
+     * 获取异步消息处理线程池，未启用异步处理时返回null
+     *
+     * @return 异步消息处理线程池
+     */
+    public MessageExecutor getExecutor() {
+        return executor;
     }
 
     @Override
     public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        //写出全局与各公众号事件队列中剩余的事件，共用最长等待时间
+        Set<EventSink> sinks = Collections.newSetFromMap(new IdentityHashMap<EventSink, Boolean>());
+        addSink(sinks, HandlerFactory.getEventMessageHandler());
+        for (WeixinAccount account : AccountRegistry.getAccounts()) {
+            addSink(sinks, account.getEventMessageHandler());
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        for (EventSink sink : sinks) {
+            sink.shutdown(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+    }
+
+    private static void addSink(Set<EventSink> sinks, IEventMessageHandler eventHandler) {
+        if (eventHandler instanceof SinkEventMessageHandler) {
+            EventSink sink = ((SinkEventMessageHandler) eventHandler).getSink();
+            if (sink != null) {
+                sinks.add(sink);
+            }
+        }
     }
 }
@@ -0,0 +1,199 @@
+package org.weixin4j;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.weixin4j.http.DefaultHttpTransport;
+import org.weixin4j.message.Articles;
+import org.weixin4j.message.EventType;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.MsgType;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.output.NewsOutputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.weixin4j.spi.DefaultMessageHandler;
+import org.weixin4j.spi.HandlerFactory;
+import org.weixin4j.spi.IHttpTransport;
+import org.weixin4j.spi.IMessageHandler;
+import org.weixin4j.spi.MessageDispatcher;
+import org.weixin4j.util.InputMessageParser;
+import org.weixin4j.util.JAXBFactory;
+import org.weixin4j.util.MessageCrypt;
+import org.weixin4j.util.SHA1;
+import org.weixin4j.util.TokenUtil;
+import org.weixin4j.util.XStreamFactory;
+
+/**
+ * 启动预热
+ *
+ * <p>
+ * 在接收请求前创建消息处理器、JAXBContext、SSLContext等对象，<br/>
+ * 并将每种MsgType/EventType的模拟消息走一遍解析、分发与回复流程，避免发布后首批请求变慢。</p>
+ *
+ * <p>
+ * weixin4j.warmup.enabled=false关闭预热；<br/>
+ * weixin4j.warmup.invokeHandlers=true时模拟消息会交给配置的处理器处理，
+ * 处理器需能识别FromUserName为weixin4j_warmup的模拟消息。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@Slf4j
+public class WeixinWarmUp {
+
+    /**
+     * 模拟消息的发送方
+     */
+    public static final String WARMUP_USER = "weixin4j_warmup";
+
+    private static final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * 执行预热，多次调用只执行一次
+     *
+     * @return 预热耗时，单位：毫秒，未执行返回-1
+     */
+    public static long run() {
+        if ("false".equals(Configuration.getProperty("weixin4j.warmup.enabled"))
+                || !started.compareAndSet(false, true)) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        long handlers = stage("消息处理器", WeixinWarmUp::warmHandlers);
+        long messages = stage("消息解析与回复", WeixinWarmUp::warmMessages);
+        long codecs = stage("签名与编解码", WeixinWarmUp::warmCodecs);
+        long https = stage("HTTPS客户端", WeixinWarmUp::warmHttps);
+        long cost = (System.nanoTime() - start) / 1000000;
+        log.info("[Weixin4j]预热完成，耗时{}毫秒（消息处理器{}，消息解析与回复{}，签名与编解码{}，HTTPS客户端{}）",
+                cost, handlers, messages, codecs, https);
+        return cost;
+    }
+
+    //执行预热阶段，返回耗时，失败不影响启动
+    private static long stage(String name, Stage stage) {
+        long start = System.nanoTime();
+        try {
+            stage.run();
+        } catch (Exception ex) {
+            log.warn("[Weixin4j]预热{}失败", name, ex);
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    private static void warmHandlers() {
+        HandlerFactory.getMessageHandler();
+        HandlerFactory.getNormalMessageHandler();
+        HandlerFactory.getEventMessageHandler();
+    }
+
+    private static void warmMessages() throws Exception {
+        IMessageHandler messageHandler = HandlerFactory.getMessageHandler();
+        boolean invokeHandlers = Configuration.getBoolean("weixin4j.warmup.invokeHandlers")
+                && messageHandler instanceof DefaultMessageHandler;
+        List<String> messages = new ArrayList<String>();
+        long msgId = System.currentTimeMillis();
+        for (MsgType msgType : MsgType.values()) {
+            if (msgType != MsgType.Event && msgType != MsgType.Music && msgType != MsgType.News) {
+                messages.add(message(msgType.toString(), null, null, msgId++));
+            }
+        }
+        for (EventType eventType : EventType.values()) {
+            messages.add(message(MsgType.Event.toString(), eventType.toString(), "warmup", 0));
+        }
+        messages.add(message(MsgType.Event.toString(), EventType.Scan.toString(), "qrscene_warmup", 0));
+        for (String xml : messages) {
+            InputMessage inputMsg = JAXBFactory.unmarshal(InputMessage.class, xml);
+            InputMessageParser.parse(new StringReader(xml));
+            MessageDispatcher.getRoute(inputMsg);
+            if (invokeHandlers) {
+                OutputMessage outputMsg = ((DefaultMessageHandler) messageHandler).handle(inputMsg);
+                if (outputMsg != null) {
+                    outputMsg.writeTo(new ByteArrayOutputStream());
+                }
+            }
+        }
+        //回复消息
+        TextOutputMessage text = new TextOutputMessage("warmup");
+        text.setToUserName(WARMUP_USER);
+        text.setFromUserName(WARMUP_USER);
+        text.setCreateTime(System.currentTimeMillis() / 1000);
+        text.writeTo(new ByteArrayOutputStream());
+        Articles article = new Articles();
+        article.setTitle("warmup");
+        List<Articles> articles = new ArrayList<Articles>();
+        articles.add(article);
+        NewsOutputMessage news = new NewsOutputMessage();
+        news.setArticles(articles);
+        news.setToUserName(WARMUP_USER);
+        news.setFromUserName(WARMUP_USER);
+        news.setCreateTime(System.currentTimeMillis() / 1000);
+        news.writeTo(new ByteArrayOutputStream());
+    }
+
+    private static void warmCodecs() throws Exception {
+        String token = TokenUtil.get();
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        TokenUtil.checkSignature(token, SHA1.encode(timestamp), timestamp, "warmup");
+        XStreamFactory.inputStream2String(new ByteArrayInputStream("<xml></xml>".getBytes(StandardCharsets.UTF_8)));
+        //fastjson序列化与反序列化
+        JSONObject json = new JSONObject();
+        json.put("touser", WARMUP_USER);
+        json.put("msgtype", "text");
+        JSON.parseObject(JSON.toJSONString(json));
+        JSON.parseObject("{\"errcode\":0,\"errmsg\":\"ok\"}");
+        //安全模式加解密
+        String encodingAESKey = Configuration.getProperty("weixin4j.encodingAESKey");
+        if (encodingAESKey != null && !encodingAESKey.isEmpty()) {
+            MessageCrypt crypt = MessageCrypt.getInstance(token, encodingAESKey, Configuration.getOAuthAppId());
+            crypt.decrypt(crypt.encrypt("<xml></xml>"));
+        }
+    }
+
+    private static void warmHttps() throws Exception {
+        //创建请求实际使用的共享传输层，初始化其SSLContext，不发起网络连接
+        IHttpTransport transport = HandlerFactory.getHttpTransport();
+        if (transport instanceof DefaultHttpTransport) {
+            ((DefaultHttpTransport) transport).getSslSocketFactory().getDefaultCipherSuites();
+        }
+        new URL("https://api.weixin.qq.com/cgi-bin/token").openConnection();
+    }
+
+    //模拟消息
+    private static String message(String msgType, String event, String eventKey, long msgId) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<xml>");
+        sb.append("<ToUserName><![CDATA[").append(WARMUP_USER).append("]]></ToUserName>");
+        sb.append("<FromUserName><![CDATA[").append(WARMUP_USER).append("]]></FromUserName>");
+        sb.append("<CreateTime>").append(System.currentTimeMillis() / 1000).append("</CreateTime>");
+        sb.append("<MsgType><![CDATA[").append(msgType).append("]]></MsgType>");
+        if (event != null) {
+            sb.append("<Event><![CDATA[").append(event).append("]]></Event>");
+            sb.append("<EventKey><![CDATA[").append(eventKey).append("]]></EventKey>");
+            sb.append("<ScanCodeInfo><ScanType><![CDATA[qrcode]]></ScanType><ScanResult><![CDATA[1]]></ScanResult></ScanCodeInfo>");
+            sb.append("<SendPicsInfo><Count>1</Count><PicList><item><PicMd5Sum><![CDATA[1]]></PicMd5Sum></item></PicList></SendPicsInfo>");
+            sb.append("<SendLocationInfo><Location_X><![CDATA[23]]></Location_X><Location_Y><![CDATA[113]]></Location_Y>"
+                    + "<Scale><![CDATA[15]]></Scale><Label><![CDATA[warmup]]></Label><Poiname><![CDATA[]]></Poiname></SendLocationInfo>");
+        } else {
+            sb.append("<Content><![CDATA[warmup]]></Content>");
+            sb.append("<PicUrl><![CDATA[http://www.weixin4j.org/]]></PicUrl>");
+            sb.append("<MediaId><![CDATA[warmup]]></MediaId>");
+            sb.append("<Location_X>23.134521</Location_X><Location_Y>113.358803</Location_Y><Scale>20</Scale>");
+            sb.append("<MsgId>").append(msgId).append("</MsgId>");
+        }
+        sb.append("</xml>");
+        return sb.toString();
+    }
+
+    //预热阶段
+    private interface Stage {
+
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,173 @@
+package org.weixin4j.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLSocketFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.Configuration;
+
+/**
+ * 商户证书的SSLSocketFactory缓存
+ *
+ * <p>
+ * 发红包、退款等需要商户证书的请求按(商户号, 证书路径, 证书指纹)复用同一个SSLSocketFactory，<br/>
+ * 不再每次请求读取PKCS12文件并初始化KeyManagerFactory；同一个SSLSocketFactory建立的连接也可以复用。</p>
+ *
+ * <p>
+ * 每隔weixin4j.http.cert.checkInterval毫秒检查一次证书文件，修改时间或大小变化且内容（SHA-256）不同时重新加载，<br/>
+ * 新证书加载失败时继续使用原证书。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class CertificateCache {
+
+    private static final CertificateCache DEFAULT = new CertificateCache(Configuration.getIntProperty("weixin4j.http.cert.checkInterval", 10000));
+
+    //商户号与证书路径对应的证书
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final long checkInterval;
+
+    /**
+     * 创建商户证书缓存
+     *
+     * @param checkInterval 检查证书文件的间隔，单位：毫秒
+     */
+    public CertificateCache(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * 获取按weixin4j.http.cert.checkInterval配置的共享缓存
+     *
+     * @return 商户证书缓存
+     */
+    public static CertificateCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 获取商户证书的SSLSocketFactory
+     *
+     * @param partnerId 商户号，即PKCS12文件的密码
+     * @param certPath PKCS12证书文件路径
+     * @param certSecret 证书密钥
+     * @return SSLSocketFactory，证书未变化时返回同一个对象
+     * @throws IOException 读取证书文件错误
+     * @throws GeneralSecurityException 证书或密码错误
+     */
+    public SSLSocketFactory getSocketFactory(String partnerId, String certPath, String certSecret)
+            throws IOException, GeneralSecurityException {
+        String key = partnerId + "|" + certPath;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.secret.equals(certSecret) && System.currentTimeMillis() < entry.nextCheck) {
+            return entry.factory;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            entry = entries.get(key);
+            boolean sameSecret = entry != null && entry.secret.equals(certSecret);
+            if (sameSecret && now < entry.nextCheck) {
+                return entry.factory;
+            }
+            File file = new File(certPath);
+            long modified = file.lastModified();
+            long length = file.length();
+            if (sameSecret && modified == entry.modified && length == entry.length) {
+                entries.put(key, entry.checked(modified, length, now + checkInterval));
+                return entry.factory;
+            }
+            try {
+                byte[] content = Files.readAllBytes(file.toPath());
+                String fingerprint = fingerprint(content);
+                if (sameSecret && fingerprint.equals(entry.fingerprint)) {
+                    //只修改了时间，内容未变
+                    entries.put(key, entry.checked(modified, length, now + checkInterval));
+                    return entry.factory;
+                }
+                SSLSocketFactory factory = load(content, partnerId, certSecret);
+                entries.put(key, new Entry(certSecret, fingerprint, factory, modified, length, now + checkInterval));
+                log.info("[Weixin4j]加载商户证书:{} {} SHA-256:{}", partnerId, certPath, fingerprint);
+                return factory;
+            } catch (IOException | GeneralSecurityException ex) {
+                if (!sameSecret) {
+                    throw ex;
+                }
+                log.error("重新加载商户证书错误，继续使用原证书:{}", certPath, ex);
+                entries.put(key, entry.checked(entry.modified, entry.length, now + checkInterval));
+                return entry.factory;
+            }
+        }
+    }
+
+    //PKCS12文件的密码为商户号
+    private static SSLSocketFactory load(byte[] content, String partnerId, String certSecret)
+            throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(new ByteArrayInputStream(content), partnerId.toCharArray());
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, certSecret.toCharArray());
+        return DefaultHttpTransport.track(DefaultHttpTransport.createSSLContext(kmf.getKeyManagers()).getSocketFactory());
+    }
+
+    private static String fingerprint(byte[] content) throws GeneralSecurityException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 移除缓存的证书，下次请求重新加载
+     *
+     * @param partnerId 商户号
+     * @param certPath PKCS12证书文件路径
+     */
+    public void invalidate(String partnerId, String certPath) {
+        entries.remove(partnerId + "|" + certPath);
+    }
+
+    /**
+     * 获取 缓存的证书个数
+     *
+     * @return 证书个数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+
+        private final String secret;
+        private final String fingerprint;
+        private final SSLSocketFactory factory;
+        private final long modified;
+        private final long length;
+        //下次检查证书文件的时间
+        private final long nextCheck;
+
+        Entry(String secret, String fingerprint, SSLSocketFactory factory, long modified, long length, long nextCheck) {
+            this.secret = secret;
+            this.fingerprint = fingerprint;
+            this.factory = factory;
+            this.modified = modified;
+            this.length = length;
+            this.nextCheck = nextCheck;
+        }
+
+        Entry checked(long modified, long length, long nextCheck) {
+            return new Entry(secret, fingerprint, factory, modified, length, nextCheck);
+        }
+    }
+}
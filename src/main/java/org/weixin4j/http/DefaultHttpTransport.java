@@ -0,0 +1,390 @@
+package org.weixin4j.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.Configuration;
+import org.weixin4j.spi.IHttpTransport;
+
+/**
+ * 默认的传输层，基于<tt>HttpURLConnection</tt>
+ *
+ * <p>
+ * 所有https请求共用一个校验服务器证书的SSLSocketFactory，JDK据此复用keep-alive连接并恢复TLS会话，<br/>
+ * 不再每次请求重新握手。每个主机同时使用的连接数不超过weixin4j.http.maxConnectionsPerHost，<br/>
+ * 超过时等待其他请求归还连接，等待超过连接超时时间则请求失败；指定了连接池名称（如商户号）的请求单独计数。</p>
+ *
+ * <p>
+ * 响应的输出流读取完毕、出错或关闭时归还连接许可，调用方须关闭未读完的<tt>Response</tt>。<br/>
+ * 未关闭就被丢弃的响应在垃圾回收后由下一次等待许可的请求收回，并记录警告日志，避免连接数永久减少。</p>
+ *
+ * <p>
+ * 空闲连接由JDK缓存，每个主机最多保留http.maxConnections（系统属性，默认5）个。<br/>
+ * 通过本类创建的SSLSocketFactory记录每次请求是否建立了新连接，见<code>Response.getConnectionReused()</code>。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class DefaultHttpTransport implements IHttpTransport {
+
+    //当前线程本次请求是否建立了新连接
+    private static final ThreadLocal<boolean[]> CONNECTED = ThreadLocal.withInitial(() -> new boolean[1]);
+    //等待连接许可时检查被丢弃响应的间隔，单位：毫秒
+    private static final long RECLAIM_INTERVAL = 100;
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 6.3; WOW64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/33.0.1750.146 Safari/537.36";
+
+    private final SSLSocketFactory sslSocketFactory;
+    private final int maxConnectionsPerHost;
+    private final int connectTimeout;
+    private final int readTimeout;
+    //每个主机的连接许可
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<String, Semaphore>();
+    //尚未归还的许可，输出流被回收后进入abandoned
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<PooledInputStream> abandoned = new ReferenceQueue<PooledInputStream>();
+
+    /**
+     * 按weixin4j.http.*配置创建
+     *
+     * @throws GeneralSecurityException 初始化SSLContext错误
+     */
+    public DefaultHttpTransport() throws GeneralSecurityException {
+        this(createSSLContext(null).getSocketFactory(),
+                Configuration.getIntProperty("weixin4j.http.maxConnectionsPerHost", 20),
+                Configuration.getConnectionTimeout(), Configuration.getReadTimeout());
+    }
+
+    /**
+     * 创建传输层
+     *
+     * @param sslSocketFactory 共享的SSLSocketFactory
+     * @param maxConnectionsPerHost 每个主机同时使用的最大连接数
+     * @param connectTimeout 连接超时时间，单位：毫秒，不大于0时为10秒
+     * @param readTimeout 请求超时时间，单位：毫秒，不大于0时为10秒
+     */
+    public DefaultHttpTransport(SSLSocketFactory sslSocketFactory, int maxConnectionsPerHost, int connectTimeout, int readTimeout) {
+        this.sslSocketFactory = track(sslSocketFactory);
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.connectTimeout = connectTimeout > 0 ? connectTimeout : 10000;
+        this.readTimeout = readTimeout > 0 ? readTimeout : 10000;
+    }
+
+    /**
+     * 创建校验服务器证书的SSLContext
+     *
+     * <p>
+     * 使用JDK默认的信任证书，协议为weixin4j.http.ssl.protocol，默认TLS（JDK支持的最高版本）。</p>
+     *
+     * @param keyManagers 客户端证书，不需要时为null
+     * @return SSLContext
+     * @throws GeneralSecurityException 初始化错误
+     */
+    public static SSLContext createSSLContext(KeyManager[] keyManagers) throws GeneralSecurityException {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init((KeyStore) null);
+        SSLContext sslContext = SSLContext.getInstance(Configuration.getProperty("weixin4j.http.ssl.protocol", "TLS"));
+        sslContext.init(keyManagers, tmf.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    //记录是否建立新连接，同一个SSLSocketFactory只包装一次，不影响连接复用
+    static SSLSocketFactory track(SSLSocketFactory factory) {
+        if (factory == null || factory instanceof TrackingSocketFactory) {
+            return factory;
+        }
+        return new TrackingSocketFactory(factory);
+    }
+
+    /**
+     * 获取 共享的SSLSocketFactory
+     *
+     * @return SSLSocketFactory
+     */
+    public SSLSocketFactory getSslSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    @Override
+    public Response execute(HttpRequest request) throws IOException {
+        URL url = new URL(request.getUrl());
+        Semaphore permit = acquire(url, request.getPool());
+        HttpURLConnection conn = null;
+        boolean[] connected = CONNECTED.get();
+        connected[0] = false;
+        try {
+            conn = (HttpURLConnection) url.openConnection();
+            boolean tracked = false;
+            if (conn instanceof HttpsURLConnection) {
+                SSLSocketFactory factory = request.getSslSocketFactory();
+                factory = factory == null ? sslSocketFactory : factory;
+                tracked = factory instanceof TrackingSocketFactory;
+                ((HttpsURLConnection) conn).setSSLSocketFactory(factory);
+            }
+            conn.setRequestMethod(request.getMethod());
+            conn.setRequestProperty("Content-Type", request.getContentType());
+            conn.setRequestProperty("User-Agent", USER_AGENT);
+            conn.setRequestProperty("Charsert", "UTF-8");
+            conn.setDoOutput(true);
+            conn.setDoInput(true);
+            conn.setUseCaches(false);
+            conn.setConnectTimeout(connectTimeout);
+            conn.setReadTimeout(readTimeout);
+            byte[] body = request.getBody();
+            if (body != null) {
+                //按长度直接写出，不再缓存一份
+                conn.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(body);
+                }
+            } else if (request.getBodyWriter() != null) {
+                try (OutputStream out = conn.getOutputStream()) {
+                    request.getBodyWriter().writeTo(out);
+                }
+            } else {
+                conn.connect();
+            }
+            int status = conn.getResponseCode();
+            InputStream is = conn.getErrorStream();
+            if (is == null) {
+                is = conn.getInputStream();
+            }
+            Map<String, List<String>> headers = conn.getHeaderFields();
+            Response response;
+            if (is == null) {
+                permit.release();
+                response = new Response(status, headers, null);
+            } else {
+                response = new Response(status, headers, new PooledInputStream(is, permit, this));
+            }
+            response.setConnectionReused(tracked ? !connected[0] : null);
+            return response;
+        } catch (IOException | RuntimeException ex) {
+            permit.release();
+            if (conn != null) {
+                //出错的连接不再复用
+                conn.disconnect();
+            }
+            throw ex;
+        }
+    }
+
+    private Semaphore acquire(URL url, String pool) throws IOException {
+        String host = url.getHost() + ":" + (url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+        if (pool != null) {
+            host = host + "#" + pool;
+        }
+        Semaphore permit = permits.computeIfAbsent(host, key -> new Semaphore(maxConnectionsPerHost));
+        try {
+            //等待期间定期收回被丢弃响应占用的许可
+            long deadline = System.currentTimeMillis() + connectTimeout;
+            reclaim();
+            while (!permit.tryAcquire(Math.min(RECLAIM_INTERVAL, Math.max(0, deadline - System.currentTimeMillis())), TimeUnit.MILLISECONDS)) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new IOException("等待" + host + "的连接超时");
+                }
+                reclaim();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待" + host + "的连接被中断", ex);
+        }
+        return permit;
+    }
+
+    //收回未关闭就被回收的响应占用的许可
+    private void reclaim() {
+        Lease lease;
+        while ((lease = (Lease) abandoned.poll()) != null) {
+            if (lease.release()) {
+                log.warn("响应未关闭即被丢弃，已收回连接许可，请读取完毕或关闭Response");
+            }
+        }
+    }
+
+    /**
+     * 获取当前统计
+     *
+     * @return 每个主机（及连接池名称）正在使用的连接数
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Semaphore> entry : permits.entrySet()) {
+            result.put(entry.getKey(), maxConnectionsPerHost - entry.getValue().availablePermits());
+        }
+        return result;
+    }
+
+    //创建socket即建立新连接，复用keep-alive连接时不会调用
+    private static class TrackingSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+
+        TrackingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private static Socket connected(Socket socket) {
+            CONNECTED.get()[0] = true;
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return connected(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return connected(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(Socket s, InputStream consumed, boolean autoClose) throws IOException {
+            return connected(delegate.createSocket(s, consumed, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return connected(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return connected(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return connected(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return connected(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+
+    //输出流占用的许可，输出流被回收后仍可归还
+    private static class Lease extends WeakReference<PooledInputStream> {
+
+        private final Semaphore permit;
+        private final Set<Lease> leases;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(PooledInputStream stream, Semaphore permit, DefaultHttpTransport transport) {
+            super(stream, transport.abandoned);
+            this.permit = permit;
+            this.leases = transport.leases;
+            leases.add(this);
+        }
+
+        //只归还一次，返回本次是否归还
+        boolean release() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+            }
+            leases.remove(this);
+            permit.release();
+            return true;
+        }
+    }
+
+    //读取完毕、出错或关闭时归还连接许可，读取完毕后继续读取返回-1
+    private static class PooledInputStream extends FilterInputStream {
+
+        private final Lease lease;
+        private boolean closed;
+
+        PooledInputStream(InputStream in, Semaphore permit, DefaultHttpTransport transport) {
+            super(in);
+            this.lease = new Lease(this, permit, transport);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (closed) {
+                return -1;
+            }
+            try {
+                int b = super.read();
+                if (b == -1) {
+                    close();
+                }
+                return b;
+            } catch (IOException ex) {
+                release();
+                throw ex;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                return -1;
+            }
+            try {
+                int n = super.read(b, off, len);
+                if (n == -1) {
+                    close();
+                }
+                return n;
+            } catch (IOException ex) {
+                release();
+                throw ex;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!closed) {
+                    closed = true;
+                    //读取完毕后关闭，连接归还JDK的keep-alive缓存
+                    super.close();
+                }
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (lease.release()) {
+                lease.clear();
+            }
+        }
+    }
+}
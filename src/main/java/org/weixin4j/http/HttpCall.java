@@ -0,0 +1,148 @@
+package org.weixin4j.http;
+
+/**
+ * 一次请求微信平台的统计信息
+ *
+ * <p>
+ * 响应读取完毕或关闭后生成；重试时每次请求分别生成。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class HttpCall {
+
+    private final String endpoint;
+    private final String method;
+    private final String path;
+    private final int status;
+    private final int errcode;
+    private final long nanos;
+    private final long bytesSent;
+    private final long bytesReceived;
+    private final Boolean connectionReused;
+    private final String error;
+
+    HttpCall(String endpoint, String method, String path, int status, int errcode, long nanos,
+            long bytesSent, long bytesReceived, Boolean connectionReused, String error) {
+        this.endpoint = endpoint;
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.errcode = errcode;
+        this.nanos = nanos;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.connectionReused = connectionReused;
+        this.error = error;
+    }
+
+    /**
+     * 由请求地址得到接口名称，如token、user/info、message/mass/send、pay/unifiedorder
+     *
+     * @param url 请求地址
+     * @return 接口名称
+     */
+    public static String endpoint(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : url.indexOf('/', start + 3);
+        if (start < 0) {
+            return "/";
+        }
+        int end = url.indexOf('?', start);
+        String path = end < 0 ? url.substring(start) : url.substring(start, end);
+        if (path.startsWith("/cgi-bin/")) {
+            return path.substring(9);
+        }
+        return path.length() > 1 ? path.substring(1) : path;
+    }
+
+    /**
+     * 获取 接口名称
+     *
+     * @return 接口名称，如user/info
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * 获取 请求方式
+     *
+     * @return GET或POST
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * 获取 请求地址，不含参数（参数中有access_token）
+     *
+     * @return 请求地址
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 获取 HTTP状态
+     *
+     * @return HTTP状态，连接或读写错误未收到响应时为0
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 获取 微信平台返回的errcode
+     *
+     * @return errcode，响应中没有errcode时为0
+     */
+    public int getErrcode() {
+        return errcode;
+    }
+
+    /**
+     * 获取 耗时，从发送请求到响应读取完毕或关闭
+     *
+     * @return 耗时，单位：纳秒
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * 获取 发送的数据长度
+     *
+     * @return 字节数
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * 获取 读取的响应长度
+     *
+     * @return 字节数
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * 获取 是否复用了已有连接
+     *
+     * @return 是否复用，传输层无法判断时为null
+     */
+    public Boolean getConnectionReused() {
+        return connectionReused;
+    }
+
+    /**
+     * 获取 连接或读写错误
+     *
+     * @return 异常信息，没有错误时为null
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,309 @@
+package org.weixin4j.http;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.Configuration;
+import org.weixin4j.spi.HandlerFactory;
+import org.weixin4j.spi.HttpMetrics;
+import org.weixin4j.spi.IHttpTransport;
+
+/**
+ * 记录每次请求微信平台的耗时、字节数、HTTP状态、errcode与连接复用
+ *
+ * <p>
+ * 响应读取完毕或关闭时交给<tt>HttpMetrics</tt>统计，提交JFR事件，<br/>
+ * 耗时超过weixin4j.http.slowCall.threshold毫秒时按weixin4j.http.slowCall.sampleRate抽样记录慢请求日志。<br/>
+ * 日志与事件中的请求地址不含参数，不会输出access_token。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class HttpCallRecorder {
+
+    //只读取响应开头判断errcode
+    private static final int HEAD_SIZE = 64;
+
+    //JFR事件，不支持JFR或构建时未包含HttpCallEvent时为null
+    private static final EventSupport EVENTS = loadEvents();
+
+    private static volatile HttpCallRecorder defaultRecorder;
+
+    private final HttpMetrics metrics;
+    private final long slowThreshold;
+    private final double sampleRate;
+    private final boolean jfr;
+
+    /**
+     * 创建请求记录
+     *
+     * @param metrics 请求统计，为null时使用<code>HandlerFactory.getHttpMetrics()</code>
+     * @param slowThreshold 慢请求阈值，单位：毫秒，不大于0时不记录慢请求日志
+     * @param sampleRate 慢请求日志的抽样比例，0到1
+     * @param jfr 是否提交JFR事件，JDK不支持JFR时忽略
+     */
+    public HttpCallRecorder(HttpMetrics metrics, long slowThreshold, double sampleRate, boolean jfr) {
+        this.metrics = metrics;
+        this.slowThreshold = slowThreshold > 0 ? slowThreshold * 1000000L : 0;
+        this.sampleRate = sampleRate;
+        this.jfr = jfr && EVENTS != null;
+    }
+
+    //HttpCallEvent位于可选的src/jfr/java，通过反射加载，使核心代码在任何Java 8上都能编译
+    private static EventSupport loadEvents() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (EventSupport) Class.forName("org.weixin4j.http.HttpCallEvent$Support").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    /**
+     * JFR事件的创建与提交，由HttpCallEvent实现
+     */
+    interface EventSupport {
+
+        /**
+         * 开始记录
+         *
+         * @return 事件，未开启飞行记录时返回null
+         */
+        Object start();
+
+        /**
+         * 结束记录并提交
+         *
+         * @param started start返回的事件
+         * @param call 请求记录
+         */
+        void commit(Object started, HttpCall call);
+    }
+
+    /**
+     * 获取按weixin4j.http.slowCall.*与weixin4j.http.jfr配置的共享请求记录
+     *
+     * @return 请求记录
+     */
+    public static HttpCallRecorder getDefault() {
+        HttpCallRecorder recorder = defaultRecorder;
+        if (recorder == null) {
+            synchronized (HttpCallRecorder.class) {
+                recorder = defaultRecorder;
+                if (recorder == null) {
+                    recorder = defaultRecorder = new HttpCallRecorder(null,
+                            Configuration.getIntProperty("weixin4j.http.slowCall.threshold", 3000),
+                            Double.parseDouble(Configuration.getProperty("weixin4j.http.slowCall.sampleRate", "0.1")),
+                            Boolean.parseBoolean(Configuration.getProperty("weixin4j.http.jfr", "true")));
+                }
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * 发送请求并记录
+     *
+     * @param transport 传输层
+     * @param request 请求
+     * @return 响应，读取完毕或关闭时记录
+     * @throws IOException 连接或读写错误
+     */
+    public Response execute(IHttpTransport transport, HttpRequest request) throws IOException {
+        HttpMetrics m = metrics != null ? metrics : HandlerFactory.getHttpMetrics();
+        if (m == null && slowThreshold == 0 && !jfr) {
+            return transport.execute(request);
+        }
+        final Recording recording = new Recording(m, request);
+        HttpRequest counted = request;
+        if (request.getBody() != null) {
+            recording.bytesSent = request.getBody().length;
+        } else if (request.getBodyWriter() != null) {
+            //统计上传数据长度，不修改调用方的请求对象
+            final HttpRequest.BodyWriter writer = request.getBodyWriter();
+            counted = new HttpRequest(request.getMethod(), request.getUrl());
+            counted.setContentType(request.getContentType());
+            counted.setSslSocketFactory(request.getSslSocketFactory());
+            counted.setPool(request.getPool());
+            counted.setBodyWriter(out -> writer.writeTo(new CountingOutputStream(out, recording)));
+        }
+        Response response;
+        try {
+            response = transport.execute(counted);
+        } catch (IOException | RuntimeException ex) {
+            recording.finish(ex);
+            throw ex;
+        }
+        recording.status = response.getStatus();
+        recording.connectionReused = response.getConnectionReused();
+        InputStream in = response.asStream();
+        if (in == null) {
+            recording.finish(null);
+        } else {
+            response.setStream(new RecordingInputStream(in, recording));
+        }
+        return response;
+    }
+
+    //一次请求的记录
+    private class Recording {
+
+        private final HttpMetrics metrics;
+        private final String method;
+        private final String url;
+        private final long start = System.nanoTime();
+        private final Object event;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final byte[] head = new byte[HEAD_SIZE];
+        private int headLength;
+        private long bytesSent;
+        private long bytesReceived;
+        private int status;
+        private Boolean connectionReused;
+
+        Recording(HttpMetrics metrics, HttpRequest request) {
+            this.metrics = metrics;
+            this.method = request.getMethod();
+            this.url = request.getUrl();
+            this.event = jfr ? EVENTS.start() : null;
+        }
+
+        void received(int b) {
+            bytesReceived++;
+            if (headLength < HEAD_SIZE) {
+                head[headLength++] = (byte) b;
+            }
+        }
+
+        void received(byte[] b, int off, int len) {
+            bytesReceived += len;
+            if (headLength < HEAD_SIZE) {
+                int n = Math.min(len, HEAD_SIZE - headLength);
+                System.arraycopy(b, off, head, headLength, n);
+                headLength += n;
+            }
+        }
+
+        void finish(Throwable error) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            int errcode = 0;
+            if (headLength > 0) {
+                Matcher matcher = Response.ERRCODE.matcher(new String(head, 0, headLength, StandardCharsets.UTF_8));
+                if (matcher.find()) {
+                    errcode = Integer.parseInt(matcher.group(1));
+                }
+            }
+            int q = url.indexOf('?');
+            HttpCall call = new HttpCall(HttpCall.endpoint(url), method, q < 0 ? url : url.substring(0, q), status, errcode,
+                    nanos, bytesSent, bytesReceived, connectionReused, error == null ? null : error.toString());
+            if (metrics != null) {
+                try {
+                    metrics.record(call);
+                } catch (RuntimeException ex) {
+                    log.debug("记录请求统计错误", ex);
+                }
+            }
+            if (event != null) {
+                EVENTS.commit(event, call);
+            }
+            if (slowThreshold > 0 && nanos >= slowThreshold && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+                log.warn("[Weixin4j]慢请求:{} {} 耗时:{}ms 状态:{} errcode:{} 发送:{}B 接收:{}B 复用连接:{}{}",
+                        call.getMethod(), call.getPath(), nanos / 1000000, status, errcode, bytesSent, bytesReceived,
+                        connectionReused == null ? "未知" : connectionReused, error == null ? "" : " 错误:" + error);
+            }
+        }
+    }
+
+    //统计上传数据长度
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private final Recording recording;
+
+        CountingOutputStream(OutputStream out, Recording recording) {
+            super(out);
+            this.recording = recording;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            recording.bytesSent++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            recording.bytesSent += len;
+        }
+    }
+
+    //统计响应长度，读取完毕、出错或关闭时记录
+    private static class RecordingInputStream extends FilterInputStream {
+
+        private final Recording recording;
+
+        RecordingInputStream(InputStream in, Recording recording) {
+            super(in);
+            this.recording = recording;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b == -1) {
+                    recording.finish(null);
+                } else {
+                    recording.received(b);
+                }
+                return b;
+            } catch (IOException ex) {
+                recording.finish(ex);
+                throw ex;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int n = super.read(b, off, len);
+                if (n == -1) {
+                    recording.finish(null);
+                } else {
+                    recording.received(b, off, n);
+                }
+                return n;
+            } catch (IOException ex) {
+                recording.finish(ex);
+                throw ex;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            recording.bytesReceived += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                recording.finish(null);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import org.weixin4j.Configuration;
 import org.weixin4j.WeixinException;
+import org.weixin4j.spi.HandlerFactory;
 
 /**
  * HttpClient业务
@@ -26,7 +27,6 @@ import org.weixin4j.WeixinException;
  */
 public class HttpClient implements java.io.Serializable {
 
-    private static final int OK = 200;  // OK: Success!
     private static final int ConnectionTimeout = Configuration.getConnectionTimeout();
     private static final int ReadTimeout = Configuration.getReadTimeout();
     private static final String DEFAULT_CHARSET = "UTF-8";
@@ -196,44 +196,18 @@ public class HttpClient implements java.io.Serializable {
      */
     private Response httpRequest(String url, String method, String postData)
             throws WeixinException {
-        Response res = null;
-        OutputStream output;
-        HttpURLConnection http;
         try {
-            //创建https请求连接
-            http = getHttpURLConnection(url);
-            //判断https是否为空，如果为空返回null响应
-            if (http != null) {
-                //设置Header信息
-                setHttpHeader(http, method);
-                //判断是否需要提交数据
-                if (method.equals(_POST) && null != postData) {
-                    //讲参数转换为字节提交
-                    byte[] bytes = postData.getBytes(DEFAULT_CHARSET);
-                    //设置头信息
-                    http.setRequestProperty("Content-Length", Integer.toString(bytes.length));
-                    //开始连接
-                    http.connect();
-                    //获取返回信息
-                    output = http.getOutputStream();
-                    output.write(bytes);
-                    output.flush();
-                    output.close();
-                } else {
-                    //开始连接
-                    http.connect();
-                }
-                //创建输出对象
-                res = new Response(http);
-                //获取响应代码
-                if (res.getStatus() == OK) {
-                    return res;
-                }
+            HttpRequest request = new HttpRequest(method, url);
+            //判断是否需要提交数据
+            if (method.equals(_POST) && null != postData) {
+                //讲参数转换为字节提交
+                request.setBody(postData.getBytes(DEFAULT_CHARSET));
             }
+            //通过共享的传输层发送，记录请求统计
+            return HttpCallRecorder.getDefault().execute(HandlerFactory.getHttpTransport(), request);
         } catch (IOException ex) {
             throw new WeixinException(ex.getMessage(), ex);
         }
-        return res;
     }
 
     private void setHttpHeader(HttpURLConnection httpUrlConnection, String method)
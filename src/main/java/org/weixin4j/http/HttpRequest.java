@@ -0,0 +1,158 @@
+package org.weixin4j.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * 交给<tt>IHttpTransport</tt>发送的请求
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class HttpRequest {
+
+    private final String method;
+    private final String url;
+    private String contentType = "application/x-www-form-urlencoded";
+    private byte[] body;
+    private BodyWriter bodyWriter;
+    private SSLSocketFactory sslSocketFactory;
+    private String pool;
+
+    /**
+     * 创建请求
+     *
+     * @param method 请求方式，GET或POST
+     * @param url 请求地址
+     */
+    public HttpRequest(String method, String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    /**
+     * 获取 请求方式
+     *
+     * @return 请求方式
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * 获取 请求地址
+     *
+     * @return 请求地址
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 获取 Content-Type
+     *
+     * @return Content-Type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 设置 Content-Type，默认application/x-www-form-urlencoded
+     *
+     * @param contentType Content-Type
+     */
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * 获取 提交的数据
+     *
+     * @return 提交的数据，没有时返回null
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * 设置 提交的数据
+     *
+     * @param body 提交的数据
+     */
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+
+    /**
+     * 获取 写入提交数据的回调
+     *
+     * @return 写入提交数据的回调，没有时返回null
+     */
+    public BodyWriter getBodyWriter() {
+        return bodyWriter;
+    }
+
+    /**
+     * 设置 写入提交数据的回调，用于上传文件等不便预先生成的数据
+     *
+     * @param bodyWriter 写入提交数据的回调
+     */
+    public void setBodyWriter(BodyWriter bodyWriter) {
+        this.bodyWriter = bodyWriter;
+    }
+
+    /**
+     * 获取 本次请求使用的SSLSocketFactory
+     *
+     * @return SSLSocketFactory，为null时使用传输层共享的SSLSocketFactory
+     */
+    public SSLSocketFactory getSslSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    /**
+     * 设置 本次请求使用的SSLSocketFactory，如需要商户证书的请求
+     *
+     * <p>
+     * 只有同一个SSLSocketFactory对象建立的连接才能复用，不要每次请求都创建新的对象。</p>
+     *
+     * @param sslSocketFactory SSLSocketFactory
+     */
+    public void setSslSocketFactory(SSLSocketFactory sslSocketFactory) {
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
+    /**
+     * 获取 连接池名称
+     *
+     * @return 连接池名称，为null时与同一主机的其他请求共用
+     */
+    public String getPool() {
+        return pool;
+    }
+
+    /**
+     * 设置 连接池名称，如商户号，同一主机不同名称的请求分别限制并发连接数
+     *
+     * @param pool 连接池名称
+     */
+    public void setPool(String pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 写入提交数据
+     */
+    public interface BodyWriter {
+
+        /**
+         * 写入提交数据
+         *
+         * @param out 请求的输出流
+         * @throws IOException
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -26,27 +26,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.weixin4j.Configuration;
 import org.weixin4j.WeixinException;
 import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.URL;
-import java.security.KeyManagementException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.UnrecoverableKeyException;
-import java.security.cert.CertificateException;
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
+import java.security.GeneralSecurityException;
+import org.weixin4j.spi.HandlerFactory;
+import org.weixin4j.spi.IHttpTransport;
 
 /**
  * 请求微信平台及响应的客户端类
@@ -56,21 +43,57 @@ import javax.net.ssl.TrustManager;
  * 每次登陆产生一个<tt>OAuth</tt>用户连接,使用<tt>OAuthToken</tt>
  * 可以不用重复向微信平台发送登陆请求，在没有过期时间内，可继续请求。</p>
  *
+ * <p>
+ * 请求通过共享的<tt>IHttpTransport</tt>发送，连接与TLS会话在所有<tt>HttpsClient</tt>间复用，<br/>
+ * 失败时按<tt>RetryPolicy</tt>重试，每次请求由<tt>HttpCallRecorder</tt>记录统计。</p>
+ *
+ * <p>
+ * post、get、postXml返回的<tt>Response</tt>占用一个连接，须通过asString、asJSONObject、as等读取完毕，
+ * 或调用close关闭，<br/>
+ * 否则连接直到<tt>Response</tt>被垃圾回收后才能归还，期间同一主机的其他请求可能等待连接超时。</p>
+ *
  * @author weixin4j<weixin4j@ansitech.com>
  */
 @Slf4j
 public class HttpsClient implements java.io.Serializable {
 
-    private static final int OK = 200;  // OK: Success!
-    private static final int ConnectionTimeout = Configuration.getConnectionTimeout();
-    private static final int ReadTimeout = Configuration.getReadTimeout();
     private static final String DEFAULT_CHARSET = "UTF-8";
     private static final String _GET = "GET";
     private static final String _POST = "POST";
 
+    private transient IHttpTransport transport;
+    private transient RetryPolicy retryPolicy;
+
     public HttpsClient() {
     }
 
+    /**
+     * 使用指定的传输层
+     *
+     * @param transport 传输层
+     */
+    public HttpsClient(IHttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * 使用指定的传输层与重试策略
+     *
+     * @param transport 传输层
+     * @param retryPolicy 重试策略
+     */
+    public HttpsClient(IHttpTransport transport, RetryPolicy retryPolicy) {
+        this.transport = transport;
+        this.retryPolicy = retryPolicy;
+    }
+
+    //失败时按重试策略重试，每次请求分别记录统计
+    private Response execute(HttpRequest request) throws IOException {
+        IHttpTransport t = transport == null ? HandlerFactory.getHttpTransport() : transport;
+        HttpCallRecorder recorder = HttpCallRecorder.getDefault();
+        return (retryPolicy == null ? RetryPolicy.getDefault() : retryPolicy).execute(r -> recorder.execute(t, r), request);
+    }
+
     /**
      * Post JSON数据
      *
@@ -78,7 +101,7 @@ public class HttpsClient implements java.io.Serializable {
      *
      * @param url 提交地址
      * @param json JSON数据
-     * @return 输出流对象
+     * @return 输出流对象，须读取完毕或关闭以归还连接
      * @throws WeixinException
      */
     public Response post(String url, JSONObject json) throws WeixinException {
@@ -95,7 +118,7 @@ public class HttpsClient implements java.io.Serializable {
      * 默认https方式
      *
      * @param url 请求地址
-     * @return 输出流对象
+     * @return 输出流对象，须读取完毕或关闭以归还连接
      * @throws WeixinException
      */
     public Response get(String url) throws WeixinException {
@@ -107,7 +130,7 @@ public class HttpsClient implements java.io.Serializable {
      *
      * @param url 提交地址
      * @param xml XML数据
-     * @return 输出流对象
+     * @return 输出流对象，须读取完毕或关闭以归还连接
      * @throws WeixinException
      */
     public Response postXml(String url, String xml) throws WeixinException {
@@ -120,7 +143,7 @@ public class HttpsClient implements java.io.Serializable {
      * @param url 提交地址
      * @param xml XML数据
      * @param needCert 需要证书
-     * @return 输出流对象
+     * @return 输出流对象，须读取完毕或关闭以归还连接
      * @throws WeixinException
      */
     public Response postXml(String url, String xml, boolean needCert) throws WeixinException {
@@ -138,7 +161,7 @@ public class HttpsClient implements java.io.Serializable {
      * @param partnerId 商户ID
      * @param certPath 证书地址
      * @param certSecret 证书密钥
-     * @return 输出流对象
+     * @return 输出流对象，须读取完毕或关闭以归还连接
      * @throws WeixinException
      */
     public Response postXml(String url, String xml, String partnerId, String certPath, String certSecret) throws WeixinException {
@@ -156,135 +179,24 @@ public class HttpsClient implements java.io.Serializable {
      */
     private Response httpsRequest(String url, String method, String postData, boolean needCert, String partnerId, String certPath, String certSecret)
             throws WeixinException {
-        Response res = null;
-        OutputStream output;
-        HttpsURLConnection https;
         try {
-            //创建https请求连接
-            https = getHttpsURLConnection(url);
-            //判断https是否为空，如果为空返回null响应
-            if (https != null) {
-                //设置Header信息，包括https证书
-                setHttpsHeader(https, method, needCert, partnerId, certPath, certSecret);
-                //判断是否需要提交数据
-                if (method.equals(_POST) && null != postData) {
-                    //讲参数转换为字节提交
-                    byte[] bytes = postData.getBytes(DEFAULT_CHARSET);
-                    //设置头信息
-                    https.setRequestProperty("Content-Length", Integer.toString(bytes.length));
-                    //开始连接
-                    https.connect();
-                    //获取返回信息
-                    output = https.getOutputStream();
-                    output.write(bytes);
-                    output.flush();
-                    output.close();
-                } else {
-                    //开始连接
-                    https.connect();
-                }
-                //创建输出对象
-                res = new Response(https);
-                //获取响应代码
-                if (res.getStatus() == OK) {
-                    return res;
-                }
+            HttpRequest request = new HttpRequest(method, url);
+            //需要证书时使用缓存的商户证书，每个商户的连接单独复用，否则使用传输层共享的证书校验
+            if (needCert) {
+                request.setSslSocketFactory(CertificateCache.getDefault().getSocketFactory(partnerId, certPath, certSecret));
+                request.setPool(partnerId);
             }
-        } catch (NoSuchAlgorithmException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (KeyManagementException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (NoSuchProviderException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
+            //判断是否需要提交数据
+            if (method.equals(_POST) && null != postData) {
+                //讲参数转换为字节提交
+                request.setBody(postData.getBytes(DEFAULT_CHARSET));
+            }
+            return execute(request);
         } catch (IOException ex) {
             throw new WeixinException(ex.getMessage(), ex);
-        } catch (KeyStoreException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (CertificateException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (UnrecoverableKeyException ex) {
+        } catch (GeneralSecurityException ex) {
             throw new WeixinException(ex.getMessage(), ex);
         }
-        return res;
-    }
-
-    /**
-     * 获取https请求连接
-     *
-     * @param url 连接地址
-     * @return https连接对象
-     * @throws IOException
-     */
-    private HttpsURLConnection getHttpsURLConnection(String url) throws IOException {
-        URL urlGet = new URL(url);
-        //创建https请求
-        HttpsURLConnection httpsUrlConnection = (HttpsURLConnection) urlGet.openConnection();
-        return httpsUrlConnection;
-    }
-
-    private void setHttpsHeader(HttpsURLConnection httpsUrlConnection, String method, boolean needCert, String partnerId, String certPath, String certSecret)
-            throws NoSuchAlgorithmException, KeyManagementException, NoSuchProviderException,
-            IOException, KeyStoreException, CertificateException, UnrecoverableKeyException {
-        //不需要维修证书，则使用默认证书
-        if (!needCert) {
-            //创建https请求证书
-            TrustManager[] tm = {new MyX509TrustManager()};
-            //创建证书上下文对象
-            SSLContext sslContext = SSLContext.getInstance("SSL", "SunJSSE");
-            //初始化证书信息
-            sslContext.init(null, tm, new java.security.SecureRandom());
-            // 从上述SSLContext对象中得到SSLSocketFactory对象  
-            SSLSocketFactory ssf = sslContext.getSocketFactory();
-            //设置ssl证书
-            httpsUrlConnection.setSSLSocketFactory(ssf);
-        } else {
-            //指定读取证书格式为PKCS12
-            KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            //读取本机存放的PKCS12证书文件
-            FileInputStream instream = new FileInputStream(new File(certPath));
-            try {
-                //指定PKCS12的密码
-                keyStore.load(instream, partnerId.toCharArray());
-            } finally {
-                instream.close();
-            }
-            KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
-            kmf.init(keyStore, certSecret.toCharArray());
-            //创建管理jks密钥库的x509密钥管理器，用来管理密钥，需要key的密码  
-            SSLContext sslContext = SSLContext.getInstance("TLSv1");
-            // 构造SSL环境，指定SSL版本为3.0，也可以使用TLSv1，但是SSLv3更加常用。  
-            sslContext.init(kmf.getKeyManagers(), null, null);
-            // 从上述SSLContext对象中得到SSLSocketFactory对象  
-            SSLSocketFactory ssf = sslContext.getSocketFactory();
-            //设置ssl证书
-            httpsUrlConnection.setSSLSocketFactory(ssf);
-        }
-        //设置header信息
-        httpsUrlConnection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        //设置User-Agent信息
-        httpsUrlConnection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 6.3; WOW64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/33.0.1750.146 Safari/537.36");
-        //设置可接受信息
-        httpsUrlConnection.setDoOutput(true);
-        //设置可输入信息
-        httpsUrlConnection.setDoInput(true);
-        //设置请求方式
-        httpsUrlConnection.setRequestMethod(method);
-        //设置连接超时时间
-        if (ConnectionTimeout > 0) {
-            httpsUrlConnection.setConnectTimeout(ConnectionTimeout);
-        } else {
-            //默认10秒超时
-            httpsUrlConnection.setConnectTimeout(10000);
-        }
-        //设置请求超时
-        if (ReadTimeout > 0) {
-            httpsUrlConnection.setReadTimeout(ReadTimeout);
-        } else {
-            //默认10秒超时
-            httpsUrlConnection.setReadTimeout(10000);
-        }
-        //设置编码
-        httpsUrlConnection.setRequestProperty("Charsert", "UTF-8");
     }
 
     /**
@@ -296,88 +208,51 @@ public class HttpsClient implements java.io.Serializable {
      * @throws org.weixin4j.WeixinException
      */
     public String uploadHttps(String url, File file) throws WeixinException {
-        HttpsURLConnection https = null;
-        StringBuffer bufferRes = new StringBuffer();
-        try {
-            // 定义数据分隔线 
-            String BOUNDARY = "----WebKitFormBoundaryiDGnV9zdZA1eM1yL";
-            //创建https请求连接
-            https = getHttpsURLConnection(url);
-            //设置header和ssl证书
-            setHttpsHeader(https, _POST, false, null, null, null);
-            //不缓存
-            https.setUseCaches(false);
-            //保持连接
-            https.setRequestProperty("connection", "Keep-Alive");
-            //设置文档类型
-            https.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
-
-            //定义输出流
-            OutputStream out = null;
-            //定义输入流
-            DataInputStream dataInputStream;
-            try {
-                out = new DataOutputStream(https.getOutputStream());
-                byte[] end_data = ("\r\n--" + BOUNDARY + "--\r\n").getBytes();// 定义最后数据分隔线  
-                StringBuilder sb = new StringBuilder();
-                sb.append("--");
-                sb.append(BOUNDARY);
-                sb.append("\r\n");
-                sb.append("Content-Disposition: form-data;name=\"media\";filename=\"").append(file.getName()).append("\"\r\n");
-                sb.append("Content-Type:application/octet-stream\r\n\r\n");
-                byte[] data = sb.toString().getBytes();
-                out.write(data);
-                //读取文件流
-                dataInputStream = new DataInputStream(new FileInputStream(file));
+        // 定义数据分隔线
+        final String BOUNDARY = "----WebKitFormBoundaryiDGnV9zdZA1eM1yL";
+        HttpRequest request = new HttpRequest(_POST, url);
+        //设置文档类型
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setBodyWriter(out -> {
+            byte[] end_data = ("\r\n--" + BOUNDARY + "--\r\n").getBytes();// 定义最后数据分隔线
+            StringBuilder sb = new StringBuilder();
+            sb.append("--");
+            sb.append(BOUNDARY);
+            sb.append("\r\n");
+            sb.append("Content-Disposition: form-data;name=\"media\";filename=\"").append(file.getName()).append("\"\r\n");
+            sb.append("Content-Type:application/octet-stream\r\n\r\n");
+            byte[] data = sb.toString().getBytes();
+            out.write(data);
+            //读取文件流
+            try (InputStream in = new FileInputStream(file)) {
                 int bytes;
                 byte[] bufferOut = new byte[1024];
-                while ((bytes = dataInputStream.read(bufferOut)) != -1) {
+                while ((bytes = in.read(bufferOut)) != -1) {
                     out.write(bufferOut, 0, bytes);
                 }
-                out.write("\r\n".getBytes()); //多个文件时，二个文件之间加入这个  
-                dataInputStream.close();
-                out.write(end_data);
-                out.flush();
-            } finally {
-                if (out != null) {
-                    out.close();
-                }
             }
-
-            // 定义BufferedReader输入流来读取URL的响应  
-            InputStream ins = null;
-            try {
-                ins = https.getInputStream();
-                BufferedReader read = new BufferedReader(new InputStreamReader(ins, "UTF-8"));
-                String valueString;
-                bufferRes = new StringBuffer();
-                while ((valueString = read.readLine()) != null) {
-                    bufferRes.append(valueString);
-                }
-            } finally {
-                if (ins != null) {
+            out.write("\r\n".getBytes()); //多个文件时，二个文件之间加入这个
+            out.write(end_data);
+            out.flush();
+        });
+        StringBuilder bufferRes = new StringBuilder();
+        try {
+            Response res = execute(request);
+            // 定义BufferedReader输入流来读取URL的响应
+            InputStream ins = res.asStream();
+            if (ins != null) {
+                try {
+                    BufferedReader read = new BufferedReader(new InputStreamReader(ins, "UTF-8"));
+                    String valueString;
+                    while ((valueString = read.readLine()) != null) {
+                        bufferRes.append(valueString);
+                    }
+                } finally {
                     ins.close();
                 }
             }
         } catch (IOException ex) {
             throw new WeixinException(ex.getMessage(), ex);
-        } catch (NoSuchAlgorithmException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (KeyManagementException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (NoSuchProviderException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (KeyStoreException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (CertificateException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (UnrecoverableKeyException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } finally {
-            if (https != null) {
-                // 关闭连接
-                https.disconnect();
-            }
         }
         return bufferRes.toString();
     }
@@ -391,62 +266,52 @@ public class HttpsClient implements java.io.Serializable {
      */
     public Attachment downloadHttps(String url) throws WeixinException {
         //定义下载附件对象
-        Attachment attachment = null;
-        HttpsURLConnection https;
+        Attachment attachment = new Attachment();
         try {
-            //创建https请求连接
-            https = getHttpsURLConnection(url);
-            //设置header和ssl证书
-            setHttpsHeader(https, _POST, false, null, null, null);
-            //不缓存
-            https.setUseCaches(false);
-            //保持连接
-            https.setRequestProperty("connection", "Keep-Alive");
-
-            //初始化返回附件对象
-            attachment = new Attachment();
-            //根据下载响应内容创建输出流
-            if (https.getContentType().equalsIgnoreCase("text/plain")) {
-                // 定义BufferedReader输入流来读取URL的响应  
-                InputStream in = https.getInputStream();
-                BufferedReader read = new BufferedReader(new InputStreamReader(in, "UTF-8"));
-                String valueString;
-                StringBuilder bufferRes = new StringBuilder();
-                while ((valueString = read.readLine()) != null) {
-                    bufferRes.append(valueString);
-                }
-                in.close();
-                attachment.setError(bufferRes.toString());
-            } else {
-                BufferedInputStream bis = new BufferedInputStream(https.getInputStream());
-                String ds = https.getHeaderField("Content-disposition");
-                String fullName = ds.substring(ds.indexOf("filename=\"") + 10, ds.length() - 1);
-                String relName = fullName.substring(0, fullName.lastIndexOf("."));
-                String suffix = fullName.substring(relName.length() + 1);
+            Response res = execute(new HttpRequest(_POST, url));
+            //先读取响应头，出错时关闭输出流归还连接
+            InputStream in = res.asStream();
+            try {
+                String contentType = res.getHeader("Content-Type");
+                if (contentType != null && contentType.equalsIgnoreCase("text/plain")) {
+                    StringBuilder bufferRes = new StringBuilder();
+                    if (in != null) {
+                        // 定义BufferedReader输入流来读取URL的响应
+                        BufferedReader read = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+                        String valueString;
+                        while ((valueString = read.readLine()) != null) {
+                            bufferRes.append(valueString);
+                        }
+                    }
+                    attachment.setError(bufferRes.toString());
+                } else {
+                    String ds = res.getHeader("Content-disposition");
+                    int start = ds == null ? -1 : ds.indexOf("filename=\"");
+                    if (start < 0 || in == null) {
+                        throw new WeixinException("下载附件失败，响应中没有附件：" + contentType);
+                    }
+                    String fullName = ds.substring(start + 10, ds.endsWith("\"") ? ds.length() - 1 : ds.length());
+                    int dot = fullName.lastIndexOf('.');
+                    String relName = dot < 0 ? fullName : fullName.substring(0, dot);
+                    String suffix = dot < 0 ? "" : fullName.substring(dot + 1);
 
-                attachment.setFullName(fullName);
-                attachment.setFileName(relName);
-                attachment.setSuffix(suffix);
-                attachment.setContentLength(https.getHeaderField("Content-Length"));
-                attachment.setContentType(https.getHeaderField("Content-Type"));
+                    attachment.setFullName(fullName);
+                    attachment.setFileName(relName);
+                    attachment.setSuffix(suffix);
+                    attachment.setContentLength(res.getHeader("Content-Length"));
+                    attachment.setContentType(contentType);
 
-                attachment.setFileStream(bis);
+                    //附件流读取完毕或关闭后归还连接
+                    attachment.setFileStream(new BufferedInputStream(in));
+                    in = null;
+                }
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
             }
         } catch (IOException ex) {
             throw new WeixinException(ex.getMessage(), ex);
-        } catch (NoSuchAlgorithmException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (KeyManagementException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (NoSuchProviderException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (KeyStoreException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (CertificateException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } catch (UnrecoverableKeyException ex) {
-            throw new WeixinException(ex.getMessage(), ex);
-        } finally {
         }
         return attachment;
     }
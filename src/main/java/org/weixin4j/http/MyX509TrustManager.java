@@ -27,7 +27,9 @@ import javax.net.ssl.X509TrustManager;
  * Https证书管理类
  *
  * @author weixin4j<weixin4j@ansitech.com>
+ * @deprecated 信任所有证书，不再使用；请求通过<tt>DefaultHttpTransport</tt>校验服务器证书
  */
+@Deprecated
 public class MyX509TrustManager implements X509TrustManager {
 
     @Override
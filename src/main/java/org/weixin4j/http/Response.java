@@ -21,15 +21,25 @@ package org.weixin4j.http;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
 import org.weixin4j.WeixinException;
 
 import javax.net.ssl.HttpsURLConnection;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * <p>
@@ -41,14 +51,21 @@ import java.net.HttpURLConnection;
  * @author weixin4j<weixin4j@ansitech.com>
  * @version 1.0
  */
-public class Response {
+public class Response implements Closeable {
+
+    //微信平台的错误响应以errcode开头
+    static final Pattern ERRCODE = Pattern.compile("^\\s*\\{\\s*\"errcode\"\\s*:\\s*(-?[0-9]+)");
+    private static final int PEEK_SIZE = 64;
 
     private HttpsURLConnection https;
     private HttpURLConnection http;
+    private Map<String, List<String>> headers;
     private int status;
     private InputStream is;
     private String responseAsString = null;
     private boolean streamConsumed = false;
+    private int errcode;
+    private Boolean connectionReused;
 
     public Response() {
     }
@@ -69,6 +86,19 @@ public class Response {
         }
     }
 
+    /**
+     * 由传输层创建的响应，关闭输出流即归还连接
+     *
+     * @param status 响应状态
+     * @param headers 响应头
+     * @param is 输出流，没有内容时为null
+     */
+    public Response(int status, Map<String, List<String>> headers, InputStream is) {
+        this.status = status;
+        this.headers = headers;
+        this.is = is;
+    }
+
     /**
      * 转换为输出流
      *
@@ -81,6 +111,11 @@ public class Response {
         return is;
     }
 
+    //重试策略读取errcode后，替换为可重新读取的输出流
+    void setStream(InputStream is) {
+        this.is = is;
+    }
+
     /**
      * 将输出流转换为String字符串
      *
@@ -142,6 +177,129 @@ public class Response {
         return JSON.parseArray(asString());
     }
 
+    /**
+     * 从输出流直接解析为对象，不生成中间的String与JSONObject
+     *
+     * <p>
+     * 响应为errcode不为0的错误信息时返回null，错误码通过{@link #getErrcode()}获取。</p>
+     *
+     * @param <T> 对象类型
+     * @param type 对象类型
+     * @return 解析后的对象，没有内容或返回错误时为null
+     * @throws WeixinException 读取或解析错误
+     */
+    public <T> T as(Class<T> type) throws WeixinException {
+        InputStream stream = asStream();
+        if (null == stream) {
+            return null;
+        }
+        streamConsumed = true;
+        try {
+            BufferedInputStream in = new BufferedInputStream(stream);
+            //只读取开头判断是否为错误信息，随后从头解析
+            in.mark(PEEK_SIZE);
+            byte[] head = new byte[PEEK_SIZE];
+            int n = 0;
+            int read;
+            while (n < head.length && (read = in.read(head, n, head.length - n)) != -1) {
+                n += read;
+            }
+            in.reset();
+            Matcher matcher = ERRCODE.matcher(new String(head, 0, n, StandardCharsets.UTF_8));
+            if (matcher.find() && Integer.parseInt(matcher.group(1)) != 0) {
+                errcode = Integer.parseInt(matcher.group(1));
+                in.close();
+                return null;
+            }
+            try (JSONReader reader = new JSONReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                return reader.readObject(type);
+            }
+        } catch (IOException | JSONException ex) {
+            throw new WeixinException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 从输出流逐个解析数组元素，不在内存中保留整个数组
+     *
+     * <p>
+     * 如获取关注者列表：forEachArrayElement("data.openid", String.class, openids::add)，<br/>
+     * 返回total、count、next_openid等其他字段；返回错误信息时不调用action，错误码通过{@link #getErrcode()}获取。</p>
+     *
+     * @param <T> 元素类型
+     * @param path 数组的字段路径，多级用.分隔
+     * @param type 元素类型
+     * @param action 每个元素的处理
+     * @return 数组以外的字段，没有内容时为null
+     * @throws WeixinException 读取或解析错误
+     */
+    public <T> JSONObject forEachArrayElement(String path, Class<T> type, Consumer<? super T> action) throws WeixinException {
+        InputStream stream = asStream();
+        if (null == stream) {
+            return null;
+        }
+        streamConsumed = true;
+        JSONObject fields = new JSONObject();
+        try (JSONReader reader = new JSONReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            forEach(reader, path.split("\\."), 0, fields, type, action);
+        } catch (JSONException ex) {
+            throw new WeixinException(ex.getMessage(), ex);
+        }
+        Object code = fields.get("errcode");
+        if (code != null) {
+            errcode = Integer.parseInt(code.toString());
+        }
+        return fields;
+    }
+
+    private static <T> void forEach(JSONReader reader, String[] path, int depth, JSONObject fields, Class<T> type, Consumer<? super T> action) {
+        reader.startObject();
+        while (reader.hasNext()) {
+            String key = reader.readString();
+            if (depth < path.length && key.equals(path[depth])) {
+                if (depth == path.length - 1) {
+                    reader.startArray();
+                    while (reader.hasNext()) {
+                        action.accept(reader.readObject(type));
+                    }
+                    reader.endArray();
+                } else {
+                    JSONObject nested = new JSONObject();
+                    forEach(reader, path, depth + 1, nested, type, action);
+                    if (!nested.isEmpty()) {
+                        fields.put(key, nested);
+                    }
+                }
+            } else {
+                fields.put(key, reader.readObject());
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * 获取 as或forEachArrayElement解析到的错误码
+     *
+     * @return 错误码，成功时为0
+     */
+    public int getErrcode() {
+        return errcode;
+    }
+
+    /**
+     * 获取 是否复用了已有连接
+     *
+     * @return 是否复用，传输层无法判断时为null
+     */
+    public Boolean getConnectionReused() {
+        return connectionReused;
+    }
+
+    //由传输层设置
+    void setConnectionReused(Boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
     /**
      * 获取响应状态
      *
@@ -150,4 +308,41 @@ public class Response {
     public int getStatus() {
         return status;
     }
+
+    /**
+     * 获取响应头
+     *
+     * @param name 名称，不区分大小写
+     * @return 响应头的值，不存在返回null
+     */
+    public String getHeader(String name) {
+        if (https != null) {
+            return https.getHeaderField(name);
+        }
+        if (http != null) {
+            return http.getHeaderField(name);
+        }
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                    //与HttpURLConnection一致，取最后一个值
+                    return entry.getValue().get(entry.getValue().size() - 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 不读取输出流时关闭响应，归还连接
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (!streamConsumed && is != null) {
+            streamConsumed = true;
+            is.close();
+        }
+    }
 }
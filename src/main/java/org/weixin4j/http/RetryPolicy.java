@@ -0,0 +1,368 @@
+package org.weixin4j.http;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.weixin4j.Configuration;
+import org.weixin4j.spi.IHttpTransport;
+
+/**
+ * 请求微信平台失败时的重试策略
+ *
+ * <p>
+ * 连接或读写错误、HTTP 5xx以及errcode为-1（系统繁忙）时重试，<br/>
+ * 第n次重试前等待0到min(maxDelay, baseDelay×2<sup>n-1</sup>)之间的随机时间。</p>
+ *
+ * <p>
+ * 默认只重试幂等的请求：GET请求，以及查询分组、查询菜单等重复提交结果不变的POST请求；<br/>
+ * 群发、客服消息、上传、下单、发红包等默认不重试。<br/>
+ * weixin4j.http.retry.endpoints可按接口路径覆盖重试次数，如/cgi-bin/user/info:5,/cgi-bin/groups/create:1。</p>
+ *
+ * <p>
+ * 重试预算：令牌桶初始为maxTokens个令牌，每次失败减1个，每次成功加tokenRatio个，<br/>
+ * 令牌不超过一半时不再重试，微信平台故障时重试不会成倍放大请求量。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class RetryPolicy {
+
+    //令牌按千分之一计数
+    private static final int TOKEN_SCALE = 1000;
+    //判断errcode时最多读取的响应长度，errcode为-1的响应很短
+    private static final int PEEK_SIZE = 512;
+    private static final Pattern SYSTEM_BUSY = Pattern.compile("\"errcode\"\\s*:\\s*-1(?![0-9])");
+    //重复提交结果不变的POST接口
+    private static final Set<String> IDEMPOTENT_POSTS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "/cgi-bin/groups/get", "/cgi-bin/groups/getid", "/cgi-bin/groups/update",
+            "/cgi-bin/groups/members/update", "/cgi-bin/menu/get", "/cgi-bin/menu/create",
+            "/cgi-bin/media/get")));
+
+    private static volatile RetryPolicy defaultPolicy;
+
+    private final int retryCount;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int maxTokens;
+    private final int tokenRatio;
+    private final AtomicInteger tokens;
+    //按接口路径覆盖的重试次数
+    private final Map<String, Integer> overrides = new ConcurrentHashMap<String, Integer>();
+    //每个接口的重试次数
+    private final Map<String, AtomicLong> retries = new ConcurrentHashMap<String, AtomicLong>();
+    //重试后仍失败的请求数
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    //因重试预算不足放弃重试的请求数
+    private final AtomicLong budgetRejectedCount = new AtomicLong();
+
+    /**
+     * 创建重试策略
+     *
+     * @param retryCount 幂等请求的最大重试次数
+     * @param baseDelay 第一次重试前的最大等待时间，单位：毫秒
+     * @param maxDelay 每次重试前的最大等待时间，单位：毫秒
+     * @param maxTokens 重试预算的令牌数，不大于0时不限制
+     * @param tokenRatio 每次成功增加的令牌数
+     */
+    public RetryPolicy(int retryCount, long baseDelay, long maxDelay, int maxTokens, double tokenRatio) {
+        this.retryCount = Math.max(0, retryCount);
+        this.baseDelay = Math.max(1, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.maxTokens = maxTokens * TOKEN_SCALE;
+        this.tokenRatio = (int) (tokenRatio * TOKEN_SCALE);
+        this.tokens = new AtomicInteger(this.maxTokens);
+    }
+
+    /**
+     * 获取按weixin4j.http.retryCount与weixin4j.http.retry.*配置的共享重试策略
+     *
+     * @return 重试策略
+     */
+    public static RetryPolicy getDefault() {
+        RetryPolicy policy = defaultPolicy;
+        if (policy == null) {
+            synchronized (RetryPolicy.class) {
+                policy = defaultPolicy;
+                if (policy == null) {
+                    policy = new RetryPolicy(Configuration.getIntProperty("weixin4j.http.retryCount", 3),
+                            Configuration.getIntProperty("weixin4j.http.retry.baseDelay", 100),
+                            Configuration.getIntProperty("weixin4j.http.retry.maxDelay", 2000),
+                            Configuration.getIntProperty("weixin4j.http.retry.maxTokens", 10),
+                            Double.parseDouble(Configuration.getProperty("weixin4j.http.retry.tokenRatio", "0.1")));
+                    String endpoints = Configuration.getProperty("weixin4j.http.retry.endpoints");
+                    if (StringUtils.isNotBlank(endpoints)) {
+                        for (String endpoint : endpoints.split(",")) {
+                            int i = endpoint.lastIndexOf(':');
+                            if (i > 0) {
+                                policy.setRetryCount(endpoint.substring(0, i).trim(), Integer.parseInt(endpoint.substring(i + 1).trim()));
+                            }
+                        }
+                    }
+                    defaultPolicy = policy;
+                }
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * 替换共享重试策略
+     *
+     * @param policy 重试策略，为null时下次获取重新按配置创建
+     */
+    public static void setDefault(RetryPolicy policy) {
+        synchronized (RetryPolicy.class) {
+            defaultPolicy = policy;
+        }
+    }
+
+    /**
+     * 设置接口的重试次数，覆盖是否幂等的默认判断
+     *
+     * @param path 接口路径，如/cgi-bin/user/info
+     * @param retryCount 最大重试次数，0表示不重试
+     */
+    public void setRetryCount(String path, int retryCount) {
+        overrides.put(path, Math.max(0, retryCount));
+    }
+
+    /**
+     * 获取请求的最大重试次数
+     *
+     * @param method 请求方式
+     * @param path 接口路径
+     * @return 最大重试次数
+     */
+    public int getRetryCount(String method, String path) {
+        Integer count = overrides.get(path);
+        if (count != null) {
+            return count;
+        }
+        return "GET".equals(method) || IDEMPOTENT_POSTS.contains(path) ? retryCount : 0;
+    }
+
+    /**
+     * 发送请求，失败时按策略重试
+     *
+     * <p>
+     * 重试后仍为HTTP 5xx时抛出IOException；重试后仍为errcode -1时返回该响应，由调用方转换为WeixinException。</p>
+     *
+     * @param transport 传输层
+     * @param request 请求
+     * @return 响应
+     * @throws IOException 连接或读写错误，或重试后仍为HTTP 5xx
+     */
+    public Response execute(IHttpTransport transport, HttpRequest request) throws IOException {
+        String path = path(request.getUrl());
+        int maxRetries = getRetryCount(request.getMethod(), path);
+        for (int attempt = 0;; attempt++) {
+            String failure;
+            IOException error = null;
+            Response response = null;
+            try {
+                response = transport.execute(request);
+                failure = failure(response);
+            } catch (IOException ex) {
+                if (response != null) {
+                    //读取errcode时出错
+                    closeQuietly(response);
+                    response = null;
+                }
+                error = ex;
+                failure = ex.toString();
+            }
+            if (failure == null) {
+                onSuccess();
+                return response;
+            }
+            //只在确实要重试时消耗预算，不重试的接口与最后一次失败不计入
+            boolean allowed = attempt < maxRetries && onFailure();
+            if (!allowed) {
+                if (attempt < maxRetries) {
+                    budgetRejectedCount.incrementAndGet();
+                } else if (maxRetries > 0) {
+                    exhaustedCount.incrementAndGet();
+                }
+                if (error != null) {
+                    throw error;
+                }
+                if (response.getStatus() >= 500) {
+                    response.close();
+                    throw new IOException("微信平台返回HTTP " + response.getStatus() + ":" + path);
+                }
+                return response;
+            }
+            if (response != null) {
+                closeQuietly(response);
+            }
+            retries.computeIfAbsent(path, key -> new AtomicLong()).incrementAndGet();
+            long delay = delay(attempt);
+            log.warn("[Weixin4j]请求{}失败:{}，{}毫秒后第{}次重试", path, failure, delay, attempt + 1);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待重试" + path + "被中断", ex);
+            }
+        }
+    }
+
+    //需要重试时返回原因，否则返回null
+    private static String failure(Response response) throws IOException {
+        if (response.getStatus() >= 500) {
+            return "HTTP " + response.getStatus();
+        }
+        InputStream in = response.asStream();
+        String contentType = response.getHeader("Content-Type");
+        if (in == null || contentType == null || !(contentType.contains("json") || contentType.startsWith("text/plain"))) {
+            return null;
+        }
+        if (contentLength(response) > PEEK_SIZE) {
+            return null;
+        }
+        BufferedInputStream peek = new BufferedInputStream(in, PEEK_SIZE);
+        peek.mark(PEEK_SIZE);
+        byte[] head = new byte[PEEK_SIZE];
+        int n = 0;
+        int read;
+        while (n < head.length && (read = peek.read(head, n, head.length - n)) != -1) {
+            n += read;
+        }
+        peek.reset();
+        response.setStream(peek);
+        if (SYSTEM_BUSY.matcher(new String(head, 0, n, StandardCharsets.UTF_8)).find()) {
+            return "errcode -1";
+        }
+        return null;
+    }
+
+    //响应长度，未返回或格式错误时为-1
+    private static long contentLength(Response response) {
+        String length = response.getHeader("Content-Length");
+        if (length == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(length.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static void closeQuietly(Response response) {
+        try {
+            response.close();
+        } catch (IOException ex) {
+            log.debug("关闭响应错误", ex);
+        }
+    }
+
+    private long delay(int attempt) {
+        long bound = attempt >= 30 ? maxDelay : Math.min(maxDelay, baseDelay << attempt);
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private void onSuccess() {
+        if (maxTokens <= 0) {
+            return;
+        }
+        int current;
+        do {
+            current = tokens.get();
+            if (current >= maxTokens) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + tokenRatio)));
+    }
+
+    //将要重试时消耗一个令牌，返回是否还有重试预算
+    private boolean onFailure() {
+        if (maxTokens <= 0) {
+            return true;
+        }
+        int current;
+        int next;
+        do {
+            current = tokens.get();
+            next = Math.max(0, current - TOKEN_SCALE);
+        } while (!tokens.compareAndSet(current, next));
+        return next > maxTokens / 2;
+    }
+
+    private static String path(String url) {
+        try {
+            return new URL(url).getPath();
+        } catch (MalformedURLException ex) {
+            return url;
+        }
+    }
+
+    /**
+     * 获取 重试总次数
+     *
+     * @return 重试次数
+     */
+    public long getRetryTotal() {
+        long total = 0;
+        for (AtomicLong count : retries.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * 获取 重试后仍失败的请求数
+     *
+     * @return 失败请求数
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    /**
+     * 获取 因重试预算不足放弃重试的请求数
+     *
+     * @return 放弃重试的请求数
+     */
+    public long getBudgetRejectedCount() {
+        return budgetRejectedCount.get();
+    }
+
+    /**
+     * 获取当前统计
+     *
+     * @return 重试次数、失败数、剩余预算与每个接口的重试次数
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("retries", getRetryTotal());
+        result.put("exhausted", getExhaustedCount());
+        result.put("budgetRejected", getBudgetRejectedCount());
+        if (maxTokens > 0) {
+            result.put("budgetTokens", (double) tokens.get() / TOKEN_SCALE);
+        }
+        Map<String, Object> endpoints = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, AtomicLong> entry : retries.entrySet()) {
+            endpoints.put(entry.getKey(), entry.getValue().get());
+        }
+        result.put("endpoints", endpoints);
+        return result;
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.weixin4j.message;
 
+import java.util.Locale;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import org.weixin4j.message.event.ClickEventMessage;
@@ -51,6 +52,9 @@ import org.weixin4j.message.normal.VoiceInputMessage;
  * 由于POST的是XML数据包，所以不确定为哪种接受消息，<br/>
  * 所以直接将所有字段都进行转换，最后根据<tt>MsgType</tt>字段来判断取何种数据</p>
  *
+ * <p>
+ * 转换为具体消息时通过getter读取字段，子类（如<tt>LazyInputMessage</tt>）可按需解码。</p>
+ *
  * @author weixin4j<weixin4j@ansitech.com>
  */
 @XmlRootElement(name = "xml")
@@ -190,13 +194,13 @@ public class InputMessage extends NormalMessage {
     }
 
     public String getEvent() {
-        //转成小写
-        return Event.toLowerCase();
+        return Event;
     }
 
     @XmlElement(name = "Event")
     public void setEvent(String event) {
-        Event = event;
+        //转成小写，设置时只转换一次
+        Event = event == null ? null : event.toLowerCase(Locale.ENGLISH);
     }
 
     public String getEventKey() {
@@ -362,59 +366,59 @@ public class InputMessage extends NormalMessage {
     }
 
     public TextInputMessage toTextInputMessage() {
-        TextInputMessage inputMessage = new TextInputMessage(Content);
+        TextInputMessage inputMessage = new TextInputMessage(getContent());
         initNormalMessage(inputMessage);
         return inputMessage;
     }
 
     public ImageInputMessage toImageInputMessage() {
         ImageInputMessage inputMessage = new ImageInputMessage();
-        inputMessage.setPicUrl(PicUrl);
-        inputMessage.setMediaId(MediaId);
+        inputMessage.setPicUrl(getPicUrl());
+        inputMessage.setMediaId(getMediaId());
         initNormalMessage(inputMessage);
         return inputMessage;
     }
 
     public VoiceInputMessage toVoiceInputMessage() {
         VoiceInputMessage inputMessage = new VoiceInputMessage();
-        inputMessage.setFormat(PicUrl);
-        inputMessage.setMediaId(MediaId);
-        inputMessage.setRecognition(Recognition);
+        inputMessage.setFormat(getPicUrl());
+        inputMessage.setMediaId(getMediaId());
+        inputMessage.setRecognition(getRecognition());
         initNormalMessage(inputMessage);
         return inputMessage;
     }
 
     public VideoInputMessage toVideoInputMessage() {
         VideoInputMessage inputMessage = new VideoInputMessage();
-        inputMessage.setMediaId(MediaId);
-        inputMessage.setThumbMediaId(ThumbMediaId);
+        inputMessage.setMediaId(getMediaId());
+        inputMessage.setThumbMediaId(getThumbMediaId());
         initNormalMessage(inputMessage);
         return inputMessage;
     }
 
     public ShortVideoInputMessage toShortVideoInputMessage() {
         ShortVideoInputMessage inputMessage = new ShortVideoInputMessage();
-        inputMessage.setMediaId(MediaId);
-        inputMessage.setThumbMediaId(ThumbMediaId);
+        inputMessage.setMediaId(getMediaId());
+        inputMessage.setThumbMediaId(getThumbMediaId());
         initNormalMessage(inputMessage);
         return inputMessage;
     }
 
     public LocationInputMessage toLocationInputMessage() {
         LocationInputMessage inputMessage = new LocationInputMessage();
-        inputMessage.setLocation_X(Location_X);
-        inputMessage.setLocation_Y(Location_Y);
-        inputMessage.setLabel(Label);
-        inputMessage.setScale(Scale);
+        inputMessage.setLocation_X(getLocation_X());
+        inputMessage.setLocation_Y(getLocation_Y());
+        inputMessage.setLabel(getLabel());
+        inputMessage.setScale(getScale());
         initNormalMessage(inputMessage);
         return inputMessage;
     }
 
     public LinkInputMessage toLinkInputMessage() {
         LinkInputMessage inputMessage = new LinkInputMessage();
-        inputMessage.setTitle(Title);
-        inputMessage.setDescription(Description);
-        inputMessage.setUrl(Url);
+        inputMessage.setTitle(getTitle());
+        inputMessage.setDescription(getDescription());
+        inputMessage.setUrl(getUrl());
         initNormalMessage(inputMessage);
         return inputMessage;
     }
@@ -433,87 +437,87 @@ public class InputMessage extends NormalMessage {
 
     public QrsceneScanEventMessage toQrsceneScanEventMessage() {
         QrsceneScanEventMessage eventMessage = new QrsceneScanEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setTicket(Ticket);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setTicket(getTicket());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public QrsceneSubscribeEventMessage toQrsceneSubscribeEventMessage() {
         QrsceneSubscribeEventMessage eventMessage = new QrsceneSubscribeEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setTicket(Ticket);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setTicket(getTicket());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public LocationEventMessage toLocationEventMessage() {
         LocationEventMessage eventMessage = new LocationEventMessage();
-        eventMessage.setLatitude(Latitude);
-        eventMessage.setLongitude(Longitude);
-        eventMessage.setPrecision(Precision);
+        eventMessage.setLatitude(getLatitude());
+        eventMessage.setLongitude(getLongitude());
+        eventMessage.setPrecision(getPrecision());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public ClickEventMessage toClickEventMessage() {
         ClickEventMessage eventMessage = new ClickEventMessage();
-        eventMessage.setEventKey(EventKey);
+        eventMessage.setEventKey(getEventKey());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public ViewEventMessage toViewEventMessage() {
         ViewEventMessage eventMessage = new ViewEventMessage();
-        eventMessage.setEventKey(EventKey);
+        eventMessage.setEventKey(getEventKey());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public ScanCodePushEventMessage toScanCodePushEventMessage() {
         ScanCodePushEventMessage eventMessage = new ScanCodePushEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setScanCodeInfo(ScanCodeInfo);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setScanCodeInfo(getScanCodeInfo());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public ScanCodeWaitMsgEventMessage toScanCodeWaitMsgEventMessage() {
         ScanCodeWaitMsgEventMessage eventMessage = new ScanCodeWaitMsgEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setScanCodeInfo(ScanCodeInfo);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setScanCodeInfo(getScanCodeInfo());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public PicSysPhotoEventMessage toPicSysPhotoEventMessage() {
         PicSysPhotoEventMessage eventMessage = new PicSysPhotoEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setSendPicsInfo(SendPicsInfo);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setSendPicsInfo(getSendPicsInfo());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public PicPhotoOrAlbumEventMessage toPicPhotoOrAlbumEventMessage() {
         PicPhotoOrAlbumEventMessage eventMessage = new PicPhotoOrAlbumEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setSendPicsInfo(SendPicsInfo);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setSendPicsInfo(getSendPicsInfo());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public PicWeixinEventMessage toPicWeixinEventMessage() {
         PicWeixinEventMessage eventMessage = new PicWeixinEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setSendPicsInfo(SendPicsInfo);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setSendPicsInfo(getSendPicsInfo());
         initEventMessage(eventMessage);
         return eventMessage;
     }
 
     public LocationSelectEventMessage toLocationSelectEventMessage() {
         LocationSelectEventMessage eventMessage = new LocationSelectEventMessage();
-        eventMessage.setEventKey(EventKey);
-        eventMessage.setSendLocationInfo(SendLocationInfo);
+        eventMessage.setEventKey(getEventKey());
+        eventMessage.setSendLocationInfo(getSendLocationInfo());
         initEventMessage(eventMessage);
         return eventMessage;
     }
@@ -0,0 +1,974 @@
+package org.weixin4j.message;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamException;
+import org.weixin4j.util.InputMessageParser;
+import org.weixin4j.util.XmlWriter;
+
+/**
+ * 按需解码字段的输入消息
+ *
+ * <p>
+ * 解析时只扫描一遍UTF-8字节，记录&lt;xml&gt;下各节点文本的起止位置，<br/>
+ * 字段在第一次调用getter时才解码为字符串，未读取的字段不产生任何对象。</p>
+ *
+ * <p>
+ * 解码结果与JAXB一致：CDATA与文本合并，实体还原，换行统一为\n，同名节点以最后一个为准；<br/>
+ * ScanCodeInfo、SendPicsInfo、SendLocationInfo等嵌套节点在读取时交给<tt>InputMessageParser</tt>解析。<br/>
+ * 解码不加锁，同一消息交给其他线程前应先在当前线程读取需要的字段。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class LazyInputMessage extends InputMessage {
+
+    private static final int TO_USER_NAME = 0;
+    private static final int FROM_USER_NAME = 1;
+    private static final int CREATE_TIME = 2;
+    private static final int MSG_ID = 3;
+    private static final int MSG_TYPE = 4;
+    private static final int CONTENT = 5;
+    private static final int PIC_URL = 6;
+    private static final int LOCATION_X = 7;
+    private static final int LOCATION_Y = 8;
+    private static final int SCALE = 9;
+    private static final int LABEL = 10;
+    private static final int TITLE = 11;
+    private static final int DESCRIPTION = 12;
+    private static final int URL = 13;
+    private static final int MEDIA_ID = 14;
+    private static final int FORMAT = 15;
+    private static final int RECOGNITION = 16;
+    private static final int THUMB_MEDIA_ID = 17;
+    private static final int EVENT = 18;
+    private static final int EVENT_KEY = 19;
+    private static final int TICKET = 20;
+    private static final int LATITUDE = 21;
+    private static final int LONGITUDE = 22;
+    private static final int PRECISION = 23;
+    private static final int MASS_MSG_ID = 24;
+    private static final int STATUS = 25;
+    private static final int TOTAL_COUNT = 26;
+    private static final int FILTER_COUNT = 27;
+    private static final int SENT_COUNT = 28;
+    private static final int ERROR_COUNT = 29;
+    private static final int SCAN_CODE_INFO = 30;
+    private static final int SEND_PICS_INFO = 31;
+    private static final int SEND_LOCATION_INFO = 32;
+    private static final int FIELDS = 33;
+
+    //与字段编号对应的节点名称
+    private static final byte[][] NAMES = {
+        XmlWriter.bytes("ToUserName"),
+        XmlWriter.bytes("FromUserName"),
+        XmlWriter.bytes("CreateTime"),
+        XmlWriter.bytes("MsgId"),
+        XmlWriter.bytes("MsgType"),
+        XmlWriter.bytes("Content"),
+        XmlWriter.bytes("PicUrl"),
+        XmlWriter.bytes("Location_X"),
+        XmlWriter.bytes("Location_Y"),
+        XmlWriter.bytes("Scale"),
+        XmlWriter.bytes("Label"),
+        XmlWriter.bytes("Title"),
+        XmlWriter.bytes("Description"),
+        XmlWriter.bytes("Url"),
+        XmlWriter.bytes("MediaId"),
+        XmlWriter.bytes("Format"),
+        XmlWriter.bytes("Recognition"),
+        XmlWriter.bytes("ThumbMediaId"),
+        XmlWriter.bytes("Event"),
+        XmlWriter.bytes("EventKey"),
+        XmlWriter.bytes("Ticket"),
+        XmlWriter.bytes("Latitude"),
+        XmlWriter.bytes("Longitude"),
+        XmlWriter.bytes("Precision"),
+        XmlWriter.bytes("MsgID"),
+        XmlWriter.bytes("Status"),
+        XmlWriter.bytes("TotalCount"),
+        XmlWriter.bytes("FilterCount"),
+        XmlWriter.bytes("SentCount"),
+        XmlWriter.bytes("ErrorCount"),
+        XmlWriter.bytes("ScanCodeInfo"),
+        XmlWriter.bytes("SendPicsInfo"),
+        XmlWriter.bytes("SendLocationInfo")
+    };
+    private static final byte[] CDATA_OPEN = XmlWriter.bytes("<![CDATA[");
+    private static final byte[] CDATA_CLOSE = XmlWriter.bytes("]]>");
+    private static final byte[] COMMENT_OPEN = XmlWriter.bytes("<!--");
+    private static final byte[] COMMENT_CLOSE = XmlWriter.bytes("-->");
+    private static final byte[] PI_CLOSE = XmlWriter.bytes("?>");
+
+    private final byte[] xml;
+    private final int offset;
+    private final int length;
+    //各字段节点内容的起止位置
+    private final int[] bounds = new int[FIELDS * 2];
+    //已出现但尚未解码的字段
+    private long pending;
+    //读取嵌套节点时完整解析的消息
+    private InputMessage parsed;
+
+    private LazyInputMessage(byte[] xml, int offset, int length) {
+        this.xml = xml;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * 从UTF-8编码的xml建立输入消息
+     *
+     * @param xml xml字节，解析后不要再修改
+     * @return 输入消息对象
+     * @throws XMLStreamException xml不完整或包含DOCTYPE
+     */
+    public static LazyInputMessage parse(byte[] xml) throws XMLStreamException {
+        return parse(xml, 0, xml.length);
+    }
+
+    /**
+     * 从UTF-8编码的xml建立输入消息
+     *
+     * @param xml xml字节，解析后不要再修改
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 输入消息对象
+     * @throws XMLStreamException xml不完整或包含DOCTYPE
+     */
+    public static LazyInputMessage parse(byte[] xml, int offset, int length) throws XMLStreamException {
+        LazyInputMessage msg = new LazyInputMessage(xml, offset, length);
+        msg.index();
+        return msg;
+    }
+
+    //扫描根节点下的子节点，记录各字段内容的位置
+    private void index() throws XMLStreamException {
+        int end = offset + length;
+        int i = offset;
+        //跳过BOM
+        if (length >= 3 && xml[i] == (byte) 0xEF && xml[i + 1] == (byte) 0xBB && xml[i + 2] == (byte) 0xBF) {
+            i += 3;
+        }
+        //跳过声明、注释与空白，定位到根节点
+        while (true) {
+            i = skipWhitespace(i, end);
+            if (i == end) {
+                throw new XMLStreamException("xml没有根节点");
+            }
+            if (xml[i] != '<') {
+                throw new XMLStreamException("根节点之前不能有文本");
+            }
+            if (startsWith(COMMENT_OPEN, i, end)) {
+                i = after(COMMENT_CLOSE, i + COMMENT_OPEN.length, end);
+            } else if (i + 1 < end && xml[i + 1] == '?') {
+                i = after(PI_CLOSE, i + 2, end);
+            } else if (i + 1 < end && xml[i + 1] == '!') {
+                //禁止DTD，防止XXE
+                throw new XMLStreamException("不支持DOCTYPE");
+            } else {
+                break;
+            }
+        }
+        int tagEnd = tagEnd(i + 1, end);
+        if (xml[tagEnd - 1] == '/') {
+            //<xml/>
+            return;
+        }
+        i = tagEnd + 1;
+        while (true) {
+            i = indexOf((byte) '<', i, end);
+            if (i < 0) {
+                throw new XMLStreamException("xml不完整");
+            }
+            if (startsWith(COMMENT_OPEN, i, end)) {
+                i = after(COMMENT_CLOSE, i + COMMENT_OPEN.length, end);
+            } else if (startsWith(CDATA_OPEN, i, end)) {
+                i = after(CDATA_CLOSE, i + CDATA_OPEN.length, end);
+            } else if (i + 1 < end && xml[i + 1] == '?') {
+                i = after(PI_CLOSE, i + 2, end);
+            } else if (i + 1 < end && xml[i + 1] == '/') {
+                //根节点结束
+                return;
+            } else {
+                int nameEnd = nameEnd(i + 1, end);
+                int field = field(i + 1, nameEnd);
+                tagEnd = tagEnd(nameEnd, end);
+                int start = tagEnd + 1;
+                int close;
+                if (xml[tagEnd - 1] == '/') {
+                    close = start = tagEnd;
+                    i = tagEnd + 1;
+                } else {
+                    close = skipContent(start, end);
+                    i = tagEnd(close + 2, end) + 1;
+                }
+                if (field >= 0) {
+                    bounds[field * 2] = start;
+                    bounds[field * 2 + 1] = close;
+                    pending |= 1L << field;
+                }
+            }
+        }
+    }
+
+    //跳过节点内容，返回对应结束标签的位置
+    private int skipContent(int i, int end) throws XMLStreamException {
+        int depth = 1;
+        while (true) {
+            i = indexOf((byte) '<', i, end);
+            if (i < 0) {
+                throw new XMLStreamException("xml不完整");
+            }
+            if (startsWith(COMMENT_OPEN, i, end)) {
+                i = after(COMMENT_CLOSE, i + COMMENT_OPEN.length, end);
+            } else if (startsWith(CDATA_OPEN, i, end)) {
+                i = after(CDATA_CLOSE, i + CDATA_OPEN.length, end);
+            } else if (i + 1 < end && xml[i + 1] == '?') {
+                i = after(PI_CLOSE, i + 2, end);
+            } else if (i + 1 < end && xml[i + 1] == '/') {
+                if (--depth == 0) {
+                    return i;
+                }
+                i = tagEnd(i + 2, end) + 1;
+            } else {
+                int tagEnd = tagEnd(i + 1, end);
+                if (xml[tagEnd - 1] != '/') {
+                    depth++;
+                }
+                i = tagEnd + 1;
+            }
+        }
+    }
+
+    private int field(int start, int end) {
+        int len = end - start;
+        for (int field = 0; field < FIELDS; field++) {
+            byte[] name = NAMES[field];
+            if (name.length == len && regionMatches(name, start)) {
+                return field;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(byte[] pattern, int start) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (xml[start + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWith(byte[] pattern, int i, int end) {
+        return end - i >= pattern.length && regionMatches(pattern, i);
+    }
+
+    private int indexOf(byte b, int i, int end) {
+        for (; i < end; i++) {
+            if (xml[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(byte[] pattern, int i, int end) {
+        for (int last = end - pattern.length; i <= last; i++) {
+            if (xml[i] == pattern[0] && regionMatches(pattern, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //返回pattern之后的位置
+    private int after(byte[] pattern, int i, int end) throws XMLStreamException {
+        i = indexOf(pattern, i, end);
+        if (i < 0) {
+            throw new XMLStreamException("xml不完整");
+        }
+        return i + pattern.length;
+    }
+
+    private int skipWhitespace(int i, int end) {
+        while (i < end && isWhitespace(xml[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private int nameEnd(int i, int end) throws XMLStreamException {
+        for (; i < end; i++) {
+            byte b = xml[i];
+            if (b == '>' || b == '/' || isWhitespace(b)) {
+                return i;
+            }
+        }
+        throw new XMLStreamException("xml不完整");
+    }
+
+    //返回标签结束的'>'的位置，跳过属性值中的'>'
+    private int tagEnd(int i, int end) throws XMLStreamException {
+        byte quote = 0;
+        for (; i < end; i++) {
+            byte b = xml[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i;
+            }
+        }
+        throw new XMLStreamException("xml不完整");
+    }
+
+    //字段尚未解码时返回true，并标记为已解码
+    private boolean pending(int field) {
+        long bit = 1L << field;
+        if ((pending & bit) == 0) {
+            return false;
+        }
+        pending &= ~bit;
+        return true;
+    }
+
+    //字段已被设置，不再解码
+    private void resolved(int field) {
+        pending &= ~(1L << field);
+    }
+
+    //解码字段内容
+    private String text(int field) {
+        int start = bounds[field * 2];
+        int end = bounds[field * 2 + 1];
+        int special = indexOfSpecial(start, end);
+        if (special < 0) {
+            //普通文本直接解码
+            return new String(xml, start, end - start, StandardCharsets.UTF_8);
+        }
+        if (special == start && startsWith(CDATA_OPEN, start, end)) {
+            //整个内容为一个CDATA节点时直接解码其中的字节
+            int inner = start + CDATA_OPEN.length;
+            int close = indexOf(CDATA_CLOSE, inner, end);
+            if (close == end - CDATA_CLOSE.length && indexOf((byte) '\r', inner, close) < 0) {
+                return new String(xml, inner, close - inner, StandardCharsets.UTF_8);
+            }
+        }
+        return decode(start, end);
+    }
+
+    private int indexOfSpecial(int i, int end) {
+        for (; i < end; i++) {
+            byte b = xml[i];
+            if (b == '<' || b == '&' || b == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //合并CDATA与文本，还原实体，跳过注释与子节点，解码后的字节不会多于原字节
+    private String decode(int i, int end) {
+        byte[] out = new byte[end - i];
+        int n = 0;
+        while (i < end) {
+            byte b = xml[i];
+            if (b == '<') {
+                if (startsWith(CDATA_OPEN, i, end)) {
+                    int close = indexOf(CDATA_CLOSE, i + CDATA_OPEN.length, end);
+                    for (int j = i + CDATA_OPEN.length; j < close; j++) {
+                        if (xml[j] == '\r') {
+                            out[n++] = '\n';
+                            if (j + 1 < close && xml[j + 1] == '\n') {
+                                j++;
+                            }
+                        } else {
+                            out[n++] = xml[j];
+                        }
+                    }
+                    i = close + CDATA_CLOSE.length;
+                } else if (startsWith(COMMENT_OPEN, i, end)) {
+                    i = indexOf(COMMENT_CLOSE, i + COMMENT_OPEN.length, end) + COMMENT_CLOSE.length;
+                } else {
+                    i = indexOf((byte) '>', i, end) + 1;
+                }
+            } else if (b == '&') {
+                int semi = indexOf((byte) ';', i, end);
+                int written = semi < 0 ? -1 : entity(i + 1, semi, out, n);
+                if (written < 0) {
+                    //未知实体原样保留
+                    out[n++] = b;
+                    i++;
+                } else {
+                    n = written;
+                    i = semi + 1;
+                }
+            } else if (b == '\r') {
+                out[n++] = '\n';
+                i++;
+                if (i < end && xml[i] == '\n') {
+                    i++;
+                }
+            } else {
+                out[n++] = b;
+                i++;
+            }
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    //还原实体，返回写入后的位置，不能识别时返回-1
+    private int entity(int start, int end, byte[] out, int n) {
+        int len = end - start;
+        if (len >= 2 && xml[start] == '#') {
+            int code = 0;
+            boolean hex = xml[start + 1] == 'x';
+            for (int i = hex ? start + 2 : start + 1; i < end; i++) {
+                int digit = Character.digit(xml[i], hex ? 16 : 10);
+                if (digit < 0 || code > 0x10FFFF) {
+                    return -1;
+                }
+                code = code * (hex ? 16 : 10) + digit;
+            }
+            if (code > 0x10FFFF || (hex && len == 2)) {
+                return -1;
+            }
+            return utf8(code, out, n);
+        }
+        byte c;
+        if (len == 2 && xml[start] == 'l' && xml[start + 1] == 't') {
+            c = '<';
+        } else if (len == 2 && xml[start] == 'g' && xml[start + 1] == 't') {
+            c = '>';
+        } else if (len == 3 && xml[start] == 'a' && xml[start + 1] == 'm' && xml[start + 2] == 'p') {
+            c = '&';
+        } else if (len == 4 && xml[start] == 'q' && xml[start + 1] == 'u' && xml[start + 2] == 'o' && xml[start + 3] == 't') {
+            c = '"';
+        } else if (len == 4 && xml[start] == 'a' && xml[start + 1] == 'p' && xml[start + 2] == 'o' && xml[start + 3] == 's') {
+            c = '\'';
+        } else {
+            return -1;
+        }
+        out[n++] = c;
+        return n;
+    }
+
+    private static int utf8(int code, byte[] out, int n) {
+        if (code < 0x80) {
+            out[n++] = (byte) code;
+        } else if (code < 0x800) {
+            out[n++] = (byte) (0xC0 | (code >> 6));
+            out[n++] = (byte) (0x80 | (code & 0x3F));
+        } else if (code < 0x10000) {
+            out[n++] = (byte) (0xE0 | (code >> 12));
+            out[n++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+            out[n++] = (byte) (0x80 | (code & 0x3F));
+        } else {
+            out[n++] = (byte) (0xF0 | (code >> 18));
+            out[n++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+            out[n++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+            out[n++] = (byte) (0x80 | (code & 0x3F));
+        }
+        return n;
+    }
+
+    //与JAXB一致：去除首尾空白，非法数字视为空
+    private static Long toLong(String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static int toInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    //嵌套节点不建立索引，读取时完整解析一次
+    private InputMessage full() {
+        if (parsed == null) {
+            try {
+                parsed = InputMessageParser.parse(new ByteArrayInputStream(xml, offset, length));
+            } catch (XMLStreamException ex) {
+                throw new IllegalStateException("解析嵌套节点错误", ex);
+            }
+        }
+        return parsed;
+    }
+
+    @Override
+    public String getToUserName() {
+        if (pending(TO_USER_NAME)) {
+            super.setToUserName(text(TO_USER_NAME));
+        }
+        return super.getToUserName();
+    }
+
+    @Override
+    public void setToUserName(String toUserName) {
+        resolved(TO_USER_NAME);
+        super.setToUserName(toUserName);
+    }
+
+    @Override
+    public String getFromUserName() {
+        if (pending(FROM_USER_NAME)) {
+            super.setFromUserName(text(FROM_USER_NAME));
+        }
+        return super.getFromUserName();
+    }
+
+    @Override
+    public void setFromUserName(String fromUserName) {
+        resolved(FROM_USER_NAME);
+        super.setFromUserName(fromUserName);
+    }
+
+    @Override
+    public Long getCreateTime() {
+        if (pending(CREATE_TIME)) {
+            super.setCreateTime(toLong(text(CREATE_TIME)));
+        }
+        return super.getCreateTime();
+    }
+
+    @Override
+    public void setCreateTime(Long createTime) {
+        resolved(CREATE_TIME);
+        super.setCreateTime(createTime);
+    }
+
+    @Override
+    public Long getMsgId() {
+        if (pending(MSG_ID)) {
+            super.setMsgId(toLong(text(MSG_ID)));
+        }
+        return super.getMsgId();
+    }
+
+    @Override
+    public void setMsgId(Long msgId) {
+        resolved(MSG_ID);
+        super.setMsgId(msgId);
+    }
+
+    @Override
+    public String getMsgType() {
+        if (pending(MSG_TYPE)) {
+            super.setMsgType(text(MSG_TYPE));
+        }
+        return super.getMsgType();
+    }
+
+    @Override
+    public void setMsgType(String msgType) {
+        resolved(MSG_TYPE);
+        super.setMsgType(msgType);
+    }
+
+    @Override
+    public String getContent() {
+        if (pending(CONTENT)) {
+            super.setContent(text(CONTENT));
+        }
+        return super.getContent();
+    }
+
+    @Override
+    public void setContent(String content) {
+        resolved(CONTENT);
+        super.setContent(content);
+    }
+
+    @Override
+    public String getPicUrl() {
+        if (pending(PIC_URL)) {
+            super.setPicUrl(text(PIC_URL));
+        }
+        return super.getPicUrl();
+    }
+
+    @Override
+    public void setPicUrl(String picUrl) {
+        resolved(PIC_URL);
+        super.setPicUrl(picUrl);
+    }
+
+    @Override
+    public String getLocation_X() {
+        if (pending(LOCATION_X)) {
+            super.setLocation_X(text(LOCATION_X));
+        }
+        return super.getLocation_X();
+    }
+
+    @Override
+    public void setLocation_X(String location_X) {
+        resolved(LOCATION_X);
+        super.setLocation_X(location_X);
+    }
+
+    @Override
+    public String getLocation_Y() {
+        if (pending(LOCATION_Y)) {
+            super.setLocationY(text(LOCATION_Y));
+        }
+        return super.getLocation_Y();
+    }
+
+    @Override
+    public void setLocationY(String location_Y) {
+        resolved(LOCATION_Y);
+        super.setLocationY(location_Y);
+    }
+
+    @Override
+    public Long getScale() {
+        if (pending(SCALE)) {
+            super.setScale(toLong(text(SCALE)));
+        }
+        return super.getScale();
+    }
+
+    @Override
+    public void setScale(Long scale) {
+        resolved(SCALE);
+        super.setScale(scale);
+    }
+
+    @Override
+    public String getLabel() {
+        if (pending(LABEL)) {
+            super.setLabel(text(LABEL));
+        }
+        return super.getLabel();
+    }
+
+    @Override
+    public void setLabel(String label) {
+        resolved(LABEL);
+        super.setLabel(label);
+    }
+
+    @Override
+    public String getTitle() {
+        if (pending(TITLE)) {
+            super.setTitle(text(TITLE));
+        }
+        return super.getTitle();
+    }
+
+    @Override
+    public void setTitle(String title) {
+        resolved(TITLE);
+        super.setTitle(title);
+    }
+
+    @Override
+    public String getDescription() {
+        if (pending(DESCRIPTION)) {
+            super.setDescription(text(DESCRIPTION));
+        }
+        return super.getDescription();
+    }
+
+    @Override
+    public void setDescription(String description) {
+        resolved(DESCRIPTION);
+        super.setDescription(description);
+    }
+
+    @Override
+    public String getUrl() {
+        if (pending(URL)) {
+            super.setUrl(text(URL));
+        }
+        return super.getUrl();
+    }
+
+    @Override
+    public void setUrl(String url) {
+        resolved(URL);
+        super.setUrl(url);
+    }
+
+    @Override
+    public String getMediaId() {
+        if (pending(MEDIA_ID)) {
+            super.setMediaId(text(MEDIA_ID));
+        }
+        return super.getMediaId();
+    }
+
+    @Override
+    public void setMediaId(String mediaId) {
+        resolved(MEDIA_ID);
+        super.setMediaId(mediaId);
+    }
+
+    @Override
+    public String getFormat() {
+        if (pending(FORMAT)) {
+            super.setFormat(text(FORMAT));
+        }
+        return super.getFormat();
+    }
+
+    @Override
+    public void setFormat(String format) {
+        resolved(FORMAT);
+        super.setFormat(format);
+    }
+
+    @Override
+    public String getRecognition() {
+        if (pending(RECOGNITION)) {
+            super.setRecognition(text(RECOGNITION));
+        }
+        return super.getRecognition();
+    }
+
+    @Override
+    public void setRecognition(String recognition) {
+        resolved(RECOGNITION);
+        super.setRecognition(recognition);
+    }
+
+    @Override
+    public String getThumbMediaId() {
+        if (pending(THUMB_MEDIA_ID)) {
+            super.setThumbMediaId(text(THUMB_MEDIA_ID));
+        }
+        return super.getThumbMediaId();
+    }
+
+    @Override
+    public void setThumbMediaId(String thumbMediaId) {
+        resolved(THUMB_MEDIA_ID);
+        super.setThumbMediaId(thumbMediaId);
+    }
+
+    @Override
+    public String getEvent() {
+        if (pending(EVENT)) {
+            super.setEvent(text(EVENT));
+        }
+        return super.getEvent();
+    }
+
+    @Override
+    public void setEvent(String event) {
+        resolved(EVENT);
+        super.setEvent(event);
+    }
+
+    @Override
+    public String getEventKey() {
+        if (pending(EVENT_KEY)) {
+            super.setEventKey(text(EVENT_KEY));
+        }
+        return super.getEventKey();
+    }
+
+    @Override
+    public void setEventKey(String eventKey) {
+        resolved(EVENT_KEY);
+        super.setEventKey(eventKey);
+    }
+
+    @Override
+    public String getTicket() {
+        if (pending(TICKET)) {
+            super.setTicket(text(TICKET));
+        }
+        return super.getTicket();
+    }
+
+    @Override
+    public void setTicket(String ticket) {
+        resolved(TICKET);
+        super.setTicket(ticket);
+    }
+
+    @Override
+    public String getLatitude() {
+        if (pending(LATITUDE)) {
+            super.setLatitude(text(LATITUDE));
+        }
+        return super.getLatitude();
+    }
+
+    @Override
+    public void setLatitude(String latitude) {
+        resolved(LATITUDE);
+        super.setLatitude(latitude);
+    }
+
+    @Override
+    public String getLongitude() {
+        if (pending(LONGITUDE)) {
+            super.setLongitude(text(LONGITUDE));
+        }
+        return super.getLongitude();
+    }
+
+    @Override
+    public void setLongitude(String longitude) {
+        resolved(LONGITUDE);
+        super.setLongitude(longitude);
+    }
+
+    @Override
+    public String getPrecision() {
+        if (pending(PRECISION)) {
+            super.setPrecision(text(PRECISION));
+        }
+        return super.getPrecision();
+    }
+
+    @Override
+    public void setPrecision(String precision) {
+        resolved(PRECISION);
+        super.setPrecision(precision);
+    }
+
+    @Override
+    public String getMsgID() {
+        if (pending(MASS_MSG_ID)) {
+            super.setMsgID(text(MASS_MSG_ID));
+        }
+        return super.getMsgID();
+    }
+
+    @Override
+    public void setMsgID(String msgID) {
+        resolved(MASS_MSG_ID);
+        super.setMsgID(msgID);
+    }
+
+    @Override
+    public String getStatus() {
+        if (pending(STATUS)) {
+            super.setStatus(text(STATUS));
+        }
+        return super.getStatus();
+    }
+
+    @Override
+    public void setStatus(String status) {
+        resolved(STATUS);
+        super.setStatus(status);
+    }
+
+    @Override
+    public int getTotalCount() {
+        if (pending(TOTAL_COUNT)) {
+            super.setTotalCount(toInt(text(TOTAL_COUNT)));
+        }
+        return super.getTotalCount();
+    }
+
+    @Override
+    public void setTotalCount(int totalCount) {
+        resolved(TOTAL_COUNT);
+        super.setTotalCount(totalCount);
+    }
+
+    @Override
+    public int getFilterCount() {
+        if (pending(FILTER_COUNT)) {
+            super.setFilterCount(toInt(text(FILTER_COUNT)));
+        }
+        return super.getFilterCount();
+    }
+
+    @Override
+    public void setFilterCount(int filterCount) {
+        resolved(FILTER_COUNT);
+        super.setFilterCount(filterCount);
+    }
+
+    @Override
+    public int getSentCount() {
+        if (pending(SENT_COUNT)) {
+            super.setSentCount(toInt(text(SENT_COUNT)));
+        }
+        return super.getSentCount();
+    }
+
+    @Override
+    public void setSentCount(int sentCount) {
+        resolved(SENT_COUNT);
+        super.setSentCount(sentCount);
+    }
+
+    @Override
+    public int getErrorCount() {
+        if (pending(ERROR_COUNT)) {
+            super.setErrorCount(toInt(text(ERROR_COUNT)));
+        }
+        return super.getErrorCount();
+    }
+
+    @Override
+    public void setErrorCount(int errorCount) {
+        resolved(ERROR_COUNT);
+        super.setErrorCount(errorCount);
+    }
+
+    @Override
+    public ScanCodeInfo getScanCodeInfo() {
+        if (pending(SCAN_CODE_INFO)) {
+            super.setScanCodeInfo(full().getScanCodeInfo());
+        }
+        return super.getScanCodeInfo();
+    }
+
+    @Override
+    public void setScanCodeInfo(ScanCodeInfo scanCodeInfo) {
+        resolved(SCAN_CODE_INFO);
+        super.setScanCodeInfo(scanCodeInfo);
+    }
+
+    @Override
+    public SendPicsInfo getSendPicsInfo() {
+        if (pending(SEND_PICS_INFO)) {
+            super.setSendPicsInfo(full().getSendPicsInfo());
+        }
+        return super.getSendPicsInfo();
+    }
+
+    @Override
+    public void setSendPicsInfo(SendPicsInfo sendPicsInfo) {
+        resolved(SEND_PICS_INFO);
+        super.setSendPicsInfo(sendPicsInfo);
+    }
+
+    @Override
+    public SendLocationInfo getSendLocationInfo() {
+        if (pending(SEND_LOCATION_INFO)) {
+            super.setSendLocationInfo(full().getSendLocationInfo());
+        }
+        return super.getSendLocationInfo();
+    }
+
+    @Override
+    public void setSendLocationInfo(SendLocationInfo sendLocationInfo) {
+        resolved(SEND_LOCATION_INFO);
+        super.setSendLocationInfo(sendLocationInfo);
+    }
+}
@@ -19,6 +19,12 @@
  */
 package org.weixin4j.message;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.weixin4j.util.XmlWriter;
+
 /**
  * 微信发送被动响应消息的抽象类
  *
@@ -27,7 +33,22 @@ package org.weixin4j.message;
  *
  * @author weixin4j<weixin4j@ansitech.com>
  */
-public abstract class OutputMessage implements java.io.Serializable {
+public abstract class OutputMessage implements java.io.Serializable, Cloneable {
+
+    //预先编码的公共xml片段
+    private static final byte[] TO_USER_NAME_OPEN = XmlWriter.bytes("<xml><ToUserName><![CDATA[");
+    private static final byte[] TO_USER_NAME_CLOSE = XmlWriter.bytes("]]></ToUserName>");
+    private static final byte[] FROM_USER_NAME_OPEN = XmlWriter.bytes("<FromUserName><![CDATA[");
+    private static final byte[] FROM_USER_NAME_CLOSE = XmlWriter.bytes("]]></FromUserName>");
+    private static final byte[] CREATE_TIME_OPEN = XmlWriter.bytes("<CreateTime>");
+    private static final byte[] CREATE_TIME_CLOSE = XmlWriter.bytes("</CreateTime>");
+    protected static final byte[] XML_CLOSE = XmlWriter.bytes("</xml>");
+    protected static final byte[] MEDIA_ID_OPEN = XmlWriter.bytes("<MediaId><![CDATA[");
+    protected static final byte[] MEDIA_ID_CLOSE = XmlWriter.bytes("]]></MediaId>");
+    protected static final byte[] TITLE_OPEN = XmlWriter.bytes("<Title><![CDATA[");
+    protected static final byte[] TITLE_CLOSE = XmlWriter.bytes("]]></Title>");
+    protected static final byte[] DESCRIPTION_OPEN = XmlWriter.bytes("<Description><![CDATA[");
+    protected static final byte[] DESCRIPTION_CLOSE = XmlWriter.bytes("]]></Description>");
 
     /**
      * 接收方帐号（收到的OpenID）
@@ -83,6 +104,78 @@ public abstract class OutputMessage implements java.io.Serializable {
      */
     public abstract String toXML();
 
+    /**
+     * 将对象以UTF-8编码的xml写入输出流
+     *
+     * <p>
+     * 默认将<code>toXML()</code>的结果编码后写入，内置消息类型直接写入预先编码的片段，<br/>
+     * 内置消息类型的子类仍按<code>toXML()</code>的结果写入，重写<code>toXML()</code>即可自定义回复。</p>
+     *
+     * @param out 输出流
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(toXML().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 直接写入预先编码的xml片段，由内置消息类型实现
+     *
+     * @param out 输出流
+     * @throws IOException
+     */
+    protected void writeXml(OutputStream out) throws IOException {
+        writeTo(out);
+    }
+
+    /**
+     * 写入xml开始标签及公共字段
+     *
+     * @param writer xml写入工具
+     * @param msgType 预先编码的MsgType节点
+     * @throws IOException
+     */
+    protected void writeHeader(XmlWriter writer, byte[] msgType) throws IOException {
+        writer.cdata(TO_USER_NAME_OPEN, this.getToUserName(), TO_USER_NAME_CLOSE);
+        writer.cdata(FROM_USER_NAME_OPEN, this.getFromUserName(), FROM_USER_NAME_CLOSE);
+        writer.number(CREATE_TIME_OPEN, this.getCreateTime(), CREATE_TIME_CLOSE);
+        writer.raw(msgType);
+    }
+
+    /**
+     * 通过<code>writeXml</code>生成xml字符串
+     *
+     * @return 对象xml字符串
+     */
+    protected String writeToString() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try {
+            writeXml(out);
+        } catch (IOException ex) {
+            //写入内存不会发生IO异常
+            throw new IllegalStateException(ex);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 复制消息，用于以同一模版回复多个用户
+     *
+     * <p>
+     * 浅复制，图文、图片等内容与原消息共用，复制后不要修改</p>
+     *
+     * @return 消息副本
+     */
+    public OutputMessage copy() {
+        try {
+            return (OutputMessage) super.clone();
+        } catch (CloneNotSupportedException ex) {
+            //已实现Cloneable
+            throw new IllegalStateException(ex);
+        }
+    }
+
     public void setToUserName(String ToUserName) {
         this.ToUserName = ToUserName;
     }
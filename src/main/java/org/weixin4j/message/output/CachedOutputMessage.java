@@ -0,0 +1,107 @@
+package org.weixin4j.message.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.XmlWriter;
+
+/**
+ * 预先生成xml的回复消息
+ *
+ * <p>
+ * 将回复消息模版中MsgType及之后的内容预先编码为UTF-8字节，<br/>
+ * 回复时只写入ToUserName、FromUserName与CreateTime，其余字节原样写入。</p>
+ *
+ * <p>
+ * 通过<code>render</code>创建后，每次回复使用<code>copy()</code>得到的副本设置接收方。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class CachedOutputMessage extends OutputMessage {
+
+    //ToUserName、FromUserName为空串，CreateTime为0时的公共字段
+    private static final byte[] EMPTY_HEADER = new CachedOutputMessage(null, new byte[0]).emptyHeader();
+
+    private final OutputMessage template;
+    //MsgType至</xml>的UTF-8字节
+    private final byte[] body;
+
+    private CachedOutputMessage(OutputMessage template, byte[] body) {
+        this.template = template;
+        this.body = body;
+    }
+
+    /**
+     * 预先生成回复消息模版的xml
+     *
+     * @param template 回复消息模版，之后不要再修改
+     * @return 预先生成xml的回复消息，模版的xml不以公共字段开头（如自定义的回复消息）时返回null
+     */
+    public static CachedOutputMessage render(OutputMessage template) {
+        if (template instanceof CachedOutputMessage) {
+            return (CachedOutputMessage) template;
+        }
+        OutputMessage empty = template.copy();
+        empty.setToUserName("");
+        empty.setFromUserName("");
+        empty.setCreateTime(0L);
+        byte[] xml = write(empty);
+        if (xml.length < EMPTY_HEADER.length
+                || !Arrays.equals(EMPTY_HEADER, Arrays.copyOf(xml, EMPTY_HEADER.length))) {
+            return null;
+        }
+        return new CachedOutputMessage(template, Arrays.copyOfRange(xml, EMPTY_HEADER.length, xml.length));
+    }
+
+    private static byte[] write(OutputMessage msg) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try {
+            msg.writeTo(out);
+        } catch (IOException ex) {
+            //写入内存不会发生IO异常
+            throw new IllegalStateException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] emptyHeader() {
+        setToUserName("");
+        setFromUserName("");
+        setCreateTime(0L);
+        return write(this);
+    }
+
+    /**
+     * 获取 回复消息模版
+     *
+     * @return 回复消息模版，不要修改
+     */
+    public OutputMessage getTemplate() {
+        return template;
+    }
+
+    @Override
+    public String getMsgType() {
+        return template.getMsgType();
+    }
+
+    @Override
+    public String toXML() {
+        return writeToString();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        writeXml(out);
+    }
+
+    @Override
+    protected void writeXml(OutputStream out) throws IOException {
+        XmlWriter writer = new XmlWriter(out);
+        writeHeader(writer, body);
+        writer.flush();
+    }
+}
@@ -21,6 +21,9 @@ package org.weixin4j.message.output;
 
 import org.weixin4j.message.Image;
 import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.XmlWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 这个类实现了<tt>OutputMessage</tt>，用来回复图片消息
@@ -32,6 +35,11 @@ import org.weixin4j.message.OutputMessage;
  */
 public class ImageOutputMessage extends OutputMessage {
 
+    //预先编码的xml片段
+    private static final byte[] MSG_TYPE = XmlWriter.bytes("<MsgType><![CDATA[image]]></MsgType>");
+    private static final byte[] IMAGE_OPEN = XmlWriter.bytes("<Image>");
+    private static final byte[] IMAGE_CLOSE = XmlWriter.bytes("</Image>");
+
     /**
      * 消息类型:图片消息
      */
@@ -90,16 +98,27 @@ public class ImageOutputMessage extends OutputMessage {
 
     @Override
     public String toXML() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<xml>");
-        sb.append("<ToUserName><![CDATA[").append(this.getToUserName()).append("]]></ToUserName>");
-        sb.append("<FromUserName><![CDATA[").append(this.getFromUserName()).append("]]></FromUserName>");
-        sb.append("<CreateTime>").append(this.getCreateTime()).append("</CreateTime>");
-        sb.append("<MsgType><![CDATA[" + this.MsgType + "]]></MsgType>");
-        sb.append("<Image>");
-        sb.append("<MediaId><![CDATA[").append(this.getImage().getMediaId()).append("]]></MediaId>");
-        sb.append("</Image>");
-        sb.append("</xml>");
-        return sb.toString();
+        return writeToString();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (getClass() == ImageOutputMessage.class) {
+            writeXml(out);
+        } else {
+            //子类可能重写了toXML()
+            super.writeTo(out);
+        }
+    }
+
+    @Override
+    protected void writeXml(OutputStream out) throws IOException {
+        XmlWriter writer = new XmlWriter(out);
+        writeHeader(writer, MSG_TYPE);
+        writer.raw(IMAGE_OPEN);
+        writer.cdata(MEDIA_ID_OPEN, this.getImage().getMediaId(), MEDIA_ID_CLOSE);
+        writer.raw(IMAGE_CLOSE);
+        writer.raw(XML_CLOSE);
+        writer.flush();
     }
 }
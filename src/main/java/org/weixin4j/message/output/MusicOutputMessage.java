@@ -21,6 +21,9 @@ package org.weixin4j.message.output;
 
 import org.weixin4j.message.Music;
 import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.XmlWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 这个类实现了<tt>OutputMessage</tt>，用来回复音乐消息
@@ -32,6 +35,17 @@ import org.weixin4j.message.OutputMessage;
  */
 public class MusicOutputMessage extends OutputMessage {
 
+    //预先编码的xml片段
+    private static final byte[] MSG_TYPE = XmlWriter.bytes("<MsgType><![CDATA[music]]></MsgType>");
+    private static final byte[] MUSIC_OPEN = XmlWriter.bytes("<Music>");
+    private static final byte[] MUSIC_CLOSE = XmlWriter.bytes("</Music>");
+    private static final byte[] MUSIC_URL_OPEN = XmlWriter.bytes("<MusicUrl><![CDATA[");
+    private static final byte[] MUSIC_URL_CLOSE = XmlWriter.bytes("]]></MusicUrl>");
+    private static final byte[] HQ_MUSIC_URL_OPEN = XmlWriter.bytes("<HQMusicUrl><![CDATA[");
+    private static final byte[] HQ_MUSIC_URL_CLOSE = XmlWriter.bytes("]]></HQMusicUrl>");
+    private static final byte[] THUMB_MEDIA_ID_OPEN = XmlWriter.bytes("<ThumbMediaId><![CDATA[");
+    private static final byte[] THUMB_MEDIA_ID_CLOSE = XmlWriter.bytes("]]></ThumbMediaId>");
+
     /**
      * 消息类型:音乐消息
      */
@@ -61,20 +75,31 @@ public class MusicOutputMessage extends OutputMessage {
 
     @Override
     public String toXML() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<xml>");
-        sb.append("<ToUserName><![CDATA[").append(this.getToUserName()).append("]]></ToUserName>");
-        sb.append("<FromUserName><![CDATA[").append(this.getFromUserName()).append("]]></FromUserName>");
-        sb.append("<CreateTime>").append(this.getCreateTime()).append("</CreateTime>");
-        sb.append("<MsgType><![CDATA[" + this.MsgType + "]]></MsgType>");
-        sb.append("<Music>");
-        sb.append("<Title><![CDATA[").append(this.getMusic().getTitle()).append("]]></Title>");
-        sb.append("<Description><![CDATA[").append(this.getMusic().getDescription()).append("]]></Description>");
-        sb.append("<MusicUrl><![CDATA[").append(this.getMusic().getMusicUrl()).append("]]></MusicUrl>");
-        sb.append("<HQMusicUrl><![CDATA[").append(this.getMusic().getHQMusicUrl()).append("]]></HQMusicUrl>");
-        sb.append("<ThumbMediaId><![CDATA[").append(this.getMusic().getThumbMediaId()).append("]]></ThumbMediaId>");
-        sb.append("</Music>");
-        sb.append("</xml>");
-        return sb.toString();
+        return writeToString();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (getClass() == MusicOutputMessage.class) {
+            writeXml(out);
+        } else {
+            //子类可能重写了toXML()
+            super.writeTo(out);
+        }
+    }
+
+    @Override
+    protected void writeXml(OutputStream out) throws IOException {
+        XmlWriter writer = new XmlWriter(out);
+        writeHeader(writer, MSG_TYPE);
+        writer.raw(MUSIC_OPEN);
+        writer.cdata(TITLE_OPEN, this.getMusic().getTitle(), TITLE_CLOSE);
+        writer.cdata(DESCRIPTION_OPEN, this.getMusic().getDescription(), DESCRIPTION_CLOSE);
+        writer.cdata(MUSIC_URL_OPEN, this.getMusic().getMusicUrl(), MUSIC_URL_CLOSE);
+        writer.cdata(HQ_MUSIC_URL_OPEN, this.getMusic().getHQMusicUrl(), HQ_MUSIC_URL_CLOSE);
+        writer.cdata(THUMB_MEDIA_ID_OPEN, this.getMusic().getThumbMediaId(), THUMB_MEDIA_ID_CLOSE);
+        writer.raw(MUSIC_CLOSE);
+        writer.raw(XML_CLOSE);
+        writer.flush();
     }
 }
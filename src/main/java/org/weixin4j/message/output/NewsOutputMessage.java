@@ -21,6 +21,9 @@ package org.weixin4j.message.output;
 
 import org.weixin4j.message.Articles;
 import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.XmlWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,6 +37,19 @@ import java.util.List;
  */
 public class NewsOutputMessage extends OutputMessage {
 
+    //预先编码的xml片段
+    private static final byte[] MSG_TYPE = XmlWriter.bytes("<MsgType><![CDATA[news]]></MsgType>");
+    private static final byte[] ARTICLE_COUNT_OPEN = XmlWriter.bytes("<ArticleCount>");
+    private static final byte[] ARTICLE_COUNT_CLOSE = XmlWriter.bytes("</ArticleCount>");
+    private static final byte[] ARTICLES_OPEN = XmlWriter.bytes("<Articles>");
+    private static final byte[] ARTICLES_CLOSE = XmlWriter.bytes("</Articles>");
+    private static final byte[] ITEM_OPEN = XmlWriter.bytes("<item>");
+    private static final byte[] ITEM_CLOSE = XmlWriter.bytes("</item>");
+    private static final byte[] PIC_URL_OPEN = XmlWriter.bytes("<PicUrl><![CDATA[");
+    private static final byte[] PIC_URL_CLOSE = XmlWriter.bytes("]]></PicUrl>");
+    private static final byte[] URL_OPEN = XmlWriter.bytes("<Url><![CDATA[");
+    private static final byte[] URL_CLOSE = XmlWriter.bytes("]]></Url>");
+
     /**
      * 消息类型:图文消息
      */
@@ -92,24 +108,35 @@ public class NewsOutputMessage extends OutputMessage {
 
     @Override
     public String toXML() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<xml>");
-        sb.append("<ToUserName><![CDATA[").append(this.getToUserName()).append("]]></ToUserName>");
-        sb.append("<FromUserName><![CDATA[").append(this.getFromUserName()).append("]]></FromUserName>");
-        sb.append("<CreateTime>").append(this.getCreateTime()).append("</CreateTime>");
-        sb.append("<MsgType><![CDATA[" + this.MsgType + "]]></MsgType>");
-        sb.append("<ArticleCount>").append(this.ArticleCount).append("</ArticleCount>");
-        sb.append("<Articles>");
+        return writeToString();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (getClass() == NewsOutputMessage.class) {
+            writeXml(out);
+        } else {
+            //子类可能重写了toXML()
+            super.writeTo(out);
+        }
+    }
+
+    @Override
+    protected void writeXml(OutputStream out) throws IOException {
+        XmlWriter writer = new XmlWriter(out);
+        writeHeader(writer, MSG_TYPE);
+        writer.number(ARTICLE_COUNT_OPEN, this.ArticleCount, ARTICLE_COUNT_CLOSE);
+        writer.raw(ARTICLES_OPEN);
         for (Articles article : Articles) {
-            sb.append("<item>");
-            sb.append("<Title><![CDATA[").append(article.getTitle()).append("]]></Title>");
-            sb.append("<Description><![CDATA[").append(article.getDescription()).append("]]></Description>");
-            sb.append("<PicUrl><![CDATA[").append(article.getPicUrl()).append("]]></PicUrl>");
-            sb.append("<Url><![CDATA[").append(article.getUrl()).append("]]></Url>");
-            sb.append("</item>");
+            writer.raw(ITEM_OPEN);
+            writer.cdata(TITLE_OPEN, article.getTitle(), TITLE_CLOSE);
+            writer.cdata(DESCRIPTION_OPEN, article.getDescription(), DESCRIPTION_CLOSE);
+            writer.cdata(PIC_URL_OPEN, article.getPicUrl(), PIC_URL_CLOSE);
+            writer.cdata(URL_OPEN, article.getUrl(), URL_CLOSE);
+            writer.raw(ITEM_CLOSE);
         }
-        sb.append("</Articles>");
-        sb.append("</xml>");
-        return sb.toString();
+        writer.raw(ARTICLES_CLOSE);
+        writer.raw(XML_CLOSE);
+        writer.flush();
     }
 }
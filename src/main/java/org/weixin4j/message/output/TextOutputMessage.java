@@ -20,6 +20,9 @@
 package org.weixin4j.message.output;
 
 import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.XmlWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 这个类实现了<tt>OutputMessage</tt>，用来回复文本消息
@@ -31,6 +34,11 @@ import org.weixin4j.message.OutputMessage;
  */
 public class TextOutputMessage extends OutputMessage {
 
+    //预先编码的xml片段
+    private static final byte[] MSG_TYPE = XmlWriter.bytes("<MsgType><![CDATA[text]]></MsgType>");
+    private static final byte[] CONTENT_OPEN = XmlWriter.bytes("<Content><![CDATA[");
+    private static final byte[] CONTENT_CLOSE = XmlWriter.bytes("]]></Content>");
+
     /**
      * 消息类型:文本消息
      */
@@ -85,14 +93,25 @@ public class TextOutputMessage extends OutputMessage {
 
     @Override
     public String toXML() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<xml>");
-        sb.append("<ToUserName><![CDATA[").append(this.getToUserName()).append("]]></ToUserName>");
-        sb.append("<FromUserName><![CDATA[").append(this.getFromUserName()).append("]]></FromUserName>");
-        sb.append("<CreateTime>").append(this.getCreateTime()).append("</CreateTime>");
-        sb.append("<MsgType><![CDATA[" + this.MsgType + "]]></MsgType>");
-        sb.append("<Content><![CDATA[").append(this.getContent()).append("]]></Content>");
-        sb.append("</xml>");
-        return sb.toString();
+        return writeToString();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (getClass() == TextOutputMessage.class) {
+            writeXml(out);
+        } else {
+            //子类可能重写了toXML()
+            super.writeTo(out);
+        }
+    }
+
+    @Override
+    protected void writeXml(OutputStream out) throws IOException {
+        XmlWriter writer = new XmlWriter(out);
+        writeHeader(writer, MSG_TYPE);
+        writer.cdata(CONTENT_OPEN, this.getContent(), CONTENT_CLOSE);
+        writer.raw(XML_CLOSE);
+        writer.flush();
     }
 }
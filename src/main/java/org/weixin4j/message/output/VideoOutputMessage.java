@@ -21,6 +21,9 @@ package org.weixin4j.message.output;
 
 import org.weixin4j.message.Video;
 import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.XmlWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 这个类实现了<tt>OutputMessage</tt>，用来回复视频消息
@@ -32,6 +35,11 @@ import org.weixin4j.message.OutputMessage;
  */
 public class VideoOutputMessage extends OutputMessage {
 
+    //预先编码的xml片段
+    private static final byte[] MSG_TYPE = XmlWriter.bytes("<MsgType><![CDATA[video]]></MsgType>");
+    private static final byte[] VIDEO_OPEN = XmlWriter.bytes("<Video>");
+    private static final byte[] VIDEO_CLOSE = XmlWriter.bytes("</Video>");
+
     /**
      * 消息类型:视频消息
      */
@@ -90,18 +98,29 @@ public class VideoOutputMessage extends OutputMessage {
 
     @Override
     public String toXML() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<xml>");
-        sb.append("<ToUserName><![CDATA[").append(this.getToUserName()).append("]]></ToUserName>");
-        sb.append("<FromUserName><![CDATA[").append(this.getFromUserName()).append("]]></FromUserName>");
-        sb.append("<CreateTime>").append(this.getCreateTime()).append("</CreateTime>");
-        sb.append("<MsgType><![CDATA[" + this.MsgType + "]]></MsgType>");
-        sb.append("<Video>");
-        sb.append("<MediaId><![CDATA[").append(this.getVideo().getMediaId()).append("]]></MediaId>");
-        sb.append("<Title><![CDATA[").append(this.getVideo().getTitle()).append("]]></Title>");
-        sb.append("<Description><![CDATA[").append(this.getVideo().getDescription()).append("]]></Description>");
-        sb.append("</Video>");
-        sb.append("</xml>");
-        return sb.toString();
+        return writeToString();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (getClass() == VideoOutputMessage.class) {
+            writeXml(out);
+        } else {
+            //子类可能重写了toXML()
+            super.writeTo(out);
+        }
+    }
+
+    @Override
+    protected void writeXml(OutputStream out) throws IOException {
+        XmlWriter writer = new XmlWriter(out);
+        writeHeader(writer, MSG_TYPE);
+        writer.raw(VIDEO_OPEN);
+        writer.cdata(MEDIA_ID_OPEN, this.getVideo().getMediaId(), MEDIA_ID_CLOSE);
+        writer.cdata(TITLE_OPEN, this.getVideo().getTitle(), TITLE_CLOSE);
+        writer.cdata(DESCRIPTION_OPEN, this.getVideo().getDescription(), DESCRIPTION_CLOSE);
+        writer.raw(VIDEO_CLOSE);
+        writer.raw(XML_CLOSE);
+        writer.flush();
     }
 }
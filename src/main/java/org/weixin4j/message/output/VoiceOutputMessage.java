@@ -21,6 +21,9 @@ package org.weixin4j.message.output;
 
 import org.weixin4j.message.Voice;
 import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.XmlWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 这个类实现了<tt>OutputMessage</tt>，用来回复语音消息
@@ -31,6 +34,11 @@ import org.weixin4j.message.OutputMessage;
  */
 public class VoiceOutputMessage extends OutputMessage {
 
+    //预先编码的xml片段
+    private static final byte[] MSG_TYPE = XmlWriter.bytes("<MsgType><![CDATA[voice]]></MsgType>");
+    private static final byte[] VOICE_OPEN = XmlWriter.bytes("<Voice>");
+    private static final byte[] VOICE_CLOSE = XmlWriter.bytes("</Voice>");
+
     /**
      * 消息类型:语音消息
      */
@@ -85,16 +93,27 @@ public class VoiceOutputMessage extends OutputMessage {
 
     @Override
     public String toXML() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<xml>");
-        sb.append("<ToUserName><![CDATA[").append(this.getToUserName()).append("]]></ToUserName>");
-        sb.append("<FromUserName><![CDATA[").append(this.getFromUserName()).append("]]></FromUserName>");
-        sb.append("<CreateTime>").append(this.getCreateTime()).append("</CreateTime>");
-        sb.append("<MsgType><![CDATA[" + this.MsgType + "]]></MsgType>");
-        sb.append("<Voice>");
-        sb.append("<MediaId><![CDATA[").append(this.getVoice().getMediaId()).append("]]></MediaId>");
-        sb.append("</Voice>");
-        sb.append("</xml>");
-        return sb.toString();
+        return writeToString();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (getClass() == VoiceOutputMessage.class) {
+            writeXml(out);
+        } else {
+            //子类可能重写了toXML()
+            super.writeTo(out);
+        }
+    }
+
+    @Override
+    protected void writeXml(OutputStream out) throws IOException {
+        XmlWriter writer = new XmlWriter(out);
+        writeHeader(writer, MSG_TYPE);
+        writer.raw(VOICE_OPEN);
+        writer.cdata(MEDIA_ID_OPEN, this.getVoice().getMediaId(), MEDIA_ID_CLOSE);
+        writer.raw(VOICE_CLOSE);
+        writer.raw(XML_CLOSE);
+        writer.flush();
     }
 }
\ No newline at end of file
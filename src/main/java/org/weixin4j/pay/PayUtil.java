@@ -1,10 +1,11 @@
 package org.weixin4j.pay;
 
-import java.io.StringReader;
+import java.io.IOException;
 import java.util.Map;
-import javax.xml.bind.JAXBContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
+import org.weixin4j.util.JAXBFactory;
+import org.weixin4j.util.XStreamFactory;
 
 /**
  * 微信支付工具
@@ -56,6 +57,20 @@ public class PayUtil {
         return new WXPay(appId, jsapi_ticket, prepay_id, url, paternerKey);
     }
 
+    /**
+     * 读取微信支付结果通知的xml
+     *
+     * <p>
+     * 按Content-Length预先分配缓冲区，超过weixin4j.message.maxBodySize的数据直接拒绝</p>
+     *
+     * @param request 微信支付结果通知请求
+     * @return xml参数字符串
+     * @throws IOException 读取错误或数据超过最大长度
+     */
+    public static String getNotifyXml(HttpServletRequest request) throws IOException {
+        return XStreamFactory.inputStream2String(request.getInputStream(), request.getContentLength());
+    }
+
     /**
      * 验证签名
      *
@@ -65,9 +80,7 @@ public class PayUtil {
      */
     public static boolean verifySign(String xmlMsg, String paternerKey) {
         try {
-            JAXBContext context = JAXBContext.newInstance(PayNotifyResult.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            PayNotifyResult result = (PayNotifyResult) unmarshaller.unmarshal(new StringReader(xmlMsg));
+            PayNotifyResult result = JAXBFactory.unmarshal(PayNotifyResult.class, xmlMsg);
             //转换为Map
             Map<String, String> M = result.toMap();
             if (M.containsKey("sign")) {
@@ -0,0 +1,183 @@
+package org.weixin4j.spi;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.Configuration;
+import org.weixin4j.util.XStreamFactory;
+
+/**
+ * 多公众号接入注册表
+ *
+ * <p>
+ * 按公众号标识（接入URL的最后一段）和原始ID（消息中的ToUserName）各建一张哈希表，<br/>
+ * 每个请求最多查找一次，可在运行时注册、替换和移除公众号，无需重启。</p>
+ *
+ * <p>
+ * 也可在配置中声明，启动时加载：<br/>
+ * weixin4j.accounts=公众号标识1,公众号标识2<br/>
+ * weixin4j.account.公众号标识.token、originalId、appId、appSecret、encodingAESKey，<br/>
+ * weixin4j.account.公众号标识.handler、message.handler.normal、message.handler.event</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class AccountRegistry {
+
+    //公众号标识 -> 公众号
+    private static final Map<String, WeixinAccount> accounts = new ConcurrentHashMap<String, WeixinAccount>();
+    //原始ID -> 公众号
+    private static final Map<String, WeixinAccount> originalIds = new ConcurrentHashMap<String, WeixinAccount>();
+
+    /**
+     * 注册公众号，标识已存在则替换，被替换公众号的加解密对象不再共享
+     *
+     * @param account 公众号
+     */
+    public static synchronized void register(WeixinAccount account) {
+        WeixinAccount old = accounts.put(account.getId(), account);
+        if (old != null && old != account) {
+            if (old.getOriginalId() != null) {
+                originalIds.remove(old.getOriginalId(), old);
+            }
+            old.releaseMessageCrypt();
+        }
+        if (account.getOriginalId() != null && !account.getOriginalId().isEmpty()) {
+            originalIds.put(account.getOriginalId(), account);
+        }
+        log.info("[Weixin4j]注册公众号:{}", account.getId());
+    }
+
+    /**
+     * 移除公众号
+     *
+     * @param id 公众号标识
+     * @return 移除的公众号，不存在返回null
+     */
+    public static synchronized WeixinAccount unregister(String id) {
+        WeixinAccount old = accounts.remove(id);
+        if (old != null) {
+            if (old.getOriginalId() != null) {
+                originalIds.remove(old.getOriginalId(), old);
+            }
+            old.releaseMessageCrypt();
+        }
+        return old;
+    }
+
+    /**
+     * 按公众号标识查找
+     *
+     * @param id 公众号标识
+     * @return 公众号，未注册返回null
+     */
+    public static WeixinAccount get(String id) {
+        return id == null ? null : accounts.get(id);
+    }
+
+    /**
+     * 按原始ID查找
+     *
+     * @param originalId 原始ID，即消息中的ToUserName
+     * @return 公众号，未注册返回null
+     */
+    public static WeixinAccount getByOriginalId(String originalId) {
+        return originalId == null ? null : originalIds.get(originalId);
+    }
+
+    /**
+     * 是否未注册任何公众号，即单公众号接入
+     *
+     * @return 未注册返回true
+     */
+    public static boolean isEmpty() {
+        return accounts.isEmpty();
+    }
+
+    /**
+     * 是否有公众号配置了原始ID，可按ToUserName查找
+     *
+     * @return 有则返回true
+     */
+    public static boolean hasOriginalIds() {
+        return !originalIds.isEmpty();
+    }
+
+    /**
+     * 获取已注册的公众号
+     *
+     * @return 公众号集合，只读
+     */
+    public static Collection<WeixinAccount> getAccounts() {
+        return Collections.unmodifiableCollection(accounts.values());
+    }
+
+    /**
+     * 按请求路径查找，取路径的最后一段作为公众号标识
+     *
+     * @param requestUri 请求路径，如/api/公众号标识
+     * @return 公众号，未注册返回null
+     */
+    public static WeixinAccount resolvePath(String requestUri) {
+        if (requestUri == null || accounts.isEmpty()) {
+            return null;
+        }
+        int end = requestUri.length();
+        while (end > 0 && requestUri.charAt(end - 1) == '/') {
+            end--;
+        }
+        int start = requestUri.lastIndexOf('/', end - 1) + 1;
+        return start < end ? accounts.get(requestUri.substring(start, end)) : null;
+    }
+
+    /**
+     * 按推送xml中的ToUserName查找，明文与加密消息均包含该节点
+     *
+     * @param postXml 推送的xml
+     * @return 公众号，未注册返回null
+     */
+    public static WeixinAccount resolveToUserName(String postXml) {
+        if (postXml == null || originalIds.isEmpty()) {
+            return null;
+        }
+        return originalIds.get(XStreamFactory.getNodeText(postXml, "ToUserName"));
+    }
+
+    /**
+     * 加载weixin4j.accounts中声明的公众号
+     */
+    public static void load() {
+        String ids = Configuration.getProperty("weixin4j.accounts");
+        if (ids == null || ids.trim().isEmpty()) {
+            return;
+        }
+        for (String id : ids.split(",")) {
+            id = id.trim();
+            if (id.isEmpty()) {
+                continue;
+            }
+            String prefix = "weixin4j.account." + id + ".";
+            WeixinAccount account = new WeixinAccount(id, Configuration.getProperty(prefix + "token", Configuration.getProperty("weixin4j.token")));
+            account.setOriginalId(Configuration.getProperty(prefix + "originalId"));
+            account.setAppId(Configuration.getProperty(prefix + "appId"));
+            account.setAppSecret(Configuration.getProperty(prefix + "appSecret"));
+            account.setEncodingAESKey(Configuration.getProperty(prefix + "encodingAESKey"));
+            String handler = Configuration.getProperty(prefix + "handler");
+            if (handler != null) {
+                account.setMessageHandler(HandlerFactory.newInstance(handler, IMessageHandler.class));
+            }
+            String normalHandler = Configuration.getProperty(prefix + "message.handler.normal");
+            if (normalHandler != null) {
+                account.setNormalMessageHandler(HandlerFactory.newInstance(normalHandler, INormalMessageHandler.class));
+            }
+            String eventHandler = Configuration.getProperty(prefix + "message.handler.event");
+            if (eventHandler != null) {
+                account.setEventMessageHandler(HandlerFactory.newInstance(eventHandler, IEventMessageHandler.class));
+            }
+            register(account);
+        }
+    }
+}
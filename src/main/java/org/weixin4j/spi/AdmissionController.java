@@ -0,0 +1,294 @@
+package org.weixin4j.spi;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.Configuration;
+import org.weixin4j.util.XStreamFactory;
+
+/**
+ * 消息准入控制
+ *
+ * <p>
+ * 限制同时处理的消息数，超过限制的消息直接回复空串，<br/>
+ * 避免下游变慢时处理线程堆积，导致所有消息都超过微信的5秒回复期限。</p>
+ *
+ * <p>
+ * 开启自适应（AIMD）时，处理耗时未超过期望耗时则限制缓慢增加（每处理约limit条消息加1），<br/>
+ * 超过期望耗时或处理失败则按比例减小，在minLimit与maxLimit之间调整；否则限制固定为初始值。</p>
+ *
+ * <p>
+ * 消息按MsgType与Event分为三个优先级，低优先级只能使用部分限制，为高优先级保留余量：<br/>
+ * HIGH（默认关注、取消关注、扫码与支付相关事件）可使用全部限制，<br/>
+ * NORMAL（普通消息、其他事件与加密消息）可使用normalRatio，<br/>
+ * LOW（默认上报地理位置事件）可使用lowRatio。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class AdmissionController {
+
+    /**
+     * 消息优先级
+     */
+    public enum Priority {
+
+        HIGH, NORMAL, LOW;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+    //减小限制时的比例
+    private static final double BACKOFF = 0.9;
+    //两次减小限制的最小间隔，避免同一批慢请求连续减小
+    private static final long BACKOFF_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    //期望耗时，单位：纳秒
+    private final long latencyNanos;
+    private final double normalRatio;
+    private final double lowRatio;
+    //事件类型，小写
+    private final Set<String> highEvents;
+    private final Set<String> lowEvents;
+
+    //当前限制，double的位表示，CAS更新
+    private final AtomicLong limitBits;
+    private volatile long lastBackoff = System.nanoTime() - BACKOFF_INTERVAL;
+    //正在处理的消息数
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder[] shed = new LongAdder[PRIORITIES.length];
+    //超过期望耗时或处理失败的次数
+    private final LongAdder overloaded = new LongAdder();
+
+    /**
+     * 按weixin4j.admission.*配置创建
+     */
+    public AdmissionController() {
+        this(Boolean.parseBoolean(Configuration.getProperty("weixin4j.admission.adaptive", "true")),
+                Configuration.getIntProperty("weixin4j.admission.limit", 50),
+                Configuration.getIntProperty("weixin4j.admission.minLimit", 5),
+                Configuration.getIntProperty("weixin4j.admission.maxLimit", 500),
+                Configuration.getIntProperty("weixin4j.admission.latency", 2000),
+                Double.parseDouble(Configuration.getProperty("weixin4j.admission.normalRatio", "0.9")),
+                Double.parseDouble(Configuration.getProperty("weixin4j.admission.lowRatio", "0.5")),
+                Configuration.getProperty("weixin4j.admission.high", "subscribe,unsubscribe,SCAN,merchant_order,user_pay_from_pay_cell"),
+                Configuration.getProperty("weixin4j.admission.low", "LOCATION"));
+    }
+
+    /**
+     * 创建准入控制
+     *
+     * @param adaptive 是否按处理耗时自适应调整限制
+     * @param limit 初始并发限制
+     * @param minLimit 最小并发限制
+     * @param maxLimit 最大并发限制
+     * @param latency 期望耗时，单位：毫秒
+     * @param normalRatio NORMAL优先级可使用的限制比例
+     * @param lowRatio LOW优先级可使用的限制比例
+     * @param highEvents HIGH优先级的事件类型，逗号分隔，不区分大小写
+     * @param lowEvents LOW优先级的事件类型，逗号分隔，不区分大小写
+     */
+    public AdmissionController(boolean adaptive, int limit, int minLimit, int maxLimit, long latency,
+            double normalRatio, double lowRatio, String highEvents, String lowEvents) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("并发限制范围错误:" + minLimit + "~" + maxLimit);
+        }
+        this.adaptive = adaptive;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latency);
+        this.normalRatio = normalRatio;
+        this.lowRatio = lowRatio;
+        this.highEvents = toSet(highEvents);
+        this.lowEvents = toSet(lowEvents);
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, limit))));
+        for (int i = 0; i < shed.length; i++) {
+            shed[i] = new LongAdder();
+        }
+        log.debug("消息准入控制，初始限制:{}，自适应:{}", limit, adaptive);
+    }
+
+    private static Set<String> toSet(String events) {
+        Set<String> set = new HashSet<String>();
+        if (events != null) {
+            for (String event : events.split(",")) {
+                if (!event.trim().isEmpty()) {
+                    set.add(event.trim().toLowerCase());
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * 按推送xml中的MsgType与Event确定优先级，只扫描节点，不解析整个xml
+     *
+     * @param postXml 推送的xml，未读取时为null
+     * @return 优先级，加密消息为NORMAL
+     */
+    public Priority classify(String postXml) {
+        if (postXml == null || !"event".equals(XStreamFactory.getNodeText(postXml, "MsgType"))) {
+            return Priority.NORMAL;
+        }
+        String event = XStreamFactory.getNodeText(postXml, "Event").toLowerCase();
+        if (highEvents.contains(event)) {
+            return Priority.HIGH;
+        }
+        return lowEvents.contains(event) ? Priority.LOW : Priority.NORMAL;
+    }
+
+    /**
+     * 申请处理一条消息
+     *
+     * @param priority 优先级
+     * @return 未超过该优先级可使用的限制返回true，之后必须调用<code>release</code>或<code>cancel</code>
+     */
+    public boolean tryAcquire(Priority priority) {
+        double limit = Double.longBitsToDouble(limitBits.get());
+        int max;
+        switch (priority) {
+            case HIGH:
+                max = (int) limit;
+                break;
+            case LOW:
+                max = Math.max(1, (int) (limit * lowRatio));
+                break;
+            default:
+                max = Math.max(1, (int) (limit * normalRatio));
+        }
+        while (true) {
+            int current = inflight.get();
+            if (current >= max) {
+                shed[priority.ordinal()].increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 取消已准入但未处理的消息，如随机数重复，不计入准入数与耗时统计
+     */
+    public void cancel() {
+        inflight.decrementAndGet();
+        admitted.decrement();
+    }
+
+    /**
+     * 一条消息处理结束
+     *
+     * @param nanos 处理耗时，单位：纳秒
+     * @param failed 是否处理失败，如消息处理器出错、异步队列已满
+     */
+    public void release(long nanos, boolean failed) {
+        int current = inflight.getAndDecrement();
+        if (!adaptive) {
+            return;
+        }
+        if (failed || nanos > latencyNanos) {
+            overloaded.increment();
+            long now = System.nanoTime();
+            if (now - lastBackoff >= BACKOFF_INTERVAL) {
+                lastBackoff = now;
+                updateLimit(limit -> Math.max(minLimit, limit * BACKOFF));
+            }
+        } else {
+            updateLimit(limit -> current * 2 >= limit ? Math.min(maxLimit, limit + 1 / limit) : limit);
+        }
+    }
+
+    private void updateLimit(DoubleUnaryOperator update) {
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double next = update.applyAsDouble(limit);
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取 当前并发限制
+     *
+     * @return 并发限制
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    /**
+     * 获取 正在处理的消息数
+     *
+     * @return 处理中消息数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 获取 已准入的消息数
+     *
+     * @return 准入数
+     */
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * 获取 某优先级被拒绝的消息数
+     *
+     * @param priority 优先级
+     * @return 拒绝数
+     */
+    public long getShed(Priority priority) {
+        return shed[priority.ordinal()].sum();
+    }
+
+    /**
+     * 获取 超过期望耗时或处理失败的次数
+     *
+     * @return 过载次数
+     */
+    public long getOverloaded() {
+        return overloaded.sum();
+    }
+
+    /**
+     * 获取当前统计
+     *
+     * @return limit、inflight、admitted、overloaded与各优先级的拒绝数
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("limit", getLimit());
+        result.put("inflight", getInflight());
+        result.put("admitted", getAdmitted());
+        result.put("overloaded", getOverloaded());
+        Map<String, Long> shedCounts = new LinkedHashMap<String, Long>();
+        for (Priority priority : PRIORITIES) {
+            shedCounts.put(priority.toString(), getShed(priority));
+        }
+        result.put("shed", shedCounts);
+        return result;
+    }
+}
@@ -0,0 +1,161 @@
+package org.weixin4j.spi;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.weixin4j.Configuration;
+import org.weixin4j.message.EventType;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.event.ClickEventMessage;
+import org.weixin4j.message.event.LocationEventMessage;
+import org.weixin4j.message.event.LocationSelectEventMessage;
+import org.weixin4j.message.event.PicPhotoOrAlbumEventMessage;
+import org.weixin4j.message.event.PicSysPhotoEventMessage;
+import org.weixin4j.message.event.PicWeixinEventMessage;
+import org.weixin4j.message.event.QrsceneScanEventMessage;
+import org.weixin4j.message.event.QrsceneSubscribeEventMessage;
+import org.weixin4j.message.event.ScanCodePushEventMessage;
+import org.weixin4j.message.event.ScanCodeWaitMsgEventMessage;
+import org.weixin4j.message.event.SubscribeEventMessage;
+import org.weixin4j.message.event.UnSubscribeEventMessage;
+import org.weixin4j.message.event.ViewEventMessage;
+
+/**
+ * 缓存回复消息的事件处理器
+ *
+ * <p>
+ * weixin4j.replyCache.events中的事件（默认只有click）按事件与EventKey缓存
+ * weixin4j.replyCache.delegate的回复，<br/>
+ * 相同EventKey的事件不再调用delegate，直接写入预先生成的xml；其余事件直接交给delegate处理。<br/>
+ * 启用方式：weixin4j.message.handler.event=org.weixin4j.spi.CachingEventMessageHandler</p>
+ *
+ * <p>
+ * 注意：缓存命中的事件完全跳过delegate，delegate中记录关注、统计扫码等副作用不会执行，<br/>
+ * 只适用于回复与用户无关且无副作用的事件。scan、subscribe需要记录用户时不要加入缓存。<br/>
+ * 菜单内容变更时通过<code>getCache().invalidate</code>移除。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class CachingEventMessageHandler implements IEventMessageHandler {
+
+    private final ReplyCache cache;
+    private final IEventMessageHandler delegate;
+    //缓存回复的事件，小写
+    private final Set<String> events;
+
+    /**
+     * 按weixin4j.replyCache.*配置创建
+     */
+    public CachingEventMessageHandler() {
+        this(new ReplyCache(Configuration.getIntProperty("weixin4j.replyCache.ttl", 300000),
+                Configuration.getIntProperty("weixin4j.replyCache.maxEntries", 10000)),
+                HandlerFactory.newInstance(Configuration.getProperty("weixin4j.replyCache.delegate", "org.weixin4j.spi.DefaultEventMessageHandler"), IEventMessageHandler.class),
+                Configuration.getProperty("weixin4j.replyCache.events", "click").split(","));
+    }
+
+    /**
+     * 创建事件处理器
+     *
+     * @param cache 回复消息缓存
+     * @param delegate 生成回复的事件处理器
+     * @param events 缓存回复的事件类型，不区分大小写
+     */
+    public CachingEventMessageHandler(ReplyCache cache, IEventMessageHandler delegate, String... events) {
+        this.cache = cache;
+        this.delegate = delegate;
+        this.events = new HashSet<String>();
+        for (String event : events) {
+            if (!event.trim().isEmpty()) {
+                this.events.add(event.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+
+    /**
+     * 获取回复消息缓存
+     *
+     * @return 回复消息缓存
+     */
+    public ReplyCache getCache() {
+        return cache;
+    }
+
+    //配置的事件从缓存获取回复，其余交给delegate
+    private OutputMessage cached(EventType event, String eventKey, Supplier<OutputMessage> loader) {
+        if (delegate == null) {
+            return null;
+        }
+        String name = event.toString();
+        if (!events.contains(name)) {
+            return loader.get();
+        }
+        return cache.get(ReplyCache.key(name, eventKey), loader);
+    }
+
+    @Override
+    public OutputMessage subscribe(SubscribeEventMessage msg) {
+        return cached(EventType.Subscribe, null, () -> delegate.subscribe(msg));
+    }
+
+    @Override
+    public OutputMessage unSubscribe(UnSubscribeEventMessage msg) {
+        return delegate == null ? null : delegate.unSubscribe(msg);
+    }
+
+    @Override
+    public OutputMessage qrsceneSubscribe(QrsceneSubscribeEventMessage msg) {
+        return cached(EventType.Subscribe, msg.getEventKey(), () -> delegate.qrsceneSubscribe(msg));
+    }
+
+    @Override
+    public OutputMessage qrsceneScan(QrsceneScanEventMessage msg) {
+        return cached(EventType.Scan, msg.getEventKey(), () -> delegate.qrsceneScan(msg));
+    }
+
+    @Override
+    public OutputMessage location(LocationEventMessage msg) {
+        return delegate == null ? null : delegate.location(msg);
+    }
+
+    @Override
+    public OutputMessage click(ClickEventMessage msg) {
+        return cached(EventType.Click, msg.getEventKey(), () -> delegate.click(msg));
+    }
+
+    @Override
+    public OutputMessage view(ViewEventMessage msg) {
+        return delegate == null ? null : delegate.view(msg);
+    }
+
+    @Override
+    public OutputMessage scanCodePush(ScanCodePushEventMessage msg) {
+        return cached(EventType.Scancode_Push, msg.getEventKey(), () -> delegate.scanCodePush(msg));
+    }
+
+    @Override
+    public OutputMessage scanCodeWaitMsg(ScanCodeWaitMsgEventMessage msg) {
+        return cached(EventType.Scancode_Waitmsg, msg.getEventKey(), () -> delegate.scanCodeWaitMsg(msg));
+    }
+
+    @Override
+    public OutputMessage picSysPhoto(PicSysPhotoEventMessage msg) {
+        return delegate == null ? null : delegate.picSysPhoto(msg);
+    }
+
+    @Override
+    public OutputMessage picPhotoOrAlbum(PicPhotoOrAlbumEventMessage msg) {
+        return delegate == null ? null : delegate.picPhotoOrAlbum(msg);
+    }
+
+    @Override
+    public OutputMessage picWeixin(PicWeixinEventMessage msg) {
+        return delegate == null ? null : delegate.picWeixin(msg);
+    }
+
+    @Override
+    public OutputMessage locationSelect(LocationSelectEventMessage msg) {
+        return delegate == null ? null : delegate.locationSelect(msg);
+    }
+}
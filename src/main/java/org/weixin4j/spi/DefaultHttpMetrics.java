@@ -0,0 +1,122 @@
+package org.weixin4j.spi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.weixin4j.http.HttpCall;
+import org.weixin4j.util.LatencyHistogram;
+
+/**
+ * 默认请求微信平台统计
+ *
+ * <p>
+ * 按接口分别记录耗时直方图、发送与接收字节数、HTTP状态与errcode分布、连接复用比例，<br/>
+ * 计数使用LongAdder，不加锁。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class DefaultHttpMetrics implements HttpMetrics {
+
+    //接口名称 -> 统计
+    private final Map<String, EndpointMetrics> metrics = new ConcurrentHashMap<String, EndpointMetrics>();
+
+    @Override
+    public void record(HttpCall call) {
+        EndpointMetrics endpoint = metrics.get(call.getEndpoint());
+        if (endpoint == null) {
+            endpoint = metrics.computeIfAbsent(call.getEndpoint(), k -> new EndpointMetrics());
+        }
+        endpoint.record(call);
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * <p>
+     * 键为接口名称，值为count、errors（连接或读写错误）、mean、p50、p90、p99、max耗时（单位：毫秒）、<br/>
+     * bytesSent、bytesReceived、status与errcode的次数分布，以及reuseRatio（复用已有连接的比例）。</p>
+     *
+     * @return 统计快照
+     */
+    @Override
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<String, Object>();
+        for (Map.Entry<String, EndpointMetrics> entry : metrics.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshot;
+    }
+
+    //单个接口的统计
+    private static class EndpointMetrics {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder reused = new LongAdder();
+        private final LongAdder connected = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<Integer, LongAdder>();
+        private final Map<Integer, LongAdder> errcodes = new ConcurrentHashMap<Integer, LongAdder>();
+
+        void record(HttpCall call) {
+            histogram.record(call.getNanos());
+            if (call.getError() != null) {
+                errors.increment();
+            }
+            bytesSent.add(call.getBytesSent());
+            bytesReceived.add(call.getBytesReceived());
+            if (call.getConnectionReused() != null) {
+                (call.getConnectionReused() ? reused : connected).increment();
+            }
+            if (call.getStatus() > 0) {
+                increment(statuses, call.getStatus());
+                increment(errcodes, call.getErrcode());
+            }
+        }
+
+        private static void increment(Map<Integer, LongAdder> counts, int key) {
+            LongAdder count = counts.get(key);
+            if (count == null) {
+                count = counts.computeIfAbsent(key, k -> new LongAdder());
+            }
+            count.increment();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put("count", histogram.getCount());
+            map.put("errors", errors.sum());
+            map.put("mean", millis(histogram.getMean()));
+            map.put("p50", millis(histogram.getValueAtPercentile(50)));
+            map.put("p90", millis(histogram.getValueAtPercentile(90)));
+            map.put("p99", millis(histogram.getValueAtPercentile(99)));
+            map.put("max", millis(histogram.getMax()));
+            map.put("bytesSent", bytesSent.sum());
+            map.put("bytesReceived", bytesReceived.sum());
+            map.put("status", counts(statuses));
+            map.put("errcode", counts(errcodes));
+            long total = reused.sum() + connected.sum();
+            if (total > 0) {
+                map.put("reuseRatio", Math.round(reused.sum() * 1000.0 / total) / 1000.0);
+            }
+            return map;
+        }
+
+        private static Map<Integer, Long> counts(Map<Integer, LongAdder> counts) {
+            Map<Integer, Long> map = new TreeMap<Integer, Long>();
+            for (Map.Entry<Integer, LongAdder> entry : counts.entrySet()) {
+                map.put(entry.getKey(), entry.getValue().sum());
+            }
+            return map;
+        }
+
+        //纳秒转换为毫秒，保留一位小数
+        private static double millis(double nanos) {
+            return Math.round(nanos / 100000) / 10.0;
+        }
+    }
+}
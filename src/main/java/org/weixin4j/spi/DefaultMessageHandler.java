@@ -3,16 +3,12 @@ package org.weixin4j.spi;
 import lombok.extern.slf4j.Slf4j;
 import org.weixin4j.message.InputMessage;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.Date;
 import javax.servlet.ServletInputStream;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Unmarshaller;
 import org.weixin4j.Configuration;
 import org.weixin4j.WeixinException;
-import org.weixin4j.message.EventType;
-import org.weixin4j.message.MsgType;
 import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.JAXBFactory;
 import org.weixin4j.util.XStreamFactory;
 
 /**
@@ -24,131 +20,238 @@ import org.weixin4j.util.XStreamFactory;
 @Slf4j
 public class DefaultMessageHandler implements IMessageHandler {
 
+    //重复消息过滤器，未配置weixin4j.dedup.enabled=true时为null
+    private final MessageDeduplicator deduplicator;
+    //重复消息等待首次处理结果的最长时间，单位：毫秒
+    private final long dedupWait;
+
+    public DefaultMessageHandler() {
+        if (Configuration.getBoolean("weixin4j.dedup.enabled")) {
+            deduplicator = new MessageDeduplicator(Configuration.getIntProperty("weixin4j.dedup.window", 20000),
+                    Configuration.getIntProperty("weixin4j.dedup.maxEntries", 100000));
+        } else {
+            deduplicator = null;
+        }
+        dedupWait = Configuration.getIntProperty("weixin4j.dedup.wait",
+                Configuration.getIntProperty("weixin4j.async.timeout", 4500));
+    }
+
     @Override
     public String invoke(ServletInputStream inputStream) throws WeixinException {
+        return invoke(parse(inputStream));
+    }
+
+    @Override
+    public String invoke(String inputXml) throws WeixinException {
+        return invoke(parseInput(inputXml));
+    }
+
+    /**
+     * 将xml字符串转换为输入消息对象
+     *
+     * @param inputXml 输入xml
+     * @return 输入消息对象
+     * @throws Exception
+     */
+    protected InputMessage parse(String inputXml) throws Exception {
+        return JAXBFactory.unmarshal(InputMessage.class, inputXml);
+    }
+
+    /**
+     * 从POST流读取并转换为输入消息对象
+     *
+     * @param inputStream 输入流
+     * @return 输入消息对象
+     * @throws WeixinException
+     */
+    protected InputMessage parse(ServletInputStream inputStream) throws WeixinException {
+        MessageTrace trace = MessageTrace.current();
         try {
             //将输入流转换为字符串
+            if (trace != null) {
+                trace.start();
+            }
             String xmlMsg = XStreamFactory.inputStream2String(inputStream);
+            if (trace != null) {
+                trace.stop(MessageStage.READ);
+            }
             log.debug("获取POST的消息:\n{}\n------------------------", xmlMsg);
-            return this.invoke(xmlMsg);
+            return parseInput(xmlMsg);
         } catch (IOException ex) {
+            if (trace != null) {
+                trace.fail(MessageStage.READ);
+            }
             throw new WeixinException("输入流转换错误：", ex);
         }
     }
 
-    @Override
-    public String invoke(String inputXml) throws WeixinException {
+    /**
+     * 处理已解析的输入消息
+     *
+     * @param inputMsg 输入消息对象
+     * @return 返回xml格式的回复消息
+     * @throws WeixinException
+     */
+    public String invoke(InputMessage inputMsg) throws WeixinException {
+        return toXML(handle(inputMsg));
+    }
+
+    /**
+     * 处理POST流，返回输出消息对象
+     *
+     * @param inputStream 输入流
+     * @return 输出消息对象，不回复则返回null
+     * @throws WeixinException
+     */
+    public OutputMessage handle(ServletInputStream inputStream) throws WeixinException {
+        return handle(parse(inputStream));
+    }
+
+    /**
+     * 处理输入xml，返回输出消息对象
+     *
+     * @param inputXml 输入xml
+     * @return 输出消息对象，不回复则返回null
+     * @throws WeixinException
+     */
+    public OutputMessage handle(String inputXml) throws WeixinException {
+        return handle(parseInput(inputXml));
+    }
+
+    /**
+     * 处理已解析的输入消息，返回输出消息对象
+     *
+     * @param inputMsg 输入消息对象
+     * @return 输出消息对象，不回复则返回null
+     * @throws WeixinException
+     */
+    public OutputMessage handle(InputMessage inputMsg) throws WeixinException {
+        if (deduplicator == null) {
+            return route(inputMsg);
+        }
+        //微信重试的消息不再重复处理，返回首次处理的回复
+        String key = MessageDeduplicator.key(inputMsg);
+        MessageDeduplicator.Entry first = deduplicator.putIfAbsent(key);
+        if (first != null) {
+            //首次处理较慢时等待其结果，超过weixin4j.dedup.wait仍未完成则回复空串
+            if (!first.isCompleted() && !first.await(dedupWait) && first.isFailed()) {
+                //首次处理失败，重新处理
+                log.debug("重复消息:[{}]，首次处理失败，重新处理", key);
+                return handle(inputMsg);
+            }
+            log.debug("重复消息:[{}]，首次处理{}", key, first.isCompleted() ? "已完成" : "未完成");
+            return first.getOutputMsg();
+        }
+        OutputMessage outputMsg;
+        try {
+            outputMsg = route(inputMsg);
+        } catch (WeixinException | RuntimeException ex) {
+            deduplicator.remove(key);
+            throw ex;
+        }
+        deduplicator.complete(key, outputMsg);
+        return outputMsg;
+    }
+
+    //根据(MsgType, Event)交给对应的处理方法
+    private OutputMessage route(InputMessage inputMsg) throws WeixinException {
         //输出消息对象
         OutputMessage outputMsg = null;
+        MessageTrace trace = MessageTrace.current();
+        MessageStage stage = MessageStage.DISPATCH;
         try {
-            JAXBContext context = JAXBContext.newInstance(InputMessage.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            InputMessage inputMsg = (InputMessage) unmarshaller.unmarshal(new StringReader(inputXml));
-            log.debug("将指定节点下的xml节点数据转换为对象成功!");
             // 取得消息类型
             String msgType = inputMsg.getMsgType();
             log.debug("POST的消息类型:[{}]", msgType);
-            //获取普通消息处理工具类
-            INormalMessageHandler normalMsgHandler = HandlerFactory.getNormalMessageHandler();
-            if (msgType.equals(MsgType.Text.toString())) {
-                //处理文本消息
-                outputMsg = normalMsgHandler.textTypeMsg(inputMsg.toTextInputMessage());
-            } else if (msgType.equals(MsgType.Image.toString())) {
-                //处理图片消息
-                outputMsg = normalMsgHandler.imageTypeMsg(inputMsg.toImageInputMessage());
-            } else if (msgType.equals(MsgType.Voice.toString())) {
-                //处理语音消息
-                outputMsg = normalMsgHandler.voiceTypeMsg(inputMsg.toVoiceInputMessage());
-            } else if (msgType.equals(MsgType.Video.toString())) {
-                //处理视频消息
-                outputMsg = normalMsgHandler.videoTypeMsg(inputMsg.toVideoInputMessage());
-            } else if (msgType.equals(MsgType.ShortVideo.toString())) {
-                //处理小视频消息
-                outputMsg = normalMsgHandler.shortvideoTypeMsg(inputMsg.toShortVideoInputMessage());
-            } else if (msgType.equals(MsgType.Location.toString())) {
-                //处理地理位置消息
-                outputMsg = normalMsgHandler.locationTypeMsg(inputMsg.toLocationInputMessage());
-            } else if (msgType.equals(MsgType.Link.toString())) {
-                //处理链接消息
-                outputMsg = normalMsgHandler.linkTypeMsg(inputMsg.toLinkInputMessage());
-            } else if (msgType.equals(MsgType.Event.toString())) {
-                //获取事件类型
-                String event = inputMsg.getEvent();
-                //获取消息处理工具类
-                IEventMessageHandler eventMsgHandler = HandlerFactory.getEventMessageHandler();
-                //自定义菜单事件
-                if (event.equals(EventType.Click.toString())) {
-                    //点击菜单拉取消息时的事件推送
-                    outputMsg = eventMsgHandler.click(inputMsg.toClickEventMessage());
-                } else if (event.equals(EventType.View.toString())) {
-                    //点击菜单跳转链接时的事件推送
-                    outputMsg = eventMsgHandler.view(inputMsg.toViewEventMessage());
-                } else if (event.equals(EventType.Subscribe.toString())) {
-                    //关注事件
-                    outputMsg = eventMsgHandler.subscribe(inputMsg.toSubscribeEventMessage());
-                } else if (event.equals(EventType.Unsubscribe.toString())) {
-                    //取消关注事件
-                    outputMsg = eventMsgHandler.unSubscribe(inputMsg.toUnSubscribeEventMessage());
-                } else if (event.equals(EventType.Scan.toString())) {
-                    //扫描带参数二维码事件
-                    //获取事件KEY值，判断是否关注
-                    String eventKey = inputMsg.getEventKey();
-                    if (eventKey.startsWith("qrscene_")) {
-                        //用户未关注时，进行关注后的事件推送
-                        outputMsg = eventMsgHandler.qrsceneSubscribe(inputMsg.toQrsceneSubscribeEventMessage());
-                    } else {
-                        //用户已关注时的事件推送
-                        outputMsg = eventMsgHandler.qrsceneScan(inputMsg.toQrsceneScanEventMessage());
-                    }
-                } else if (event.equals(EventType.Location.toString())) {
-                    //上报地理位置事件
-                    outputMsg = eventMsgHandler.location(inputMsg.toLocationEventMessage());
-                } else if (event.equals(EventType.Scancode_Push.toString())) {
-                    //扫码推事件的事件推送
-                    outputMsg = eventMsgHandler.scanCodePush(inputMsg.toScanCodePushEventMessage());
-                } else if (event.equals(EventType.Scancode_Waitmsg.toString())) {
-                    //扫码推事件且弹出“消息接收中”提示框的事件推送
-                    outputMsg = eventMsgHandler.scanCodeWaitMsg(inputMsg.toScanCodeWaitMsgEventMessage());
-                } else if (event.equals(EventType.Pic_Sysphoto.toString())) {
-                    //弹出系统拍照发图的事件推送
-                    outputMsg = eventMsgHandler.picSysPhoto(inputMsg.toPicSysPhotoEventMessage());
-                } else if (event.equals(EventType.Pic_Photo_OR_Album.toString())) {
-                    //弹出拍照或者相册发图的事件推送
-                    outputMsg = eventMsgHandler.picPhotoOrAlbum(inputMsg.toPicPhotoOrAlbumEventMessage());
-                } else if (event.equals(EventType.Pic_Weixin.toString())) {
-                    //弹出微信相册发图器的事件推送
-                    outputMsg = eventMsgHandler.picWeixin(inputMsg.toPicWeixinEventMessage());
-                } else if (event.equals(EventType.Location_Select.toString())) {
-                    //弹出地理位置选择器的事件推送
-                    outputMsg = eventMsgHandler.locationSelect(inputMsg.toLocationSelectEventMessage());
-                }
+            //根据(MsgType, Event)查找处理路由
+            if (trace != null) {
+                trace.start();
+            }
+            MessageRoute route = MessageDispatcher.getRoute(inputMsg);
+            if (trace != null) {
+                trace.stop(stage);
+                stage = MessageStage.HANDLER;
+            }
+            if (route != null) {
+                outputMsg = route.route(inputMsg);
+            } else {
+                log.debug("未找到消息处理路由:[{}][{}]", msgType, inputMsg.getEvent());
             }
             if (outputMsg != null) {
                 //设置收件人消息
                 setOutputMsgInfo(outputMsg, inputMsg);
             }
-        } catch (IOException ex) {
-            throw new WeixinException("输入流转换错误：", ex);
+            if (trace != null) {
+                trace.stop(stage);
+            }
         } catch (NoSuchMethodException ex) {
+            fail(trace, stage);
             throw new WeixinException("没有找打对应方法：", ex);
         } catch (SecurityException ex) {
+            fail(trace, stage);
             throw new WeixinException("安全错误：", ex);
         } catch (Exception ex) {
+            fail(trace, stage);
             throw new WeixinException("系统错误：", ex);
         }
+        return outputMsg;
+    }
+
+    /**
+     * 把输出消息对象转换为xml
+     *
+     * @param outputMsg 输出消息对象
+     * @return xml格式的回复消息，不回复则返回空字符串
+     * @throws WeixinException
+     */
+    public String toXML(OutputMessage outputMsg) throws WeixinException {
         if (outputMsg != null) {
+            MessageTrace trace = MessageTrace.current();
             try {
                 // 把发送发送对象转换为xml输出
+                if (trace != null) {
+                    trace.start();
+                }
                 String xml = outputMsg.toXML();
+                if (trace != null) {
+                    trace.stop(MessageStage.SERIALIZE);
+                }
                 log.debug("POST输出消息:\n{}\n------------------------", xml);
                 return xml;
             } catch (Exception ex) {
+                fail(trace, MessageStage.SERIALIZE);
                 throw new WeixinException("转换回复消息为xml时错误：", ex);
             }
         }
         return "";
     }
 
+    private InputMessage parseInput(String inputXml) throws WeixinException {
+        MessageTrace trace = MessageTrace.current();
+        try {
+            if (trace != null) {
+                trace.start();
+            }
+            InputMessage inputMsg = parse(inputXml);
+            if (trace != null) {
+                trace.stop(MessageStage.PARSE);
+                trace.message(inputMsg);
+            }
+            log.debug("将指定节点下的xml节点数据转换为对象成功!");
+            return inputMsg;
+        } catch (Exception ex) {
+            fail(trace, MessageStage.PARSE);
+            throw new WeixinException("系统错误：", ex);
+        }
+    }
+
+    //记录失败的处理阶段
+    private static void fail(MessageTrace trace, MessageStage stage) {
+        if (trace != null) {
+            trace.fail(stage);
+        }
+    }
+
     //设置详细信息
     private static void setOutputMsgInfo(OutputMessage oms, InputMessage msg) throws Exception {
         // 设置发送信息
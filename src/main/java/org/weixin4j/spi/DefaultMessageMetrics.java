@@ -0,0 +1,107 @@
+package org.weixin4j.spi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.weixin4j.util.LatencyHistogram;
+
+/**
+ * 默认消息处理统计
+ *
+ * <p>
+ * 按(MsgType, Event)与处理阶段分别记录次数、失败次数与耗时直方图，<br/>
+ * 记录时只查找两次哈希表，计数使用LongAdder，不加锁。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class DefaultMessageMetrics implements MessageMetrics {
+
+    //非事件消息的Event键
+    private static final String NO_EVENT = "";
+    private static final MessageStage[] STAGES = MessageStage.values();
+
+    //MsgType -> Event -> 各阶段统计
+    private final Map<String, Map<String, StageMetrics[]>> metrics = new ConcurrentHashMap<String, Map<String, StageMetrics[]>>();
+
+    @Override
+    public void record(String msgType, String event, MessageStage stage, long nanos, boolean error) {
+        StageMetrics stageMetrics = get(msgType, event == null ? NO_EVENT : event)[stage.ordinal()];
+        stageMetrics.histogram.record(nanos);
+        if (error) {
+            stageMetrics.errors.increment();
+        }
+    }
+
+    private StageMetrics[] get(String msgType, String event) {
+        Map<String, StageMetrics[]> events = metrics.get(msgType);
+        if (events == null) {
+            events = metrics.computeIfAbsent(msgType, k -> new ConcurrentHashMap<String, StageMetrics[]>());
+        }
+        StageMetrics[] stages = events.get(event);
+        if (stages == null) {
+            stages = events.computeIfAbsent(event, k -> {
+                StageMetrics[] created = new StageMetrics[STAGES.length];
+                for (int i = 0; i < created.length; i++) {
+                    created[i] = new StageMetrics();
+                }
+                return created;
+            });
+        }
+        return stages;
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * <p>
+     * 键为MsgType，事件消息为MsgType/Event，值为各阶段的count、errors、
+     * 以及mean、p50、p90、p99、max耗时（单位：微秒）。</p>
+     *
+     * @return 统计快照
+     */
+    @Override
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<String, Object>();
+        for (Map.Entry<String, Map<String, StageMetrics[]>> type : metrics.entrySet()) {
+            for (Map.Entry<String, StageMetrics[]> event : type.getValue().entrySet()) {
+                String key = NO_EVENT.equals(event.getKey()) ? type.getKey() : type.getKey() + "/" + event.getKey();
+                Map<String, Object> stages = new LinkedHashMap<String, Object>();
+                for (MessageStage stage : STAGES) {
+                    StageMetrics stageMetrics = event.getValue()[stage.ordinal()];
+                    if (stageMetrics.histogram.getCount() > 0) {
+                        stages.put(stage.toString(), stageMetrics.snapshot());
+                    }
+                }
+                snapshot.put(key, stages);
+            }
+        }
+        return snapshot;
+    }
+
+    //单个阶段的统计
+    private static class StageMetrics {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put("count", histogram.getCount());
+            map.put("errors", errors.sum());
+            map.put("mean", micros(histogram.getMean()));
+            map.put("p50", micros(histogram.getValueAtPercentile(50)));
+            map.put("p90", micros(histogram.getValueAtPercentile(90)));
+            map.put("p99", micros(histogram.getValueAtPercentile(99)));
+            map.put("max", micros(histogram.getMax()));
+            return map;
+        }
+
+        //纳秒转换为微秒，保留一位小数
+        private static double micros(double nanos) {
+            return Math.round(nanos / 100) / 10.0;
+        }
+    }
+}
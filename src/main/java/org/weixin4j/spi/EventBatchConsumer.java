@@ -0,0 +1,28 @@
+package org.weixin4j.spi;
+
+import java.util.List;
+import org.weixin4j.message.event.EventMessage;
+
+/**
+ * 事件批量处理接口
+ *
+ * <p>
+ * 由EventSink的后台线程调用，一批最多batchSize条，按到达顺序排列，<br/>
+ * 可在此批量写入数据库等，不占用回调线程。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public interface EventBatchConsumer {
+
+    /**
+     * 处理一批事件
+     *
+     * <p>
+     * 返回后列表会被清空复用，如需保留请复制。抛出异常时该批事件计为失败，不会重试。</p>
+     *
+     * @param events 事件列表
+     * @throws Exception 处理失败
+     */
+    void accept(List<EventMessage> events) throws Exception;
+}
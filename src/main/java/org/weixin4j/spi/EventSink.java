@@ -0,0 +1,312 @@
+package org.weixin4j.spi;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.message.event.EventMessage;
+
+/**
+ * 事件异步批量写出
+ *
+ * <p>
+ * 回调线程将事件放入有界的无锁队列后立即返回，<br/>
+ * 后台线程在积累到batchSize条或距上次写出超过flushInterval时，批量交给EventBatchConsumer。</p>
+ *
+ * <p>
+ * 队列满时按Overflow处理：丢弃最早的事件、等待至多blockTimeout、或拒绝新事件（回复空串）。<br/>
+ * 丢弃与拒绝只计数，每10秒至多记录一次警告日志，避免过载时日志泛滥。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class EventSink {
+
+    /**
+     * 队列满时的处理方式
+     */
+    public enum Overflow {
+
+        /**
+         * 丢弃最早的事件，放入新事件
+         */
+        DROP_OLDEST,
+        /**
+         * 等待队列空出，超过blockTimeout仍未空出则拒绝
+         */
+        BLOCK,
+        /**
+         * 拒绝新事件
+         */
+        REJECT
+    }
+
+    //等待队列空出时每次休眠的时间，单位：纳秒
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    //丢弃、拒绝事件的警告日志最短间隔，单位：纳秒
+    private static final long OVERFLOW_LOG_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final ConcurrentLinkedQueue<EventMessage> queue = new ConcurrentLinkedQueue<EventMessage>();
+    //已占用的队列位置，入队前先占位，保证不超过容量
+    private final AtomicInteger size = new AtomicInteger();
+    private final EventBatchConsumer consumer;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Overflow overflow;
+    private final long blockTimeoutNanos;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    //入队统计
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    //上次记录警告日志的时间及当时的丢弃、拒绝数，只由抢到日志的线程更新
+    private final AtomicLong lastOverflowLog = new AtomicLong(System.nanoTime() - OVERFLOW_LOG_NANOS);
+    private long loggedDropped;
+    private long loggedRejected;
+    //写出统计，只由后台线程更新
+    private volatile long flushCount;
+    private volatile long flushedEvents;
+    private volatile long failedFlushCount;
+    private volatile long failedEvents;
+    private volatile long flushNanos;
+    private volatile long maxFlushNanos;
+    private volatile long lastFlushTime;
+
+    /**
+     * 创建事件写出队列并启动后台线程
+     *
+     * @param consumer 事件批量处理
+     * @param capacity 队列容量
+     * @param batchSize 每批最多条数
+     * @param flushInterval 最长写出间隔，单位：毫秒
+     * @param overflow 队列满时的处理方式
+     * @param blockTimeout BLOCK方式下的最长等待时间，单位：毫秒
+     */
+    public EventSink(EventBatchConsumer consumer, int capacity, int batchSize, long flushInterval,
+            Overflow overflow, long blockTimeout) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("EventBatchConsumer不能为空");
+        }
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("capacity与batchSize必须大于0");
+        }
+        this.consumer = consumer;
+        this.capacity = capacity;
+        this.batchSize = Math.min(batchSize, capacity);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushInterval));
+        this.overflow = overflow == null ? Overflow.DROP_OLDEST : overflow;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockTimeout));
+        this.flusher = new Thread(this::flushLoop, "weixin4j-event-sink");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * 放入事件，不等待写出
+     *
+     * @param msg 事件
+     * @return 已放入返回true，被拒绝返回false
+     */
+    public boolean offer(EventMessage msg) {
+        if (!running) {
+            reject();
+            return false;
+        }
+        long deadline = 0;
+        for (;;) {
+            int n = size.get();
+            if (n < capacity) {
+                if (size.compareAndSet(n, n + 1)) {
+                    queue.offer(msg);
+                    accepted.increment();
+                    //积累到一批时唤醒后台线程，只在越过阈值时唤醒一次
+                    if (n + 1 == batchSize) {
+                        LockSupport.unpark(flusher);
+                    }
+                    return true;
+                }
+                continue;
+            }
+            switch (overflow) {
+                case DROP_OLDEST:
+                    //替换最早的事件，占用数不变
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                        queue.offer(msg);
+                        accepted.increment();
+                        logOverflow();
+                        return true;
+                    }
+                    //其他线程已占位但尚未入队，稍后重试
+                    Thread.yield();
+                    break;
+                case BLOCK:
+                    long now = System.nanoTime();
+                    if (deadline == 0) {
+                        deadline = now + blockTimeoutNanos;
+                    } else if (now - deadline >= 0) {
+                        reject();
+                        return false;
+                    }
+                    LockSupport.unpark(flusher);
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                    break;
+                default:
+                    reject();
+                    return false;
+            }
+        }
+    }
+
+    private void reject() {
+        rejected.increment();
+        logOverflow();
+    }
+
+    //限频记录丢弃、拒绝的事件数，间隔内只有一个线程能抢到
+    private void logOverflow() {
+        long now = System.nanoTime();
+        long last = lastOverflowLog.get();
+        if (now - last < OVERFLOW_LOG_NANOS || !lastOverflowLog.compareAndSet(last, now)) {
+            return;
+        }
+        long droppedCount = dropped.sum();
+        long rejectedCount = rejected.sum();
+        log.warn("事件队列已满，{}秒内丢弃最早的事件{}条，拒绝新事件{}条，累计丢弃{}条，拒绝{}条",
+                TimeUnit.NANOSECONDS.toSeconds(OVERFLOW_LOG_NANOS), droppedCount - loggedDropped,
+                rejectedCount - loggedRejected, droppedCount, rejectedCount);
+        loggedDropped = droppedCount;
+        loggedRejected = rejectedCount;
+    }
+
+    //后台写出线程
+    private void flushLoop() {
+        List<EventMessage> batch = new ArrayList<EventMessage>(batchSize);
+        long lastFlush = System.nanoTime();
+        for (;;) {
+            boolean stopping = !running;
+            if (!stopping && size.get() < batchSize) {
+                long wait = lastFlush + flushIntervalNanos - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+            }
+            EventMessage msg;
+            while (batch.size() < batchSize && (msg = queue.poll()) != null) {
+                batch.add(msg);
+                size.decrementAndGet();
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+            lastFlush = System.nanoTime();
+            if (stopping && queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private void flush(List<EventMessage> batch) {
+        int count = batch.size();
+        long start = System.nanoTime();
+        try {
+            consumer.accept(batch);
+            flushedEvents += count;
+        } catch (Exception ex) {
+            failedFlushCount++;
+            failedEvents += count;
+            log.error("批量写出{}条事件错误", count, ex);
+        }
+        long cost = System.nanoTime() - start;
+        flushCount++;
+        flushNanos += cost;
+        if (cost > maxFlushNanos) {
+            maxFlushNanos = cost;
+        }
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 停止接收事件，写出队列中剩余的事件
+     *
+     * @param timeout 最长等待时间，单位：毫秒
+     */
+    public void shutdown(long timeout) {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getFlushedEvents() {
+        return flushedEvents;
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushCount;
+    }
+
+    public long getFailedEvents() {
+        return failedEvents;
+    }
+
+    /**
+     * 获取统计快照，用于监控端点输出
+     *
+     * @return 统计快照，耗时单位：毫秒
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        long flushes = flushCount;
+        map.put("queueSize", getQueueSize());
+        map.put("capacity", capacity);
+        map.put("overflow", overflow);
+        map.put("accepted", getAcceptedCount());
+        map.put("dropped", getDroppedCount());
+        map.put("rejected", getRejectedCount());
+        map.put("flushes", flushes);
+        map.put("flushedEvents", flushedEvents);
+        map.put("failedFlushes", failedFlushCount);
+        map.put("failedEvents", failedEvents);
+        map.put("meanFlushTime", flushes == 0 ? 0 : flushNanos / flushes / 1000000.0);
+        map.put("maxFlushTime", maxFlushNanos / 1000000.0);
+        map.put("lastFlushTime", lastFlushTime);
+        return map;
+    }
+}
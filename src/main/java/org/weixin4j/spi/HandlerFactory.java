@@ -6,84 +6,241 @@ import org.weixin4j.Configuration;
 /**
  * 输入消息处理器工具类
  *
+ * <p>
+ * 处理器在首次获取时按配置加载，加载过程加锁，保证并发请求下只创建一个实例。</p>
+ *
+ * <p>
+ * 多公众号接入时，优先返回当前消息所属公众号（<code>WeixinAccount.current()</code>）设置的处理器。</p>
+ *
  * @author qsyang
  * @version 1.0
  */
 @Slf4j
 public class HandlerFactory {
 
-    private static IMessageHandler messageHandler = null;
+    private static volatile IMessageHandler messageHandler = null;
     private static String defaultHandler = "org.weixin4j.spi.DefaultMessageHandler";
 
     public static IMessageHandler getMessageHandler() {
-        if (messageHandler == null) {
-            try {
-                //获取
-                defaultHandler = Configuration.getProperty("weixin4j.handler", defaultHandler);
-                log.debug("微信输入消息处理Hanler:{}", defaultHandler);
-                // 加载处理器
-                Class<?> clazz = Class.forName(defaultHandler);
-                try {
-                    messageHandler = (IMessageHandler) clazz.newInstance();
-                } catch (Exception ex) {
-                    System.out.println("初始化 IMessageHandler 异常：");
-                    ex.printStackTrace();
+        WeixinAccount account = WeixinAccount.current();
+        if (account != null && account.getMessageHandler() != null) {
+            return account.getMessageHandler();
+        }
+        IMessageHandler handler = messageHandler;
+        if (handler == null) {
+            synchronized (HandlerFactory.class) {
+                handler = messageHandler;
+                if (handler == null) {
+                    //获取
+                    defaultHandler = Configuration.getProperty("weixin4j.handler", defaultHandler);
+                    log.debug("微信输入消息处理Hanler:{}", defaultHandler);
+                    handler = messageHandler = newInstance(defaultHandler, IMessageHandler.class);
                 }
-            } catch (ClassNotFoundException ex) {
-                System.out.println("找不到: " + defaultHandler + " 类!");
-                ex.printStackTrace();
             }
         }
-        return messageHandler;
+        return handler;
     }
 
-    private static INormalMessageHandler normalMessageHandler = null;
+    private static volatile INormalMessageHandler normalMessageHandler = null;
     private static String defaultNormalHandler = "org.weixin4j.spi.DefaultNormalMessageHandler";
 
     public static INormalMessageHandler getNormalMessageHandler() {
-        if (normalMessageHandler == null) {
-            try {
-                //获取
-                defaultNormalHandler = Configuration.getProperty("weixin4j.message.handler.normal", defaultNormalHandler);
-                log.debug("微信接受消息处理Hanler:{}", defaultNormalHandler);
-                // 加载处理器
-                Class<?> clazz = Class.forName(defaultNormalHandler);
-                try {
-                    normalMessageHandler = (INormalMessageHandler) clazz.newInstance();
-                } catch (Exception ex) {
-                    System.out.println("初始化 INormalMessageHandler 异常：");
-                    ex.printStackTrace();
+        WeixinAccount account = WeixinAccount.current();
+        if (account != null && account.getNormalMessageHandler() != null) {
+            return account.getNormalMessageHandler();
+        }
+        INormalMessageHandler handler = normalMessageHandler;
+        if (handler == null) {
+            synchronized (HandlerFactory.class) {
+                handler = normalMessageHandler;
+                if (handler == null) {
+                    //获取
+                    defaultNormalHandler = Configuration.getProperty("weixin4j.message.handler.normal", defaultNormalHandler);
+                    log.debug("微信接受消息处理Hanler:{}", defaultNormalHandler);
+                    handler = normalMessageHandler = newInstance(defaultNormalHandler, INormalMessageHandler.class);
                 }
-            } catch (ClassNotFoundException ex) {
-                System.out.println("找不到: " + defaultNormalHandler + " 类!");
-                ex.printStackTrace();
             }
         }
-        return normalMessageHandler;
+        return handler;
     }
 
-    private static IEventMessageHandler eventMessageHandler = null;
+    private static volatile IEventMessageHandler eventMessageHandler = null;
     private static String defaultEventHandler = "org.weixin4j.spi.DefaultEventMessageHandler";
 
     public static IEventMessageHandler getEventMessageHandler() {
-        if (eventMessageHandler == null) {
-            try {
-                //获取
-                defaultEventHandler = Configuration.getProperty("weixin4j.message.handler.event", defaultEventHandler);
-                log.debug("微信接受消息处理Hanler:{}", defaultEventHandler);
-                // 加载处理器
-                Class<?> clazz = Class.forName(defaultEventHandler);
-                try {
-                    eventMessageHandler = (IEventMessageHandler) clazz.newInstance();
-                } catch (Exception ex) {
-                    System.out.println("初始化 IEventMessageHandler 异常：");
-                    ex.printStackTrace();
+        WeixinAccount account = WeixinAccount.current();
+        if (account != null && account.getEventMessageHandler() != null) {
+            return account.getEventMessageHandler();
+        }
+        IEventMessageHandler handler = eventMessageHandler;
+        if (handler == null) {
+            synchronized (HandlerFactory.class) {
+                handler = eventMessageHandler;
+                if (handler == null) {
+                    //获取
+                    defaultEventHandler = Configuration.getProperty("weixin4j.message.handler.event", defaultEventHandler);
+                    log.debug("微信接受消息处理Hanler:{}", defaultEventHandler);
+                    handler = eventMessageHandler = newInstance(defaultEventHandler, IEventMessageHandler.class);
+                }
+            }
+        }
+        return handler;
+    }
+
+    private static volatile MessageMetrics messageMetrics = null;
+    private static volatile boolean messageMetricsLoaded = false;
+
+    /**
+     * 获取消息处理统计，按weixin4j.metrics配置加载
+     *
+     * @return 消息处理统计，未配置时返回null
+     */
+    public static MessageMetrics getMessageMetrics() {
+        if (!messageMetricsLoaded) {
+            synchronized (HandlerFactory.class) {
+                if (!messageMetricsLoaded) {
+                    String metricsClass = Configuration.getProperty("weixin4j.metrics");
+                    if (metricsClass != null && !metricsClass.trim().isEmpty()) {
+                        log.debug("微信消息处理统计:{}", metricsClass);
+                        messageMetrics = newInstance(metricsClass.trim(), MessageMetrics.class);
+                    }
+                    messageMetricsLoaded = true;
+                }
+            }
+        }
+        return messageMetrics;
+    }
+
+    /**
+     * 注册消息处理统计，覆盖weixin4j.metrics配置
+     *
+     * @param metrics 消息处理统计，为null时停止统计
+     */
+    public static void setMessageMetrics(MessageMetrics metrics) {
+        synchronized (HandlerFactory.class) {
+            messageMetrics = metrics;
+            messageMetricsLoaded = true;
+        }
+    }
+
+    private static volatile AdmissionController admissionController = null;
+    private static volatile boolean admissionControllerLoaded = false;
+
+    /**
+     * 获取消息准入控制，weixin4j.admission.enabled=true时按配置创建
+     *
+     * @return 消息准入控制，未启用时返回null
+     */
+    public static AdmissionController getAdmissionController() {
+        if (!admissionControllerLoaded) {
+            synchronized (HandlerFactory.class) {
+                if (!admissionControllerLoaded) {
+                    if (Configuration.getBoolean("weixin4j.admission.enabled")) {
+                        admissionController = new AdmissionController();
+                    }
+                    admissionControllerLoaded = true;
+                }
+            }
+        }
+        return admissionController;
+    }
+
+    /**
+     * 注册消息准入控制，覆盖weixin4j.admission.enabled配置
+     *
+     * @param controller 消息准入控制，为null时不限制
+     */
+    public static void setAdmissionController(AdmissionController controller) {
+        synchronized (HandlerFactory.class) {
+            admissionController = controller;
+            admissionControllerLoaded = true;
+        }
+    }
+
+    private static volatile IHttpTransport httpTransport = null;
+    private static String defaultHttpTransport = "org.weixin4j.http.DefaultHttpTransport";
+
+    /**
+     * 获取请求微信平台的传输层，按weixin4j.http.transport配置加载，所有请求共用
+     *
+     * @return 传输层
+     */
+    public static IHttpTransport getHttpTransport() {
+        IHttpTransport transport = httpTransport;
+        if (transport == null) {
+            synchronized (HandlerFactory.class) {
+                transport = httpTransport;
+                if (transport == null) {
+                    defaultHttpTransport = Configuration.getProperty("weixin4j.http.transport", defaultHttpTransport);
+                    log.debug("微信平台请求传输层:{}", defaultHttpTransport);
+                    transport = httpTransport = newInstance(defaultHttpTransport, IHttpTransport.class);
+                    if (transport == null) {
+                        throw new IllegalStateException("初始化传输层失败:" + defaultHttpTransport);
+                    }
+                }
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * 注册传输层，覆盖weixin4j.http.transport配置
+     *
+     * @param transport 传输层，为null时下次获取重新按配置加载
+     */
+    public static void setHttpTransport(IHttpTransport transport) {
+        synchronized (HandlerFactory.class) {
+            httpTransport = transport;
+        }
+    }
+
+    private static volatile HttpMetrics httpMetrics = null;
+    private static volatile boolean httpMetricsLoaded = false;
+
+    /**
+     * 获取请求微信平台统计，按weixin4j.http.metrics配置加载
+     *
+     * @return 请求微信平台统计，未配置时返回null
+     */
+    public static HttpMetrics getHttpMetrics() {
+        if (!httpMetricsLoaded) {
+            synchronized (HandlerFactory.class) {
+                if (!httpMetricsLoaded) {
+                    String metricsClass = Configuration.getProperty("weixin4j.http.metrics");
+                    if (metricsClass != null && !metricsClass.trim().isEmpty()) {
+                        log.debug("请求微信平台统计:{}", metricsClass);
+                        httpMetrics = newInstance(metricsClass.trim(), HttpMetrics.class);
+                    }
+                    httpMetricsLoaded = true;
                 }
-            } catch (ClassNotFoundException ex) {
-                System.out.println("找不到: " + defaultEventHandler + " 类!");
-                ex.printStackTrace();
             }
         }
-        return eventMessageHandler;
+        return httpMetrics;
+    }
+
+    /**
+     * 注册请求微信平台统计，覆盖weixin4j.http.metrics配置
+     *
+     * @param metrics 请求微信平台统计，为null时停止统计
+     */
+    public static void setHttpMetrics(HttpMetrics metrics) {
+        synchronized (HandlerFactory.class) {
+            httpMetrics = metrics;
+            httpMetricsLoaded = true;
+        }
+    }
+
+    //加载处理器，失败返回null，下次获取时重试
+    static <T> T newInstance(String className, Class<T> type) {
+        try {
+            // 加载处理器
+            Class<?> clazz = Class.forName(className);
+            return type.cast(clazz.newInstance());
+        } catch (ClassNotFoundException ex) {
+            log.error("找不到: {} 类!", className, ex);
+        } catch (Exception ex) {
+            log.error("初始化 {} 异常：", type.getSimpleName(), ex);
+        }
+        return null;
     }
 }
@@ -0,0 +1,37 @@
+package org.weixin4j.spi;
+
+import java.util.Collections;
+import java.util.Map;
+import org.weixin4j.http.HttpCall;
+
+/**
+ * 请求微信平台统计接口
+ *
+ * <p>
+ * 通过weixin4j.http.metrics配置实现类，或调用<code>HandlerFactory.setHttpMetrics</code>注册，<br/>
+ * 未配置时不统计。每次请求的响应读取完毕或关闭后调用一次<code>record</code>，重试时每次请求分别调用。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public interface HttpMetrics {
+
+    /**
+     * 记录一次请求
+     *
+     * <p>
+     * 在读取响应的线程中调用，实现类需线程安全，且不应阻塞。</p>
+     *
+     * @param call 请求的统计信息
+     */
+    void record(HttpCall call);
+
+    /**
+     * 获取统计快照，用于监控端点输出
+     *
+     * @return 统计快照
+     */
+    default Map<String, Object> snapshot() {
+        return Collections.emptyMap();
+    }
+}
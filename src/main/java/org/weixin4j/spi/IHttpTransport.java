@@ -0,0 +1,31 @@
+package org.weixin4j.spi;
+
+import java.io.IOException;
+import org.weixin4j.http.HttpRequest;
+import org.weixin4j.http.Response;
+
+/**
+ * 请求微信平台的传输层
+ *
+ * <p>
+ * <tt>HttpsClient</tt>的所有请求（包括<tt>Weixin</tt>、<tt>OAuth2</tt>与支付接口）都通过传输层发送，<br/>
+ * 实现类负责连接复用、证书校验与并发限制。<br/>
+ * 通过weixin4j.http.transport配置，默认为org.weixin4j.http.DefaultHttpTransport</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public interface IHttpTransport {
+
+    /**
+     * 发送请求
+     *
+     * <p>
+     * 返回的响应读取完毕或关闭后连接归还，调用方必须读取或关闭响应。</p>
+     *
+     * @param request 请求
+     * @return 响应
+     * @throws IOException 连接或读写错误
+     */
+    Response execute(HttpRequest request) throws IOException;
+}
@@ -0,0 +1,277 @@
+package org.weixin4j.spi;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.Configuration;
+import org.weixin4j.message.Articles;
+import org.weixin4j.message.Image;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.Voice;
+import org.weixin4j.message.normal.ImageInputMessage;
+import org.weixin4j.message.normal.LinkInputMessage;
+import org.weixin4j.message.normal.LocationInputMessage;
+import org.weixin4j.message.normal.ShortVideoInputMessage;
+import org.weixin4j.message.normal.TextInputMessage;
+import org.weixin4j.message.normal.VideoInputMessage;
+import org.weixin4j.message.normal.VoiceInputMessage;
+import org.weixin4j.message.output.CachedOutputMessage;
+import org.weixin4j.message.output.ImageOutputMessage;
+import org.weixin4j.message.output.NewsOutputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.weixin4j.message.output.TransferCustomerServiceOutputMessage;
+import org.weixin4j.message.output.VoiceOutputMessage;
+import org.weixin4j.util.KeywordMatcher;
+
+/**
+ * 关键词自动回复的接受消息处理器
+ *
+ * <p>
+ * 文本消息按weixin4j.keyword.rules中的规则匹配，命中时回复规则对应的消息，<br/>
+ * 未命中的文本消息及其他消息交给weixin4j.keyword.delegate处理。<br/>
+ * 启用方式：weixin4j.message.handler.normal=org.weixin4j.spi.KeywordReplyHandler</p>
+ *
+ * <p>
+ * 规则文件为JSON数组，match为exact、prefix或contains，priority越大越优先，reply的type为text、image、voice、news或transfer：<br/>
+ * [{"match":"exact","keyword":"你好","priority":10,"reply":{"type":"text","content":"欢迎关注"}},<br/>
+ * {"match":"contains","keyword":"活动","reply":{"type":"news","articles":[{"title":"","description":"","picUrl":"","url":""}]}}]</p>
+ *
+ * <p>
+ * 规则文件每隔weixin4j.keyword.reloadInterval毫秒检查一次，修改后在后台线程重新编译并整体替换，<br/>
+ * 匹配线程不加锁，始终使用完整的一套规则；文件有误时保留原规则。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class KeywordReplyHandler implements INormalMessageHandler {
+
+    private final INormalMessageHandler delegate;
+    private final boolean ignoreCase;
+    //规则文件，classpath:开头时从类路径加载且不检查修改
+    private final String rules;
+    private volatile KeywordMatcher<OutputMessage> matcher;
+    private volatile long lastModified;
+    private ScheduledExecutorService reloader;
+
+    /**
+     * 按weixin4j.keyword.*配置创建
+     */
+    public KeywordReplyHandler() {
+        this(HandlerFactory.newInstance(Configuration.getProperty("weixin4j.keyword.delegate", "org.weixin4j.spi.DefaultNormalMessageHandler"), INormalMessageHandler.class),
+                Configuration.getProperty("weixin4j.keyword.rules"),
+                Boolean.parseBoolean(Configuration.getProperty("weixin4j.keyword.ignoreCase", "true")),
+                Configuration.getIntProperty("weixin4j.keyword.reloadInterval", 10000));
+    }
+
+    /**
+     * 创建关键词自动回复处理器
+     *
+     * @param delegate 未命中的消息的处理器
+     * @param rules 规则文件路径，classpath:开头时从类路径加载，为null时无规则
+     * @param ignoreCase 是否忽略大小写
+     * @param reloadInterval 检查规则文件修改的间隔，单位：毫秒，0表示不检查
+     */
+    public KeywordReplyHandler(INormalMessageHandler delegate, String rules, boolean ignoreCase, long reloadInterval) {
+        this.delegate = delegate;
+        this.ignoreCase = ignoreCase;
+        this.rules = rules == null || rules.trim().isEmpty() ? null : rules.trim();
+        this.matcher = KeywordMatcher.<OutputMessage>builder(ignoreCase).build();
+        if (this.rules == null) {
+            log.warn("未配置weixin4j.keyword.rules，不会自动回复");
+            return;
+        }
+        reload();
+        if (reloadInterval > 0 && !this.rules.startsWith("classpath:")) {
+            reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "weixin4j-keyword-reload");
+                t.setDaemon(true);
+                return t;
+            });
+            reloader.scheduleWithFixedDelay(() -> {
+                if (new File(this.rules).lastModified() != lastModified) {
+                    reload();
+                }
+            }, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 重新加载规则文件，失败时保留原规则
+     *
+     * @return 加载成功返回true
+     */
+    public final boolean reload() {
+        if (rules == null) {
+            return false;
+        }
+        try {
+            String json;
+            if (rules.startsWith("classpath:")) {
+                InputStream in = KeywordReplyHandler.class.getClassLoader().getResourceAsStream(rules.substring("classpath:".length()));
+                if (in == null) {
+                    throw new IOException("找不到" + rules);
+                }
+                json = read(in);
+            } else {
+                File file = new File(rules);
+                long modified = file.lastModified();
+                json = read(new FileInputStream(file));
+                lastModified = modified;
+            }
+            KeywordMatcher<OutputMessage> compiled = compile(json, ignoreCase);
+            matcher = compiled;
+            log.info("[Weixin4j]加载关键词规则{}条:{}", compiled.size(), rules);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.error("加载关键词规则错误:{}", rules, ex);
+            return false;
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 编译JSON格式的规则
+     *
+     * @param json 规则JSON数组
+     * @param ignoreCase 是否忽略大小写
+     * @return 关键词匹配，值为回复消息模版
+     * @throws IllegalArgumentException 规则有误
+     */
+    public static KeywordMatcher<OutputMessage> compile(String json, boolean ignoreCase) {
+        KeywordMatcher.Builder<OutputMessage> builder = KeywordMatcher.builder(ignoreCase);
+        JSONArray array = JSON.parseArray(json);
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject rule = array.getJSONObject(i);
+            String match = rule.getString("match");
+            //预先生成回复的xml，回复时只写入接收方等公共字段
+            OutputMessage reply = toOutputMessage(rule.getJSONObject("reply"));
+            CachedOutputMessage cached = CachedOutputMessage.render(reply);
+            builder.add(KeywordMatcher.Match.valueOf((match == null ? "contains" : match).trim().toUpperCase(Locale.ENGLISH)),
+                    rule.getString("keyword"), rule.getIntValue("priority"), cached == null ? reply : cached);
+        }
+        return builder.build();
+    }
+
+    //规则中的回复转换为回复消息模版
+    private static OutputMessage toOutputMessage(JSONObject reply) {
+        if (reply == null) {
+            throw new IllegalArgumentException("关键词规则缺少reply");
+        }
+        String type = reply.getString("type");
+        if ("text".equals(type)) {
+            return new TextOutputMessage(reply.getString("content"));
+        } else if ("image".equals(type)) {
+            Image image = new Image();
+            image.setMediaId(reply.getString("mediaId"));
+            return new ImageOutputMessage(image);
+        } else if ("voice".equals(type)) {
+            Voice voice = new Voice();
+            voice.setMediaId(reply.getString("mediaId"));
+            return new VoiceOutputMessage(voice);
+        } else if ("news".equals(type)) {
+            JSONArray items = reply.getJSONArray("articles");
+            List<Articles> articles = new ArrayList<Articles>();
+            for (int i = 0; items != null && i < items.size(); i++) {
+                JSONObject item = items.getJSONObject(i);
+                Articles article = new Articles();
+                article.setTitle(item.getString("title"));
+                article.setDescription(item.getString("description"));
+                article.setPicUrl(item.getString("picUrl"));
+                article.setUrl(item.getString("url"));
+                articles.add(article);
+            }
+            NewsOutputMessage news = new NewsOutputMessage();
+            news.setArticles(articles);
+            return news;
+        } else if ("transfer".equals(type)) {
+            return new TransferCustomerServiceOutputMessage();
+        }
+        throw new IllegalArgumentException("不支持的回复类型:" + type);
+    }
+
+    /**
+     * 替换规则
+     *
+     * @param matcher 关键词匹配，值为回复消息模版
+     */
+    public void setMatcher(KeywordMatcher<OutputMessage> matcher) {
+        this.matcher = matcher;
+    }
+
+    /**
+     * 停止检查规则文件
+     */
+    public void shutdown() {
+        if (reloader != null) {
+            reloader.shutdown();
+        }
+    }
+
+    @Override
+    public OutputMessage textTypeMsg(TextInputMessage msg) {
+        String content = msg.getContent();
+        OutputMessage template = content == null ? null : matcher.match(content.trim());
+        if (template != null) {
+            //模版由所有命中的消息共用，复制后再设置接收方
+            return template.copy();
+        }
+        return delegate == null ? null : delegate.textTypeMsg(msg);
+    }
+
+    @Override
+    public OutputMessage imageTypeMsg(ImageInputMessage msg) {
+        return delegate == null ? null : delegate.imageTypeMsg(msg);
+    }
+
+    @Override
+    public OutputMessage voiceTypeMsg(VoiceInputMessage msg) {
+        return delegate == null ? null : delegate.voiceTypeMsg(msg);
+    }
+
+    @Override
+    public OutputMessage videoTypeMsg(VideoInputMessage msg) {
+        return delegate == null ? null : delegate.videoTypeMsg(msg);
+    }
+
+    @Override
+    public OutputMessage shortvideoTypeMsg(ShortVideoInputMessage msg) {
+        return delegate == null ? null : delegate.shortvideoTypeMsg(msg);
+    }
+
+    @Override
+    public OutputMessage locationTypeMsg(LocationInputMessage msg) {
+        return delegate == null ? null : delegate.locationTypeMsg(msg);
+    }
+
+    @Override
+    public OutputMessage linkTypeMsg(LinkInputMessage msg) {
+        return delegate == null ? null : delegate.linkTypeMsg(msg);
+    }
+}
@@ -0,0 +1,70 @@
+package org.weixin4j.spi;
+
+import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.ServletInputStream;
+import javax.xml.stream.XMLStreamException;
+import org.weixin4j.WeixinException;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.LazyInputMessage;
+import org.weixin4j.util.XStreamFactory;
+
+/**
+ * 按需解码字段的输入消息处理器
+ *
+ * <p>
+ * POST的数据读取为字节后只建立节点位置索引，字段在处理器第一次读取时才解码，<br/>
+ * 转发、去重等只读取少数字段的消息不再为每个节点创建字符串。<br/>
+ * 启用方式：weixin4j.handler=org.weixin4j.spi.LazyMessageHandler</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class LazyMessageHandler extends DefaultMessageHandler {
+
+    @Override
+    protected InputMessage parse(ServletInputStream inputStream) throws WeixinException {
+        MessageTrace trace = MessageTrace.current();
+        byte[] xml;
+        try {
+            if (trace != null) {
+                trace.start();
+            }
+            xml = XStreamFactory.inputStream2Bytes(inputStream, -1);
+            if (trace != null) {
+                trace.stop(MessageStage.READ);
+            }
+        } catch (IOException ex) {
+            if (trace != null) {
+                trace.fail(MessageStage.READ);
+            }
+            throw new WeixinException("输入流转换错误：", ex);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("获取POST的消息:\n{}\n------------------------", new String(xml, StandardCharsets.UTF_8));
+        }
+        try {
+            if (trace != null) {
+                trace.start();
+            }
+            InputMessage inputMsg = LazyInputMessage.parse(xml);
+            if (trace != null) {
+                trace.stop(MessageStage.PARSE);
+                trace.message(inputMsg);
+            }
+            return inputMsg;
+        } catch (XMLStreamException ex) {
+            if (trace != null) {
+                trace.fail(MessageStage.PARSE);
+            }
+            throw new WeixinException("输入流转换错误：", ex);
+        }
+    }
+
+    @Override
+    protected InputMessage parse(String inputXml) throws Exception {
+        return LazyInputMessage.parse(inputXml.getBytes(StandardCharsets.UTF_8));
+    }
+}
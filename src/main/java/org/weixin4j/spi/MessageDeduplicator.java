@@ -0,0 +1,168 @@
+package org.weixin4j.spi;
+
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.util.TimeWindowCache;
+
+/**
+ * 重复消息过滤器
+ *
+ * <p>
+ * 微信服务器在五秒内收不到响应会断掉连接，并且重新发起请求，总共重试三次。<br/>
+ * 普通消息按MsgId排重，事件消息按FromUserName+CreateTime+Event排重。</p>
+ *
+ * <p>
+ * 登记记录保存在<tt>TimeWindowCache</tt>中，只保留时间窗口内的记录，并且总条数不超过上限，内存占用有界。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class MessageDeduplicator {
+
+    //分段数，必须为2的幂
+    private static final int STRIPES = 64;
+
+    private final TimeWindowCache<Entry> entries;
+
+    /**
+     * 创建重复消息过滤器
+     *
+     * @param window 时间窗口，单位：毫秒
+     * @param maxEntries 最多保留的记录数
+     */
+    public MessageDeduplicator(long window, int maxEntries) {
+        this.entries = new TimeWindowCache<Entry>(window, maxEntries, STRIPES);
+    }
+
+    /**
+     * 获取消息排重key
+     *
+     * @param inputMsg 输入消息对象
+     * @return 普通消息返回ToUserName+MsgId，事件消息返回FromUserName+CreateTime+Event
+     */
+    public static String key(InputMessage inputMsg) {
+        Long msgId = inputMsg.getMsgId();
+        if (msgId != null) {
+            //多公众号接入时不同公众号的MsgId可能相同
+            return inputMsg.getToUserName() + '#' + msgId;
+        }
+        return inputMsg.getFromUserName() + '#' + inputMsg.getCreateTime() + '#' + inputMsg.getEvent();
+    }
+
+    /**
+     * 登记消息，已登记过则返回首次登记的记录
+     *
+     * @param key 消息排重key
+     * @return 首次收到返回null，重复消息返回首次登记的记录
+     */
+    public Entry putIfAbsent(String key) {
+        return entries.putIfAbsent(key, new Entry());
+    }
+
+    /**
+     * 记录首次处理的回复消息
+     *
+     * @param key 消息排重key
+     * @param outputMsg 输出消息对象，不回复为null
+     */
+    public void complete(String key, OutputMessage outputMsg) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.finish(outputMsg, false);
+        }
+    }
+
+    /**
+     * 移除登记，处理失败时调用，以便微信重试时重新处理
+     *
+     * <p>
+     * 正在等待首次处理结果的重复消息将被唤醒，并自行处理。</p>
+     *
+     * @param key 消息排重key
+     */
+    public void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            entry.finish(null, true);
+        }
+    }
+
+    /**
+     * 获取 当前保留的记录数
+     *
+     * @return 记录数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 消息登记记录
+     */
+    public static class Entry {
+
+        private volatile OutputMessage outputMsg;
+        private volatile boolean completed;
+        private volatile boolean failed;
+
+        Entry() {
+        }
+
+        //记录首次处理结果并唤醒等待的重复消息
+        synchronized void finish(OutputMessage outputMsg, boolean failed) {
+            this.outputMsg = outputMsg;
+            this.failed = failed;
+            this.completed = !failed;
+            notifyAll();
+        }
+
+        /**
+         * 等待首次处理完成或失败
+         *
+         * @param timeout 最长等待时间，单位：毫秒
+         * @return 首次处理已完成返回true，失败、超时或被中断返回false
+         */
+        public synchronized boolean await(long timeout) {
+            long deadline = System.nanoTime() + timeout * 1000000L;
+            try {
+                while (!completed && !failed) {
+                    long remaining = (deadline - System.nanoTime()) / 1000000L;
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return completed;
+        }
+
+        /**
+         * 获取 首次处理的回复消息
+         *
+         * @return 输出消息对象，处理中或不回复为null
+         */
+        public OutputMessage getOutputMsg() {
+            return outputMsg;
+        }
+
+        /**
+         * 首次处理是否已完成
+         *
+         * @return 已完成返回true
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * 首次处理是否失败，失败时登记已移除
+         *
+         * @return 失败返回true
+         */
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.weixin4j.spi;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.weixin4j.message.EventType;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.MsgType;
+
+/**
+ * 消息分发路由表
+ *
+ * <p>
+ * 按(MsgType, Event)预先建立路由表，一次哈希查找即可定位处理方法，<br/>
+ * 未内置的事件类型（如MASSSENDJOBFINISH、TEMPLATESENDJOBFINISH）可通过
+ * <code>registerEvent</code>注册。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class MessageDispatcher {
+
+    //普通消息路由，key为MsgType
+    private static final Map<String, MessageRoute> messageRoutes = new ConcurrentHashMap<String, MessageRoute>();
+    //事件消息路由，key为小写的Event
+    private static final Map<String, MessageRoute> eventRoutes = new ConcurrentHashMap<String, MessageRoute>();
+
+    static {
+        //普通消息
+        registerMessage(MsgType.Text.toString(), msg -> HandlerFactory.getNormalMessageHandler().textTypeMsg(msg.toTextInputMessage()));
+        registerMessage(MsgType.Image.toString(), msg -> HandlerFactory.getNormalMessageHandler().imageTypeMsg(msg.toImageInputMessage()));
+        registerMessage(MsgType.Voice.toString(), msg -> HandlerFactory.getNormalMessageHandler().voiceTypeMsg(msg.toVoiceInputMessage()));
+        registerMessage(MsgType.Video.toString(), msg -> HandlerFactory.getNormalMessageHandler().videoTypeMsg(msg.toVideoInputMessage()));
+        registerMessage(MsgType.ShortVideo.toString(), msg -> HandlerFactory.getNormalMessageHandler().shortvideoTypeMsg(msg.toShortVideoInputMessage()));
+        registerMessage(MsgType.Location.toString(), msg -> HandlerFactory.getNormalMessageHandler().locationTypeMsg(msg.toLocationInputMessage()));
+        registerMessage(MsgType.Link.toString(), msg -> HandlerFactory.getNormalMessageHandler().linkTypeMsg(msg.toLinkInputMessage()));
+        //事件推送
+        registerEvent(EventType.Click.toString(), msg -> HandlerFactory.getEventMessageHandler().click(msg.toClickEventMessage()));
+        registerEvent(EventType.View.toString(), msg -> HandlerFactory.getEventMessageHandler().view(msg.toViewEventMessage()));
+        registerEvent(EventType.Subscribe.toString(), msg -> HandlerFactory.getEventMessageHandler().subscribe(msg.toSubscribeEventMessage()));
+        registerEvent(EventType.Unsubscribe.toString(), msg -> HandlerFactory.getEventMessageHandler().unSubscribe(msg.toUnSubscribeEventMessage()));
+        registerEvent(EventType.Scan.toString(), msg -> {
+            //获取事件KEY值，判断是否关注
+            String eventKey = msg.getEventKey();
+            if (eventKey != null && eventKey.startsWith("qrscene_")) {
+                //用户未关注时，进行关注后的事件推送
+                return HandlerFactory.getEventMessageHandler().qrsceneSubscribe(msg.toQrsceneSubscribeEventMessage());
+            }
+            //用户已关注时的事件推送
+            return HandlerFactory.getEventMessageHandler().qrsceneScan(msg.toQrsceneScanEventMessage());
+        });
+        registerEvent(EventType.Location.toString(), msg -> HandlerFactory.getEventMessageHandler().location(msg.toLocationEventMessage()));
+        registerEvent(EventType.Scancode_Push.toString(), msg -> HandlerFactory.getEventMessageHandler().scanCodePush(msg.toScanCodePushEventMessage()));
+        registerEvent(EventType.Scancode_Waitmsg.toString(), msg -> HandlerFactory.getEventMessageHandler().scanCodeWaitMsg(msg.toScanCodeWaitMsgEventMessage()));
+        registerEvent(EventType.Pic_Sysphoto.toString(), msg -> HandlerFactory.getEventMessageHandler().picSysPhoto(msg.toPicSysPhotoEventMessage()));
+        registerEvent(EventType.Pic_Photo_OR_Album.toString(), msg -> HandlerFactory.getEventMessageHandler().picPhotoOrAlbum(msg.toPicPhotoOrAlbumEventMessage()));
+        registerEvent(EventType.Pic_Weixin.toString(), msg -> HandlerFactory.getEventMessageHandler().picWeixin(msg.toPicWeixinEventMessage()));
+        registerEvent(EventType.Location_Select.toString(), msg -> HandlerFactory.getEventMessageHandler().locationSelect(msg.toLocationSelectEventMessage()));
+    }
+
+    /**
+     * 注册普通消息路由，已存在则覆盖
+     *
+     * @param msgType 消息类型，如text
+     * @param route 消息路由
+     */
+    public static void registerMessage(String msgType, MessageRoute route) {
+        messageRoutes.put(msgType, route);
+    }
+
+    /**
+     * 注册事件消息路由，已存在则覆盖
+     *
+     * @param event 事件类型，不区分大小写，如MASSSENDJOBFINISH
+     * @param route 消息路由
+     */
+    public static void registerEvent(String event, MessageRoute route) {
+        eventRoutes.put(event.toLowerCase(Locale.ENGLISH), route);
+    }
+
+    /**
+     * 查找输入消息对应的路由
+     *
+     * @param inputMsg 输入消息对象
+     * @return 消息路由，未注册返回null
+     */
+    public static MessageRoute getRoute(InputMessage inputMsg) {
+        String msgType = inputMsg.getMsgType();
+        if (msgType == null) {
+            return null;
+        }
+        if (msgType.equals(MsgType.Event.toString())) {
+            String event = inputMsg.getEvent();
+            return event == null ? null : eventRoutes.get(event);
+        }
+        return messageRoutes.get(msgType);
+    }
+}
@@ -0,0 +1,141 @@
+package org.weixin4j.spi;
+
+import lombok.extern.slf4j.Slf4j;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步消息处理线程池
+ *
+ * <p>
+ * 固定线程数、有界队列，队列满时直接拒绝，不在容器线程上执行。<br/>
+ * 提供队列深度、拒绝数、超时数等运行指标。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class MessageExecutor {
+
+    private final ThreadPoolExecutor executor;
+    //被拒绝的任务数
+    private final AtomicLong rejectedCount = new AtomicLong();
+    //超过回复期限的任务数
+    private final AtomicLong timeoutCount = new AtomicLong();
+    //已发送的客服延迟回复数
+    private final AtomicLong lateReplyCount = new AtomicLong();
+
+    /**
+     * 创建异步消息处理线程池
+     *
+     * @param threads 处理线程数
+     * @param queueSize 等待队列长度
+     */
+    public MessageExecutor(int threads, int queueSize) {
+        final AtomicInteger seq = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "weixin4j-message-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        log.debug("异步消息处理线程池启动，线程数:{}，队列长度:{}", threads, queueSize);
+    }
+
+    /**
+     * 提交消息处理任务
+     *
+     * @param task 处理任务
+     * @return 队列已满被拒绝返回false
+     */
+    public boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * 记录一次超过回复期限
+     */
+    public void recordTimeout() {
+        timeoutCount.incrementAndGet();
+    }
+
+    /**
+     * 记录一次客服延迟回复
+     */
+    public void recordLateReply() {
+        lateReplyCount.incrementAndGet();
+    }
+
+    /**
+     * 关闭线程池，不再接收新任务
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 获取 当前排队中的任务数
+     *
+     * @return 队列深度
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 获取 正在处理的任务数
+     *
+     * @return 活动线程数
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 获取 已完成的任务数
+     *
+     * @return 已完成任务数
+     */
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * 获取 因队列已满被拒绝的任务数
+     *
+     * @return 拒绝数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 获取 超过回复期限的任务数
+     *
+     * @return 超时数
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * 获取 已发送的客服延迟回复数
+     *
+     * @return 延迟回复数
+     */
+    public long getLateReplyCount() {
+        return lateReplyCount.get();
+    }
+}
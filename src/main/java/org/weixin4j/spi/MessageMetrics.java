@@ -0,0 +1,40 @@
+package org.weixin4j.spi;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 消息处理统计接口
+ *
+ * <p>
+ * 通过weixin4j.metrics配置实现类，或调用<code>HandlerFactory.setMessageMetrics</code>注册，<br/>
+ * 未配置时不统计。每条消息处理完成后，对执行过的每个阶段调用一次<code>record</code>。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public interface MessageMetrics {
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * <p>
+     * 在请求线程中调用，实现类需线程安全，且不应阻塞。</p>
+     *
+     * @param msgType 消息类型，解析失败时为unknown
+     * @param event 事件类型（小写），非事件消息为null
+     * @param stage 处理阶段
+     * @param nanos 耗时，单位：纳秒
+     * @param error 该阶段是否失败
+     */
+    void record(String msgType, String event, MessageStage stage, long nanos, boolean error);
+
+    /**
+     * 获取统计快照，用于监控端点输出
+     *
+     * @return 统计快照
+     */
+    default Map<String, Object> snapshot() {
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,24 @@
+package org.weixin4j.spi;
+
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.OutputMessage;
+
+/**
+ * 消息路由
+ *
+ * <p>
+ * 将已解析的输入消息转换为具体消息类型，并交给对应的处理方法</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public interface MessageRoute {
+
+    /**
+     * 处理输入消息
+     *
+     * @param inputMsg 输入消息对象
+     * @return 输出消息对象，不回复则返回null
+     */
+    OutputMessage route(InputMessage inputMsg);
+}
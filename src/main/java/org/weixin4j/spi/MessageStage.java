@@ -0,0 +1,46 @@
+package org.weixin4j.spi;
+
+/**
+ * 消息处理阶段
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public enum MessageStage {
+
+    /**
+     * 读取POST流
+     */
+    READ("read"),
+    /**
+     * 验证签名，安全模式下包括msg_signature验证与解密
+     */
+    SIGNATURE("signature"),
+    /**
+     * 解析输入xml
+     */
+    PARSE("parse"),
+    /**
+     * 查找消息处理路由
+     */
+    DISPATCH("dispatch"),
+    /**
+     * 执行消息处理方法
+     */
+    HANDLER("handler"),
+    /**
+     * 生成并写入回复，安全模式下包括加密
+     */
+    SERIALIZE("serialize");
+
+    private final String name;
+
+    MessageStage(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
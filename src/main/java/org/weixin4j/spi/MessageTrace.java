@@ -0,0 +1,133 @@
+package org.weixin4j.spi;
+
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.message.InputMessage;
+
+/**
+ * 单条消息的处理耗时记录
+ *
+ * <p>
+ * 由WeixinUrlFilter在收到推送时创建，并在处理消息的线程上绑定，<br/>
+ * 消息处理器通过<code>current()</code>获取并记录解析、分发、处理等阶段，
+ * 回复完成后统一提交给MessageMetrics。<br/>
+ * 未配置MessageMetrics时不创建，各阶段只多一次判空。</p>
+ *
+ * <p>
+ * 同一条消息的各阶段依次执行，不会嵌套，也不会被多个线程同时记录。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class MessageTrace {
+
+    private static final MessageStage[] STAGES = MessageStage.values();
+    private static final ThreadLocal<MessageTrace> current = new ThreadLocal<MessageTrace>();
+    //是否绑定过记录，未启用统计时current()不访问ThreadLocal
+    private static volatile boolean attached;
+
+    private final MessageMetrics metrics;
+    private final long[] nanos = new long[STAGES.length];
+    //已执行阶段的位图
+    private int stages;
+    private MessageStage failed;
+    private long start;
+    private String msgType;
+    private String event;
+
+    private MessageTrace(MessageMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 开始记录一条消息
+     *
+     * @return 耗时记录，未启用统计时返回null
+     */
+    public static MessageTrace begin() {
+        MessageMetrics metrics = HandlerFactory.getMessageMetrics();
+        return metrics == null ? null : new MessageTrace(metrics);
+    }
+
+    /**
+     * 获取当前线程绑定的耗时记录
+     *
+     * @return 耗时记录，未绑定时返回null
+     */
+    public static MessageTrace current() {
+        return attached ? current.get() : null;
+    }
+
+    /**
+     * 绑定到当前线程
+     */
+    public void attach() {
+        attached = true;
+        current.set(this);
+    }
+
+    /**
+     * 解除当前线程的绑定
+     */
+    public void detach() {
+        current.remove();
+    }
+
+    /**
+     * 开始一个阶段
+     */
+    public void start() {
+        start = System.nanoTime();
+    }
+
+    /**
+     * 结束一个阶段，累加自<code>start()</code>或上一阶段结束以来的耗时
+     *
+     * <p>
+     * 紧接着执行的下一阶段无需再调用<code>start()</code>。</p>
+     *
+     * @param stage 处理阶段
+     */
+    public void stop(MessageStage stage) {
+        long now = System.nanoTime();
+        nanos[stage.ordinal()] += now - start;
+        stages |= 1 << stage.ordinal();
+        start = now;
+    }
+
+    /**
+     * 以失败结束一个阶段
+     *
+     * @param stage 处理阶段
+     */
+    public void fail(MessageStage stage) {
+        stop(stage);
+        failed = stage;
+    }
+
+    /**
+     * 记录消息类型，解析成功后调用
+     *
+     * @param inputMsg 输入消息对象
+     */
+    public void message(InputMessage inputMsg) {
+        this.msgType = inputMsg.getMsgType();
+        this.event = inputMsg.getEvent();
+    }
+
+    /**
+     * 提交已执行的阶段，统计出错不影响消息处理
+     */
+    public void finish() {
+        String type = msgType == null ? "unknown" : msgType;
+        try {
+            for (MessageStage stage : STAGES) {
+                if ((stages & (1 << stage.ordinal())) != 0) {
+                    metrics.record(type, event, stage, nanos[stage.ordinal()], stage == failed);
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("记录消息处理统计错误", ex);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.weixin4j.spi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.output.CachedOutputMessage;
+
+/**
+ * 回复消息缓存
+ *
+ * <p>
+ * 菜单点击、扫码等事件的回复对所有用户相同，按事件与EventKey缓存预先生成的xml，<br/>
+ * 回复时只写入ToUserName、FromUserName与CreateTime，不再重新生成整个xml。</p>
+ *
+ * <p>
+ * 缓存超过ttl后失效；菜单内容变更时调用<code>invalidate</code>或<code>invalidateAll</code>。<br/>
+ * 缓存已满时先移除过期的回复再缓存，不会因过期回复占满而永久停止缓存。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class ReplyCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    //有效期，单位：毫秒，0表示不过期
+    private final long ttl;
+    private final int maxEntries;
+    //最早的过期时间，缓存已满且未到该时间时不必遍历移除过期回复
+    private volatile long nextExpiry = Long.MAX_VALUE;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 创建回复消息缓存
+     *
+     * @param ttl 有效期，单位：毫秒，0表示不过期
+     * @param maxEntries 最多缓存个数，已满且没有过期回复时不再缓存新的回复
+     */
+    public ReplyCache(long ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 生成缓存key
+     *
+     * @param event 事件类型，如click
+     * @param eventKey 事件KEY值
+     * @return 缓存key
+     */
+    public static String key(String event, String eventKey) {
+        return eventKey == null ? event : event + ":" + eventKey;
+    }
+
+    /**
+     * 获取缓存的回复
+     *
+     * @param key 缓存key
+     * @return 可直接设置接收方的回复副本，未缓存或已过期返回null
+     */
+    public OutputMessage get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expires == 0 || entry.expires > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.reply.copy();
+            }
+            entries.remove(key, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 缓存回复
+     *
+     * @param key 缓存key
+     * @param reply 回复消息模版，缓存后不要再修改
+     * @return 用于本次回复的副本，回复不能预先生成xml时返回reply本身
+     */
+    public OutputMessage put(String key, OutputMessage reply) {
+        CachedOutputMessage cached = CachedOutputMessage.render(reply);
+        if (cached == null) {
+            return reply;
+        }
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries && !entries.containsKey(key) && now >= nextExpiry) {
+            removeExpired(now);
+        }
+        if (entries.size() < maxEntries || entries.containsKey(key)) {
+            long expires = ttl > 0 ? now + ttl : 0;
+            entries.put(key, new Entry(cached, expires));
+            if (expires != 0 && expires < nextExpiry) {
+                nextExpiry = expires;
+            }
+        }
+        return cached.copy();
+    }
+
+    //移除过期的回复，并记录剩余回复中最早的过期时间
+    private void removeExpired(long now) {
+        long earliest = Long.MAX_VALUE;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            long expires = e.getValue().expires;
+            if (expires == 0) {
+                continue;
+            }
+            if (expires <= now) {
+                entries.remove(e.getKey(), e.getValue());
+            } else if (expires < earliest) {
+                earliest = expires;
+            }
+        }
+        nextExpiry = earliest;
+    }
+
+    /**
+     * 获取缓存的回复，未缓存时生成并缓存
+     *
+     * @param key 缓存key
+     * @param loader 生成回复，返回null表示不回复，不缓存
+     * @return 可直接设置接收方的回复副本
+     */
+    public OutputMessage get(String key, Supplier<OutputMessage> loader) {
+        OutputMessage reply = get(key);
+        if (reply != null) {
+            return reply;
+        }
+        reply = loader.get();
+        return reply == null ? null : put(key, reply);
+    }
+
+    /**
+     * 移除缓存的回复
+     *
+     * @param key 缓存key
+     */
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * 移除全部缓存的回复
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * 获取 缓存个数，包括尚未移除的过期回复
+     *
+     * @return 缓存个数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取 命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取 未命中次数
+     *
+     * @return 未命中次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 获取当前统计
+     *
+     * @return size、hits与misses
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("size", size());
+        result.put("hits", getHits());
+        result.put("misses", getMisses());
+        return result;
+    }
+
+    private static class Entry {
+
+        private final CachedOutputMessage reply;
+        //过期时间，0表示不过期
+        private final long expires;
+
+        Entry(CachedOutputMessage reply, long expires) {
+            this.reply = reply;
+            this.expires = expires;
+        }
+    }
+}
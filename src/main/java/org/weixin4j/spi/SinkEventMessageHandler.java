@@ -0,0 +1,196 @@
+package org.weixin4j.spi;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.weixin4j.Configuration;
+import org.weixin4j.message.EventType;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.event.ClickEventMessage;
+import org.weixin4j.message.event.EventMessage;
+import org.weixin4j.message.event.LocationEventMessage;
+import org.weixin4j.message.event.LocationSelectEventMessage;
+import org.weixin4j.message.event.PicPhotoOrAlbumEventMessage;
+import org.weixin4j.message.event.PicSysPhotoEventMessage;
+import org.weixin4j.message.event.PicWeixinEventMessage;
+import org.weixin4j.message.event.QrsceneScanEventMessage;
+import org.weixin4j.message.event.QrsceneSubscribeEventMessage;
+import org.weixin4j.message.event.ScanCodePushEventMessage;
+import org.weixin4j.message.event.ScanCodeWaitMsgEventMessage;
+import org.weixin4j.message.event.SubscribeEventMessage;
+import org.weixin4j.message.event.UnSubscribeEventMessage;
+import org.weixin4j.message.event.ViewEventMessage;
+
+/**
+ * 异步批量处理事件的事件处理器
+ *
+ * <p>
+ * weixin4j.eventSink.events中的事件（默认subscribe、unsubscribe、location）放入EventSink后立即回复空串，
+ * 由weixin4j.eventSink.consumer批量处理；其余事件交给weixin4j.eventSink.delegate处理。<br/>
+ * 启用方式：weixin4j.message.handler.event=org.weixin4j.spi.SinkEventMessageHandler</p>
+ *
+ * <p>
+ * 需要对某个事件回复消息时，可继承本类覆盖对应方法，调用<code>sink(msg)</code>后返回回复消息。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class SinkEventMessageHandler implements IEventMessageHandler {
+
+    private final EventSink sink;
+    private final IEventMessageHandler delegate;
+    //写入EventSink的事件，小写
+    private final Set<String> events;
+
+    /**
+     * 按weixin4j.eventSink.*配置创建
+     */
+    public SinkEventMessageHandler() {
+        this(createSink(), createDelegate(),
+                Configuration.getProperty("weixin4j.eventSink.events", "subscribe,unsubscribe,location").split(","));
+    }
+
+    /**
+     * 创建事件处理器
+     *
+     * @param sink 事件写出队列，为null时全部交给delegate处理
+     * @param delegate 其余事件的处理器
+     * @param events 写入EventSink的事件类型，不区分大小写
+     */
+    public SinkEventMessageHandler(EventSink sink, IEventMessageHandler delegate, String... events) {
+        this.sink = sink;
+        this.delegate = delegate;
+        this.events = new HashSet<String>();
+        for (String event : events) {
+            if (!event.trim().isEmpty()) {
+                this.events.add(event.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+
+    private static EventSink createSink() {
+        String consumerClass = Configuration.getProperty("weixin4j.eventSink.consumer");
+        if (consumerClass == null || consumerClass.trim().isEmpty()) {
+            log.error("未配置weixin4j.eventSink.consumer，事件将直接交给weixin4j.eventSink.delegate处理");
+            return null;
+        }
+        EventBatchConsumer consumer = HandlerFactory.newInstance(consumerClass.trim(), EventBatchConsumer.class);
+        if (consumer == null) {
+            return null;
+        }
+        EventSink.Overflow overflow;
+        try {
+            overflow = EventSink.Overflow.valueOf(Configuration.getProperty("weixin4j.eventSink.overflow", "DROP_OLDEST").trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException ex) {
+            log.warn("weixin4j.eventSink.overflow配置错误，使用DROP_OLDEST");
+            overflow = EventSink.Overflow.DROP_OLDEST;
+        }
+        return new EventSink(consumer,
+                Configuration.getIntProperty("weixin4j.eventSink.capacity", 10000),
+                Configuration.getIntProperty("weixin4j.eventSink.batchSize", 200),
+                Configuration.getIntProperty("weixin4j.eventSink.flushInterval", 1000),
+                overflow,
+                Configuration.getIntProperty("weixin4j.eventSink.blockTimeout", 100));
+    }
+
+    private static IEventMessageHandler createDelegate() {
+        String delegateClass = Configuration.getProperty("weixin4j.eventSink.delegate", "org.weixin4j.spi.DefaultEventMessageHandler");
+        return HandlerFactory.newInstance(delegateClass, IEventMessageHandler.class);
+    }
+
+    /**
+     * 将事件放入EventSink
+     *
+     * @param msg 事件
+     * @return 已放入返回true，队列已满被拒绝返回false
+     */
+    protected boolean sink(EventMessage msg) {
+        return sink.offer(msg);
+    }
+
+    //配置的事件放入EventSink并回复空串，其余交给delegate
+    private boolean sunk(String event, EventMessage msg) {
+        if (sink == null || !events.contains(event)) {
+            return false;
+        }
+        //队列已满时由EventSink计数并限频记录日志
+        sink(msg);
+        return true;
+    }
+
+    /**
+     * 获取事件写出队列
+     *
+     * @return 事件写出队列，未配置时返回null
+     */
+    public EventSink getSink() {
+        return sink;
+    }
+
+    @Override
+    public OutputMessage subscribe(SubscribeEventMessage msg) {
+        return sunk(EventType.Subscribe.toString(), msg) || delegate == null ? null : delegate.subscribe(msg);
+    }
+
+    @Override
+    public OutputMessage unSubscribe(UnSubscribeEventMessage msg) {
+        return sunk(EventType.Unsubscribe.toString(), msg) || delegate == null ? null : delegate.unSubscribe(msg);
+    }
+
+    @Override
+    public OutputMessage qrsceneSubscribe(QrsceneSubscribeEventMessage msg) {
+        return sunk(EventType.Subscribe.toString(), msg) || delegate == null ? null : delegate.qrsceneSubscribe(msg);
+    }
+
+    @Override
+    public OutputMessage qrsceneScan(QrsceneScanEventMessage msg) {
+        return sunk(EventType.Scan.toString(), msg) || delegate == null ? null : delegate.qrsceneScan(msg);
+    }
+
+    @Override
+    public OutputMessage location(LocationEventMessage msg) {
+        return sunk(EventType.Location.toString(), msg) || delegate == null ? null : delegate.location(msg);
+    }
+
+    @Override
+    public OutputMessage click(ClickEventMessage msg) {
+        return sunk(EventType.Click.toString(), msg) || delegate == null ? null : delegate.click(msg);
+    }
+
+    @Override
+    public OutputMessage view(ViewEventMessage msg) {
+        return sunk(EventType.View.toString(), msg) || delegate == null ? null : delegate.view(msg);
+    }
+
+    @Override
+    public OutputMessage scanCodePush(ScanCodePushEventMessage msg) {
+        return sunk(EventType.Scancode_Push.toString(), msg) || delegate == null ? null : delegate.scanCodePush(msg);
+    }
+
+    @Override
+    public OutputMessage scanCodeWaitMsg(ScanCodeWaitMsgEventMessage msg) {
+        return sunk(EventType.Scancode_Waitmsg.toString(), msg) || delegate == null ? null : delegate.scanCodeWaitMsg(msg);
+    }
+
+    @Override
+    public OutputMessage picSysPhoto(PicSysPhotoEventMessage msg) {
+        return sunk(EventType.Pic_Sysphoto.toString(), msg) || delegate == null ? null : delegate.picSysPhoto(msg);
+    }
+
+    @Override
+    public OutputMessage picPhotoOrAlbum(PicPhotoOrAlbumEventMessage msg) {
+        return sunk(EventType.Pic_Photo_OR_Album.toString(), msg) || delegate == null ? null : delegate.picPhotoOrAlbum(msg);
+    }
+
+    @Override
+    public OutputMessage picWeixin(PicWeixinEventMessage msg) {
+        return sunk(EventType.Pic_Weixin.toString(), msg) || delegate == null ? null : delegate.picWeixin(msg);
+    }
+
+    @Override
+    public OutputMessage locationSelect(LocationSelectEventMessage msg) {
+        return sunk(EventType.Location_Select.toString(), msg) || delegate == null ? null : delegate.locationSelect(msg);
+    }
+}
@@ -0,0 +1,70 @@
+package org.weixin4j.spi;
+
+import lombok.extern.slf4j.Slf4j;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import javax.servlet.ServletInputStream;
+import javax.xml.stream.XMLStreamException;
+import org.weixin4j.WeixinException;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.util.InputMessageParser;
+import org.weixin4j.util.XStreamFactory;
+
+/**
+ * 基于StAX解析的输入消息处理器
+ *
+ * <p>
+ * 读取POST数据的字节后直接解析<tt>InputMessage</tt>，不再先解码为字符串再经JAXB转换，<br/>
+ * 超过weixin4j.message.maxBodySize的数据直接拒绝。<br/>
+ * 启用方式：weixin4j.handler=org.weixin4j.spi.StaxMessageHandler</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+@Slf4j
+public class StaxMessageHandler extends DefaultMessageHandler {
+
+    @Override
+    protected InputMessage parse(ServletInputStream inputStream) throws WeixinException {
+        MessageTrace trace = MessageTrace.current();
+        byte[] xml;
+        try {
+            if (trace != null) {
+                trace.start();
+            }
+            //按最大长度读取，避免超大的节点全部读入内存
+            xml = XStreamFactory.inputStream2Bytes(inputStream, -1);
+            if (trace != null) {
+                trace.stop(MessageStage.READ);
+            }
+        } catch (IOException ex) {
+            if (trace != null) {
+                trace.fail(MessageStage.READ);
+            }
+            throw new WeixinException("输入流转换错误：", ex);
+        }
+        try {
+            if (trace != null) {
+                trace.start();
+            }
+            InputMessage inputMsg = InputMessageParser.parse(new ByteArrayInputStream(xml));
+            if (trace != null) {
+                trace.stop(MessageStage.PARSE);
+                trace.message(inputMsg);
+            }
+            log.debug("StAX解析POST的消息成功!");
+            return inputMsg;
+        } catch (XMLStreamException ex) {
+            if (trace != null) {
+                trace.fail(MessageStage.PARSE);
+            }
+            throw new WeixinException("输入流转换错误：", ex);
+        }
+    }
+
+    @Override
+    protected InputMessage parse(String inputXml) throws Exception {
+        return InputMessageParser.parse(new StringReader(inputXml));
+    }
+}
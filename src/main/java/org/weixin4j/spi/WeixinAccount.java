@@ -0,0 +1,171 @@
+package org.weixin4j.spi;
+
+import org.weixin4j.util.MessageCrypt;
+
+/**
+ * 公众号接入配置
+ *
+ * <p>
+ * 一个JVM接入多个公众号时，每个公众号的Token、EncodingAESKey与消息处理器，<br/>
+ * 通过<code>AccountRegistry.register</code>注册，未设置的处理器使用全局配置。</p>
+ *
+ * <p>
+ * 处理消息期间可通过<code>current()</code>获取消息所属的公众号。<br/>
+ * 注册后不要再修改，更新配置时注册新的对象替换。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class WeixinAccount {
+
+    private static final ThreadLocal<WeixinAccount> current = new ThreadLocal<WeixinAccount>();
+    //是否绑定过公众号，单公众号接入时current()不访问ThreadLocal
+    private static volatile boolean attached;
+
+    private final String id;
+    private String originalId;
+    private String appId;
+    private String appSecret;
+    private String token;
+    private String encodingAESKey;
+    private IMessageHandler messageHandler;
+    private INormalMessageHandler normalMessageHandler;
+    private IEventMessageHandler eventMessageHandler;
+    //安全模式加解密，首次使用时创建
+    private volatile MessageCrypt messageCrypt;
+
+    /**
+     * 创建公众号接入配置
+     *
+     * @param id 公众号标识，即接入URL的最后一段，如http://www.weixin4j.org/api/公众号标识
+     * @param token 公众号Token
+     */
+    public WeixinAccount(String id, String token) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("公众号标识不能为空");
+        }
+        this.id = id;
+        this.token = token;
+    }
+
+    /**
+     * 获取当前线程正在处理的消息所属的公众号
+     *
+     * @return 公众号，单公众号接入时返回null
+     */
+    public static WeixinAccount current() {
+        return attached ? current.get() : null;
+    }
+
+    /**
+     * 绑定到当前线程
+     */
+    public void attach() {
+        attached = true;
+        current.set(this);
+    }
+
+    /**
+     * 解除当前线程的绑定
+     */
+    public void detach() {
+        current.remove();
+    }
+
+    /**
+     * 获取安全模式加解密对象
+     *
+     * @return 加解密对象，未配置EncodingAESKey时返回null
+     */
+    public MessageCrypt getMessageCrypt() {
+        MessageCrypt crypt = messageCrypt;
+        if (crypt == null && encodingAESKey != null && !encodingAESKey.isEmpty()) {
+            crypt = messageCrypt = MessageCrypt.getInstance(token, encodingAESKey, appId);
+        }
+        return crypt;
+    }
+
+    //移除共享的加解密对象，从注册表移除或被替换时调用
+    void releaseMessageCrypt() {
+        if (encodingAESKey != null && !encodingAESKey.isEmpty()) {
+            MessageCrypt.removeInstance(token, encodingAESKey, appId);
+        }
+        messageCrypt = null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 获取公众号原始ID，即消息中的ToUserName，如gh_xxxxxxxx
+     *
+     * @return 原始ID
+     */
+    public String getOriginalId() {
+        return originalId;
+    }
+
+    public void setOriginalId(String originalId) {
+        this.originalId = originalId;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    public void setAppId(String appId) {
+        this.appId = appId;
+        this.messageCrypt = null;
+    }
+
+    public String getAppSecret() {
+        return appSecret;
+    }
+
+    public void setAppSecret(String appSecret) {
+        this.appSecret = appSecret;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+        this.messageCrypt = null;
+    }
+
+    public String getEncodingAESKey() {
+        return encodingAESKey;
+    }
+
+    public void setEncodingAESKey(String encodingAESKey) {
+        this.encodingAESKey = encodingAESKey;
+        this.messageCrypt = null;
+    }
+
+    public IMessageHandler getMessageHandler() {
+        return messageHandler;
+    }
+
+    public void setMessageHandler(IMessageHandler messageHandler) {
+        this.messageHandler = messageHandler;
+    }
+
+    public INormalMessageHandler getNormalMessageHandler() {
+        return normalMessageHandler;
+    }
+
+    public void setNormalMessageHandler(INormalMessageHandler normalMessageHandler) {
+        this.normalMessageHandler = normalMessageHandler;
+    }
+
+    public IEventMessageHandler getEventMessageHandler() {
+        return eventMessageHandler;
+    }
+
+    public void setEventMessageHandler(IEventMessageHandler eventMessageHandler) {
+        this.eventMessageHandler = eventMessageHandler;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * 微信公众平台(JAVA) SDK
+ *
+ * Copyright (c) 2014, Ansitech Network Technology Co.,Ltd All rights reserved.
+ *
+ * http://www.weixin4j.org/sdk/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weixin4j.util;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.PicList;
+import org.weixin4j.message.ScanCodeInfo;
+import org.weixin4j.message.SendLocationInfo;
+import org.weixin4j.message.SendPicsInfo;
+
+/**
+ * 基于StAX的输入消息解析器
+ *
+ * <p>
+ * 直接从输入流读取微信POST的XML数据包并填充<tt>InputMessage</tt>，<br/>
+ * 不经过中间字符串，也不使用JAXB反射，解析结果与JAXB一致。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class InputMessageParser {
+
+    private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    static {
+        //合并CDATA与文本节点
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        //禁止DTD与外部实体，防止XXE
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
+    /**
+     * 从UTF-8编码的输入流解析输入消息
+     *
+     * @param in 输入流
+     * @return 输入消息对象
+     * @throws XMLStreamException
+     */
+    public static InputMessage parse(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = factory.createXMLStreamReader(in, "UTF-8");
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 从字符流解析输入消息
+     *
+     * @param in 字符流
+     * @return 输入消息对象
+     * @throws XMLStreamException
+     */
+    public static InputMessage parse(Reader in) throws XMLStreamException {
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static InputMessage read(XMLStreamReader reader) throws XMLStreamException {
+        InputMessage msg = new InputMessage();
+        //定位到根节点<xml>
+        reader.nextTag();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            switch (name) {
+                case "ToUserName":
+                    msg.setToUserName(reader.getElementText());
+                    break;
+                case "FromUserName":
+                    msg.setFromUserName(reader.getElementText());
+                    break;
+                case "CreateTime":
+                    msg.setCreateTime(toLong(reader.getElementText()));
+                    break;
+                case "MsgId":
+                    msg.setMsgId(toLong(reader.getElementText()));
+                    break;
+                case "MsgType":
+                    msg.setMsgType(reader.getElementText());
+                    break;
+                case "Content":
+                    msg.setContent(reader.getElementText());
+                    break;
+                case "PicUrl":
+                    msg.setPicUrl(reader.getElementText());
+                    break;
+                case "Location_X":
+                    msg.setLocation_X(reader.getElementText());
+                    break;
+                case "Location_Y":
+                    msg.setLocationY(reader.getElementText());
+                    break;
+                case "Scale":
+                    msg.setScale(toLong(reader.getElementText()));
+                    break;
+                case "Label":
+                    msg.setLabel(reader.getElementText());
+                    break;
+                case "Title":
+                    msg.setTitle(reader.getElementText());
+                    break;
+                case "Description":
+                    msg.setDescription(reader.getElementText());
+                    break;
+                case "Url":
+                    msg.setUrl(reader.getElementText());
+                    break;
+                case "MediaId":
+                    msg.setMediaId(reader.getElementText());
+                    break;
+                case "Format":
+                    msg.setFormat(reader.getElementText());
+                    break;
+                case "Recognition":
+                    msg.setRecognition(reader.getElementText());
+                    break;
+                case "ThumbMediaId":
+                    msg.setThumbMediaId(reader.getElementText());
+                    break;
+                case "Event":
+                    msg.setEvent(reader.getElementText());
+                    break;
+                case "EventKey":
+                    msg.setEventKey(reader.getElementText());
+                    break;
+                case "Ticket":
+                    msg.setTicket(reader.getElementText());
+                    break;
+                case "Latitude":
+                    msg.setLatitude(reader.getElementText());
+                    break;
+                case "Longitude":
+                    msg.setLongitude(reader.getElementText());
+                    break;
+                case "Precision":
+                    msg.setPrecision(reader.getElementText());
+                    break;
+                case "MsgID":
+                    msg.setMsgID(reader.getElementText());
+                    break;
+                case "Status":
+                    msg.setStatus(reader.getElementText());
+                    break;
+                case "TotalCount":
+                    msg.setTotalCount(toInt(reader.getElementText()));
+                    break;
+                case "FilterCount":
+                    msg.setFilterCount(toInt(reader.getElementText()));
+                    break;
+                case "SentCount":
+                    msg.setSentCount(toInt(reader.getElementText()));
+                    break;
+                case "ErrorCount":
+                    msg.setErrorCount(toInt(reader.getElementText()));
+                    break;
+                case "ScanCodeInfo":
+                    msg.setScanCodeInfo(readScanCodeInfo(reader));
+                    break;
+                case "SendPicsInfo":
+                    msg.setSendPicsInfo(readSendPicsInfo(reader));
+                    break;
+                case "SendLocationInfo":
+                    msg.setSendLocationInfo(readSendLocationInfo(reader));
+                    break;
+                default:
+                    //未知节点直接跳过
+                    skip(reader);
+            }
+        }
+        return msg;
+    }
+
+    private static ScanCodeInfo readScanCodeInfo(XMLStreamReader reader) throws XMLStreamException {
+        ScanCodeInfo info = new ScanCodeInfo();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("ScanType")) {
+                info.setScanType(reader.getElementText());
+            } else if (name.equals("ScanResult")) {
+                info.setScanResult(reader.getElementText());
+            } else {
+                skip(reader);
+            }
+        }
+        return info;
+    }
+
+    private static SendPicsInfo readSendPicsInfo(XMLStreamReader reader) throws XMLStreamException {
+        SendPicsInfo info = new SendPicsInfo();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("Count")) {
+                info.setCount(toInt(reader.getElementText()));
+            } else if (name.equals("PicList")) {
+                List<PicList> picList = new ArrayList<PicList>();
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if (reader.getLocalName().equals("item")) {
+                        PicList pic = new PicList();
+                        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                            if (reader.getLocalName().equals("PicMd5Sum")) {
+                                pic.setPicMd5Sum(reader.getElementText());
+                            } else {
+                                skip(reader);
+                            }
+                        }
+                        picList.add(pic);
+                    } else {
+                        skip(reader);
+                    }
+                }
+                info.setPicList(picList);
+            } else {
+                skip(reader);
+            }
+        }
+        return info;
+    }
+
+    private static SendLocationInfo readSendLocationInfo(XMLStreamReader reader) throws XMLStreamException {
+        SendLocationInfo info = new SendLocationInfo();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            switch (name) {
+                case "Location_X":
+                    info.setLocation_X(toDouble(reader.getElementText()));
+                    break;
+                case "Location_Y":
+                    info.setLocation_Y(toDouble(reader.getElementText()));
+                    break;
+                case "Scale":
+                    info.setScale(toInt(reader.getElementText()));
+                    break;
+                case "Label":
+                    info.setLabel(reader.getElementText());
+                    break;
+                case "Poiname":
+                    info.setPoiname(reader.getElementText());
+                    break;
+                default:
+                    skip(reader);
+            }
+        }
+        return info;
+    }
+
+    //跳过当前节点及其所有子节点
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    //与JAXB一致：去除首尾空白，非法数字视为空
+    private static Long toLong(String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static int toInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    private static double toDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
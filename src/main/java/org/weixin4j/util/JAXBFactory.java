@@ -0,0 +1,168 @@
+/*
+ * 微信公众平台(JAVA) SDK
+ *
+ * Copyright (c) 2014, Ansitech Network Technology Co.,Ltd All rights reserved.
+ *
+ * http://www.weixin4j.org/sdk/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weixin4j.util;
+
+import lombok.extern.slf4j.Slf4j;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.pay.PayNotifyResult;
+import org.weixin4j.pay.UnifiedOrderResult;
+import org.weixin4j.pay.redpack.SendRedPackResult;
+
+/**
+ * JAXB绑定注册中心
+ *
+ * <p>
+ * <tt>JAXBContext</tt>创建代价很高且线程安全，每个类型只创建一次；<br/>
+ * <tt>Unmarshaller</tt>与<tt>Marshaller</tt>非线程安全，按线程缓存复用。</p>
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+@Slf4j
+public class JAXBFactory {
+
+    //已创建的JAXBContext
+    private static final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+    //当前线程的Unmarshaller
+    private static final ThreadLocal<Map<Class<?>, Unmarshaller>> unmarshallers = new ThreadLocal<Map<Class<?>, Unmarshaller>>() {
+        @Override
+        protected Map<Class<?>, Unmarshaller> initialValue() {
+            return new HashMap<Class<?>, Unmarshaller>();
+        }
+    };
+    //当前线程的Marshaller
+    private static final ThreadLocal<Map<Class<?>, Marshaller>> marshallers = new ThreadLocal<Map<Class<?>, Marshaller>>() {
+        @Override
+        protected Map<Class<?>, Marshaller> initialValue() {
+            return new HashMap<Class<?>, Marshaller>();
+        }
+    };
+
+    static {
+        //预先创建SDK内置的XML类型
+        register(InputMessage.class);
+        register(PayNotifyResult.class);
+        register(UnifiedOrderResult.class);
+        register(SendRedPackResult.class);
+    }
+
+    /**
+     * 注册XML类型，提前创建JAXBContext
+     *
+     * @param clazz XML绑定类型
+     */
+    public static void register(Class<?> clazz) {
+        try {
+            getContext(clazz);
+        } catch (JAXBException ex) {
+            log.error("初始化JAXBContext异常:{}", clazz.getName(), ex);
+        }
+    }
+
+    /**
+     * 获取类型对应的JAXBContext
+     *
+     * @param clazz XML绑定类型
+     * @return JAXBContext
+     * @throws JAXBException
+     */
+    public static JAXBContext getContext(Class<?> clazz) throws JAXBException {
+        JAXBContext context = contexts.get(clazz);
+        if (context == null) {
+            synchronized (contexts) {
+                context = contexts.get(clazz);
+                if (context == null) {
+                    context = JAXBContext.newInstance(clazz);
+                    contexts.put(clazz, context);
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * 获取当前线程的Unmarshaller
+     *
+     * @param clazz XML绑定类型
+     * @return 当前线程独占的Unmarshaller，不可跨线程使用
+     * @throws JAXBException
+     */
+    public static Unmarshaller getUnmarshaller(Class<?> clazz) throws JAXBException {
+        Map<Class<?>, Unmarshaller> cache = unmarshallers.get();
+        Unmarshaller unmarshaller = cache.get(clazz);
+        if (unmarshaller == null) {
+            unmarshaller = getContext(clazz).createUnmarshaller();
+            cache.put(clazz, unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * 获取当前线程的Marshaller
+     *
+     * @param clazz XML绑定类型
+     * @return 当前线程独占的Marshaller，不可跨线程使用
+     * @throws JAXBException
+     */
+    public static Marshaller getMarshaller(Class<?> clazz) throws JAXBException {
+        Map<Class<?>, Marshaller> cache = marshallers.get();
+        Marshaller marshaller = cache.get(clazz);
+        if (marshaller == null) {
+            marshaller = getContext(clazz).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+            cache.put(clazz, marshaller);
+        }
+        return marshaller;
+    }
+
+    /**
+     * 将xml字符串转换为对象
+     *
+     * @param <T> 对象类型
+     * @param clazz XML绑定类型
+     * @param xml xml字符串
+     * @return 转换后的对象
+     * @throws JAXBException
+     */
+    public static <T> T unmarshal(Class<T> clazz, String xml) throws JAXBException {
+        return clazz.cast(getUnmarshaller(clazz).unmarshal(new StringReader(xml)));
+    }
+
+    /**
+     * 将xml输入流转换为对象
+     *
+     * @param <T> 对象类型
+     * @param clazz XML绑定类型
+     * @param in xml输入流
+     * @return 转换后的对象
+     * @throws JAXBException
+     */
+    public static <T> T unmarshal(Class<T> clazz, InputStream in) throws JAXBException {
+        return clazz.cast(getUnmarshaller(clazz).unmarshal(in));
+    }
+}
@@ -0,0 +1,313 @@
+package org.weixin4j.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 关键词匹配
+ *
+ * <p>
+ * 将全部关键词编译为Aho-Corasick自动机，按字符（char）匹配，支持中文，<br/>
+ * 匹配耗时只与文本长度有关，与关键词个数无关。</p>
+ *
+ * <p>
+ * 支持完全匹配（EXACT）、前缀匹配（PREFIX）与包含匹配（CONTAINS），<br/>
+ * 多个关键词同时命中时返回优先级最高的，优先级相同时返回先添加的。</p>
+ *
+ * <p>
+ * 编译后不可修改，可被多个线程同时使用。</p>
+ *
+ * @param <T> 关键词对应的值
+ * @author qsyang
+ * @version 1.0
+ */
+public class KeywordMatcher<T> {
+
+    /**
+     * 匹配方式
+     */
+    public enum Match {
+
+        /**
+         * 完全匹配
+         */
+        EXACT,
+        /**
+         * 以关键词开头
+         */
+        PREFIX,
+        /**
+         * 包含关键词
+         */
+        CONTAINS
+    }
+
+    private static final int NONE = -1;
+
+    private final boolean ignoreCase;
+    //根状态的转移，按字符直接索引
+    private final int[] rootNext;
+    //其余状态的转移，状态s的边为edgeChars[edgeStart[s]..edgeStart[s+1])，按字符排序
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    private final int[] depth;
+    //以状态为关键词的完全匹配与前缀匹配规则
+    private final int[] exact;
+    private final int[] prefix;
+    //以状态或其后缀为关键词的包含匹配规则中最优的
+    private final int[] contains;
+    //规则的优先级与值
+    private final int[] priorities;
+    private final Object[] values;
+
+    private KeywordMatcher(Builder<T> builder) {
+        this.ignoreCase = builder.ignoreCase;
+        this.priorities = new int[builder.priorities.size()];
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = builder.priorities.get(i);
+        }
+        this.values = builder.values.toArray();
+        //按层次遍历编号，保证计算失败转移时较浅的状态已完成
+        List<Builder.Node> nodes = new ArrayList<Builder.Node>();
+        ArrayDeque<Builder.Node> queue = new ArrayDeque<Builder.Node>();
+        builder.root.id = 0;
+        queue.add(builder.root);
+        int edgeCount = 0;
+        while (!queue.isEmpty()) {
+            Builder.Node node = queue.poll();
+            nodes.add(node);
+            edgeCount += node.children.size();
+            for (Builder.Node child : node.sortedChildren()) {
+                child.id = nodes.size() + queue.size();
+                queue.add(child);
+            }
+        }
+        int size = nodes.size();
+        this.rootNext = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(rootNext, NONE);
+        this.edgeStart = new int[size + 1];
+        this.edgeChars = new char[edgeCount];
+        this.edgeTargets = new int[edgeCount];
+        this.fail = new int[size];
+        this.depth = new int[size];
+        this.exact = new int[size];
+        this.prefix = new int[size];
+        this.contains = new int[size];
+        int edge = 0;
+        for (int s = 0; s < size; s++) {
+            Builder.Node node = nodes.get(s);
+            exact[s] = node.rules[Match.EXACT.ordinal()];
+            prefix[s] = node.rules[Match.PREFIX.ordinal()];
+            contains[s] = node.rules[Match.CONTAINS.ordinal()];
+            edgeStart[s] = edge;
+            for (Builder.Node child : node.sortedChildren()) {
+                edgeChars[edge] = child.c;
+                edgeTargets[edge] = child.id;
+                edge++;
+                if (s == 0) {
+                    rootNext[child.c] = child.id;
+                }
+            }
+        }
+        edgeStart[size] = edge;
+        //失败转移，并将后缀的包含匹配规则合并到状态上
+        for (int s = 0; s < size; s++) {
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                int t = edgeTargets[e];
+                depth[t] = depth[s] + 1;
+                if (s == 0) {
+                    fail[t] = 0;
+                } else {
+                    int f = fail[s];
+                    int next;
+                    while ((next = next(f, edgeChars[e])) == NONE && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[t] = next == NONE ? 0 : next;
+                }
+                contains[t] = better(contains[t], contains[fail[t]]);
+            }
+        }
+    }
+
+    /**
+     * 创建关键词匹配构建器
+     *
+     * @param <T> 关键词对应的值
+     * @param ignoreCase 是否忽略大小写
+     * @return 构建器
+     */
+    public static <T> Builder<T> builder(boolean ignoreCase) {
+        return new Builder<T>(ignoreCase);
+    }
+
+    //状态s输入字符c后的状态，没有转移返回NONE
+    private int next(int s, char c) {
+        if (s == 0) {
+            return rootNext[c];
+        }
+        int low = edgeStart[s];
+        int high = edgeStart[s + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char m = edgeChars[mid];
+            if (m < c) {
+                low = mid + 1;
+            } else if (m > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NONE;
+    }
+
+    //优先级较高的规则，相同时取先添加的
+    private int better(int a, int b) {
+        if (a == NONE) {
+            return b;
+        }
+        if (b == NONE) {
+            return a;
+        }
+        if (priorities[a] != priorities[b]) {
+            return priorities[a] > priorities[b] ? a : b;
+        }
+        return a < b ? a : b;
+    }
+
+    /**
+     * 匹配文本
+     *
+     * @param text 文本
+     * @return 命中规则中优先级最高的值，未命中返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T match(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        int state = 0;
+        int best = NONE;
+        //是否仍在从文本开头沿关键词前进，前缀与完全匹配只在此时有效
+        boolean fromStart = true;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (ignoreCase) {
+                c = Character.toLowerCase(c);
+            }
+            int next;
+            while ((next = next(state, c)) == NONE && state != 0) {
+                state = fail[state];
+            }
+            state = next == NONE ? 0 : next;
+            if (fromStart) {
+                if (depth[state] == i + 1) {
+                    best = better(best, prefix[state]);
+                } else {
+                    fromStart = false;
+                }
+            }
+            best = better(best, contains[state]);
+        }
+        if (fromStart && depth[state] == length) {
+            best = better(best, exact[state]);
+        }
+        return best == NONE ? null : (T) values[best];
+    }
+
+    /**
+     * 获取 规则个数
+     *
+     * @return 规则个数
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * 关键词匹配构建器
+     *
+     * @param <T> 关键词对应的值
+     */
+    public static class Builder<T> {
+
+        private final boolean ignoreCase;
+        private final Node root = new Node('\0');
+        private final List<Integer> priorities = new ArrayList<Integer>();
+        private final List<T> values = new ArrayList<T>();
+
+        private Builder(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        /**
+         * 添加规则，同一关键词与匹配方式只保留优先级最高的
+         *
+         * @param match 匹配方式
+         * @param keyword 关键词，不能为空串
+         * @param priority 优先级，越大越优先
+         * @param value 命中时返回的值
+         * @return 构建器
+         */
+        public Builder<T> add(Match match, String keyword, int priority, T value) {
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("关键词不能为空");
+            }
+            Node node = root;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (ignoreCase) {
+                    c = Character.toLowerCase(c);
+                }
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node(c);
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            int old = node.rules[match.ordinal()];
+            if (old == NONE || priorities.get(old) < priority) {
+                node.rules[match.ordinal()] = values.size();
+                priorities.add(priority);
+                values.add(value);
+            }
+            return this;
+        }
+
+        /**
+         * 编译为关键词匹配
+         *
+         * @return 关键词匹配
+         */
+        public KeywordMatcher<T> build() {
+            return new KeywordMatcher<T>(this);
+        }
+
+        private static class Node {
+
+            private final char c;
+            private final Map<Character, Node> children = new HashMap<Character, Node>();
+            private final int[] rules = {NONE, NONE, NONE};
+            private int id;
+
+            Node(char c) {
+                this.c = c;
+            }
+
+            List<Node> sortedChildren() {
+                List<Node> sorted = new ArrayList<Node>(children.values());
+                sorted.sort((a, b) -> Character.compare(a.c, b.c));
+                return sorted;
+            }
+        }
+    }
+}
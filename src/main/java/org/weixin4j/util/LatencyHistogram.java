@@ -0,0 +1,129 @@
+package org.weixin4j.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图
+ *
+ * <p>
+ * 按2的幂分段，每段再等分为8个桶，相对误差不超过12.5%，<br/>
+ * 记录时只做一次桶计数与一次分段累加，不加锁、不分配对象，次数在读取时由各桶汇总。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    //每段的桶数为2^SUB_BITS
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    //最大记录到2^(MAX_EXP+1)纳秒（约36分钟），更大的值记入最后一个桶
+    private static final int MAX_EXP = 40;
+    private static final int BUCKETS = (MAX_EXP - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param value 耗时，单位：纳秒
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(index(value));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    //小于2^(SUB_BITS+1)的值精确记录，其余按最高位所在分段与其后SUB_BITS位定位
+    private static int index(long value) {
+        if (value < SUB_COUNT << 1) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        if (exp > MAX_EXP) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    //桶内的最大值
+    private static long upperBound(int index) {
+        if (index < SUB_COUNT << 1) {
+            return index;
+        }
+        int exp = index / SUB_COUNT + SUB_BITS - 1;
+        int sub = index % SUB_COUNT;
+        long width = 1L << (exp - SUB_BITS);
+        return ((long) (SUB_COUNT + sub) << (exp - SUB_BITS)) + width - 1;
+    }
+
+    /**
+     * 获取记录次数
+     *
+     * @return 记录次数
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * 获取最大耗时
+     *
+     * @return 最大耗时，单位：纳秒
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 获取平均耗时
+     *
+     * @return 平均耗时，单位：纳秒，未记录时返回0
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * 获取百分位耗时
+     *
+     * @param percentile 百分位，如99.9
+     * @return 不超过该百分位的最大耗时，单位：纳秒，未记录时返回0
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(percentile, 100) / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+}
@@ -0,0 +1,630 @@
+package org.weixin4j.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import org.weixin4j.Configuration;
+import org.weixin4j.message.event.LocationEventMessage;
+import org.weixin4j.message.normal.LocationInputMessage;
+
+/**
+ * 用户最新地理位置
+ *
+ * <p>
+ * 每个OpenID只保留最新一次上报的位置，按OpenID哈希分段加锁。<br/>
+ * 每段的经纬度、时间等以基本类型数组连续存放，OpenID到下标使用开放寻址哈希表，<br/>
+ * 不为每个用户创建额外对象，可容纳数百万用户。</p>
+ *
+ * <p>
+ * 按经纬度划分为边长约cellSize公里的网格，同一网格的用户以数组下标串成链表，<br/>
+ * 查询附近用户时只遍历覆盖范围内的网格。超过ttl未上报的位置视为过期，
+ * 不再返回，并在写入时逐步清除。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class LocationStore {
+
+    //地球平均半径，单位：公里
+    private static final double EARTH_RADIUS = 6371.0088;
+    //每纬度对应的距离，单位：公里
+    private static final double KM_PER_DEGREE = 111.32;
+    //分段数为2的SHARD_BITS次幂，哈希值低位选段，其余位用于段内哈希表
+    private static final int SHARD_BITS = 4;
+    private static final int SHARDS = 1 << SHARD_BITS;
+    //覆盖网格数超过该值时改为遍历整段
+    private static final int MAX_SCAN_CELLS = 4096;
+
+    private final Shard[] shards;
+    //网格边长，单位：度
+    private final double cellDegrees;
+    //过期时间，单位：毫秒
+    private final long ttl;
+
+    /**
+     * 创建位置存储
+     *
+     * @param cellSize 网格边长，单位：公里，一般取常用查询半径
+     * @param ttl 位置过期时间，单位：毫秒，0表示不过期
+     */
+    public LocationStore(double cellSize, long ttl) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cellSize必须大于0");
+        }
+        this.cellDegrees = cellSize / KM_PER_DEGREE;
+        this.ttl = ttl;
+        this.shards = new Shard[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    private static class Holder {
+
+        static final LocationStore INSTANCE = new LocationStore(
+                Double.parseDouble(Configuration.getProperty("weixin4j.location.cellSize", "1")),
+                Configuration.getIntProperty("weixin4j.location.ttl", 1800000));
+    }
+
+    /**
+     * 获取按weixin4j.location.*配置创建的共享实例
+     *
+     * @return 位置存储
+     */
+    public static LocationStore getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 记录上报地理位置事件
+     *
+     * @param msg 上报地理位置事件
+     * @return 经纬度合法返回true
+     */
+    public boolean update(LocationEventMessage msg) {
+        return update(msg.getFromUserName(), msg.getLatitude(), msg.getLongitude());
+    }
+
+    /**
+     * 记录地理位置消息
+     *
+     * @param msg 地理位置消息
+     * @return 经纬度合法返回true
+     */
+    public boolean update(LocationInputMessage msg) {
+        return update(msg.getFromUserName(), msg.getLocation_X(), msg.getLocation_Y());
+    }
+
+    /**
+     * 记录用户位置
+     *
+     * @param openId 用户OpenID
+     * @param latitude 纬度
+     * @param longitude 经度
+     * @return 经纬度合法返回true
+     */
+    public boolean update(String openId, String latitude, String longitude) {
+        if (latitude == null || longitude == null) {
+            return false;
+        }
+        try {
+            return update(openId, Double.parseDouble(latitude.trim()), Double.parseDouble(longitude.trim()), System.currentTimeMillis());
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * 记录用户位置，覆盖之前的位置
+     *
+     * @param openId 用户OpenID
+     * @param latitude 纬度
+     * @param longitude 经度
+     * @param time 上报时间，单位：毫秒
+     * @return 经纬度合法返回true
+     */
+    public boolean update(String openId, double latitude, double longitude, long time) {
+        if (openId == null || !(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            return false;
+        }
+        int h = hash(openId);
+        Shard shard = shards[h & (SHARDS - 1)];
+        long stamp = shard.lock.writeLock();
+        try {
+            shard.put(openId, h, latitude, longitude, time, cell(latitude, longitude), expireBefore(time));
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    /**
+     * 获取用户最新位置
+     *
+     * @param openId 用户OpenID
+     * @return 位置，不存在或已过期返回null
+     */
+    public Position get(String openId) {
+        int h = hash(openId);
+        Shard shard = shards[h & (SHARDS - 1)];
+        long minTime = expireBefore(System.currentTimeMillis());
+        long stamp = shard.lock.readLock();
+        try {
+            int e = shard.find(openId, h);
+            if (e < 0 || shard.times[e] < minTime) {
+                return null;
+            }
+            return new Position(openId, shard.lats[e], shard.lons[e], shard.times[e], 0);
+        } finally {
+            shard.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 删除用户位置，如取消关注时
+     *
+     * @param openId 用户OpenID
+     * @return 存在返回true
+     */
+    public boolean remove(String openId) {
+        int h = hash(openId);
+        Shard shard = shards[h & (SHARDS - 1)];
+        long stamp = shard.lock.writeLock();
+        try {
+            int e = shard.find(openId, h);
+            if (e < 0) {
+                return false;
+            }
+            shard.remove(e);
+            return true;
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 查询附近的用户
+     *
+     * @param latitude 纬度
+     * @param longitude 经度
+     * @param radius 半径，单位：公里
+     * @param limit 最多返回个数
+     * @return 按距离由近到远排列的位置
+     */
+    public List<Position> nearby(double latitude, double longitude, double radius, int limit) {
+        if (limit <= 0 || !(radius >= 0)) {
+            return Collections.emptyList();
+        }
+        long minTime = expireBefore(System.currentTimeMillis());
+        //覆盖查询范围的网格，半径按与distance相同的地球半径换算为角度
+        double angle = radius / EARTH_RADIUS;
+        double latSpan = Math.toDegrees(angle);
+        int latFrom = latCell(Math.max(-90, latitude - latSpan));
+        int latTo = latCell(Math.min(90, latitude + latSpan));
+        //范围包含极点时覆盖所有经度，否则取圆在经度方向的最大跨度
+        double lonSpan = 360;
+        if (latitude + latSpan < 90 && latitude - latSpan > -90) {
+            lonSpan = Math.toDegrees(Math.asin(Math.min(1, Math.sin(angle) / Math.cos(Math.toRadians(latitude)))));
+        }
+        int lonFrom;
+        int lonTo;
+        if (lonSpan >= 180 || longitude - lonSpan < -180 || longitude + lonSpan > 180) {
+            //跨越180度经线或范围过大时遍历所有经度
+            lonFrom = lonCell(-180);
+            lonTo = lonCell(180);
+        } else {
+            lonFrom = lonCell(longitude - lonSpan);
+            lonTo = lonCell(longitude + lonSpan);
+        }
+        long cellCount = (long) (latTo - latFrom + 1) * (lonTo - lonFrom + 1);
+        List<Position> result = new ArrayList<Position>();
+        for (Shard shard : shards) {
+            long stamp = shard.lock.readLock();
+            try {
+                if (cellCount > MAX_SCAN_CELLS || cellCount > shard.size) {
+                    for (int e = 0; e < shard.size; e++) {
+                        collect(shard, e, latitude, longitude, radius, minTime, result);
+                    }
+                } else {
+                    for (int y = latFrom; y <= latTo; y++) {
+                        for (int x = lonFrom; x <= lonTo; x++) {
+                            for (int e = shard.head(cellKey(y, x)); e >= 0; e = shard.next[e]) {
+                                collect(shard, e, latitude, longitude, radius, minTime, result);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+        Collections.sort(result, (a, b) -> Double.compare(a.distance, b.distance));
+        return result.size() > limit ? new ArrayList<Position>(result.subList(0, limit)) : result;
+    }
+
+    private static void collect(Shard shard, int e, double latitude, double longitude, double radius, long minTime, List<Position> result) {
+        if (shard.times[e] < minTime) {
+            return;
+        }
+        double distance = distance(latitude, longitude, shard.lats[e], shard.lons[e]);
+        if (distance <= radius) {
+            result.add(new Position(shard.keys[e], shard.lats[e], shard.lons[e], shard.times[e], distance));
+        }
+    }
+
+    /**
+     * 清除所有过期位置
+     *
+     * @return 清除个数
+     */
+    public int purge() {
+        long minTime = expireBefore(System.currentTimeMillis());
+        int removed = 0;
+        for (Shard shard : shards) {
+            long stamp = shard.lock.writeLock();
+            try {
+                for (int e = shard.size - 1; e >= 0; e--) {
+                    if (shard.times[e] < minTime) {
+                        shard.remove(e);
+                        removed++;
+                    }
+                }
+            } finally {
+                shard.lock.unlockWrite(stamp);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 获取保存的位置个数，包括尚未清除的过期位置
+     *
+     * @return 位置个数
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            long stamp = shard.lock.readLock();
+            try {
+                size += shard.size;
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 计算两点间的球面距离
+     *
+     * @param lat1 纬度1
+     * @param lon1 经度1
+     * @param lat2 纬度2
+     * @param lon2 经度2
+     * @return 距离，单位：公里
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private long expireBefore(long now) {
+        return ttl > 0 ? now - ttl : Long.MIN_VALUE;
+    }
+
+    private int latCell(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private int lonCell(double longitude) {
+        return (int) Math.floor((longitude + 180) / cellDegrees);
+    }
+
+    private long cell(double latitude, double longitude) {
+        return cellKey(latCell(latitude), lonCell(longitude));
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    private static int hash(String openId) {
+        int h = openId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    //段内哈希表位置，跳过选段已用的低位，否则同一段内的OpenID低位相同，只能落在1/SHARDS的位置上
+    private static int slot(int h, int mask) {
+        return (h >>> SHARD_BITS) & mask;
+    }
+
+    private static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * 用户位置
+     */
+    public static class Position {
+
+        private final String openId;
+        private final double latitude;
+        private final double longitude;
+        private final long time;
+        private final double distance;
+
+        Position(String openId, double latitude, double longitude, long time, double distance) {
+            this.openId = openId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.time = time;
+            this.distance = distance;
+        }
+
+        public String getOpenId() {
+            return openId;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * 获取上报时间
+         *
+         * @return 上报时间，单位：毫秒
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * 获取与查询点的距离，仅nearby返回的位置有效
+         *
+         * @return 距离，单位：公里
+         */
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+    //一段位置数据，调用方持有锁
+    private static class Shard {
+
+        private final StampedLock lock = new StampedLock();
+        //位置数据，下标0..size-1连续存放
+        private String[] keys = new String[16];
+        private double[] lats = new double[16];
+        private double[] lons = new double[16];
+        private long[] times = new long[16];
+        private long[] cells = new long[16];
+        //同一网格内的双向链表，-1表示无
+        private int[] next = new int[16];
+        private int[] prev = new int[16];
+        private int size;
+        //OpenID -> 下标+1，0表示空位，线性探测
+        private int[] table = new int[32];
+        //网格 -> 链表头下标+1，0表示网格内没有用户
+        private long[] cellKeys = new long[32];
+        private int[] cellHeads = new int[32];
+        private boolean[] cellUsed = new boolean[32];
+        private int cellCount;
+        //逐步清除过期位置的游标
+        private int sweep;
+
+        int find(String key, int h) {
+            int mask = table.length - 1;
+            for (int i = slot(h, mask); table[i] != 0; i = (i + 1) & mask) {
+                int e = table[i] - 1;
+                if (keys[e].equals(key)) {
+                    return e;
+                }
+            }
+            return -1;
+        }
+
+        //查找下标所在的哈希表位置
+        private int slotOf(int e) {
+            int mask = table.length - 1;
+            int i = slot(hash(keys[e]), mask);
+            while (table[i] != e + 1) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        void put(String key, int h, double lat, double lon, long time, long cell, long minTime) {
+            int e = find(key, h);
+            if (e < 0) {
+                if (size == keys.length) {
+                    grow();
+                }
+                if ((size + 1) * 2 > table.length) {
+                    rehash(table.length * 2);
+                }
+                e = size++;
+                keys[e] = key;
+                int mask = table.length - 1;
+                int i = slot(h, mask);
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = e + 1;
+                cells[e] = cell;
+                link(e);
+            } else if (cells[e] != cell) {
+                unlink(e);
+                cells[e] = cell;
+                link(e);
+            }
+            lats[e] = lat;
+            lons[e] = lon;
+            times[e] = time;
+            //每次写入检查两个位置，逐步清除过期数据
+            for (int k = 0; k < 2 && size > 0; k++) {
+                if (sweep >= size) {
+                    sweep = 0;
+                }
+                if (times[sweep] < minTime) {
+                    remove(sweep);
+                } else {
+                    sweep++;
+                }
+            }
+        }
+
+        void remove(int e) {
+            unlink(e);
+            //从哈希表删除，后续同簇元素前移
+            int mask = table.length - 1;
+            int i = slotOf(e);
+            table[i] = 0;
+            for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int ideal = slot(hash(keys[table[j] - 1]), mask);
+                //ideal不在(i, j]区间内时可前移到i
+                if ((j > i && (ideal <= i || ideal > j)) || (j < i && ideal <= i && ideal > j)) {
+                    table[i] = table[j];
+                    table[j] = 0;
+                    i = j;
+                }
+            }
+            //将最后一个位置移到空出的下标
+            int last = --size;
+            if (e != last) {
+                table[slotOf(last)] = e + 1;
+                keys[e] = keys[last];
+                lats[e] = lats[last];
+                lons[e] = lons[last];
+                times[e] = times[last];
+                cells[e] = cells[last];
+                next[e] = next[last];
+                prev[e] = prev[last];
+                if (prev[e] >= 0) {
+                    next[prev[e]] = e;
+                } else {
+                    cellHeads[cellSlot(cells[e], false)] = e + 1;
+                }
+                if (next[e] >= 0) {
+                    prev[next[e]] = e;
+                }
+            }
+            keys[last] = null;
+        }
+
+        int head(long cell) {
+            int slot = cellSlot(cell, false);
+            return slot < 0 ? -1 : cellHeads[slot] - 1;
+        }
+
+        private void link(int e) {
+            int slot = cellSlot(cells[e], true);
+            int head = cellHeads[slot] - 1;
+            next[e] = head;
+            prev[e] = -1;
+            if (head >= 0) {
+                prev[head] = e;
+            }
+            cellHeads[slot] = e + 1;
+        }
+
+        private void unlink(int e) {
+            if (prev[e] >= 0) {
+                next[prev[e]] = next[e];
+            } else {
+                cellHeads[cellSlot(cells[e], false)] = next[e] + 1;
+            }
+            if (next[e] >= 0) {
+                prev[next[e]] = prev[e];
+            }
+        }
+
+        private int cellSlot(long cell, boolean create) {
+            int mask = cellKeys.length - 1;
+            int i = mix(cell) & mask;
+            while (cellUsed[i]) {
+                if (cellKeys[i] == cell) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            if (!create) {
+                return -1;
+            }
+            if ((cellCount + 1) * 2 > cellKeys.length) {
+                rehashCells();
+                return cellSlot(cell, true);
+            }
+            cellUsed[i] = true;
+            cellKeys[i] = cell;
+            cellHeads[i] = 0;
+            cellCount++;
+            return i;
+        }
+
+        //重建网格表，丢弃已没有用户的网格
+        private void rehashCells() {
+            long[] oldKeys = cellKeys;
+            int[] oldHeads = cellHeads;
+            int live = 0;
+            for (int head : oldHeads) {
+                if (head != 0) {
+                    live++;
+                }
+            }
+            int capacity = 32;
+            while (capacity < live * 4) {
+                capacity <<= 1;
+            }
+            cellKeys = new long[capacity];
+            cellHeads = new int[capacity];
+            cellUsed = new boolean[capacity];
+            cellCount = 0;
+            int mask = capacity - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldHeads[k] != 0) {
+                    int i = mix(oldKeys[k]) & mask;
+                    while (cellUsed[i]) {
+                        i = (i + 1) & mask;
+                    }
+                    cellUsed[i] = true;
+                    cellKeys[i] = oldKeys[k];
+                    cellHeads[i] = oldHeads[k];
+                    cellCount++;
+                }
+            }
+        }
+
+        private void grow() {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lons = Arrays.copyOf(lons, capacity);
+            times = Arrays.copyOf(times, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+
+        private void rehash(int capacity) {
+            table = new int[capacity];
+            int mask = capacity - 1;
+            for (int e = 0; e < size; e++) {
+                int i = slot(hash(keys[e]), mask);
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = e + 1;
+            }
+        }
+    }
+}
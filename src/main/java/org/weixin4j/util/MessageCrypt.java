@@ -0,0 +1,309 @@
+package org.weixin4j.util;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.codec.binary.Base64;
+import org.weixin4j.WeixinException;
+
+/**
+ * 安全模式消息加解密
+ *
+ * <p>
+ * 按EncodingAESKey进行AES-256-CBC加解密，明文格式为：<br/>
+ * random(16B) + msg_len(4B) + msg + appid，PKCS#7补位（块大小32）。</p>
+ *
+ * <p>
+ * 每个公众号只解析一次密钥，Cipher在线程内复用，<br/>
+ * 通过<code>getInstance</code>获取同一公众号的共享实例。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class MessageCrypt {
+
+    private static final int BLOCK_SIZE = 32;
+    //random(16B) + msg_len(4B)
+    private static final int HEADER_SIZE = 20;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Map<String, MessageCrypt> instances = new ConcurrentHashMap<String, MessageCrypt>();
+    private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    static {
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final String token;
+    private final String appId;
+    private final byte[] appIdBytes;
+    private final SecretKeySpec keySpec;
+    private final IvParameterSpec ivSpec;
+    //线程内复用的解密与加密Cipher
+    private final ThreadLocal<Cipher> decryptCipher;
+    private final ThreadLocal<Cipher> encryptCipher;
+
+    /**
+     * 创建安全模式加解密对象
+     *
+     * @param token 公众号Token
+     * @param encodingAESKey 消息加解密密钥，43位
+     * @param appId 公众号AppId，为空时不校验消息中的AppId
+     */
+    public MessageCrypt(String token, String encodingAESKey, String appId) {
+        if (encodingAESKey == null || encodingAESKey.length() != 43) {
+            throw new IllegalArgumentException("EncodingAESKey非法");
+        }
+        byte[] aesKey = Base64.decodeBase64(encodingAESKey + "=");
+        this.token = token;
+        this.appId = appId == null ? "" : appId;
+        this.appIdBytes = this.appId.getBytes(StandardCharsets.UTF_8);
+        this.keySpec = new SecretKeySpec(aesKey, "AES");
+        this.ivSpec = new IvParameterSpec(aesKey, 0, 16);
+        this.decryptCipher = ThreadLocal.withInitial(() -> newCipher(Cipher.DECRYPT_MODE));
+        this.encryptCipher = ThreadLocal.withInitial(() -> newCipher(Cipher.ENCRYPT_MODE));
+    }
+
+    /**
+     * 获取公众号共享的加解密对象，同一参数只创建一次
+     *
+     * @param token 公众号Token
+     * @param encodingAESKey 消息加解密密钥
+     * @param appId 公众号AppId
+     * @return 加解密对象
+     */
+    public static MessageCrypt getInstance(String token, String encodingAESKey, String appId) {
+        String key = key(token, encodingAESKey, appId);
+        MessageCrypt crypt = instances.get(key);
+        if (crypt == null) {
+            crypt = instances.computeIfAbsent(key, k -> new MessageCrypt(token, encodingAESKey, appId));
+        }
+        return crypt;
+    }
+
+    /**
+     * 移除共享的加解密对象，公众号移除或替换时调用
+     *
+     * @param token 公众号Token
+     * @param encodingAESKey 消息加解密密钥
+     * @param appId 公众号AppId
+     */
+    public static void removeInstance(String token, String encodingAESKey, String appId) {
+        instances.remove(key(token, encodingAESKey, appId));
+    }
+
+    private static String key(String token, String encodingAESKey, String appId) {
+        return token + '#' + encodingAESKey + '#' + appId;
+    }
+
+    private Cipher newCipher(int mode) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+            cipher.init(mode, keySpec, ivSpec);
+            return cipher;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * 验证msg_signature并解密推送的xml
+     *
+     * @param postXml 推送的加密xml
+     * @param msgSignature 消息签名
+     * @param timestamp 时间戳
+     * @param nonce 随机数
+     * @return 明文xml
+     * @throws WeixinException 签名错误或解密失败
+     */
+    public String decryptMessage(String postXml, String msgSignature, String timestamp, String nonce) throws WeixinException {
+        String encrypt = getEncrypt(postXml);
+        if (encrypt == null) {
+            throw new WeixinException("加密消息缺少Encrypt节点");
+        }
+        if (!checkSignature(msgSignature, timestamp, nonce, encrypt)) {
+            throw new WeixinException("msg_signature验证失败");
+        }
+        return decrypt(encrypt);
+    }
+
+    /**
+     * 加密回复消息，生成被动回复的xml
+     *
+     * @param replyXml 明文回复xml
+     * @param timestamp 时间戳
+     * @param nonce 随机数
+     * @return 加密后的回复xml
+     * @throws WeixinException 加密失败
+     */
+    public String encryptMessage(String replyXml, String timestamp, String nonce) throws WeixinException {
+        String encrypt = encrypt(replyXml);
+        String signature = signature(token, timestamp, nonce, encrypt);
+        StringBuilder sb = new StringBuilder(encrypt.length() + 200);
+        sb.append("<xml>");
+        sb.append("<Encrypt><![CDATA[").append(encrypt).append("]]></Encrypt>");
+        sb.append("<MsgSignature><![CDATA[").append(signature).append("]]></MsgSignature>");
+        sb.append("<TimeStamp>").append(timestamp).append("</TimeStamp>");
+        sb.append("<Nonce><![CDATA[").append(nonce).append("]]></Nonce>");
+        sb.append("</xml>");
+        return sb.toString();
+    }
+
+    /**
+     * 解密Encrypt节点内容
+     *
+     * @param encrypt Base64编码的密文
+     * @return 明文xml
+     * @throws WeixinException 解密失败或AppId不一致
+     */
+    public String decrypt(String encrypt) throws WeixinException {
+        byte[] plain;
+        try {
+            plain = decryptCipher.get().doFinal(Base64.decodeBase64(encrypt));
+        } catch (GeneralSecurityException ex) {
+            throw new WeixinException("解密消息错误", ex);
+        }
+        if (plain.length < HEADER_SIZE) {
+            throw new WeixinException("解密消息长度错误");
+        }
+        //去除补位字符
+        int pad = plain[plain.length - 1] & 0xff;
+        if (pad < 1 || pad > BLOCK_SIZE) {
+            pad = 0;
+        }
+        int end = plain.length - pad;
+        if (end < HEADER_SIZE) {
+            throw new WeixinException("解密消息长度错误");
+        }
+        int msgLen = ((plain[16] & 0xff) << 24) | ((plain[17] & 0xff) << 16) | ((plain[18] & 0xff) << 8) | (plain[19] & 0xff);
+        if (msgLen < 0 || msgLen > end - HEADER_SIZE) {
+            throw new WeixinException("解密消息长度错误");
+        }
+        if (appIdBytes.length > 0) {
+            int from = HEADER_SIZE + msgLen;
+            if (end - from != appIdBytes.length || !Arrays.equals(appIdBytes, Arrays.copyOfRange(plain, from, end))) {
+                throw new WeixinException("消息AppId不一致");
+            }
+        }
+        return new String(plain, HEADER_SIZE, msgLen, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 加密明文
+     *
+     * @param text 明文xml
+     * @return Base64编码的密文
+     * @throws WeixinException 加密失败
+     */
+    public String encrypt(String text) throws WeixinException {
+        byte[] msg = text.getBytes(StandardCharsets.UTF_8);
+        int len = HEADER_SIZE + msg.length + appIdBytes.length;
+        int pad = BLOCK_SIZE - len % BLOCK_SIZE;
+        byte[] plain = new byte[len + pad];
+        //随机前缀使用SecureRandom生成
+        byte[] random = new byte[16];
+        RANDOM.nextBytes(random);
+        System.arraycopy(random, 0, plain, 0, random.length);
+        plain[16] = (byte) (msg.length >>> 24);
+        plain[17] = (byte) (msg.length >>> 16);
+        plain[18] = (byte) (msg.length >>> 8);
+        plain[19] = (byte) msg.length;
+        System.arraycopy(msg, 0, plain, HEADER_SIZE, msg.length);
+        System.arraycopy(appIdBytes, 0, plain, HEADER_SIZE + msg.length, appIdBytes.length);
+        Arrays.fill(plain, len, plain.length, (byte) pad);
+        try {
+            return Base64.encodeBase64String(encryptCipher.get().doFinal(plain));
+        } catch (GeneralSecurityException ex) {
+            throw new WeixinException("加密消息错误", ex);
+        }
+    }
+
+    /**
+     * 以固定时间验证msg_signature
+     *
+     * @param msgSignature 消息签名
+     * @param timestamp 时间戳
+     * @param nonce 随机数
+     * @param encrypt 密文
+     * @return 验证成功返回true,否则返回false
+     */
+    public boolean checkSignature(String msgSignature, String timestamp, String nonce, String encrypt) {
+        if (msgSignature == null || timestamp == null || nonce == null) {
+            return false;
+        }
+        byte[] digest = digest(token, timestamp, nonce, encrypt);
+        return SHA1.hexEquals(digest, digest.length, msgSignature);
+    }
+
+    /**
+     * 计算msg_signature，将token、timestamp、nonce、encrypt排序后拼接进行sha1加密
+     *
+     * @param token 公众号Token
+     * @param timestamp 时间戳
+     * @param nonce 随机数
+     * @param encrypt 密文
+     * @return 消息签名
+     */
+    public static String signature(String token, String timestamp, String nonce, String encrypt) {
+        byte[] digest = digest(token, timestamp, nonce, encrypt);
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] digest(String... values) {
+        String[] params = values.clone();
+        Arrays.sort(params);
+        MessageDigest messageDigest = SHA1.getDigest();
+        for (String param : params) {
+            messageDigest.update(param.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] digest = new byte[20];
+        try {
+            messageDigest.digest(digest, 0, digest.length);
+        } catch (DigestException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return digest;
+    }
+
+    /**
+     * 读取推送xml中的Encrypt节点
+     *
+     * @param postXml 推送的加密xml
+     * @return Encrypt节点内容，不存在返回null
+     * @throws WeixinException xml格式错误
+     */
+    public static String getEncrypt(String postXml) throws WeixinException {
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(postXml));
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Encrypt".equals(reader.getLocalName())) {
+                        return reader.getElementText();
+                    }
+                }
+                return null;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new WeixinException("加密消息格式错误", ex);
+        }
+    }
+}
@@ -19,7 +19,9 @@
  */
 package org.weixin4j.util;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * <p>Title: SHA1算法</p>
@@ -29,6 +31,14 @@ import java.security.MessageDigest;
 public final class SHA1 {
 
     private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    //线程内复用的MessageDigest
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
 
     /**
      * Takes the raw bytes from the digest and formats them correct.
@@ -51,12 +61,39 @@ public final class SHA1 {
         if (str == null) {
             return null;
         }
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA1");
-            messageDigest.update(str.getBytes());
-            return getFormattedText(messageDigest.digest());
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        MessageDigest messageDigest = getDigest();
+        messageDigest.update(str.getBytes(StandardCharsets.UTF_8));
+        return getFormattedText(messageDigest.digest());
+    }
+
+    /**
+     * 获取当前线程复用的MessageDigest，已重置
+     *
+     * @return SHA1 MessageDigest
+     */
+    public static MessageDigest getDigest() {
+        MessageDigest messageDigest = DIGEST.get();
+        messageDigest.reset();
+        return messageDigest;
+    }
+
+    /**
+     * 以固定时间比较摘要与十六进制字符串（小写），不因首个不同字符提前返回
+     *
+     * @param digest 摘要
+     * @param len 摘要长度
+     * @param hex 十六进制字符串
+     * @return 一致返回true,否则返回false
+     */
+    public static boolean hexEquals(byte[] digest, int len, String hex) {
+        if (hex == null || hex.length() != len * 2) {
+            return false;
+        }
+        int diff = 0;
+        for (int j = 0; j < len; j++) {
+            diff |= HEX_DIGITS[(digest[j] >> 4) & 0x0f] ^ hex.charAt(j * 2);
+            diff |= HEX_DIGITS[digest[j] & 0x0f] ^ hex.charAt(j * 2 + 1);
         }
+        return diff == 0;
     }
 }
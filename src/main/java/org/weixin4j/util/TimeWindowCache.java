@@ -0,0 +1,152 @@
+package org.weixin4j.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按时间窗口保留的有界缓存
+ *
+ * <p>
+ * 按key的哈希值分段加锁，每段为按登记时间排序的LinkedHashMap，<br/>
+ * 登记时从最早的记录开始移除超过时间窗口的记录，每段超过容量时移除最早的记录，内存占用有界。<br/>
+ * 用于排重微信重试的消息、拒绝重放的随机数等。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ * @param <V> 缓存值类型
+ */
+public class TimeWindowCache<V> {
+
+    private final Stripe<V>[] stripes;
+    private final int mask;
+    //时间窗口，单位：毫秒
+    private final long window;
+
+    /**
+     * 创建缓存
+     *
+     * @param window 时间窗口，单位：毫秒
+     * @param maxEntries 最多保留的记录数
+     * @param stripes 分段数，必须为2的幂
+     */
+    @SuppressWarnings("unchecked")
+    public TimeWindowCache(long window, int maxEntries, int stripes) {
+        if (stripes <= 0 || (stripes & (stripes - 1)) != 0) {
+            throw new IllegalArgumentException("stripes必须为2的幂");
+        }
+        this.window = window;
+        this.mask = stripes - 1;
+        this.stripes = new Stripe[stripes];
+        int capacity = Math.max(1, maxEntries / stripes);
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe<V>(capacity);
+        }
+    }
+
+    /**
+     * 登记记录，时间窗口内已登记过则返回已有的值
+     *
+     * @param key 键
+     * @param value 值
+     * @return 首次登记返回null，否则返回已有的值
+     */
+    public V putIfAbsent(String key, V value) {
+        Stripe<V> stripe = stripeFor(key);
+        long now = System.currentTimeMillis();
+        synchronized (stripe) {
+            stripe.expire(now - window);
+            Node<V> node = stripe.get(key);
+            if (node != null) {
+                return node.value;
+            }
+            stripe.put(key, new Node<V>(now, value));
+            return null;
+        }
+    }
+
+    /**
+     * 获取时间窗口内登记的值
+     *
+     * @param key 键
+     * @return 值，未登记或已过期返回null
+     */
+    public V get(String key) {
+        Stripe<V> stripe = stripeFor(key);
+        long deadline = System.currentTimeMillis() - window;
+        synchronized (stripe) {
+            Node<V> node = stripe.get(key);
+            return node == null || node.time < deadline ? null : node.value;
+        }
+    }
+
+    /**
+     * 移除记录
+     *
+     * @param key 键
+     * @return 移除的值，未登记返回null
+     */
+    public V remove(String key) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            Node<V> node = stripe.remove(key);
+            return node == null ? null : node.value;
+        }
+    }
+
+    /**
+     * 获取 当前保留的记录数，含尚未移除的过期记录
+     *
+     * @return 记录数
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<V> stripeFor(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    //登记时间与值
+    private static class Node<V> {
+
+        private final long time;
+        private final V value;
+
+        Node(long time, V value) {
+            this.time = time;
+            this.value = value;
+        }
+    }
+
+    //按登记时间排序的分段
+    private static class Stripe<V> extends LinkedHashMap<String, Node<V>> {
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        //从最早的记录开始移除过期记录
+        void expire(long deadline) {
+            Iterator<Node<V>> it = values().iterator();
+            while (it.hasNext() && it.next().time < deadline) {
+                it.remove();
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Node<V>> eldest) {
+            return size() > capacity;
+        }
+    }
+}
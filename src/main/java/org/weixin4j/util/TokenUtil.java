@@ -20,10 +20,9 @@
 package org.weixin4j.util;
 
 import org.weixin4j.Configuration;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
 
 /**
  * <p>
@@ -40,6 +39,8 @@ public class TokenUtil {
 
     //此加密密钥用于加密公众号Token，一经配置，不能修改，一旦修改，所有公众号需要重新填写Token
     private static String systemToken = null;
+    //线程内复用的编码及摘要缓冲区
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[128]);
 
     /**
      * 获取配置文件配置的Token
@@ -69,20 +70,151 @@ public class TokenUtil {
      * @return 验证成功返回true,否则返回false
      */
     public static boolean checkSignature(String token, String signature, String timestamp, String nonce) {
-        List<String> params = new ArrayList<String>();
-        params.add(token);
-        params.add(timestamp);
-        params.add(nonce);
+        if (token == null || signature == null || timestamp == null || nonce == null) {
+            return false;
+        }
         //1. 将token、timestamp、nonce三个参数进行字典序排序
-        Collections.sort(params, new Comparator<String>() {
-            @Override
-            public int compare(String o1, String o2) {
-                return o1.compareTo(o2);
-            }
-        });
+        String a = token, b = timestamp, c = nonce, t;
+        if (a.compareTo(b) > 0) {
+            t = a;
+            a = b;
+            b = t;
+        }
+        if (b.compareTo(c) > 0) {
+            t = b;
+            b = c;
+            c = t;
+        }
+        if (a.compareTo(b) > 0) {
+            t = a;
+            a = b;
+            b = t;
+        }
         //2. 将三个参数字符串拼接成一个字符串进行sha1加密
-        String temp = SHA1.encode(params.get(0) + params.get(1) + params.get(2));
+        byte[] buf = BUFFER.get();
+        MessageDigest messageDigest = SHA1.getDigest();
+        update(messageDigest, buf, a);
+        update(messageDigest, buf, b);
+        update(messageDigest, buf, c);
+        int len;
+        try {
+            len = messageDigest.digest(buf, 0, buf.length);
+        } catch (DigestException ex) {
+            throw new IllegalStateException(ex);
+        }
         //3. 开发者获得加密后的字符串可与signature对比，标识该请求来源于微信
-        return temp.equals(signature);
+        return SHA1.hexEquals(buf, len, signature);
+    }
+
+    /**
+     * 验证签名，并按配置拒绝过期的时间戳与重复的随机数
+     *
+     * <p>
+     * weixin4j.signature.timestampWindow：时间戳与当前时间相差超过此秒数则拒绝，0为不检查<br/>
+     * weixin4j.signature.nonceCheck：为true时拒绝时间窗口内重复的随机数，
+     * 注意微信重试的请求可能使用相同的随机数</p>
+     *
+     * @param token Token验证密钥
+     * @param signature 微信加密签名
+     * @param timestamp 时间戳
+     * @param nonce 随机数
+     * @return 验证成功返回true,否则返回false
+     */
+    public static boolean verify(String token, String signature, String timestamp, String nonce) {
+        return verify(null, token, signature, timestamp, nonce);
+    }
+
+    /**
+     * 验证公众号的签名，并按配置拒绝过期的时间戳与该公众号重复的随机数
+     *
+     * @param account 公众号标识，单公众号接入时为null
+     * @param token Token验证密钥
+     * @param signature 微信加密签名
+     * @param timestamp 时间戳
+     * @param nonce 随机数
+     * @return 验证成功返回true,否则返回false
+     */
+    public static boolean verify(String account, String token, String signature, String timestamp, String nonce) {
+        return checkSignature(token, signature, timestamp, nonce)
+                && checkTimestamp(timestamp)
+                && checkNonce(account, nonce);
+    }
+
+    /**
+     * 检查时间戳是否在weixin4j.signature.timestampWindow秒以内
+     *
+     * @param timestamp 时间戳，单位：秒
+     * @return 未配置时间窗口或在窗口内返回true,否则返回false
+     */
+    public static boolean checkTimestamp(String timestamp) {
+        int window = Configuration.getIntProperty("weixin4j.signature.timestampWindow", 0);
+        if (window <= 0) {
+            return true;
+        }
+        long time;
+        try {
+            time = Long.parseLong(timestamp);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        return Math.abs(System.currentTimeMillis() / 1000 - time) <= window;
+    }
+
+    /**
+     * 检查随机数是否在时间窗口内出现过
+     *
+     * @param nonce 随机数
+     * @return 未开启检查或首次出现返回true,否则返回false
+     */
+    public static boolean checkNonce(String nonce) {
+        return checkNonce(null, nonce);
+    }
+
+    /**
+     * 检查随机数是否在时间窗口内被同一公众号使用过，不同公众号的随机数互不影响
+     *
+     * @param account 公众号标识，单公众号接入时为null
+     * @param nonce 随机数
+     * @return 未开启检查或首次出现返回true,否则返回false
+     */
+    public static boolean checkNonce(String account, String nonce) {
+        if (!Configuration.getBoolean("weixin4j.signature.nonceCheck")) {
+            return true;
+        }
+        if (nonce == null) {
+            return false;
+        }
+        String key = account == null ? nonce : account + '#' + nonce;
+        return NonceHolder.CACHE.putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    //将ASCII字符串直接写入缓冲区后摘要，其他字符串按UTF-8编码
+    private static void update(MessageDigest messageDigest, byte[] buf, String str) {
+        int len = str.length();
+        if (len > buf.length) {
+            messageDigest.update(str.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            char ch = str.charAt(i);
+            if (ch >= 0x80) {
+                messageDigest.update(str.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buf[i] = (byte) ch;
+        }
+        messageDigest.update(buf, 0, len);
+    }
+
+    //首次使用时按配置创建随机数缓存
+    private static class NonceHolder {
+
+        private static final TimeWindowCache<Boolean> CACHE;
+
+        static {
+            int window = Configuration.getIntProperty("weixin4j.signature.timestampWindow", 0);
+            CACHE = new TimeWindowCache<Boolean>((window > 0 ? window : 300) * 1000L,
+                    Configuration.getIntProperty("weixin4j.signature.nonceMaxEntries", 100000), 32);
+        }
     }
 }
@@ -22,14 +22,28 @@ package org.weixin4j.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.weixin4j.Configuration;
 
 /**
  * 将微信POST的流转换为XStream，然后转换为InputMessage对象
  *
+ * <p>
+ * 读取时复用线程内的缓冲区，全部读取后一次性按UTF-8解码，<br/>
+ * 超过weixin4j.message.maxBodySize（单位：字节，默认1048576）的数据直接拒绝。</p>
+ *
  * @author weixin4j<weixin4j@ansitech.com>
  */
 public class XStreamFactory {
 
+    //默认POST数据最大长度，单位：字节
+    private static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+    //超过此长度的缓冲区不在线程内缓存
+    private static final int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+    //线程内复用的读取缓冲区
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+
     /**
      * 将输入流转读取成字符串
      *
@@ -40,15 +54,118 @@ public class XStreamFactory {
      */
     public static String inputStream2String(InputStream in)
             throws UnsupportedEncodingException, IOException {
+        return inputStream2String(in, -1);
+    }
+
+    /**
+     * 将输入流转读取成字符串
+     *
+     * @param in 输入流
+     * @param contentLength 数据长度，未知时为-1
+     * @return 字符串
+     * @throws IOException 读取错误或数据超过最大长度
+     */
+    public static String inputStream2String(InputStream in, int contentLength) throws IOException {
+        return inputStream2String(in, contentLength, Configuration.getIntProperty("weixin4j.message.maxBodySize", DEFAULT_MAX_BODY_SIZE));
+    }
+
+    /**
+     * 将输入流转读取成字符串
+     *
+     * @param in 输入流
+     * @param contentLength 数据长度，未知时为-1
+     * @param maxSize 最大长度，单位：字节
+     * @return 字符串
+     * @throws IOException 读取错误或数据超过最大长度
+     */
+    public static String inputStream2String(InputStream in, int contentLength, int maxSize) throws IOException {
         if (in == null) {
             return "";
         }
+        int[] count = new int[1];
+        byte[] buf = read(in, contentLength, maxSize, count);
+        //全部读取后一次性解码，避免多字节字符被截断
+        return new String(buf, 0, count[0], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 将输入流读取为字节，不解码
+     *
+     * @param in 输入流
+     * @param contentLength 数据长度，未知时为-1
+     * @return 读取的字节
+     * @throws IOException 读取错误或数据超过最大长度
+     */
+    public static byte[] inputStream2Bytes(InputStream in, int contentLength) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        int[] count = new int[1];
+        byte[] buf = read(in, contentLength, Configuration.getIntProperty("weixin4j.message.maxBodySize", DEFAULT_MAX_BODY_SIZE), count);
+        return Arrays.copyOf(buf, count[0]);
+    }
 
-        StringBuilder out = new StringBuilder();
-        byte[] b = new byte[4096];
-        for (int n; (n = in.read(b)) != -1;) {
-            out.append(new String(b, 0, n, "UTF-8"));
+    //读取到线程内的缓冲区，返回缓冲区，count[0]为读取的长度
+    private static byte[] read(InputStream in, int contentLength, int maxSize, int[] count) throws IOException {
+        if (contentLength > maxSize) {
+            throw new IOException("POST数据长度" + contentLength + "超过最大长度" + maxSize);
+        }
+        byte[] buf = BUFFER.get();
+        if (contentLength > buf.length) {
+            //按Content-Length预先分配
+            buf = new byte[contentLength];
+        }
+        int n = 0;
+        while (true) {
+            if (n == buf.length) {
+                //缓冲区已满，确认是否还有数据
+                int b = in.read();
+                if (b == -1) {
+                    break;
+                }
+                if (n >= maxSize) {
+                    throw new IOException("POST数据超过最大长度" + maxSize);
+                }
+                buf = Arrays.copyOf(buf, (int) Math.min((long) maxSize, buf.length * 2L));
+                buf[n++] = (byte) b;
+                continue;
+            }
+            int read = in.read(buf, n, buf.length - n);
+            if (read == -1) {
+                break;
+            }
+            n += read;
+            if (n > maxSize) {
+                throw new IOException("POST数据超过最大长度" + maxSize);
+            }
+        }
+        if (buf.length <= MAX_CACHED_BUFFER_SIZE) {
+            BUFFER.set(buf);
+        }
+        count[0] = n;
+        return buf;
+    }
+
+    /**
+     * 只扫描xml中第一个指定节点的文本，不解析整个xml
+     *
+     * @param xml xml字符串
+     * @param name 节点名称，如ToUserName
+     * @return 节点文本，不存在返回空串
+     */
+    public static String getNodeText(String xml, String name) {
+        String open = "<" + name + ">";
+        int start = xml.indexOf(open);
+        if (start < 0) {
+            return "";
+        }
+        start += open.length();
+        if (xml.startsWith("<![CDATA[", start)) {
+            start += "<![CDATA[".length();
+            int end = xml.indexOf("]]>", start);
+            return end < 0 ? "" : xml.substring(start, end);
         }
-        return out.toString();
+        int end = xml.indexOf('<', start);
+        return end < 0 ? "" : xml.substring(start, end).trim();
     }
 }
@@ -0,0 +1,148 @@
+package org.weixin4j.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 回复消息xml写入工具
+ *
+ * <p>
+ * 固定的标签预先编码为UTF-8字节片段，只对变化的字段逐字符编码，<br/>
+ * 直接写入输出流，不再拼接中间字符串。<br/>
+ * CDATA内容中的"]]&gt;"会被拆分为两段CDATA，保证xml合法。</p>
+ *
+ * @author qsyang
+ * @version 1.0
+ */
+public class XmlWriter {
+
+    private static final byte[] CDATA_SPLIT = bytes("]]><![CDATA[>");
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[1024];
+    private int count;
+
+    public XmlWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * 将固定片段编码为UTF-8字节
+     *
+     * @param fragment 固定片段
+     * @return UTF-8字节
+     */
+    public static byte[] bytes(String fragment) {
+        return fragment.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 写入预先编码的固定片段
+     *
+     * @param fragment UTF-8字节片段
+     * @return 当前对象
+     * @throws IOException
+     */
+    public XmlWriter raw(byte[] fragment) throws IOException {
+        if (fragment.length > buf.length - count) {
+            flushBuffer();
+            if (fragment.length > buf.length) {
+                out.write(fragment);
+                return this;
+            }
+        }
+        System.arraycopy(fragment, 0, buf, count, fragment.length);
+        count += fragment.length;
+        return this;
+    }
+
+    /**
+     * 写入CDATA节点，如：&lt;Content&gt;&lt;![CDATA[value]]&gt;&lt;/Content&gt;
+     *
+     * @param open 开始片段，如：&lt;Content&gt;&lt;![CDATA[
+     * @param value 节点内容，null写入"null"
+     * @param close 结束片段，如：]]&gt;&lt;/Content&gt;
+     * @return 当前对象
+     * @throws IOException
+     */
+    public XmlWriter cdata(byte[] open, String value, byte[] close) throws IOException {
+        raw(open);
+        String s = String.valueOf(value);
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '>' && i >= 2 && s.charAt(i - 1) == ']' && s.charAt(i - 2) == ']') {
+                //"]]"已写入，结束当前CDATA，在新的CDATA中写入">"
+                raw(CDATA_SPLIT);
+            } else if (c < 0x80) {
+                ensure(1);
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[count++] = (byte) (0xc0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[count++] = (byte) (0xf0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                //不成对的代理字符，与String.getBytes一致替换为'?'
+                ensure(1);
+                buf[count++] = '?';
+            } else {
+                ensure(3);
+                buf[count++] = (byte) (0xe0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return raw(close);
+    }
+
+    /**
+     * 写入数值节点，如：&lt;CreateTime&gt;123&lt;/CreateTime&gt;
+     *
+     * @param open 开始片段，如：&lt;CreateTime&gt;
+     * @param value 数值，null写入"null"
+     * @param close 结束片段，如：&lt;/CreateTime&gt;
+     * @return 当前对象
+     * @throws IOException
+     */
+    public XmlWriter number(byte[] open, Number value, byte[] close) throws IOException {
+        raw(open);
+        String s = String.valueOf(value);
+        int len = s.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+        return raw(close);
+    }
+
+    /**
+     * 将缓冲区内容写入输出流，并刷新输出流
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buf.length - count < n) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+}
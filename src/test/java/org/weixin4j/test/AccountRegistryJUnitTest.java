@@ -0,0 +1,244 @@
+package org.weixin4j.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.Configuration;
+import org.weixin4j.WeixinException;
+import org.weixin4j.WeixinUrlFilter;
+import org.weixin4j.spi.AccountRegistry;
+import org.weixin4j.spi.IMessageHandler;
+import org.weixin4j.spi.WeixinAccount;
+import org.weixin4j.util.MessageCrypt;
+import org.weixin4j.util.SHA1;
+import org.weixin4j.util.XStreamFactory;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class AccountRegistryJUnitTest {
+
+    private static final String AES_KEY_1 = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFG";
+    private static final String AES_KEY_2 = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefg";
+
+    public AccountRegistryJUnitTest() {
+    }
+
+    @After
+    public void tearDown() {
+        for (WeixinAccount account : AccountRegistry.getAccounts().toArray(new WeixinAccount[0])) {
+            AccountRegistry.unregister(account.getId());
+        }
+    }
+
+    private static WeixinAccount account(String id, String token, String originalId, String encodingAESKey) {
+        WeixinAccount account = new WeixinAccount(id, token);
+        account.setOriginalId(originalId);
+        account.setAppId("wx_" + id);
+        account.setEncodingAESKey(encodingAESKey);
+        account.setMessageHandler(new ReplyHandler());
+        return account;
+    }
+
+    @Test
+    public void register() {
+        assertTrue(AccountRegistry.isEmpty());
+        assertNull(AccountRegistry.resolvePath("/api/shop"));
+        WeixinAccount shop = account("shop", "token1", "gh_shop", null);
+        AccountRegistry.register(shop);
+        AccountRegistry.register(account("news", "token2", null, null));
+        assertFalse(AccountRegistry.isEmpty());
+        assertTrue(AccountRegistry.hasOriginalIds());
+        assertEquals(2, AccountRegistry.getAccounts().size());
+        assertSame(shop, AccountRegistry.get("shop"));
+        assertSame(shop, AccountRegistry.getByOriginalId("gh_shop"));
+        //按路径最后一段查找
+        assertSame(shop, AccountRegistry.resolvePath("/api/shop"));
+        assertSame(shop, AccountRegistry.resolvePath("/api/shop/"));
+        assertSame(shop, AccountRegistry.resolvePath("shop"));
+        assertEquals("news", AccountRegistry.resolvePath("/weixin/api/news").getId());
+        assertNull(AccountRegistry.resolvePath("/api/shop/other"));
+        assertNull(AccountRegistry.resolvePath("/api/"));
+        assertNull(AccountRegistry.resolvePath("/"));
+        //按ToUserName查找
+        assertSame(shop, AccountRegistry.resolveToUserName("<xml><ToUserName><![CDATA[gh_shop]]></ToUserName></xml>"));
+        assertNull(AccountRegistry.resolveToUserName("<xml><ToUserName><![CDATA[gh_news]]></ToUserName></xml>"));
+        assertNull(AccountRegistry.resolveToUserName("<xml></xml>"));
+    }
+
+    @Test
+    public void replace() {
+        WeixinAccount old = account("shop", "token1", "gh_shop", AES_KEY_1);
+        AccountRegistry.register(old);
+        MessageCrypt oldCrypt = old.getMessageCrypt();
+        assertSame(oldCrypt, MessageCrypt.getInstance("token1", AES_KEY_1, "wx_shop"));
+        //替换后原始ID指向新的公众号，旧的原始ID不再有效
+        WeixinAccount replaced = account("shop", "token2", "gh_shop2", AES_KEY_1);
+        AccountRegistry.register(replaced);
+        assertSame(replaced, AccountRegistry.get("shop"));
+        assertSame(replaced, AccountRegistry.getByOriginalId("gh_shop2"));
+        assertNull(AccountRegistry.getByOriginalId("gh_shop"));
+        assertEquals(1, AccountRegistry.getAccounts().size());
+        //被替换公众号的加解密对象不再共享
+        assertNotSame(oldCrypt, MessageCrypt.getInstance("token1", AES_KEY_1, "wx_shop"));
+        assertNotSame(oldCrypt, replaced.getMessageCrypt());
+    }
+
+    @Test
+    public void unregister() {
+        WeixinAccount shop = account("shop", "token1", "gh_shop", AES_KEY_1);
+        AccountRegistry.register(shop);
+        MessageCrypt crypt = shop.getMessageCrypt();
+        assertSame(shop, AccountRegistry.unregister("shop"));
+        assertNull(AccountRegistry.unregister("shop"));
+        assertNull(AccountRegistry.get("shop"));
+        assertNull(AccountRegistry.getByOriginalId("gh_shop"));
+        assertFalse(AccountRegistry.hasOriginalIds());
+        assertTrue(AccountRegistry.isEmpty());
+        assertNotSame(crypt, MessageCrypt.getInstance("token1", AES_KEY_1, "wx_shop"));
+    }
+
+    @Test
+    public void routing() throws Exception {
+        Configuration.setProperty("weixin4j.warmup.enabled", "false");
+        AccountRegistry.register(account("shop", "token1", "gh_shop", AES_KEY_1));
+        AccountRegistry.register(account("news", "token2", "gh_news", AES_KEY_2));
+        WeixinUrlFilter filter = new WeixinUrlFilter();
+        filter.init(null);
+        String xml = "<xml><ToUserName><![CDATA[gh_news]]></ToUserName><Content><![CDATA[你好]]></Content></xml>";
+        //按路径确定公众号，使用该公众号的Token与处理器
+        assertEquals("<xml>shop:你好</xml>", post(filter, "/api/shop", "token1", xml, null));
+        assertEquals("<xml>news:你好</xml>", post(filter, "/api/news", "token2", xml, null));
+        //使用其他公众号的Token签名
+        assertEquals("", post(filter, "/api/shop", "token2", xml, null));
+        //路径未找到时按ToUserName确定公众号
+        assertEquals("<xml>news:你好</xml>", post(filter, "/api", "token2", xml, null));
+        assertEquals("", post(filter, "/api", "token1", xml, null));
+        //安全模式使用该公众号的EncodingAESKey解密并加密回复
+        MessageCrypt crypt = new MessageCrypt("token2", AES_KEY_2, "wx_news");
+        String encrypted = post(filter, "/api/news", "token2", xml, crypt);
+        assertEquals("<xml>news:你好</xml>", crypt.decrypt(MessageCrypt.getEncrypt(encrypted)));
+        assertEquals("", post(filter, "/api/shop", "token1", xml, crypt));
+    }
+
+    //发送推送，返回回复内容
+    private static String post(WeixinUrlFilter filter, String uri, String token, String xml, MessageCrypt crypt) throws Exception {
+        final Map<String, String> params = new HashMap<String, String>();
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String nonce = String.valueOf(System.nanoTime());
+        params.put("timestamp", timestamp);
+        params.put("nonce", nonce);
+        params.put("signature", signature(token, timestamp, nonce));
+        if (crypt != null) {
+            String encrypt = crypt.encrypt(xml);
+            params.put("encrypt_type", "aes");
+            params.put("msg_signature", MessageCrypt.signature(token, timestamp, nonce, encrypt));
+            xml = "<xml><ToUserName><![CDATA[" + XStreamFactory.getNodeText(xml, "ToUserName") + "]]></ToUserName>"
+                    + "<Encrypt><![CDATA[" + encrypt + "]]></Encrypt></xml>";
+        }
+        final byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+        final Map<String, Object> request = new HashMap<String, Object>();
+        request.put("getMethod", "POST");
+        request.put("getRequestURI", uri);
+        request.put("getServletPath", uri);
+        request.put("getContentLength", body.length);
+        request.put("isAsyncSupported", false);
+        request.put("getInputStream", new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        });
+        final StringWriter writer = new StringWriter();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Map<String, Object> response = new HashMap<String, Object>();
+        response.put("getWriter", new PrintWriter(writer, true));
+        response.put("getOutputStream", new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(AccountRegistryJUnitTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    if ("getParameter".equals(method.getName())) {
+                        return params.get((String) args[0]);
+                    }
+                    return request.get(method.getName());
+                });
+        HttpServletResponse res = (HttpServletResponse) Proxy.newProxyInstance(AccountRegistryJUnitTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> response.get(method.getName()));
+        filter.doFilter(req, res, null);
+        return writer.toString() + new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String signature(String token, String timestamp, String nonce) {
+        String[] values = {token, timestamp, nonce};
+        Arrays.sort(values);
+        return SHA1.encode(values[0] + values[1] + values[2]);
+    }
+
+    //回复消息所属公众号与内容
+    public static class ReplyHandler implements IMessageHandler {
+
+        @Override
+        public String invoke(ServletInputStream inputStream) throws WeixinException {
+            try {
+                return invoke(XStreamFactory.inputStream2String(inputStream));
+            } catch (IOException ex) {
+                throw new WeixinException("读取输入流错误", ex);
+            }
+        }
+
+        @Override
+        public String invoke(String inputXml) throws WeixinException {
+            return "<xml>" + WeixinAccount.current().getId() + ":" + XStreamFactory.getNodeText(inputXml, "Content") + "</xml>";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.weixin4j.test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.spi.AdmissionController;
+import org.weixin4j.spi.AdmissionController.Priority;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class AdmissionControllerJUnitTest {
+
+    public AdmissionControllerJUnitTest() {
+    }
+
+    private static AdmissionController create(boolean adaptive) {
+        return new AdmissionController(adaptive, 10, 2, 20, 100, 0.9, 0.5, "subscribe,SCAN", "LOCATION");
+    }
+
+    @Test
+    public void classify() {
+        AdmissionController admission = create(false);
+        assertEquals(Priority.HIGH, admission.classify("<xml><MsgType><![CDATA[event]]></MsgType><Event><![CDATA[subscribe]]></Event></xml>"));
+        assertEquals(Priority.HIGH, admission.classify("<xml><MsgType><![CDATA[event]]></MsgType><Event><![CDATA[SCAN]]></Event></xml>"));
+        assertEquals(Priority.LOW, admission.classify("<xml><MsgType><![CDATA[event]]></MsgType><Event><![CDATA[LOCATION]]></Event></xml>"));
+        assertEquals(Priority.NORMAL, admission.classify("<xml><MsgType><![CDATA[event]]></MsgType><Event><![CDATA[CLICK]]></Event></xml>"));
+        assertEquals(Priority.NORMAL, admission.classify("<xml><MsgType><![CDATA[text]]></MsgType></xml>"));
+        assertEquals(Priority.NORMAL, admission.classify("<xml><Encrypt><![CDATA[...]]></Encrypt></xml>"));
+    }
+
+    @Test
+    public void priority() {
+        AdmissionController admission = create(false);
+        //LOW最多使用5个，NORMAL最多9个，HIGH最多10个
+        for (int i = 0; i < 5; i++) {
+            assertTrue(admission.tryAcquire(Priority.LOW));
+        }
+        assertFalse(admission.tryAcquire(Priority.LOW));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(admission.tryAcquire(Priority.NORMAL));
+        }
+        assertFalse(admission.tryAcquire(Priority.NORMAL));
+        assertTrue(admission.tryAcquire(Priority.HIGH));
+        assertFalse(admission.tryAcquire(Priority.HIGH));
+        assertEquals(10, admission.getInflight());
+        assertEquals(1, admission.getShed(Priority.LOW));
+        assertEquals(1, admission.getShed(Priority.NORMAL));
+        assertEquals(1, admission.getShed(Priority.HIGH));
+        admission.release(0, false);
+        assertTrue(admission.tryAcquire(Priority.HIGH));
+    }
+
+    @Test
+    public void adaptive() {
+        AdmissionController admission = create(true);
+        //处理耗时超过期望耗时，限制减小
+        assertTrue(admission.tryAcquire(Priority.NORMAL));
+        admission.release(200000000L, false);
+        assertEquals(9, admission.getLimit());
+        assertEquals(1, admission.getOverloaded());
+        //满负荷且耗时正常时逐渐增加
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < admission.getLimit(); i++) {
+                admission.tryAcquire(Priority.HIGH);
+            }
+            while (admission.getInflight() > 0) {
+                admission.release(1000000L, false);
+            }
+        }
+        assertEquals(20, admission.getLimit());
+    }
+
+    @Test
+    public void cancel() {
+        AdmissionController admission = create(true);
+        assertTrue(admission.tryAcquire(Priority.HIGH));
+        assertEquals(1, admission.getInflight());
+        //取消不计入准入数，也不调整限制
+        admission.cancel();
+        assertEquals(0, admission.getInflight());
+        assertEquals(0, admission.getAdmitted());
+        assertEquals(10, admission.getLimit());
+        assertEquals(0, admission.getOverloaded());
+    }
+}
@@ -0,0 +1,92 @@
+package org.weixin4j.test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.AsyncWeixin;
+import org.weixin4j.User;
+import org.weixin4j.Weixin;
+import org.weixin4j.WeixinException;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class AsyncWeixinJUnitTest {
+
+    public AsyncWeixinJUnitTest() {
+    }
+
+    @Test
+    public void originalException() throws Exception {
+        AsyncWeixin async = new AsyncWeixin(new Weixin(), Runnable::run);
+        WeixinException expected = new WeixinException("invalid credential");
+        CompletableFuture<Object> future = async.submit(() -> {
+            throw expected;
+        });
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException ex) {
+            //不包装原来的异常
+            assertSame(expected, ex.getCause());
+        }
+        //未登录时与同步调用的异常相同
+        CompletableFuture<User> user = async.getUserInfo("openid");
+        assertTrue(user.isCompletedExceptionally());
+        try {
+            user.get();
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof WeixinException);
+            try {
+                new Weixin().getUserInfo("openid");
+                fail();
+            } catch (WeixinException sync) {
+                assertEquals(sync.getMessage(), ex.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void queueFull() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1));
+        try {
+            AsyncWeixin async = new AsyncWeixin(new Weixin(), executor);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<String> running = async.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "running";
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<String> queued = async.submit(() -> "queued");
+            //队列已满时不阻塞，直接以WeixinException结束
+            CompletableFuture<String> rejected = async.submit(() -> "rejected");
+            assertTrue(rejected.isCompletedExceptionally());
+            try {
+                rejected.get();
+                fail();
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof WeixinException);
+                assertTrue(ex.getCause().getCause() instanceof RejectedExecutionException);
+            }
+            release.countDown();
+            assertEquals("running", running.get(5, TimeUnit.SECONDS));
+            assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.weixin4j.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import javax.net.ssl.SSLSocketFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.http.CertificateCache;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class CertificateCacheJUnitTest {
+
+    private static final String PARTNER_ID = "1900000109";
+
+    private File cert;
+
+    public CertificateCacheJUnitTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        cert = File.createTempFile("apiclient_cert", ".p12");
+        writeCert(cert.lastModified());
+    }
+
+    @After
+    public void tearDown() {
+        cert.delete();
+    }
+
+    //写入新的PKCS12文件，每次生成的内容都不同，密码为商户号
+    private void writeCert(long modified) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        keyStore.store(out, PARTNER_ID.toCharArray());
+        Files.write(cert.toPath(), out.toByteArray());
+        assertTrue(cert.setLastModified(modified));
+    }
+
+    private SSLSocketFactory get(CertificateCache cache) throws Exception {
+        return cache.getSocketFactory(PARTNER_ID, cert.getPath(), PARTNER_ID);
+    }
+
+    @Test
+    public void hit() throws Exception {
+        CertificateCache cache = new CertificateCache(60000);
+        SSLSocketFactory factory = get(cache);
+        assertNotNull(factory);
+        //检查间隔内不读取证书文件
+        writeCert(cert.lastModified() + 10000);
+        assertSame(factory, get(cache));
+        assertEquals(1, cache.size());
+        //移除后重新加载
+        cache.invalidate(PARTNER_ID, cert.getPath());
+        assertEquals(0, cache.size());
+        assertNotSame(factory, get(cache));
+    }
+
+    @Test
+    public void reloadChangedContent() throws Exception {
+        CertificateCache cache = new CertificateCache(0);
+        SSLSocketFactory factory = get(cache);
+        assertSame(factory, get(cache));
+        writeCert(cert.lastModified() + 10000);
+        SSLSocketFactory reloaded = get(cache);
+        assertNotSame(factory, reloaded);
+        assertSame(reloaded, get(cache));
+    }
+
+    @Test
+    public void mtimeOnly() throws Exception {
+        CertificateCache cache = new CertificateCache(0);
+        SSLSocketFactory factory = get(cache);
+        //只修改时间，内容不变时继续使用原证书
+        assertTrue(cert.setLastModified(cert.lastModified() + 10000));
+        assertSame(factory, get(cache));
+        assertTrue(cert.setLastModified(cert.lastModified() + 10000));
+        assertSame(factory, get(cache));
+    }
+
+    @Test
+    public void failedReload() throws Exception {
+        CertificateCache cache = new CertificateCache(0);
+        SSLSocketFactory factory = get(cache);
+        //新证书无法加载时继续使用原证书
+        Files.write(cert.toPath(), new byte[]{1, 2, 3});
+        assertTrue(cert.setLastModified(cert.lastModified() + 10000));
+        assertSame(factory, get(cache));
+        cert.delete();
+        assertSame(factory, get(cache));
+        //没有原证书时抛出异常
+        try {
+            get(new CertificateCache(0));
+            fail();
+        } catch (IOException ex) {
+            //证书文件不存在
+        }
+    }
+
+    @Test
+    public void wrongPassword() throws Exception {
+        CertificateCache cache = new CertificateCache(60000);
+        try {
+            cache.getSocketFactory("1900000110", cert.getPath(), "1900000110");
+            fail();
+        } catch (IOException ex) {
+            //密码错误
+        }
+        assertEquals(0, cache.size());
+        assertNotNull(get(cache));
+    }
+}
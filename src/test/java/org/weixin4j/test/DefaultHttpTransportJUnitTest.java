@@ -0,0 +1,150 @@
+package org.weixin4j.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.WeixinException;
+import org.weixin4j.http.Attachment;
+import org.weixin4j.http.DefaultHttpTransport;
+import org.weixin4j.http.HttpRequest;
+import org.weixin4j.http.HttpsClient;
+import org.weixin4j.http.Response;
+import org.weixin4j.http.RetryPolicy;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class DefaultHttpTransportJUnitTest {
+
+    private HttpServer server;
+    private String base;
+    private DefaultHttpTransport transport;
+
+    public DefaultHttpTransportJUnitTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> reply(exchange, "application/json", null, "ok"));
+        server.createContext("/file", exchange -> reply(exchange, "image/jpeg", "attachment; filename=\"photo.jpg\"", "jpeg"));
+        server.createContext("/nofile", exchange -> reply(exchange, "image/jpeg", null, "jpeg"));
+        server.createContext("/error", exchange -> reply(exchange, "text/plain", null, "{\"errcode\":40007}"));
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+        //每个主机只有一个连接许可
+        transport = new DefaultHttpTransport(null, 1, 5000, 5000);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private static void reply(HttpExchange exchange, String contentType, String disposition, String body) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            while (in.read() != -1) {
+                //读取请求
+            }
+        }
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (disposition != null) {
+            exchange.getResponseHeaders().set("Content-disposition", disposition);
+        }
+        exchange.sendResponseHeaders(200, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+
+    //正在使用的连接数
+    private int inUse() {
+        int count = 0;
+        for (Object value : transport.snapshot().values()) {
+            count += (Integer) value;
+        }
+        return count;
+    }
+
+    private void leak() throws IOException {
+        transport.execute(new HttpRequest("GET", base + "/ok"));
+    }
+
+    @Test
+    public void closeReleases() throws Exception {
+        Response res = transport.execute(new HttpRequest("GET", base + "/ok"));
+        assertEquals(1, inUse());
+        res.close();
+        assertEquals(0, inUse());
+        assertEquals("ok", transport.execute(new HttpRequest("GET", base + "/ok")).asString().trim());
+        assertEquals(0, inUse());
+    }
+
+    @Test
+    public void leakedResponseReclaimed() throws Exception {
+        //未关闭就丢弃的响应占用唯一的许可
+        leak();
+        assertEquals(1, inUse());
+        Thread gc = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                System.gc();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        });
+        gc.setDaemon(true);
+        gc.start();
+        try {
+            //被回收后由等待许可的请求收回
+            Response res = transport.execute(new HttpRequest("GET", base + "/ok"));
+            assertEquals("ok", res.asString().trim());
+        } finally {
+            gc.interrupt();
+        }
+        assertEquals(0, inUse());
+    }
+
+    @Test
+    public void download() throws Exception {
+        HttpsClient client = new HttpsClient(transport, new RetryPolicy(0, 1, 1, 0, 0));
+        Attachment attachment = client.downloadHttps(base + "/file");
+        assertEquals("photo.jpg", attachment.getFullName());
+        assertEquals("photo", attachment.getFileName());
+        assertEquals("jpg", attachment.getSuffix());
+        assertEquals(1, inUse());
+        attachment.getFileStream().close();
+        assertEquals(0, inUse());
+        //错误信息读取后归还连接
+        attachment = client.downloadHttps(base + "/error");
+        assertEquals("{\"errcode\":40007}", attachment.getError());
+        assertEquals(0, inUse());
+    }
+
+    @Test
+    public void downloadWithoutDisposition() throws Exception {
+        HttpsClient client = new HttpsClient(transport, new RetryPolicy(0, 1, 1, 0, 0));
+        try {
+            client.downloadHttps(base + "/nofile");
+            fail();
+        } catch (WeixinException ex) {
+            //响应中没有附件
+        }
+        assertEquals(0, inUse());
+        Map<String, Object> snapshot = transport.snapshot();
+        assertEquals(1, snapshot.size());
+    }
+}
@@ -0,0 +1,288 @@
+package org.weixin4j.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.WeixinUrlFilter;
+import org.weixin4j.message.event.ClickEventMessage;
+import org.weixin4j.message.event.EventMessage;
+import org.weixin4j.spi.AccountRegistry;
+import org.weixin4j.spi.EventBatchConsumer;
+import org.weixin4j.spi.EventSink;
+import org.weixin4j.spi.SinkEventMessageHandler;
+import org.weixin4j.spi.WeixinAccount;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class EventSinkJUnitTest {
+
+    private EventSink sink;
+
+    public EventSinkJUnitTest() {
+    }
+
+    @After
+    public void tearDown() {
+        if (sink != null) {
+            sink.shutdown(1000);
+        }
+    }
+
+    private static EventMessage event(String key) {
+        ClickEventMessage msg = new ClickEventMessage();
+        msg.setEventKey(key);
+        return msg;
+    }
+
+    //等待条件成立，超时返回false
+    private static boolean await(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.test()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private interface Condition {
+
+        boolean test();
+    }
+
+    @Test
+    public void sizeFlush() throws Exception {
+        Recorder recorder = new Recorder();
+        //写出间隔足够长，只有积累满一批时才会写出
+        sink = new EventSink(recorder, 100, 10, 60000, EventSink.Overflow.DROP_OLDEST, 0);
+        for (int i = 0; i < 9; i++) {
+            assertTrue(sink.offer(event("e" + i)));
+        }
+        Thread.sleep(100);
+        assertTrue(recorder.batches().isEmpty());
+        assertTrue(sink.offer(event("e9")));
+        assertTrue(await(() -> recorder.keys().size() == 10));
+        assertEquals(Collections.singletonList(10), recorder.batchSizes());
+        assertEquals(0, sink.getQueueSize());
+        assertEquals(10, sink.getAcceptedCount());
+        assertEquals(10, sink.getFlushedEvents());
+        assertEquals(1, sink.getFlushCount());
+    }
+
+    @Test
+    public void timeFlush() throws Exception {
+        Recorder recorder = new Recorder();
+        //不足一批时按写出间隔写出
+        sink = new EventSink(recorder, 100, 50, 50, EventSink.Overflow.DROP_OLDEST, 0);
+        sink.offer(event("a"));
+        sink.offer(event("b"));
+        sink.offer(event("c"));
+        assertTrue(await(() -> recorder.keys().size() == 3));
+        assertEquals(Arrays.asList("a", "b", "c"), recorder.keys());
+        assertEquals(3, sink.getFlushedEvents());
+    }
+
+    @Test
+    public void dropOldest() throws Exception {
+        Recorder recorder = new Recorder();
+        sink = fill(recorder, EventSink.Overflow.DROP_OLDEST, 0);
+        //队列已满，丢弃最早的e1
+        assertTrue(sink.offer(event("e4")));
+        assertEquals(3, sink.getQueueSize());
+        assertEquals(1, sink.getDroppedCount());
+        assertEquals(0, sink.getRejectedCount());
+        recorder.release();
+        assertTrue(await(() -> recorder.keys().size() == 4));
+        assertEquals(Arrays.asList("e0", "e2", "e3", "e4"), recorder.keys());
+        assertEquals(5, sink.getAcceptedCount());
+    }
+
+    @Test
+    public void reject() throws Exception {
+        Recorder recorder = new Recorder();
+        sink = fill(recorder, EventSink.Overflow.REJECT, 0);
+        assertFalse(sink.offer(event("e4")));
+        assertFalse(sink.offer(event("e5")));
+        assertEquals(3, sink.getQueueSize());
+        assertEquals(2, sink.getRejectedCount());
+        assertEquals(0, sink.getDroppedCount());
+        recorder.release();
+        assertTrue(await(() -> recorder.keys().size() == 4));
+        assertEquals(Arrays.asList("e0", "e1", "e2", "e3"), recorder.keys());
+    }
+
+    @Test
+    public void blockTimeout() throws Exception {
+        Recorder recorder = new Recorder();
+        sink = fill(recorder, EventSink.Overflow.BLOCK, 50);
+        long start = System.nanoTime();
+        assertFalse(sink.offer(event("e4")));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, sink.getRejectedCount());
+        recorder.release();
+        assertTrue(await(() -> recorder.keys().size() == 4));
+    }
+
+    @Test
+    public void blockUntilFree() throws Exception {
+        final Recorder recorder = new Recorder();
+        sink = fill(recorder, EventSink.Overflow.BLOCK, 5000);
+        //队列空出后放入
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            recorder.release();
+        }).start();
+        assertTrue(sink.offer(event("e4")));
+        assertTrue(await(() -> recorder.keys().size() == 5));
+        assertEquals(Arrays.asList("e0", "e1", "e2", "e3", "e4"), recorder.keys());
+        assertEquals(0, sink.getRejectedCount());
+    }
+
+    //第一个事件阻塞在写出中，队列容量3已占满
+    private static EventSink fill(Recorder recorder, EventSink.Overflow overflow, long blockTimeout) throws Exception {
+        recorder.block();
+        EventSink sink = new EventSink(recorder, 3, 1, 60000, overflow, blockTimeout);
+        assertTrue(sink.offer(event("e0")));
+        assertTrue(recorder.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(sink.offer(event("e" + i)));
+        }
+        assertEquals(3, sink.getQueueSize());
+        return sink;
+    }
+
+    @Test
+    public void shutdownDrain() throws Exception {
+        Recorder recorder = new Recorder();
+        sink = new EventSink(recorder, 1000, 100, 60000, EventSink.Overflow.REJECT, 0);
+        recorder.block();
+        for (int i = 0; i < 250; i++) {
+            assertTrue(sink.offer(event("e" + i)));
+        }
+        assertTrue(recorder.entered.await(5, TimeUnit.SECONDS));
+        recorder.release();
+        //停止后写出剩余事件，不再接收新事件
+        sink.shutdown(5000);
+        assertEquals(250, recorder.keys().size());
+        assertEquals("e249", recorder.keys().get(249));
+        assertEquals(0, sink.getQueueSize());
+        assertFalse(sink.offer(event("late")));
+        assertEquals(1, sink.getRejectedCount());
+        assertEquals(250, sink.getFlushedEvents());
+        for (int size : recorder.batchSizes()) {
+            assertTrue(size <= 100);
+        }
+    }
+
+    @Test
+    public void failedFlush() throws Exception {
+        sink = new EventSink(events -> {
+            throw new IllegalStateException("写入失败");
+        }, 100, 2, 60000, EventSink.Overflow.DROP_OLDEST, 0);
+        sink.offer(event("a"));
+        sink.offer(event("b"));
+        assertTrue(await(() -> sink.getFailedFlushCount() == 1));
+        assertEquals(2, sink.getFailedEvents());
+        assertEquals(0, sink.getFlushedEvents());
+    }
+
+    @Test
+    public void handler() throws Exception {
+        Recorder recorder = new Recorder();
+        sink = new EventSink(recorder, 100, 1, 60000, EventSink.Overflow.REJECT, 0);
+        SinkEventMessageHandler handler = new SinkEventMessageHandler(sink, null, " CLICK ", "");
+        ClickEventMessage msg = new ClickEventMessage();
+        msg.setEventKey("menu");
+        assertNull(handler.click(msg));
+        assertTrue(await(() -> recorder.keys().size() == 1));
+        assertEquals("menu", recorder.keys().get(0));
+        assertSame(sink, handler.getSink());
+    }
+
+    @Test
+    public void destroyDrainsAccountSinks() throws Exception {
+        Recorder recorder = new Recorder();
+        sink = new EventSink(recorder, 100, 100, 60000, EventSink.Overflow.REJECT, 0);
+        WeixinAccount account = new WeixinAccount("shop", "token");
+        account.setEventMessageHandler(new SinkEventMessageHandler(sink, null, "click"));
+        AccountRegistry.register(account);
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(sink.offer(event("e" + i)));
+            }
+            //停止过滤器时写出各公众号事件队列中剩余的事件
+            new WeixinUrlFilter().destroy();
+            assertEquals(5, recorder.keys().size());
+            assertFalse(sink.offer(event("late")));
+        } finally {
+            AccountRegistry.unregister("shop");
+        }
+    }
+
+    //记录每批写出的事件，可阻塞写出
+    private static class Recorder implements EventBatchConsumer {
+
+        private final List<List<String>> batches = new ArrayList<List<String>>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public void accept(List<EventMessage> events) throws Exception {
+            entered.countDown();
+            CountDownLatch latch = gate;
+            if (latch != null) {
+                latch.await();
+            }
+            List<String> keys = new ArrayList<String>();
+            for (EventMessage msg : events) {
+                keys.add(((ClickEventMessage) msg).getEventKey());
+            }
+            synchronized (batches) {
+                batches.add(keys);
+            }
+        }
+
+        List<List<String>> batches() {
+            synchronized (batches) {
+                return new ArrayList<List<String>>(batches);
+            }
+        }
+
+        List<String> keys() {
+            List<String> keys = new ArrayList<String>();
+            for (List<String> batch : batches()) {
+                keys.addAll(batch);
+            }
+            return keys;
+        }
+
+        List<Integer> batchSizes() {
+            List<Integer> sizes = new ArrayList<Integer>();
+            for (List<String> batch : batches()) {
+                sizes.add(batch.size());
+            }
+            return sizes;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.weixin4j.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.http.HttpCall;
+import org.weixin4j.http.HttpCallRecorder;
+import org.weixin4j.http.HttpRequest;
+import org.weixin4j.http.Response;
+import org.weixin4j.spi.DefaultHttpMetrics;
+import org.weixin4j.spi.IHttpTransport;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class HttpMetricsJUnitTest {
+
+    public HttpMetricsJUnitTest() {
+    }
+
+    private static IHttpTransport transport(final int status, final String body) {
+        return request -> {
+            if (request.getBodyWriter() != null) {
+                request.getBodyWriter().writeTo(new ByteArrayOutputStream());
+            }
+            return new Response(status, Collections.<String, List<String>>emptyMap(),
+                    new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        };
+    }
+
+    @Test
+    public void endpoint() {
+        assertEquals("token", HttpCall.endpoint("https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential"));
+        assertEquals("user/info", HttpCall.endpoint("https://api.weixin.qq.com/cgi-bin/user/info?access_token=t"));
+        assertEquals("media/upload", HttpCall.endpoint("http://file.api.weixin.qq.com/cgi-bin/media/upload?access_token=t"));
+        assertEquals("pay/unifiedorder", HttpCall.endpoint("https://api.mch.weixin.qq.com/pay/unifiedorder"));
+        assertEquals("sns/userinfo", HttpCall.endpoint("https://api.weixin.qq.com/sns/userinfo?access_token=t"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void snapshot() throws Exception {
+        DefaultHttpMetrics metrics = new DefaultHttpMetrics();
+        HttpCallRecorder recorder = new HttpCallRecorder(metrics, 0, 0, false);
+        String url = "https://api.weixin.qq.com/cgi-bin/message/mass/send?access_token=t";
+        String ok = "{\"errcode\":0,\"msg_id\":34182}";
+        String quota = "{\"errcode\":45009,\"errmsg\":\"reach max api daily quota limit\"}";
+        byte[] body = "{\"touser\":[\"o1\"]}".getBytes(StandardCharsets.UTF_8);
+        HttpRequest request = new HttpRequest("POST", url);
+        request.setBody(body);
+        assertTrue(recorder.execute(transport(200, ok), request).asString().contains("34182"));
+        assertTrue(recorder.execute(transport(200, quota), request).asString().contains("45009"));
+        try {
+            recorder.execute(r -> {
+                throw new IOException("Connection reset");
+            }, request);
+            fail();
+        } catch (IOException ex) {
+            //连接错误也记录
+        }
+        Map<String, Object> send = (Map<String, Object>) metrics.snapshot().get("message/mass/send");
+        assertEquals(3L, send.get("count"));
+        assertEquals(1L, send.get("errors"));
+        assertEquals(3L * body.length, send.get("bytesSent"));
+        assertEquals((long) ok.length() + quota.length(), send.get("bytesReceived"));
+        assertEquals(Long.valueOf(2), ((Map<Integer, Long>) send.get("status")).get(200));
+        assertEquals(Long.valueOf(1), ((Map<Integer, Long>) send.get("errcode")).get(0));
+        assertEquals(Long.valueOf(1), ((Map<Integer, Long>) send.get("errcode")).get(45009));
+        assertFalse(send.containsKey("reuseRatio"));
+    }
+}
@@ -0,0 +1,405 @@
+package org.weixin4j.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.Configuration;
+import org.weixin4j.WeixinException;
+import org.weixin4j.message.InputMessage;
+import org.weixin4j.message.LazyInputMessage;
+import org.weixin4j.message.PicList;
+import org.weixin4j.spi.StaxMessageHandler;
+import org.weixin4j.util.InputMessageParser;
+import org.weixin4j.util.JAXBFactory;
+
+/**
+ * StAX解析结果必须与JAXB一致，用例与InputMessageJUnitTest相同
+ *
+ * @author Yakson
+ */
+public class InputMessageParserJUnitTest {
+
+    private static final String[][] FIXTURES = {
+        {"text",
+            "<xml>"
+                + " <ToUserName><![CDATA[toUser]]></ToUserName>"
+                + " <FromUserName><![CDATA[fromUser]]></FromUserName>"
+                + " <CreateTime>1348831860</CreateTime>"
+                + " <MsgType><![CDATA[text]]></MsgType>"
+                + " <Content><![CDATA[this is a test]]></Content>"
+                + " <MsgId>1234567890123456</MsgId>"
+                + " </xml>"},
+        {"image",
+            "<xml>\n"
+                + " <ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + " <FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + " <CreateTime>1348831860</CreateTime>\n"
+                + " <MsgType><![CDATA[image]]></MsgType>\n"
+                + " <PicUrl><![CDATA[this is a url]]></PicUrl>\n"
+                + " <MediaId><![CDATA[media_id]]></MediaId>\n"
+                + " <MsgId>1234567890123456</MsgId>\n"
+                + " </xml>"},
+        {"voice",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1357290913</CreateTime>\n"
+                + "<MsgType><![CDATA[voice]]></MsgType>\n"
+                + "<MediaId><![CDATA[media_id]]></MediaId>\n"
+                + "<Format><![CDATA[Format]]></Format>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml>"},
+        {"video",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1357290913</CreateTime>\n"
+                + "<MsgType><![CDATA[video]]></MsgType>\n"
+                + "<MediaId><![CDATA[media_id]]></MediaId>\n"
+                + "<ThumbMediaId><![CDATA[thumb_media_id]]></ThumbMediaId>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml>"},
+        {"shortvideo",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1357290913</CreateTime>\n"
+                + "<MsgType><![CDATA[shortvideo]]></MsgType>\n"
+                + "<MediaId><![CDATA[media_id]]></MediaId>\n"
+                + "<ThumbMediaId><![CDATA[thumb_media_id]]></ThumbMediaId>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml>"},
+        {"location",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1351776360</CreateTime>\n"
+                + "<MsgType><![CDATA[location]]></MsgType>\n"
+                + "<Location_X>23.134521</Location_X>\n"
+                + "<Location_Y>113.358803</Location_Y>\n"
+                + "<Scale>20</Scale>\n"
+                + "<Label><![CDATA[位置信息]]></Label>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml> "},
+        {"link",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>1351776360</CreateTime>\n"
+                + "<MsgType><![CDATA[link]]></MsgType>\n"
+                + "<Title><![CDATA[公众平台官网链接]]></Title>\n"
+                + "<Description><![CDATA[公众平台官网链接]]></Description>\n"
+                + "<Url><![CDATA[url]]></Url>\n"
+                + "<MsgId>1234567890123456</MsgId>\n"
+                + "</xml> "},
+        {"event_subscribe",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[subscribe]]></Event>\n"
+                + "</xml>"},
+        {"event_qrscene_subscribe",
+            "<xml><ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[subscribe]]></Event>\n"
+                + "<EventKey><![CDATA[qrscene_123123]]></EventKey>\n"
+                + "<Ticket><![CDATA[TICKET]]></Ticket>\n"
+                + "</xml>"},
+        {"event_scan_subscribe",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[SCAN]]></Event>\n"
+                + "<EventKey><![CDATA[SCENE_VALUE]]></EventKey>\n"
+                + "<Ticket><![CDATA[TICKET]]></Ticket>\n"
+                + "</xml>"},
+        {"event_location",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[LOCATION]]></Event>\n"
+                + "<Latitude>23.137466</Latitude>\n"
+                + "<Longitude>113.352425</Longitude>\n"
+                + "<Precision>119.385040</Precision>\n"
+                + "</xml>"},
+        {"event_click",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[CLICK]]></Event>\n"
+                + "<EventKey><![CDATA[EVENTKEY]]></EventKey>\n"
+                + "</xml>"},
+        {"event_view",
+            "<xml>\n"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[FromUser]]></FromUserName>\n"
+                + "<CreateTime>123456789</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[VIEW]]></Event>\n"
+                + "<EventKey><![CDATA[www.qq.com]]></EventKey>\n"
+                + "</xml>"},
+        {"event_scancode_push",
+            "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090502</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[scancode_push]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<ScanCodeInfo><ScanType><![CDATA[qrcode]]></ScanType>\n"
+                + "<ScanResult><![CDATA[1]]></ScanResult>\n"
+                + "</ScanCodeInfo>\n"
+                + "</xml>"},
+        {"event_scancode_waitmsg",
+            "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090606</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[scancode_waitmsg]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<ScanCodeInfo><ScanType><![CDATA[qrcode]]></ScanType>\n"
+                + "<ScanResult><![CDATA[2]]></ScanResult>\n"
+                + "</ScanCodeInfo>\n"
+                + "</xml>"},
+        {"event_pic_sysphoto",
+            "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090651</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[pic_sysphoto]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendPicsInfo><Count>1</Count>\n"
+                + "<PicList><item><PicMd5Sum><![CDATA[1b5f7c23b5bf75682a53e7b6d163e185]]></PicMd5Sum>\n"
+                + "</item>\n"
+                + "</PicList>\n"
+                + "</SendPicsInfo>\n"
+                + "</xml>"},
+        {"event_pic_photo_or_album",
+            "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090816</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[pic_photo_or_album]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendPicsInfo><Count>1</Count>\n"
+                + "<PicList><item><PicMd5Sum><![CDATA[5a75aaca956d97be686719218f275c6b]]></PicMd5Sum>\n"
+                + "</item>\n"
+                + "</PicList>\n"
+                + "</SendPicsInfo>\n"
+                + "</xml>"},
+        {"event_pic_weixin",
+            "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408090816</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[pic_weixin]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendPicsInfo><Count>1</Count>\n"
+                + "<PicList><item><PicMd5Sum><![CDATA[5a75aaca956d97be686719218f275c6b]]></PicMd5Sum>\n"
+                + "</item>\n"
+                + "</PicList>\n"
+                + "</SendPicsInfo>\n"
+                + "</xml>"},
+        {"event_location_select",
+            "<xml><ToUserName><![CDATA[gh_e136c6e50636]]></ToUserName>\n"
+                + "<FromUserName><![CDATA[oMgHVjngRipVsoxg6TuX3vz6glDg]]></FromUserName>\n"
+                + "<CreateTime>1408091189</CreateTime>\n"
+                + "<MsgType><![CDATA[event]]></MsgType>\n"
+                + "<Event><![CDATA[location_select]]></Event>\n"
+                + "<EventKey><![CDATA[6]]></EventKey>\n"
+                + "<SendLocationInfo><Location_X><![CDATA[23]]></Location_X>\n"
+                + "<Location_Y><![CDATA[113]]></Location_Y>\n"
+                + "<Scale><![CDATA[15]]></Scale>\n"
+                + "<Label><![CDATA[ 广州市海珠区客村艺苑路 106号]]></Label>\n"
+                + "<Poiname><![CDATA[]]></Poiname>\n"
+                + "</SendLocationInfo>\n"
+                + "</xml>"}
+    };
+
+    public InputMessageParserJUnitTest() {
+    }
+
+    @Test
+    public void sameAsJaxb() throws JAXBException, XMLStreamException {
+        for (String[] fixture : FIXTURES) {
+            InputMessage expected = JAXBFactory.unmarshal(InputMessage.class, fixture[1]);
+            InputMessage actual = InputMessageParser.parse(new StringReader(fixture[1]));
+            assertSameMessage(fixture[0], expected, actual);
+        }
+    }
+
+    @Test
+    public void sameAsJaxbFromStream() throws Exception {
+        for (String[] fixture : FIXTURES) {
+            InputMessage expected = JAXBFactory.unmarshal(InputMessage.class, fixture[1]);
+            InputMessage actual = InputMessageParser.parse(new ByteArrayInputStream(fixture[1].getBytes("UTF-8")));
+            assertSameMessage(fixture[0], expected, actual);
+        }
+    }
+
+    @Test
+    public void lazySameAsJaxb() throws Exception {
+        for (String[] fixture : FIXTURES) {
+            InputMessage expected = JAXBFactory.unmarshal(InputMessage.class, fixture[1]);
+            InputMessage actual = LazyInputMessage.parse(fixture[1].getBytes("UTF-8"));
+            assertSameMessage(fixture[0], expected, actual);
+            //按需解码的消息转换后与JAXB相同
+            assertEquals(fixture[0], expected.toTextInputMessage().getContent(), actual.toTextInputMessage().getContent());
+            assertEquals(fixture[0], expected.toClickEventMessage().getEventKey(), actual.toClickEventMessage().getEventKey());
+        }
+    }
+
+    @Test
+    public void lazyEscapes() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n<!-- 注释 --><xml>"
+                + "<ToUserName>a&lt;b&amp;c&#20320;&#x597D;</ToUserName>"
+                + "<FromUserName><![CDATA[x]]>y<![CDATA[<z>]]></FromUserName>"
+                + "<Content><![CDATA[第一行\r\n第二行]]></Content>"
+                + "<Label/>"
+                + "<CreateTime> 1348831860 </CreateTime>"
+                + "<MsgId>abc</MsgId>"
+                + "<Unknown><a>1</a><![CDATA[</xml>]]></Unknown>"
+                + "<Title>旧</Title><Title>新</Title>"
+                + "</xml>";
+        InputMessage expected = InputMessageParser.parse(new StringReader(xml));
+        InputMessage actual = LazyInputMessage.parse(xml.getBytes("UTF-8"));
+        assertSameMessage("escapes", expected, actual);
+        assertEquals("a<b&c你好", actual.getToUserName());
+        assertEquals("新", actual.getTitle());
+        actual.setContent("修改");
+        assertEquals("修改", actual.getContent());
+    }
+
+    @Test
+    public void staxMaxBodySize() throws Exception {
+        Parser parser = new Parser();
+        String xml = FIXTURES[0][1];
+        assertSameMessage("text", InputMessageParser.parse(new StringReader(xml)), parser.parse(stream(xml)));
+        //超过最大长度的POST数据直接拒绝
+        Configuration.setProperty("weixin4j.message.maxBodySize", "100");
+        try {
+            parser.parse(stream(xml));
+            fail();
+        } catch (WeixinException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        } finally {
+            Configuration.setProperty("weixin4j.message.maxBodySize", "1048576");
+        }
+    }
+
+    private static ServletInputStream stream(String xml) {
+        final ByteArrayInputStream in = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+        return new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+    }
+
+    //公开StAX处理器的解析方法
+    private static class Parser extends StaxMessageHandler {
+
+        @Override
+        public InputMessage parse(ServletInputStream inputStream) throws WeixinException {
+            return super.parse(inputStream);
+        }
+    }
+
+    private static void assertSameMessage(String name, InputMessage expected, InputMessage actual) {
+        assertEquals(name, expected.getToUserName(), actual.getToUserName());
+        assertEquals(name, expected.getFromUserName(), actual.getFromUserName());
+        assertEquals(name, expected.getCreateTime(), actual.getCreateTime());
+        assertEquals(name, expected.getMsgId(), actual.getMsgId());
+        assertEquals(name, expected.getMsgType(), actual.getMsgType());
+        assertEquals(name, expected.getContent(), actual.getContent());
+        assertEquals(name, expected.getPicUrl(), actual.getPicUrl());
+        assertEquals(name, expected.getLocation_X(), actual.getLocation_X());
+        assertEquals(name, expected.getLocation_Y(), actual.getLocation_Y());
+        assertEquals(name, expected.getScale(), actual.getScale());
+        assertEquals(name, expected.getLabel(), actual.getLabel());
+        assertEquals(name, expected.getTitle(), actual.getTitle());
+        assertEquals(name, expected.getDescription(), actual.getDescription());
+        assertEquals(name, expected.getUrl(), actual.getUrl());
+        assertEquals(name, expected.getMediaId(), actual.getMediaId());
+        assertEquals(name, expected.getFormat(), actual.getFormat());
+        assertEquals(name, expected.getRecognition(), actual.getRecognition());
+        assertEquals(name, expected.getThumbMediaId(), actual.getThumbMediaId());
+        if ("event".equals(expected.getMsgType())) {
+            assertEquals(name, expected.getEvent(), actual.getEvent());
+        }
+        assertEquals(name, expected.getEventKey(), actual.getEventKey());
+        assertEquals(name, expected.getTicket(), actual.getTicket());
+        assertEquals(name, expected.getLatitude(), actual.getLatitude());
+        assertEquals(name, expected.getLongitude(), actual.getLongitude());
+        assertEquals(name, expected.getPrecision(), actual.getPrecision());
+        assertEquals(name, expected.getMsgID(), actual.getMsgID());
+        assertEquals(name, expected.getStatus(), actual.getStatus());
+        assertEquals(name, expected.getTotalCount(), actual.getTotalCount());
+        assertEquals(name, expected.getFilterCount(), actual.getFilterCount());
+        assertEquals(name, expected.getSentCount(), actual.getSentCount());
+        assertEquals(name, expected.getErrorCount(), actual.getErrorCount());
+        if (expected.getScanCodeInfo() == null) {
+            assertNull(name, actual.getScanCodeInfo());
+        } else {
+            assertEquals(name, expected.getScanCodeInfo().getScanType(), actual.getScanCodeInfo().getScanType());
+            assertEquals(name, expected.getScanCodeInfo().getScanResult(), actual.getScanCodeInfo().getScanResult());
+        }
+        if (expected.getSendPicsInfo() == null) {
+            assertNull(name, actual.getSendPicsInfo());
+        } else {
+            assertEquals(name, expected.getSendPicsInfo().getCount(), actual.getSendPicsInfo().getCount());
+            List<PicList> expectedPics = expected.getSendPicsInfo().getPicList();
+            List<PicList> actualPics = actual.getSendPicsInfo().getPicList();
+            assertEquals(name, expectedPics.size(), actualPics.size());
+            for (int i = 0; i < expectedPics.size(); i++) {
+                assertEquals(name, expectedPics.get(i).getPicMd5Sum(), actualPics.get(i).getPicMd5Sum());
+            }
+        }
+        if (expected.getSendLocationInfo() == null) {
+            assertNull(name, actual.getSendLocationInfo());
+        } else {
+            assertEquals(name, expected.getSendLocationInfo().getLocation_X(), actual.getSendLocationInfo().getLocation_X(), 0);
+            assertEquals(name, expected.getSendLocationInfo().getLocation_Y(), actual.getSendLocationInfo().getLocation_Y(), 0);
+            assertEquals(name, expected.getSendLocationInfo().getScale(), actual.getSendLocationInfo().getScale());
+            assertEquals(name, expected.getSendLocationInfo().getLabel(), actual.getSendLocationInfo().getLabel());
+            assertEquals(name, expected.getSendLocationInfo().getPoiname(), actual.getSendLocationInfo().getPoiname());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.weixin4j.test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.util.KeywordMatcher;
+import org.weixin4j.util.KeywordMatcher.Match;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class KeywordMatcherJUnitTest {
+
+    public KeywordMatcherJUnitTest() {
+    }
+
+    @Test
+    public void match() {
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder(true)
+                .add(Match.EXACT, "你好", 0, "exact")
+                .add(Match.PREFIX, "查询", 0, "prefix")
+                .add(Match.CONTAINS, "价格", 0, "price")
+                .add(Match.CONTAINS, "会员价格", 5, "member")
+                .add(Match.CONTAINS, "Help", 0, "help")
+                .build();
+        assertEquals("exact", matcher.match("你好"));
+        assertNull(matcher.match("你好啊"));
+        assertEquals("prefix", matcher.match("查询订单"));
+        assertNull(matcher.match("我要查询"));
+        assertEquals("price", matcher.match("请问价格多少"));
+        //同时命中时优先级高的优先
+        assertEquals("member", matcher.match("请问会员价格多少"));
+        assertEquals("help", matcher.match("need HELP"));
+        assertNull(matcher.match("价"));
+        assertNull(matcher.match(""));
+    }
+
+    @Test
+    public void priority() {
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder(false)
+                .add(Match.CONTAINS, "abcd", 1, "abcd")
+                .add(Match.CONTAINS, "bc", 2, "bc")
+                .add(Match.PREFIX, "ab", 0, "ab")
+                .add(Match.CONTAINS, "cd", 1, "cd")
+                .build();
+        assertEquals("bc", matcher.match("xabcdx"));
+        assertEquals("ab", matcher.match("abx"));
+        assertEquals("cd", matcher.match("xcd"));
+        //优先级相同时先添加的优先
+        matcher = KeywordMatcher.<String>builder(false)
+                .add(Match.CONTAINS, "abcd", 1, "abcd")
+                .add(Match.CONTAINS, "cd", 1, "cd")
+                .build();
+        assertEquals("abcd", matcher.match("xabcdx"));
+        assertEquals("cd", matcher.match("abccd"));
+    }
+}
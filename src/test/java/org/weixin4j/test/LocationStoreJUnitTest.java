@@ -0,0 +1,174 @@
+package org.weixin4j.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.util.LocationStore;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class LocationStoreJUnitTest {
+
+    public LocationStoreJUnitTest() {
+    }
+
+    private static List<String> openIds(List<LocationStore.Position> positions) {
+        List<String> openIds = new ArrayList<String>();
+        for (LocationStore.Position position : positions) {
+            openIds.add(position.getOpenId());
+        }
+        return openIds;
+    }
+
+    //远处的用户，使每段的用户数超过覆盖的网格数，查询时按网格遍历
+    private static void fill(LocationStore store, int count, long time) {
+        for (int i = 0; i < count; i++) {
+            store.update("filler" + i, -45 + (i % 10) * 0.01, -90, time);
+        }
+    }
+
+    @Test
+    public void putUpdateRemove() {
+        LocationStore store = new LocationStore(1, 0);
+        long time = System.currentTimeMillis();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            assertTrue(store.update("o" + i, i % 180 - 90, i % 360 - 180, time));
+        }
+        assertEquals(count, store.size());
+        //更新不增加个数
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(store.update("o" + i, 30, 120, time + 1));
+        }
+        assertEquals(count, store.size());
+        //删除后同簇的元素前移，其余用户仍可找到
+        for (int i = 0; i < count; i += 3) {
+            assertTrue(store.remove("o" + i));
+            assertFalse(store.remove("o" + i));
+        }
+        for (int i = 0; i < count; i++) {
+            LocationStore.Position position = store.get("o" + i);
+            if (i % 3 == 0) {
+                assertNull(position);
+            } else if (i % 2 == 0) {
+                assertEquals(30, position.getLatitude(), 0);
+                assertEquals(120, position.getLongitude(), 0);
+                assertEquals(time + 1, position.getTime());
+            } else {
+                assertEquals(i % 180 - 90, position.getLatitude(), 0);
+                assertEquals(i % 360 - 180, position.getLongitude(), 0);
+            }
+        }
+        for (int i = 0; i < count; i += 3) {
+            assertNull(store.get("o" + i));
+            store.update("o" + i, 0, 0, time);
+        }
+        assertEquals(count, store.size());
+        for (int i = 0; i < count; i++) {
+            assertNotNull(store.get("o" + i));
+        }
+    }
+
+    @Test
+    public void invalid() {
+        LocationStore store = new LocationStore(1, 0);
+        assertFalse(store.update(null, 0, 0, 0));
+        assertFalse(store.update("o", 91, 0, 0));
+        assertFalse(store.update("o", 0, -181, 0));
+        assertFalse(store.update("o", Double.NaN, 0, 0));
+        assertFalse(store.update("o", "abc", "120"));
+        assertFalse(store.update("o", null, "120"));
+        assertTrue(store.update("o", " 23.1 ", "113.3"));
+        assertEquals(23.1, store.get("o").getLatitude(), 0);
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void moveCell() {
+        LocationStore store = new LocationStore(1, 0);
+        long time = System.currentTimeMillis();
+        fill(store, 2000, time);
+        store.update("a", 23.13, 113.26, time);
+        assertEquals(1, store.nearby(23.13, 113.26, 1, 10).size());
+        //移到另一个网格后不再出现在原位置附近
+        store.update("a", 39.90, 116.40, time);
+        assertTrue(store.nearby(23.13, 113.26, 1, 10).isEmpty());
+        assertEquals("a", store.nearby(39.90, 116.40, 1, 10).get(0).getOpenId());
+    }
+
+    @Test
+    public void nearby() {
+        LocationStore store = new LocationStore(1, 0);
+        long time = System.currentTimeMillis();
+        fill(store, 2000, time);
+        store.update("a", 23.1300, 113.2600, time);
+        store.update("b", 23.1400, 113.2600, time);
+        store.update("c", 23.2000, 113.2600, time);
+        List<LocationStore.Position> result = store.nearby(23.13, 113.26, 2, 10);
+        assertEquals(2, result.size());
+        assertEquals("a", result.get(0).getOpenId());
+        assertEquals(0, result.get(0).getDistance(), 1e-9);
+        assertEquals("b", result.get(1).getOpenId());
+        assertEquals(1.11, result.get(1).getDistance(), 0.01);
+        assertEquals(3, store.nearby(23.13, 113.26, 10, 10).size());
+        assertEquals(1, store.nearby(23.13, 113.26, 10, 1).size());
+        assertTrue(store.nearby(23.13, 113.26, 10, 0).isEmpty());
+    }
+
+    @Test
+    public void antimeridian() {
+        LocationStore store = new LocationStore(200, 0);
+        long time = System.currentTimeMillis();
+        fill(store, 16000, time);
+        store.update("east", 0, 179.9, time);
+        store.update("west", 0, -179.9, time);
+        store.update("far", 0, 170, time);
+        //跨越180度经线
+        assertEquals("[east, west]", openIds(store.nearby(0, 179.95, 50, 10)).toString());
+        assertEquals("[west, east]", openIds(store.nearby(0, -179.95, 50, 10)).toString());
+        assertEquals(2, store.nearby(0, 180, 50, 10).size());
+    }
+
+    @Test
+    public void poles() {
+        LocationStore store = new LocationStore(200, 0);
+        long time = System.currentTimeMillis();
+        fill(store, 16000, time);
+        store.update("north", 89, 0, time);
+        //越过北极，经度相差180度
+        store.update("across", 89.9, 180, time);
+        store.update("south", -89.9, 90, time);
+        assertEquals(222, LocationStore.distance(88, 0, 89.9, 180), 15);
+        assertEquals("[north, across]", openIds(store.nearby(88, 0, 250, 10)).toString());
+        assertEquals("[south]", openIds(store.nearby(-88, -90, 250, 10)).toString());
+        //极点上查询
+        assertEquals("[across, north]", openIds(store.nearby(90, 0, 120, 10)).toString());
+    }
+
+    @Test
+    public void expire() {
+        LocationStore store = new LocationStore(1, 1000);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            store.update("old" + i, 23.13, 113.26, now - 10000);
+        }
+        assertNull(store.get("old0"));
+        assertTrue(store.nearby(23.13, 113.26, 1, 10).isEmpty());
+        assertEquals(100, store.size());
+        //写入时逐步清除过期位置
+        for (int i = 0; i < 10; i++) {
+            store.update("new" + i, 23.13, 113.26, now);
+        }
+        assertTrue(store.size() < 110);
+        assertEquals(store.size() - 10, store.purge());
+        assertEquals(10, store.size());
+        assertEquals(0, store.purge());
+        assertEquals(10, store.nearby(23.13, 113.26, 1, 100).size());
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(store.get("new" + i));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.weixin4j.test;
+
+import java.util.Arrays;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.WeixinException;
+import org.weixin4j.util.MessageCrypt;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class MessageCryptJUnitTest {
+
+    //微信官方加解密示例的参数
+    private static final String TOKEN = "pamtest";
+    private static final String ENCODING_AES_KEY = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFG";
+    private static final String APP_ID = "wxb11529c136998cb6";
+    private static final String TIMESTAMP = "1409304348";
+    private static final String NONCE = "xxxxxx";
+    private static final String ENCRYPT = "jn1L23DB+6ELqJ+6bruv21Y6MD7KeIfP82D6gU39rmkgczbWwt5+3bnyg5K55bgVtVzd832WzZGMhkP72vVOfg==";
+    private static final String MSG_SIGNATURE = "82c962d39941aa48552f90ef55aa323dc620cc10";
+
+    public MessageCryptJUnitTest() {
+    }
+
+    private static String postXml(String encrypt) {
+        return "<xml><ToUserName><![CDATA[toUser]]></ToUserName><Encrypt><![CDATA[" + encrypt + "]]></Encrypt></xml>";
+    }
+
+    @Test
+    public void sample() throws Exception {
+        MessageCrypt crypt = new MessageCrypt(TOKEN, ENCODING_AES_KEY, APP_ID);
+        assertEquals("我是中文abcd123", crypt.decrypt(ENCRYPT));
+        assertEquals(MSG_SIGNATURE, MessageCrypt.signature(TOKEN, TIMESTAMP, NONCE, ENCRYPT));
+        assertEquals("我是中文abcd123", crypt.decryptMessage(postXml(ENCRYPT), MSG_SIGNATURE, TIMESTAMP, NONCE));
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        MessageCrypt crypt = new MessageCrypt(TOKEN, ENCODING_AES_KEY, APP_ID);
+        String replyXml = "<xml><ToUserName><![CDATA[oia2Tj我是中文jewbmiOUlr6X-1crbLOvLw]]></ToUserName>"
+                + "<MsgType><![CDATA[text]]></MsgType><Content><![CDATA[你好]]></Content></xml>";
+        String encrypted = crypt.encryptMessage(replyXml, TIMESTAMP, NONCE);
+        String encrypt = MessageCrypt.getEncrypt(encrypted);
+        assertTrue(encrypted.contains("<MsgSignature><![CDATA[" + MessageCrypt.signature(TOKEN, TIMESTAMP, NONCE, encrypt) + "]]>"));
+        assertEquals(replyXml, crypt.decryptMessage(encrypted, MessageCrypt.signature(TOKEN, TIMESTAMP, NONCE, encrypt), TIMESTAMP, NONCE));
+        //随机前缀不同，相同明文的密文不同
+        assertFalse(encrypt.equals(crypt.encrypt(replyXml)));
+        //补位恰为一整块
+        String aligned = new String(new char[32 - (20 + APP_ID.length()) % 32]).replace('\0', 'a');
+        assertEquals(aligned, crypt.decrypt(crypt.encrypt(aligned)));
+        assertEquals("", crypt.decrypt(crypt.encrypt("")));
+    }
+
+    @Test(expected = WeixinException.class)
+    public void wrongAppId() throws Exception {
+        new MessageCrypt(TOKEN, ENCODING_AES_KEY, "wxb11529c136998cb7").decrypt(ENCRYPT);
+    }
+
+    @Test
+    public void emptyAppId() throws Exception {
+        //未配置AppId时不校验
+        assertEquals("我是中文abcd123", new MessageCrypt(TOKEN, ENCODING_AES_KEY, null).decrypt(ENCRYPT));
+    }
+
+    @Test
+    public void badSignature() throws Exception {
+        MessageCrypt crypt = new MessageCrypt(TOKEN, ENCODING_AES_KEY, APP_ID);
+        assertFalse(crypt.checkSignature("82c962d39941aa48552f90ef55aa323dc620cc11", TIMESTAMP, NONCE, ENCRYPT));
+        assertFalse(crypt.checkSignature(MSG_SIGNATURE, "1409304349", NONCE, ENCRYPT));
+        assertFalse(crypt.checkSignature(null, TIMESTAMP, NONCE, ENCRYPT));
+        try {
+            crypt.decryptMessage(postXml(ENCRYPT), MSG_SIGNATURE.toUpperCase(), TIMESTAMP, NONCE);
+            fail();
+        } catch (WeixinException ex) {
+            //签名错误
+        }
+    }
+
+    @Test
+    public void truncated() throws Exception {
+        MessageCrypt crypt = new MessageCrypt(TOKEN, ENCODING_AES_KEY, APP_ID);
+        byte[] cipher = Base64.decodeBase64(ENCRYPT);
+        String[] invalid = {
+            "",
+            //只有一个块，短于随机前缀与长度
+            Base64.encodeBase64String(Arrays.copyOf(cipher, 16)),
+            //不是块大小的整数倍
+            Base64.encodeBase64String(Arrays.copyOf(cipher, 40)),
+            //截去最后一块，补位与长度不符
+            Base64.encodeBase64String(Arrays.copyOf(cipher, 32)),
+            "not base64 at all"
+        };
+        for (String encrypt : invalid) {
+            try {
+                crypt.decrypt(encrypt);
+                fail(encrypt);
+            } catch (WeixinException ex) {
+                //长度错误或解密错误
+            }
+        }
+        try {
+            crypt.decryptMessage(postXml(""), MessageCrypt.signature(TOKEN, TIMESTAMP, NONCE, ""), TIMESTAMP, NONCE);
+            fail();
+        } catch (WeixinException ex) {
+            //空的Encrypt节点
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.weixin4j.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.weixin4j.spi.MessageDeduplicator;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class MessageDeduplicatorJUnitTest {
+
+    public MessageDeduplicatorJUnitTest() {
+    }
+
+    @Test
+    public void window() throws Exception {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(100, 1000);
+        assertNull(deduplicator.putIfAbsent("gh_1#1001"));
+        OutputMessage reply = new TextOutputMessage("你好");
+        deduplicator.complete("gh_1#1001", reply);
+        MessageDeduplicator.Entry first = deduplicator.putIfAbsent("gh_1#1001");
+        assertNotNull(first);
+        assertTrue(first.isCompleted());
+        assertSame(reply, first.getOutputMsg());
+        //不同公众号的相同MsgId不是重复消息
+        assertNull(deduplicator.putIfAbsent("gh_2#1001"));
+        Thread.sleep(150);
+        //超过时间窗口后视为新消息
+        assertNull(deduplicator.putIfAbsent("gh_1#1001"));
+    }
+
+    @Test
+    public void eviction() {
+        //64段，每段最多保留2条
+        MessageDeduplicator deduplicator = new MessageDeduplicator(60000, 128);
+        for (int i = 0; i < 10000; i++) {
+            assertNull(deduplicator.putIfAbsent("gh_1#" + i));
+        }
+        assertTrue(deduplicator.size() <= 128);
+        //分段较均匀，每段都保留记录
+        assertTrue(deduplicator.size() > 64);
+        //最新的记录保留，最早的记录已淘汰
+        assertNotNull(deduplicator.putIfAbsent("gh_1#9999"));
+        assertNull(deduplicator.putIfAbsent("gh_1#0"));
+    }
+
+    @Test
+    public void await() throws Exception {
+        final MessageDeduplicator deduplicator = new MessageDeduplicator(60000, 1000);
+        assertNull(deduplicator.putIfAbsent("o1#1348831860#CLICK"));
+        final MessageDeduplicator.Entry first = deduplicator.putIfAbsent("o1#1348831860#CLICK");
+        assertFalse(first.isCompleted());
+        //首次处理未完成时等待超时
+        assertFalse(first.await(20));
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final AtomicReference<Boolean> completed = new AtomicReference<Boolean>();
+        Thread retry = new Thread(() -> {
+            waiting.countDown();
+            completed.set(first.await(5000));
+        });
+        retry.start();
+        waiting.await();
+        OutputMessage reply = new TextOutputMessage("菜单");
+        deduplicator.complete("o1#1348831860#CLICK", reply);
+        retry.join(5000);
+        assertEquals(Boolean.TRUE, completed.get());
+        assertSame(reply, first.getOutputMsg());
+    }
+
+    @Test
+    public void remove() throws Exception {
+        final MessageDeduplicator deduplicator = new MessageDeduplicator(60000, 1000);
+        assertNull(deduplicator.putIfAbsent("gh_1#1002"));
+        final MessageDeduplicator.Entry first = deduplicator.putIfAbsent("gh_1#1002");
+        final AtomicReference<Boolean> completed = new AtomicReference<Boolean>();
+        Thread retry = new Thread(() -> completed.set(first.await(5000)));
+        retry.start();
+        //首次处理失败时唤醒等待的重试，并允许重新登记
+        Thread.sleep(20);
+        deduplicator.remove("gh_1#1002");
+        retry.join(5000);
+        assertEquals(Boolean.FALSE, completed.get());
+        assertTrue(first.isFailed());
+        assertNull(deduplicator.putIfAbsent("gh_1#1002"));
+    }
+}
@@ -0,0 +1,62 @@
+package org.weixin4j.test;
+
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.spi.DefaultMessageMetrics;
+import org.weixin4j.spi.MessageStage;
+import org.weixin4j.util.LatencyHistogram;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class MessageMetricsJUnitTest {
+
+    public MessageMetricsJUnitTest() {
+    }
+
+    @Test
+    public void histogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 0.001);
+        //相对误差不超过12.5%
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.125);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.125);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+        //超过2^31纳秒的秒级耗时
+        for (long value : new long[]{3000000000L, 5000000000L, 40000000000L}) {
+            LatencyHistogram seconds = new LatencyHistogram();
+            seconds.record(value);
+            assertEquals(value, seconds.getValueAtPercentile(50));
+            assertEquals(value, seconds.getValueAtPercentile(99));
+        }
+        LatencyHistogram mixed = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            mixed.record(i < 90 ? 3000000000L : 5000000000L);
+        }
+        assertEquals(3000000000L, mixed.getValueAtPercentile(50), 3000000000L * 0.125);
+        assertEquals(5000000000L, mixed.getValueAtPercentile(99));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void snapshot() {
+        DefaultMessageMetrics metrics = new DefaultMessageMetrics();
+        metrics.record("text", null, MessageStage.PARSE, 2000, false);
+        metrics.record("text", null, MessageStage.PARSE, 4000, true);
+        metrics.record("event", "subscribe", MessageStage.HANDLER, 1000, false);
+        Map<String, Object> snapshot = metrics.snapshot();
+        Map<String, Object> parse = (Map<String, Object>) ((Map<String, Object>) snapshot.get("text")).get("parse");
+        assertEquals(2L, parse.get("count"));
+        assertEquals(1L, parse.get("errors"));
+        assertEquals(3.0, parse.get("mean"));
+        assertTrue(((Map<String, Object>) snapshot.get("event/subscribe")).containsKey("handler"));
+        assertFalse(((Map<String, Object>) snapshot.get("event/subscribe")).containsKey("parse"));
+    }
+}
@@ -0,0 +1,104 @@
+package org.weixin4j.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.w3c.dom.Document;
+import org.weixin4j.message.Articles;
+import org.weixin4j.message.output.NewsOutputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.xml.sax.InputSource;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class OutputMessageJUnitTest {
+
+    public OutputMessageJUnitTest() {
+    }
+
+    @Test
+    public void text() throws Exception {
+        TextOutputMessage outputMsg = new TextOutputMessage("你好😀");
+        outputMsg.setToUserName("toUser");
+        outputMsg.setFromUserName("fromUser");
+        outputMsg.setCreateTime(1348831860L);
+        String xml = "<xml>"
+                + "<ToUserName><![CDATA[toUser]]></ToUserName>"
+                + "<FromUserName><![CDATA[fromUser]]></FromUserName>"
+                + "<CreateTime>1348831860</CreateTime>"
+                + "<MsgType><![CDATA[text]]></MsgType>"
+                + "<Content><![CDATA[你好😀]]></Content>"
+                + "</xml>";
+        assertEquals(xml, outputMsg.toXML());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        outputMsg.writeTo(out);
+        assertArrayEquals(xml.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void cdataEscape() throws Exception {
+        String content = "a]]>b ]]]>> c";
+        TextOutputMessage outputMsg = new TextOutputMessage(content);
+        outputMsg.setToUserName("toUser");
+        outputMsg.setFromUserName("fromUser");
+        outputMsg.setCreateTime(1348831860L);
+        Document doc = parse(outputMsg.toXML());
+        assertEquals(content, doc.getElementsByTagName("Content").item(0).getTextContent());
+    }
+
+    @Test
+    public void news() throws Exception {
+        Articles article = new Articles();
+        article.setTitle("标题]]>");
+        article.setDescription("描述");
+        article.setPicUrl("http://www.weixin4j.org/a.png");
+        article.setUrl("http://www.weixin4j.org/");
+        NewsOutputMessage outputMsg = new NewsOutputMessage();
+        outputMsg.setArticles(Arrays.asList(article, article));
+        outputMsg.setToUserName("toUser");
+        outputMsg.setFromUserName("fromUser");
+        outputMsg.setCreateTime(1348831860L);
+        Document doc = parse(outputMsg.toXML());
+        assertEquals("2", doc.getElementsByTagName("ArticleCount").item(0).getTextContent());
+        assertEquals(2, doc.getElementsByTagName("item").getLength());
+        assertEquals("标题]]>", doc.getElementsByTagName("Title").item(1).getTextContent());
+    }
+
+    @Test
+    public void subclass() throws Exception {
+        //重写toXML()的子类按toXML()的结果写入
+        TextOutputMessage custom = new TextOutputMessage("你好") {
+            @Override
+            public String toXML() {
+                return super.toXML().replace("</xml>", "<FuncFlag>0</FuncFlag></xml>");
+            }
+        };
+        custom.setToUserName("toUser");
+        custom.setFromUserName("fromUser");
+        custom.setCreateTime(1348831860L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        custom.writeTo(out);
+        String xml = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(custom.toXML(), xml);
+        assertTrue(xml.endsWith("<FuncFlag>0</FuncFlag></xml>"));
+        //未重写toXML()的子类与内置类型输出相同
+        TextOutputMessage plain = new TextOutputMessage("你好") {
+        };
+        plain.setToUserName("toUser");
+        plain.setFromUserName("fromUser");
+        plain.setCreateTime(1348831860L);
+        out.reset();
+        plain.writeTo(out);
+        assertEquals(xml.replace("<FuncFlag>0</FuncFlag>", ""), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static Document parse(String xml) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+}
@@ -0,0 +1,127 @@
+package org.weixin4j.test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.message.Articles;
+import org.weixin4j.message.OutputMessage;
+import org.weixin4j.message.event.ClickEventMessage;
+import org.weixin4j.message.event.SubscribeEventMessage;
+import org.weixin4j.message.output.NewsOutputMessage;
+import org.weixin4j.message.output.TextOutputMessage;
+import org.weixin4j.spi.CachingEventMessageHandler;
+import org.weixin4j.spi.IEventMessageHandler;
+import org.weixin4j.spi.ReplyCache;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class ReplyCacheJUnitTest {
+
+    public ReplyCacheJUnitTest() {
+    }
+
+    private static void init(OutputMessage outputMsg, String toUser) {
+        outputMsg.setToUserName(toUser);
+        outputMsg.setFromUserName("fromUser");
+        outputMsg.setCreateTime(1348831860L);
+    }
+
+    @Test
+    public void news() {
+        List<Articles> articles = new ArrayList<Articles>();
+        for (int i = 0; i < 10; i++) {
+            Articles article = new Articles();
+            article.setTitle("标题]]>" + i);
+            article.setDescription("描述" + i);
+            article.setPicUrl("http://www.weixin4j.org/" + i + ".png");
+            article.setUrl("http://www.weixin4j.org/" + i);
+            articles.add(article);
+        }
+        NewsOutputMessage news = new NewsOutputMessage();
+        news.setArticles(articles);
+        ReplyCache cache = new ReplyCache(60000, 100);
+        OutputMessage first = cache.get("click:news", () -> news);
+        OutputMessage second = cache.get("click:news", () -> null);
+        init(first, "user1");
+        init(second, "user2");
+        init(news, "user2");
+        //每次回复只替换接收方，内容与直接生成的xml相同
+        assertEquals(news.toXML(), second.toXML());
+        assertEquals(news.toXML().replace("user2", "user1"), first.toXML());
+        assertEquals("news", second.getMsgType());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void invalidate() {
+        ReplyCache cache = new ReplyCache(60000, 100);
+        cache.put("click:text", new TextOutputMessage("旧菜单"));
+        assertNotNull(cache.get("click:text"));
+        cache.invalidate("click:text");
+        assertNull(cache.get("click:text"));
+        OutputMessage reply = cache.get("click:text", () -> new TextOutputMessage("新菜单"));
+        init(reply, "user1");
+        assertTrue(reply.toXML().contains("新菜单"));
+    }
+
+    @Test
+    public void full() {
+        ReplyCache cache = new ReplyCache(0, 2);
+        cache.put("click:a", new TextOutputMessage("a"));
+        cache.put("click:b", new TextOutputMessage("b"));
+        //已满且没有过期回复时不缓存，但仍返回本次回复
+        OutputMessage reply = cache.put("click:c", new TextOutputMessage("c"));
+        init(reply, "user1");
+        assertTrue(reply.toXML().contains("<Content><![CDATA[c]]></Content>"));
+        assertNull(cache.get("click:c"));
+        assertEquals(2, cache.size());
+        //已缓存的key仍可更新
+        cache.put("click:a", new TextOutputMessage("a2"));
+        OutputMessage updated = cache.get("click:a");
+        init(updated, "user1");
+        assertTrue(updated.toXML().contains("a2"));
+    }
+
+    @Test
+    public void expiredEvicted() throws Exception {
+        ReplyCache cache = new ReplyCache(50, 2);
+        cache.put("click:a", new TextOutputMessage("a"));
+        cache.put("click:b", new TextOutputMessage("b"));
+        Thread.sleep(80);
+        //过期回复未被读取，缓存新回复时移除
+        cache.put("click:c", new TextOutputMessage("c"));
+        assertNotNull(cache.get("click:c"));
+        assertEquals(1, cache.size());
+        cache.put("click:d", new TextOutputMessage("d"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("click:e", () -> null));
+        cache.put("click:e", new TextOutputMessage("e"));
+        assertNull(cache.get("click:e"));
+    }
+
+    @Test
+    public void events() throws Exception {
+        final int[] calls = new int[1];
+        IEventMessageHandler delegate = (IEventMessageHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{IEventMessageHandler.class}, (proxy, method, args) -> {
+                    calls[0]++;
+                    return new TextOutputMessage(method.getName());
+                });
+        ReplyCache cache = new ReplyCache(60000, 100);
+        CachingEventMessageHandler handler = new CachingEventMessageHandler(cache, delegate, "click");
+        ClickEventMessage click = new ClickEventMessage();
+        click.setEventKey("menu");
+        handler.click(click);
+        handler.click(click);
+        //缓存的事件不再调用delegate
+        assertEquals(1, calls[0]);
+        handler.subscribe(new SubscribeEventMessage());
+        handler.subscribe(new SubscribeEventMessage());
+        assertEquals(3, calls[0]);
+    }
+}
@@ -0,0 +1,71 @@
+package org.weixin4j.test;
+
+import com.alibaba.fastjson.JSONObject;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.Group;
+import org.weixin4j.User;
+import org.weixin4j.http.Response;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class ResponseJUnitTest {
+
+    public ResponseJUnitTest() {
+    }
+
+    private static Response response(String body) {
+        return new Response(200, Collections.<String, List<String>>emptyMap(),
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void as() throws Exception {
+        Response res = response("{\"subscribe\":1,\"openid\":\"o6_bmjrPTlm6_2sgVt7hMZOPfL2M\",\"nickname\":\"Band\",\"sex\":1}");
+        User user = res.as(User.class);
+        assertEquals("o6_bmjrPTlm6_2sgVt7hMZOPfL2M", user.getOpenid());
+        assertEquals("Band", user.getNickname());
+        assertEquals(0, res.getErrcode());
+    }
+
+    @Test
+    public void asError() throws Exception {
+        Response res = response(" {\"errcode\":40013,\"errmsg\":\"invalid appid\"}");
+        assertNull(res.as(User.class));
+        assertEquals(40013, res.getErrcode());
+    }
+
+    @Test
+    public void forEachArrayElement() throws Exception {
+        StringBuilder body = new StringBuilder("{\"total\":23000,\"count\":10000,\"data\":{\"openid\":[");
+        for (int i = 0; i < 10000; i++) {
+            body.append(i == 0 ? "" : ",").append("\"OPENID").append(i).append('"');
+        }
+        body.append("]},\"next_openid\":\"OPENID9999\"}");
+        List<String> openids = new ArrayList<String>();
+        Response res = response(body.toString());
+        JSONObject fields = res.forEachArrayElement("data.openid", String.class, openids::add);
+        assertEquals(10000, openids.size());
+        assertEquals("OPENID0", openids.get(0));
+        assertEquals(23000, fields.getIntValue("total"));
+        assertEquals("OPENID9999", fields.getString("next_openid"));
+        assertFalse(fields.containsKey("data"));
+        assertEquals(0, res.getErrcode());
+    }
+
+    @Test
+    public void forEachArrayElementError() throws Exception {
+        List<Group> groups = new ArrayList<Group>();
+        Response res = response("{\"errcode\":40001,\"errmsg\":\"invalid credential\"}");
+        res.forEachArrayElement("groups", Group.class, groups::add);
+        assertTrue(groups.isEmpty());
+        assertEquals(40001, res.getErrcode());
+    }
+}
@@ -0,0 +1,158 @@
+package org.weixin4j.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.http.HttpRequest;
+import org.weixin4j.http.Response;
+import org.weixin4j.http.RetryPolicy;
+import org.weixin4j.spi.IHttpTransport;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class RetryPolicyJUnitTest {
+
+    private static final String USER_INFO = "https://api.weixin.qq.com/cgi-bin/user/info?access_token=t&openid=o";
+    private static final String MASS_SEND = "https://api.weixin.qq.com/cgi-bin/message/mass/send?access_token=t";
+
+    public RetryPolicyJUnitTest() {
+    }
+
+    //按顺序返回预设的响应，null表示连接错误
+    private static class ScriptedTransport implements IHttpTransport {
+
+        private final Deque<Object[]> script = new ArrayDeque<Object[]>();
+        private int calls;
+
+        ScriptedTransport then(int status, String body) {
+            script.add(new Object[]{status, body});
+            return this;
+        }
+
+        ScriptedTransport thenError() {
+            script.add(new Object[]{0, null});
+            return this;
+        }
+
+        @Override
+        public Response execute(HttpRequest request) throws IOException {
+            calls++;
+            Object[] next = script.poll();
+            if (next[1] == null) {
+                throw new IOException("Connection reset");
+            }
+            Map<String, List<String>> headers = Collections.singletonMap("Content-Type",
+                    Collections.singletonList("application/json; encoding=utf-8"));
+            return new Response((Integer) next[0], headers,
+                    new ByteArrayInputStream(((String) next[1]).getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void retriesIdempotentCall() throws Exception {
+        ScriptedTransport transport = new ScriptedTransport()
+                .thenError()
+                .then(503, "<html>Service Unavailable</html>")
+                .then(200, "{\"errcode\":-1,\"errmsg\":\"system error\"}")
+                .then(200, "{\"subscribe\":1,\"openid\":\"o\"}");
+        RetryPolicy policy = new RetryPolicy(3, 1, 5, 0, 0.1);
+        Response res = policy.execute(transport, new HttpRequest("GET", USER_INFO));
+        assertEquals("{\"subscribe\":1,\"openid\":\"o\"}", res.asString().trim());
+        assertEquals(4, transport.calls);
+        assertEquals(3, policy.getRetryTotal());
+        assertEquals(0, policy.getExhaustedCount());
+    }
+
+    @Test
+    public void otherErrcodeNotRetried() throws Exception {
+        ScriptedTransport transport = new ScriptedTransport()
+                .then(200, "{\"errcode\":-10,\"errmsg\":\"x\"}")
+                .then(200, "{\"errcode\":40001,\"errmsg\":\"invalid credential\"}");
+        RetryPolicy policy = new RetryPolicy(3, 1, 5, 0, 0.1);
+        assertTrue(policy.execute(transport, new HttpRequest("GET", USER_INFO)).asString().contains("-10"));
+        assertTrue(policy.execute(transport, new HttpRequest("GET", USER_INFO)).asString().contains("40001"));
+        assertEquals(2, transport.calls);
+    }
+
+    @Test
+    public void nonIdempotentNotRetried() throws Exception {
+        ScriptedTransport transport = new ScriptedTransport()
+                .then(200, "{\"errcode\":-1,\"errmsg\":\"system error\"}")
+                .then(200, "{\"errcode\":-1,\"errmsg\":\"system error\"}")
+                .then(200, "{\"errcode\":0,\"msg_id\":34182}");
+        RetryPolicy policy = new RetryPolicy(3, 1, 5, 0, 0.1);
+        //群发默认不重试，errcode原样返回给调用方
+        assertTrue(policy.execute(transport, new HttpRequest("POST", MASS_SEND)).asString().contains("-1"));
+        assertEquals(1, transport.calls);
+        //按接口路径开启重试
+        policy.setRetryCount("/cgi-bin/message/mass/send", 1);
+        assertTrue(policy.execute(transport, new HttpRequest("POST", MASS_SEND)).asString().contains("34182"));
+        assertEquals(3, transport.calls);
+    }
+
+    @Test
+    public void budgetStopsRetries() throws Exception {
+        ScriptedTransport transport = new ScriptedTransport();
+        for (int i = 0; i < 20; i++) {
+            transport.then(502, "Bad Gateway");
+        }
+        //4个令牌，剩余不超过2个时不再重试
+        RetryPolicy policy = new RetryPolicy(3, 1, 5, 4, 0.1);
+        for (int i = 0; i < 3; i++) {
+            try {
+                policy.execute(transport, new HttpRequest("GET", USER_INFO));
+                fail();
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage().contains("502"));
+            }
+        }
+        //第一次请求重试1次，之后预算不足不再重试
+        assertEquals(4, transport.calls);
+        assertEquals(1, policy.getRetryTotal());
+        assertEquals(3, policy.getBudgetRejectedCount());
+    }
+
+    @Test
+    public void noRetryKeepsBudget() throws Exception {
+        ScriptedTransport transport = new ScriptedTransport();
+        for (int i = 0; i < 10; i++) {
+            transport.then(200, "{\"errcode\":-1,\"errmsg\":\"system error\"}");
+        }
+        transport.then(502, "Bad Gateway").then(200, "{\"subscribe\":1}");
+        RetryPolicy policy = new RetryPolicy(3, 1, 5, 4, 0.1);
+        //不重试的群发失败不消耗重试预算
+        for (int i = 0; i < 10; i++) {
+            assertTrue(policy.execute(transport, new HttpRequest("POST", MASS_SEND)).asString().contains("-1"));
+        }
+        assertEquals("{\"subscribe\":1}", policy.execute(transport, new HttpRequest("GET", USER_INFO)).asString().trim());
+        assertEquals(1, policy.getRetryTotal());
+        assertEquals(0, policy.getBudgetRejectedCount());
+    }
+
+    @Test
+    public void malformedContentLength() throws Exception {
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("Content-Type", Collections.singletonList("application/json"));
+        headers.put("Content-Length", Collections.singletonList("12abc"));
+        final int[] calls = new int[1];
+        IHttpTransport transport = request -> {
+            calls[0]++;
+            String body = calls[0] == 1 ? "{\"errcode\":-1}" : "{\"errcode\":0}";
+            return new Response(200, headers, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        };
+        //长度格式错误时按未知长度处理，仍检查errcode
+        RetryPolicy policy = new RetryPolicy(3, 1, 5, 0, 0.1);
+        assertEquals("{\"errcode\":0}", policy.execute(transport, new HttpRequest("GET", USER_INFO)).asString().trim());
+        assertEquals(2, calls[0]);
+    }
+}
@@ -0,0 +1,84 @@
+package org.weixin4j.test;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.weixin4j.Configuration;
+import org.weixin4j.util.TokenUtil;
+
+/**
+ *
+ * @author weixin4j<weixin4j@ansitech.com>
+ */
+public class TokenUtilJUnitTest {
+
+    public TokenUtilJUnitTest() {
+    }
+
+    @After
+    public void tearDown() {
+        Configuration.setProperty("weixin4j.signature.timestampWindow", "0");
+        Configuration.setProperty("weixin4j.signature.nonceCheck", "false");
+    }
+
+    @Test
+    public void checkSignature() {
+        assertTrue(TokenUtil.checkSignature("weixin4j", "e01bfdcce172004edc735c19b7b87363ec875103", "1409304348", "1372623149"));
+        assertTrue(TokenUtil.checkSignature("QDG6eK", "d2157f2f9079f4d6257b45edf665c43c62e60a0a", "1409659813", "1372623149"));
+        //非ASCII的Token按UTF-8编码
+        assertTrue(TokenUtil.checkSignature("微信", "ad5d7520c1df30ff186f09220ebf8af0c1c8e8f8", "1409304348", "abc"));
+    }
+
+    @Test
+    public void orderings() {
+        //三个参数无论以何种顺序传入，都按字典序排序后摘要，其中一个参数是另一个的前缀
+        String[] values = {"1409304348", "weixin4j", "weixin4j_nonce"};
+        int[][] orders = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+        for (int[] order : orders) {
+            assertTrue(TokenUtil.checkSignature(values[order[0]], "3af62d1a302708a5e703d3d1e8cc07bf63456cb2",
+                    values[order[1]], values[order[2]]));
+        }
+    }
+
+    @Test
+    public void wrongSignature() {
+        assertFalse(TokenUtil.checkSignature("weixin4j", "e01bfdcce172004edc735c19b7b87363ec875104", "1409304348", "1372623149"));
+        assertFalse(TokenUtil.checkSignature("weixin4j", "E01BFDCCE172004EDC735C19B7B87363EC875103", "1409304348", "1372623149"));
+        assertFalse(TokenUtil.checkSignature("weixin4j", "e01bfdcce172004edc735c19b7b87363ec87510", "1409304348", "1372623149"));
+        assertFalse(TokenUtil.checkSignature("weixin4j", "e01bfdcce172004edc735c19b7b87363ec875103", "1409304349", "1372623149"));
+        assertFalse(TokenUtil.checkSignature("weixin4j", null, "1409304348", "1372623149"));
+        assertFalse(TokenUtil.checkSignature("weixin4j", "e01bfdcce172004edc735c19b7b87363ec875103", null, "1372623149"));
+    }
+
+    @Test
+    public void staleTimestamp() {
+        long now = System.currentTimeMillis() / 1000;
+        //未配置时间窗口时不检查
+        assertTrue(TokenUtil.checkTimestamp("1409304348"));
+        Configuration.setProperty("weixin4j.signature.timestampWindow", "300");
+        assertTrue(TokenUtil.checkTimestamp(String.valueOf(now)));
+        assertTrue(TokenUtil.checkTimestamp(String.valueOf(now - 200)));
+        assertFalse(TokenUtil.checkTimestamp(String.valueOf(now - 1000)));
+        assertFalse(TokenUtil.checkTimestamp(String.valueOf(now + 1000)));
+        assertFalse(TokenUtil.checkTimestamp("abc"));
+        //签名正确但时间戳过期
+        assertFalse(TokenUtil.verify("weixin4j", "e01bfdcce172004edc735c19b7b87363ec875103", "1409304348", "1372623149"));
+    }
+
+    @Test
+    public void replayedNonce() {
+        String nonce = String.valueOf(System.nanoTime());
+        //未开启检查时不拒绝
+        assertTrue(TokenUtil.checkNonce(nonce));
+        assertTrue(TokenUtil.checkNonce(nonce));
+        Configuration.setProperty("weixin4j.signature.nonceCheck", "true");
+        assertTrue(TokenUtil.checkNonce("gh_1", nonce));
+        assertFalse(TokenUtil.checkNonce("gh_1", nonce));
+        //不同公众号的随机数互不影响
+        assertTrue(TokenUtil.checkNonce("gh_2", nonce));
+        assertTrue(TokenUtil.checkNonce(nonce));
+        assertFalse(TokenUtil.checkNonce(nonce));
+        assertTrue(TokenUtil.verify("weixin4j", "e01bfdcce172004edc735c19b7b87363ec875103", "1409304348", "1372623149"));
+        assertFalse(TokenUtil.verify("weixin4j", "e01bfdcce172004edc735c19b7b87363ec875103", "1409304348", "1372623149"));
+    }
+}